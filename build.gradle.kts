@@ -4,6 +4,7 @@ plugins {
     id("maven-publish")
     id("com.diffplug.spotless") version "7.0.2"
     id("com.gradleup.shadow") version "8.3.6"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "com.pehenrii"
@@ -24,11 +25,20 @@ dependencies {
     compileOnly(libs.lombok)
     annotationProcessor(libs.lombok)
 
+    testAnnotationProcessor(project(":packet-bridge-processor"))
+
     testImplementation(libs.mockito)
     testImplementation(libs.junit)
     testImplementation(libs.test.containers)
 }
 
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
+
 tasks {
     java {
         toolchain.languageVersion.set(JavaLanguageVersion.of(21))
@@ -0,0 +1,17 @@
+plugins {
+    id("java-library")
+    id("maven-publish")
+}
+
+group = "com.pehenrii"
+version = rootProject.version
+
+repositories {
+    mavenCentral()
+}
+
+tasks {
+    java {
+        toolchain.languageVersion.set(JavaLanguageVersion.of(21))
+    }
+}
@@ -0,0 +1,114 @@
+package com.pehenrii.packet.bridge.processor;
+
+/**
+ * The serialized forms of {@code @PacketField} fields, each rendering the statements that
+ * write and read a field and the expression computing its size.
+ */
+enum FieldKind {
+
+    BOOLEAN(1, "Boolean"),
+    BYTE(1, "Byte"),
+    SHORT(2, "Short"),
+    CHAR(2, null),
+    INT(4, "Int"),
+    LONG(8, "Long"),
+    FLOAT(4, "Float"),
+    DOUBLE(8, "Double"),
+    VARSHORT(-1, null),
+    VARINT(-1, null),
+    VARLONG(-1, null),
+    STRING(-1, null),
+    UUID(16, "UUID"),
+    BYTES(-1, null),
+    ENUM(-1, null);
+
+    private static final String OUTPUT = "com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput";
+
+    private final int fixedSize;
+    private final String method;
+
+    FieldKind(int fixedSize, String method) {
+        this.fixedSize = fixedSize;
+        this.method = method;
+    }
+
+    /**
+     * Returns the size of a non-nullable field of this kind, if it does not depend on the value.
+     *
+     * @param nullable whether the field may be null
+     * @return the size in bytes, or {@code -1} if it varies
+     */
+    int fixedSize(boolean nullable) {
+        return nullable ? -1 : fixedSize;
+    }
+
+    /**
+     * @param value    the field access expression
+     * @param nullable whether the field may be null
+     * @return the expression computing the size of a field whose size varies
+     */
+    String size(String value, boolean nullable) {
+        String size = switch (this) {
+            case VARSHORT, VARINT -> OUTPUT + ".sizeOfVarInt(" + value + ")";
+            case VARLONG -> OUTPUT + ".sizeOfVarLong(" + value + ")";
+            case STRING -> OUTPUT + ".sizeOfUTF8(" + value + ")";
+            case BYTES -> OUTPUT + ".sizeOfBytes(" + value + ".length)";
+            case ENUM -> OUTPUT + ".sizeOfUnsignedVarInt(" + value + ".ordinal())";
+            default -> String.valueOf(fixedSize);
+        };
+
+        return nullable ? "(" + value + " == null ? 1 : 1 + " + size + ")" : size;
+    }
+
+    /**
+     * @param value    the field access expression
+     * @param nullable whether the field may be null
+     * @return the statement writing the field to {@code buffer}
+     */
+    String write(String value, boolean nullable) {
+        String write = switch (this) {
+            case CHAR -> "buffer.writeShort((short) " + value + ");";
+            case VARSHORT, VARINT -> "buffer.writeVarInt(" + value + ");";
+            case VARLONG -> "buffer.writeVarLong(" + value + ");";
+            case STRING -> "buffer.writeUTF8(" + value + ");";
+            case BYTES -> "buffer.writeBytes(" + value + ");";
+            case ENUM -> "buffer.writeEnumOrdinal(" + value + ");";
+            default -> "buffer.write" + method + "(" + value + ");";
+        };
+
+        if (!nullable) return write;
+        return "buffer.writeBoolean(" + value + " != null);\n"
+                + "        if (" + value + " != null) {\n"
+                + "            " + write + "\n"
+                + "        }";
+    }
+
+    /**
+     * @param target   the field access expression
+     * @param type     the declared type of the field
+     * @param nullable whether the field may be null
+     * @return the statement reading the field from {@code buffer}
+     */
+    String read(String target, String type, boolean nullable) {
+        String read = switch (this) {
+            case CHAR -> "(char) buffer.readShort()";
+            case VARSHORT -> "(short) buffer.readVarInt()";
+            case VARINT -> "buffer.readVarInt()";
+            case VARLONG -> "buffer.readVarLong()";
+            case STRING -> "buffer.readUTF8()";
+            case BYTES -> "buffer.readBytes()";
+            case ENUM -> "buffer.readEnumOrdinal(" + type + ".class)";
+            default -> "buffer.read" + method + "()";
+        };
+
+        return target + " = " + (nullable ? "buffer.readBoolean() ? " + read + " : null" : read) + ";";
+    }
+
+    /**
+     * Whether fields of this kind may be declared {@code nullable}. Primitives never are,
+     * strings always are.
+     */
+    boolean supportsNullable() {
+        return this == UUID || this == BYTES || this == ENUM;
+    }
+}
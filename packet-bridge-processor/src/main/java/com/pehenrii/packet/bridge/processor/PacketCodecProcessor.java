@@ -0,0 +1,310 @@
+package com.pehenrii.packet.bridge.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@code PacketCodec} for every packet class with {@code @PacketField} fields.
+ * <p>
+ * The codec of {@code com.example.ChatPacket} is generated as {@code com.example.ChatPacketCodec},
+ * the name under which {@code PacketCodecs} looks it up at runtime. It accesses the fields
+ * directly, creates packets through their no-arg constructor and computes the exact
+ * serialized size of a packet without writing it, so none of it involves reflection.
+ * </p>
+ * <p>
+ * Each codec is generated from a single packet class, which makes this an isolating
+ * processor for Gradle's incremental compilation.
+ * </p>
+ */
+@SupportedAnnotationTypes(PacketCodecProcessor.PACKET_FIELD)
+public final class PacketCodecProcessor extends AbstractProcessor {
+
+    static final String PACKET_FIELD = "com.pehenrii.packet.bridge.annotation.PacketField";
+
+    private static final String PACKET = "com.pehenrii.packet.bridge.packet.Packet";
+    private static final String CODEC = "com.pehenrii.packet.bridge.codec.PacketCodec";
+    private static final String OUTPUT = "com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput";
+    private static final String INPUT = "com.pehenrii.packet.bridge.buffer.PacketByteBufferInput";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            Set<TypeElement> packets = new LinkedHashSet<>();
+            for (Element field : roundEnv.getElementsAnnotatedWith(annotation)) {
+                packets.add((TypeElement) field.getEnclosingElement());
+            }
+
+            for (TypeElement packet : packets) {
+                List<PacketField> fields = fields(packet);
+                if (fields != null && validate(packet)) {
+                    generate(packet, fields);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * A field serialized by the generated codec.
+     */
+    private record PacketField(String name, String type, FieldKind kind, boolean nullable) {
+    }
+
+    private boolean validate(TypeElement packet) {
+        Messager messager = processingEnv.getMessager();
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+
+        if (packet.getKind() != ElementKind.CLASS || packet.getModifiers().contains(Modifier.ABSTRACT)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "@PacketField fields must be declared in a concrete class", packet);
+            return false;
+        }
+
+        if (!packet.getTypeParameters().isEmpty()) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Packet classes with @PacketField fields must not be generic", packet);
+            return false;
+        }
+
+        for (Element element = packet; element instanceof TypeElement type; element = type.getEnclosingElement()) {
+            if (type.getModifiers().contains(Modifier.PRIVATE)
+                    || type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+                    || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Packet classes with @PacketField fields must be top-level or static nested classes, and not private", packet);
+                return false;
+            }
+        }
+
+        TypeElement packetInterface = elements.getTypeElement(PACKET);
+        if (packetInterface == null || !types.isAssignable(packet.asType(), types.erasure(packetInterface.asType()))) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Classes with @PacketField fields must implement " + PACKET, packet);
+            return false;
+        }
+
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(packet.getEnclosedElements());
+        boolean instantiable = constructors.stream().anyMatch(constructor ->
+                constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE));
+        if (!instantiable) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Packet classes with @PacketField fields need a non-private no-arg constructor", packet);
+            return false;
+        }
+
+        boolean valid = true;
+        for (ExecutableElement method : ElementFilter.methodsIn(packet.getEnclosedElements())) {
+            String name = method.getSimpleName().toString();
+            if ((name.equals("write") || name.equals("read")) && method.getParameters().size() == 1) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Packet classes with @PacketField fields are serialized by their generated codec and must not implement " + name, method);
+                valid = false;
+            }
+        }
+
+        return valid;
+    }
+
+    /**
+     * Resolves the annotated fields of a packet class in declaration order.
+     *
+     * @return the fields, or {@code null} if any of them cannot be serialized
+     */
+    private List<PacketField> fields(TypeElement packet) {
+        Messager messager = processingEnv.getMessager();
+        List<PacketField> fields = new ArrayList<>();
+        boolean valid = true;
+
+        for (VariableElement field : ElementFilter.fieldsIn(packet.getEnclosedElements())) {
+            AnnotationMirror annotation = packetField(field);
+            if (annotation == null) continue;
+
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "@PacketField fields must not be private, static or final", field);
+                valid = false;
+                continue;
+            }
+
+            boolean varint = booleanValue(annotation, "varint");
+            boolean nullable = booleanValue(annotation, "nullable");
+            FieldKind kind = kind(field.asType(), varint);
+            if (kind == null) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Unsupported @PacketField type " + field.asType()
+                        + "; supported are primitives, String, UUID, byte[] and enums", field);
+                valid = false;
+                continue;
+            }
+
+            if (nullable && !kind.supportsNullable()) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Only UUID, byte[] and enum fields can be nullable", field);
+                valid = false;
+                continue;
+            }
+
+            fields.add(new PacketField(field.getSimpleName().toString(), typeName(field.asType()), kind, nullable));
+        }
+
+        return valid ? fields : null;
+    }
+
+    private static AnnotationMirror packetField(VariableElement field) {
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(PACKET_FIELD)) {
+                return annotation;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean booleanValue(AnnotationMirror annotation, String name) {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                processingEnv.getElementUtils().getElementValuesWithDefaults(annotation);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return (Boolean) entry.getValue().getValue();
+            }
+        }
+
+        return false;
+    }
+
+    private FieldKind kind(TypeMirror type, boolean varint) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return FieldKind.BOOLEAN;
+            case BYTE:
+                return FieldKind.BYTE;
+            case SHORT:
+                return varint ? FieldKind.VARSHORT : FieldKind.SHORT;
+            case CHAR:
+                return FieldKind.CHAR;
+            case INT:
+                return varint ? FieldKind.VARINT : FieldKind.INT;
+            case LONG:
+                return varint ? FieldKind.VARLONG : FieldKind.LONG;
+            case FLOAT:
+                return FieldKind.FLOAT;
+            case DOUBLE:
+                return FieldKind.DOUBLE;
+            case ARRAY:
+                return ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE ? FieldKind.BYTES : null;
+            case DECLARED:
+                TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+                if (element.getKind() == ElementKind.ENUM) return FieldKind.ENUM;
+
+                String name = element.getQualifiedName().toString();
+                if (name.equals("java.lang.String")) return FieldKind.STRING;
+                if (name.equals("java.util.UUID")) return FieldKind.UUID;
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private String typeName(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        }
+
+        return type.toString();
+    }
+
+    private void generate(TypeElement packet, List<PacketField> fields) {
+        Elements elements = processingEnv.getElementUtils();
+        String packageName = elements.getPackageOf(packet).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(packet).toString();
+        String codecName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                .replace('$', '_') + "Codec";
+        String packetName = packet.getQualifiedName().toString();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+
+        source.append("@javax.annotation.processing.Generated(\"").append(PacketCodecProcessor.class.getName()).append("\")\n")
+                .append("public final class ").append(codecName)
+                .append(" implements ").append(CODEC).append('<').append(packetName).append("> {\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(packetName).append(" newInstance() {\n")
+                .append("        return new ").append(packetName).append("();\n")
+                .append("    }\n\n");
+
+        int fixedSize = 0;
+        List<String> variableSizes = new ArrayList<>();
+        for (PacketField field : fields) {
+            int size = field.kind().fixedSize(field.nullable());
+            if (size >= 0) {
+                fixedSize += size;
+            } else {
+                variableSizes.add(field.kind().size("packet." + field.name(), field.nullable()));
+            }
+        }
+
+        source.append("    @Override\n")
+                .append("    public int sizeOf(").append(packetName).append(" packet) {\n")
+                .append("        return ").append(fixedSize);
+        for (String size : variableSizes) {
+            source.append("\n                + ").append(size);
+        }
+
+        source.append(";\n    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void write(").append(packetName).append(" packet, ").append(OUTPUT).append(" buffer) {\n");
+        for (PacketField field : fields) {
+            source.append("        ").append(field.kind().write("packet." + field.name(), field.nullable())).append('\n');
+        }
+
+        source.append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void read(").append(packetName).append(" packet, ").append(INPUT).append(" buffer) {\n");
+        for (PacketField field : fields) {
+            source.append("        ").append(field.kind().read("packet." + field.name(), field.type(), field.nullable())).append('\n');
+        }
+
+        source.append("    }\n}\n");
+
+        String qualifiedName = packageName.isEmpty() ? codecName : packageName + "." + codecName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, packet).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + qualifiedName + ": " + e.getMessage(), packet);
+        }
+    }
+}
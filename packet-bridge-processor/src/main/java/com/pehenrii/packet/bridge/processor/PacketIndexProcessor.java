@@ -0,0 +1,168 @@
+package com.pehenrii.packet.bridge.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes the packet index: the binary names of every {@code @PacketInfo} class of the
+ * compilation, one per line, to {@value #INDEX}, where {@code PacketIndex} reads them at
+ * runtime instead of scanning the class path.
+ * <p>
+ * Classes the registry would reject once resolved are reported as compile errors instead:
+ * classes that do not implement {@code Packet}, cannot be instantiated through a no-arg
+ * constructor, or whose annotation combines options that exclude each other.
+ * </p>
+ * <p>
+ * The index is written from every annotated class at once, which makes this an aggregating
+ * processor for Gradle's incremental compilation.
+ * </p>
+ */
+@SupportedAnnotationTypes(PacketIndexProcessor.PACKET_INFO)
+public final class PacketIndexProcessor extends AbstractProcessor {
+
+    static final String PACKET_INFO = "com.pehenrii.packet.bridge.annotation.PacketInfo";
+    static final String INDEX = "META-INF/packet-bridge/packets";
+
+    private static final String PACKET = "com.pehenrii.packet.bridge.packet.Packet";
+    private static final int MAX_ID = 0xFFFF;
+
+    private final Set<String> packets = new TreeSet<>();
+    private final List<Element> origins = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (TypeElement packet : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                if (validate(packet)) {
+                    packets.add(processingEnv.getElementUtils().getBinaryName(packet).toString());
+                    origins.add(packet);
+                }
+            }
+        }
+
+        if (roundEnv.processingOver() && !packets.isEmpty()) {
+            write();
+        }
+
+        // The codec processor and others may handle the same classes
+        return false;
+    }
+
+    private boolean validate(TypeElement packet) {
+        Messager messager = processingEnv.getMessager();
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+
+        if (packet.getKind() != ElementKind.CLASS || packet.getModifiers().contains(Modifier.ABSTRACT)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "@PacketInfo must annotate a concrete class", packet);
+            return false;
+        }
+
+        for (Element element = packet; element instanceof TypeElement type; element = type.getEnclosingElement()) {
+            if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+                    || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Packet classes must be top-level or static nested classes", packet);
+                return false;
+            }
+        }
+
+        TypeElement packetInterface = elements.getTypeElement(PACKET);
+        if (packetInterface == null || !types.isAssignable(packet.asType(), types.erasure(packetInterface.asType()))) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Classes with @PacketInfo must implement " + PACKET, packet);
+            return false;
+        }
+
+        boolean instantiable = ElementFilter.constructorsIn(packet.getEnclosedElements()).stream()
+                .anyMatch(constructor -> constructor.getParameters().isEmpty());
+        if (!instantiable) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Packet classes need a no-arg constructor", packet);
+            return false;
+        }
+
+        AnnotationMirror packetInfo = packetInfo(packet);
+        if (packetInfo == null) return false;
+
+        Map<String, Object> values = values(packetInfo);
+        int id = (Integer) values.get("id");
+        if (id < -1 || id > MAX_ID) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Packet type id " + id + " is outside [0, " + MAX_ID + "]", packet, packetInfo);
+            return false;
+        }
+
+        boolean stream = values.get("delivery").toString().equals("STREAM");
+        boolean coalesce = (Boolean) values.get("coalesce");
+        for (String option : new String[]{"delta", "conflate"}) {
+            if ((Boolean) values.get(option) && (stream || coalesce)) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Stream and coalesced packet types cannot set " + option, packet, packetInfo);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static AnnotationMirror packetInfo(TypeElement packet) {
+        for (AnnotationMirror annotation : packet.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(PACKET_INFO)) {
+                return annotation;
+            }
+        }
+
+        return null;
+    }
+
+    private Map<String, Object> values(AnnotationMirror annotation) {
+        Map<String, Object> values = new HashMap<>();
+        Map<? extends ExecutableElement, ? extends AnnotationValue> elementValues =
+                processingEnv.getElementUtils().getElementValuesWithDefaults(annotation);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elementValues.entrySet()) {
+            values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+        }
+
+        return values;
+    }
+
+    private void write() {
+        try (Writer writer = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX, origins.toArray(new Element[0]))
+                .openWriter()) {
+            for (String packet : packets) {
+                writer.write(packet);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + INDEX + ": " + e.getMessage());
+        }
+    }
+}
@@ -1 +1,3 @@
-rootProject.name = "packet-bridge"
\ No newline at end of file
+rootProject.name = "packet-bridge"
+
+include("packet-bridge-processor")
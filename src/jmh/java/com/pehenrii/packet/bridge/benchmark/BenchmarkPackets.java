@@ -0,0 +1,154 @@
+package com.pehenrii.packet.bridge.benchmark;
+
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.Packet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Packet shapes exercised by the benchmarks: a handful of scalar fields, a chat-like
+ * packet dominated by text, and a bulk packet carrying collections.
+ */
+final class BenchmarkPackets {
+
+    private BenchmarkPackets() {
+    }
+
+    /**
+     * Creates a populated packet of the given shape.
+     *
+     * @param shape {@code SMALL}, {@code CHAT} or {@code BULK}
+     * @return the packet
+     */
+    static Packet create(String shape) {
+        return switch (shape) {
+            case "SMALL" -> new Small(UUID.randomUUID(), 42, 1_700_000_000_000L, true);
+            case "CHAT" -> new Chat(UUID.randomUUID(), "player-1234", "general",
+                    "Anyone up for a dungeon run? Meet at the north gate in five minutes, bring potions.");
+            case "BULK" -> Bulk.sample(64);
+            default -> throw new IllegalArgumentException("Unknown packet shape " + shape);
+        };
+    }
+
+    static Supplier<? extends Packet> factory(String shape) {
+        return switch (shape) {
+            case "SMALL" -> Small::new;
+            case "CHAT" -> Chat::new;
+            case "BULK" -> Bulk::new;
+            default -> throw new IllegalArgumentException("Unknown packet shape " + shape);
+        };
+    }
+
+    @PacketInfo(name = "bench-small")
+    static final class Small implements Packet {
+
+        private UUID id;
+        private int value;
+        private long timestamp;
+        private boolean flag;
+
+        Small() {
+        }
+
+        Small(UUID id, int value, long timestamp, boolean flag) {
+            this.id = id;
+            this.value = value;
+            this.timestamp = timestamp;
+            this.flag = flag;
+        }
+
+        @Override
+        public void write(PacketByteBufferOutput buffer) {
+            buffer.writeUUID(id);
+            buffer.writeVarInt(value);
+            buffer.writeLong(timestamp);
+            buffer.writeBoolean(flag);
+        }
+
+        @Override
+        public void read(PacketByteBufferInput buffer) {
+            this.id = buffer.readUUID();
+            this.value = buffer.readVarInt();
+            this.timestamp = buffer.readLong();
+            this.flag = buffer.readBoolean();
+        }
+    }
+
+    @PacketInfo(name = "bench-chat")
+    static final class Chat implements Packet {
+
+        private UUID sender;
+        private String senderName;
+        private String room;
+        private String text;
+
+        Chat() {
+        }
+
+        Chat(UUID sender, String senderName, String room, String text) {
+            this.sender = sender;
+            this.senderName = senderName;
+            this.room = room;
+            this.text = text;
+        }
+
+        @Override
+        public void write(PacketByteBufferOutput buffer) {
+            buffer.writeUUID(sender);
+            buffer.writeUTF8(senderName);
+            buffer.writeUTF8(room);
+            buffer.writeUTF8(text);
+        }
+
+        @Override
+        public void read(PacketByteBufferInput buffer) {
+            this.sender = buffer.readUUID();
+            this.senderName = buffer.readUTF8();
+            this.room = buffer.readUTF8();
+            this.text = buffer.readUTF8();
+        }
+    }
+
+    @PacketInfo(name = "bench-bulk")
+    static final class Bulk implements Packet {
+
+        private List<Long> values;
+        private Map<String, Integer> counters;
+
+        Bulk() {
+        }
+
+        static Bulk sample(int size) {
+            Bulk bulk = new Bulk();
+            bulk.values = new ArrayList<>(size);
+            bulk.counters = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                bulk.values.add(i * 7_919L);
+                if (i % 4 == 0) {
+                    bulk.counters.put("counter-" + i, i);
+                }
+            }
+
+            return bulk;
+        }
+
+        @Override
+        public void write(PacketByteBufferOutput buffer) {
+            buffer.writeList(values, buffer::writeVarLong);
+            buffer.writeMap(counters, buffer::writeUTF8, buffer::writeVarInt);
+        }
+
+        @Override
+        public void read(PacketByteBufferInput buffer) {
+            this.values = buffer.readList(PacketByteBufferInput::readVarLong);
+            this.counters = buffer.readMap(PacketByteBufferInput::readUTF8, PacketByteBufferInput::readVarInt);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.pehenrii.packet.bridge.benchmark;
+
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import com.pehenrii.packet.bridge.transport.FrameReceiver;
+import com.pehenrii.packet.bridge.transport.PacketTransport;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport that keeps the last published frame and exposes the service's frame receiver,
+ * so benchmarks can replay frames into the receive path without any publishing cost.
+ */
+final class CapturingTransport implements PacketTransport {
+
+    private static final CompletableFuture<Long> ONE_RECEIVER = CompletableFuture.completedFuture(1L);
+    private static final QueueStats NO_QUEUE = new QueueStats(0, 0, 0, 0);
+
+    private volatile FrameReceiver receiver;
+    private volatile byte[] lastChannel;
+    private volatile byte[] lastFrame;
+
+    @Override
+    public void start(FrameReceiver receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public CompletableFuture<Void> subscribe(byte[] channel, Delivery delivery) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(byte[] channel, byte[] frame, Delivery delivery) {
+        this.lastChannel = channel;
+        this.lastFrame = frame;
+        return ONE_RECEIVER;
+    }
+
+    @Override
+    public QueueStats sendQueueStats() {
+        return NO_QUEUE;
+    }
+
+    FrameReceiver receiver() {
+        return receiver;
+    }
+
+    byte[] lastChannel() {
+        return lastChannel;
+    }
+
+    byte[] lastFrame() {
+        return lastFrame;
+    }
+
+    @Override
+    public void close() {
+    }
+}
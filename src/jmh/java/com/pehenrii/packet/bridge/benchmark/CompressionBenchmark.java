@@ -0,0 +1,88 @@
+package com.pehenrii.packet.bridge.benchmark;
+
+import com.pehenrii.packet.bridge.compression.PacketCompressor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame encoding and decoding through {@link PacketCompressor} across payload sizes,
+ * as done by the packet service for every sent and received packet. Payloads below the
+ * default threshold measure the stored path, larger ones the zstd path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+
+    private static final String[] WORDS = {
+            "player", "joined", "left", "the", "server", "lobby", "arena", "match", "score", "team",
+            "red", "blue", "won", "round", "kill", "assist", "quest", "complete", "reward", "gold"
+    };
+
+    /**
+     * The header bytes the packet service leaves free in front of the encoded payload.
+     */
+    private static final int HEADROOM = 2;
+
+    @Param({"32", "256", "4096", "65536"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private PacketCompressor compressor;
+    private ByteBuffer payload;
+    private byte[] frame;
+
+    @Setup
+    public void setup() {
+        compressor = new PacketCompressor(64, 3);
+
+        byte[] bytes = text(size, new SplittableRandom(42));
+        payload = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        payload.put(bytes).clear();
+
+        frame = compressor.compress(null, payload, 0, size, HEADROOM);
+    }
+
+    /**
+     * Builds text made of a small vocabulary, which compresses about as well as typical packet data.
+     */
+    private static byte[] text(int size, SplittableRandom random) {
+        StringBuilder builder = new StringBuilder(size + 16);
+        while (builder.length() < size) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ').append(random.nextInt(1000)).append(' ');
+        }
+
+        byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+        return Arrays.copyOf(bytes, size);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return compressor.compress(null, payload, 0, size, HEADROOM);
+    }
+
+    @Benchmark
+    public ByteBuffer decompress() {
+        return compressor.decompress(null, frame, HEADROOM);
+    }
+}
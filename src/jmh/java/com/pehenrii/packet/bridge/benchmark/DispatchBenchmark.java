@@ -0,0 +1,98 @@
+package com.pehenrii.packet.bridge.benchmark;
+
+import com.pehenrii.packet.bridge.PacketBridgeOptions;
+import com.pehenrii.packet.bridge.packet.Packet;
+import com.pehenrii.packet.bridge.packet.PacketHandler;
+import com.pehenrii.packet.bridge.service.PacketService;
+import com.pehenrii.packet.bridge.transport.FrameReceiver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the receive path: channel lookup, striped dispatch, frame decoding and
+ * handler invocation. Frames captured from the service's own send path are replayed into
+ * its frame receiver, so no transport cost is included.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    private static final int FRAMES = 1_000;
+
+    @Param({"SMALL", "CHAT"})
+    public String shape;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private PacketService service;
+    private FrameReceiver receiver;
+    private byte[] channel;
+    private byte[] frame;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        CapturingTransport transport = new CapturingTransport();
+        service = new PacketService(transport, "bench", PacketBridgeOptions.builder()
+                .receiveParallelism(parallelism)
+                .build());
+
+        Packet packet = BenchmarkPackets.create(shape);
+        register((Class<Packet>) packet.getClass());
+
+        service.sendPacket(packet).join();
+        receiver = transport.receiver();
+        channel = transport.lastChannel();
+        frame = transport.lastFrame();
+    }
+
+    private <T extends Packet> void register(Class<T> packetClass) {
+        service.register(packetClass, new PacketHandler<>() {
+            @Override
+            public void onReceive(T packet) {
+            }
+
+            @Override
+            public Class<T> getPacketClass() {
+                return packetClass;
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void dispatch() throws InterruptedException {
+        CountDownLatch handled = new CountDownLatch(FRAMES);
+        Runnable acknowledge = handled::countDown;
+
+        for (int i = 0; i < FRAMES; i++) {
+            receiver.receive(channel, frame, acknowledge);
+        }
+
+        handled.await();
+    }
+}
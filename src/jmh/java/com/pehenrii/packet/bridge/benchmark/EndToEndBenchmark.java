@@ -0,0 +1,97 @@
+package com.pehenrii.packet.bridge.benchmark;
+
+import com.pehenrii.packet.bridge.PacketBridge;
+import com.pehenrii.packet.bridge.PacketBridgeOptions;
+import com.pehenrii.packet.bridge.packet.Packet;
+import com.pehenrii.packet.bridge.packet.RequestHandler;
+import com.pehenrii.packet.bridge.transport.LoopbackHub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end latency between two bridges connected through an in-process
+ * {@link LoopbackHub}, standing in for Redis. Every step but the network is measured:
+ * serialization, compression, framing, striped dispatch, decoding and handling.
+ * Sampling mode reports latency percentiles.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Param({"SMALL", "CHAT"})
+    public String shape;
+
+    private PacketBridge sender;
+    private PacketBridge receiver;
+    private Packet packet;
+    private Class<Packet> packetClass;
+    private volatile CompletableFuture<Packet> delivered;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        LoopbackHub hub = new LoopbackHub();
+        sender = PacketBridge.create(hub.connect(), "bench", PacketBridgeOptions.defaults());
+        receiver = PacketBridge.create(hub.connect(), "bench", PacketBridgeOptions.defaults());
+
+        packet = BenchmarkPackets.create(shape);
+        packetClass = (Class<Packet>) packet.getClass();
+
+        // Plain packets reach a responder too, so one registration serves both benchmarks
+        receiver.registerResponder(packetClass, new RequestHandler<Packet, Packet>() {
+            @Override
+            public Packet onRequest(Packet request) {
+                CompletableFuture<Packet> future = delivered;
+                if (future != null) {
+                    future.complete(request);
+                }
+
+                return request;
+            }
+
+            @Override
+            public Class<Packet> getPacketClass() {
+                return packetClass;
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        sender.shutdown();
+        receiver.shutdown();
+    }
+
+    @Benchmark
+    public Packet oneWay() {
+        CompletableFuture<Packet> future = new CompletableFuture<>();
+        delivered = future;
+        sender.sendPacket(packet);
+        return future.join();
+    }
+
+    @Benchmark
+    public Packet requestReply() {
+        return sender.request(packet, packetClass, TIMEOUT).join();
+    }
+}
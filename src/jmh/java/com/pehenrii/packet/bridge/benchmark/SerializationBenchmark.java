@@ -0,0 +1,84 @@
+package com.pehenrii.packet.bridge.benchmark;
+
+import com.pehenrii.packet.bridge.buffer.PacketBufferPool;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.Packet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Round trips of representative packet shapes through pooled
+ * {@link PacketByteBufferOutput} and {@link PacketByteBufferInput} buffers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    @Param({"SMALL", "CHAT", "BULK"})
+    public String shape;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private PacketBufferPool pool;
+    private Packet packet;
+    private Supplier<? extends Packet> factory;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setup() {
+        pool = new PacketBufferPool(512, 64 * 1024, direct);
+        packet = BenchmarkPackets.create(shape);
+        factory = BenchmarkPackets.factory(shape);
+
+        try (PacketByteBufferOutput buffer = pool.acquire()) {
+            packet.write(buffer);
+            encoded = ByteBuffer.wrap(buffer.toByteArray());
+        }
+    }
+
+    @Benchmark
+    public int write() {
+        try (PacketByteBufferOutput buffer = pool.acquire()) {
+            packet.write(buffer);
+            return buffer.size();
+        }
+    }
+
+    @Benchmark
+    public Packet read() {
+        Packet decoded = factory.get();
+        decoded.read(new PacketByteBufferInput(encoded.duplicate()));
+        return decoded;
+    }
+
+    @Benchmark
+    public Packet roundTrip() {
+        try (PacketByteBufferOutput buffer = pool.acquire()) {
+            packet.write(buffer);
+
+            ByteBuffer written = buffer.buffer().duplicate().flip();
+            Packet decoded = factory.get();
+            decoded.read(new PacketByteBufferInput(written));
+            return decoded;
+        }
+    }
+}
@@ -1,23 +1,82 @@
 package com.pehenrii.packet.bridge;
 
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import com.pehenrii.packet.bridge.metrics.MetricsSnapshot;
+import com.pehenrii.packet.bridge.metrics.NearCacheStats;
+import com.pehenrii.packet.bridge.metrics.SequenceGapListener;
 import com.pehenrii.packet.bridge.packet.Packet;
 import com.pehenrii.packet.bridge.packet.PacketHandler;
+import com.pehenrii.packet.bridge.packet.RequestHandler;
 import com.pehenrii.packet.bridge.provider.PacketBridgeProvider;
+import com.pehenrii.packet.bridge.registry.PacketType;
+import com.pehenrii.packet.bridge.transport.PacketTransport;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public interface PacketBridge {
 
     <T extends Packet> void registerPacket(Class<T> packetClass, PacketHandler<T> handler);
 
+    <T extends Packet> void registerPacket(Class<T> packetClass, Supplier<T> factory, PacketHandler<T> handler);
+
+    <T extends Packet> void registerConflated(Class<T> packetClass, PacketHandler<T> handler);
+
+    <T extends Packet, R extends Packet> void registerResponder(Class<T> packetClass, RequestHandler<T, R> responder);
+
+    CompletableFuture<Void> registerAll(Collection<? extends PacketHandler<?>> handlers);
+
+    List<PacketType<?>> preloadPacketTypes(ClassLoader classLoader);
+
+    <T extends Packet> byte[] trainDictionary(Class<T> packetClass, Collection<? extends T> samples, int dictionarySize);
+
+    void loadDictionary(Class<? extends Packet> packetClass, byte[] dictionary);
+
     <T> T executeOperation(Function<RedisCommands<String, String>, T> operation);
 
-    void sendPacket(Packet packet);
+    <T> CompletableFuture<T> executeOperationAsync(
+            Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<T>> operation);
+
+    CompletableFuture<List<Object>> executeBatch(
+            List<Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<?>>> commands);
+
+    <T> T executePooled(Function<RedisCommands<String, String>, T> operation);
+
+    <T> T executeBinaryOperation(Function<RedisCommands<byte[], byte[]>, T> operation);
+
+    <T> CompletableFuture<T> executeBinaryOperationAsync(
+            Function<RedisAsyncCommands<byte[], byte[]>, ? extends CompletionStage<T>> operation);
+
+    String cachedGet(String key);
+
+    String cachedHget(String key, String field);
+
+    NearCacheStats nearCacheStats();
+
+    CompletableFuture<Long> sendPacket(Packet packet);
 
-    void sendPacket(Packet packet, String channel);
+    CompletableFuture<Long> sendPacket(Packet packet, String channel);
+
+    List<CompletableFuture<Long>> sendPackets(Collection<? extends Packet> packets);
+
+    <R extends Packet> CompletableFuture<R> request(Packet request, Class<R> responseType, Duration timeout);
+
+    QueueStats sendQueueStats();
+
+    QueueStats receiveQueueStats();
+
+    MetricsSnapshot metrics();
+
+    void addGapListener(SequenceGapListener listener);
 
     void shutdown();
 
@@ -25,4 +84,46 @@ public interface PacketBridge {
     static @NotNull PacketBridge create(String address, int port, String password, String channel) {
         return new PacketBridgeProvider(address, port, password, channel);
     }
+
+    @Contract("_, _, _, _, _ -> new")
+    static @NotNull PacketBridge create(String address, int port, String password, String channel, PacketBridgeOptions options) {
+        return new PacketBridgeProvider(address, port, password, channel, options);
+    }
+
+    /**
+     * Creates a bridge over a Redis Cluster. Packet types with {@link com.pehenrii.packet.bridge.annotation.Delivery#SHARDED
+     * sharded} delivery are published with {@code SPUBLISH} and subscribed on the node owning their channel's slot.
+     * Stream types and the Redis command methods are not supported over a cluster.
+     *
+     * @param nodes    the {@code host:port} addresses of some of the cluster's nodes, from which the
+     *                 rest of the cluster is discovered
+     * @param password the password of the cluster
+     * @param channel  the channel prefix of packet types without an explicit channel
+     * @param options  the tuning options
+     * @return the bridge
+     */
+    @Contract("_, _, _, _ -> new")
+    static @NotNull PacketBridge createCluster(Collection<String> nodes, String password, String channel, PacketBridgeOptions options) {
+        return new PacketBridgeProvider(nodes, password, channel, options);
+    }
+
+    /**
+     * Creates a bridge over a custom transport, such as a
+     * {@link com.pehenrii.packet.bridge.transport.LoopbackTransport} for bridges living in the same JVM.
+     * {@link #executeOperation(Function)} and the other Redis command methods are only supported
+     * by {@link com.pehenrii.packet.bridge.transport.RedisTransport}.
+     *
+     * @param transport the transport, closed when the bridge shuts down
+     * @param channel   the channel prefix of packet types without an explicit channel
+     * @return the bridge
+     */
+    @Contract("_, _ -> new")
+    static @NotNull PacketBridge create(PacketTransport transport, String channel) {
+        return new PacketBridgeProvider(transport, channel, PacketBridgeOptions.defaults());
+    }
+
+    @Contract("_, _, _ -> new")
+    static @NotNull PacketBridge create(PacketTransport transport, String channel, PacketBridgeOptions options) {
+        return new PacketBridgeProvider(transport, channel, options);
+    }
 }
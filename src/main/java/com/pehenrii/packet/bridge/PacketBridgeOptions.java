@@ -0,0 +1,964 @@
+package com.pehenrii.packet.bridge;
+
+import com.pehenrii.packet.bridge.dispatch.OverflowPolicy;
+import com.pehenrii.packet.bridge.frame.LargePayloadMode;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Tuning options for a {@link PacketBridge} instance.
+ * <p>
+ * Instances are immutable and created through {@link #builder()}.
+ * {@link #defaults()} returns the options used when none are given.
+ * </p>
+ */
+public final class PacketBridgeOptions {
+
+    private static final PacketBridgeOptions DEFAULTS = builder().build();
+
+    private final int publishBatchSize;
+    private final Duration publishLinger;
+    private final Duration publishTimeout;
+    private final int compressionThreshold;
+    private final int compressionLevel;
+    private final int maxDecompressedBytes;
+    private final boolean directBuffers;
+    private final int bufferInitialCapacity;
+    private final int bufferMaxRetainedCapacity;
+    private final int receiveParallelism;
+    private final int receiveQueueCapacity;
+    private final OverflowPolicy receiveOverflowPolicy;
+    private final int sendQueueCapacity;
+    private final OverflowPolicy sendOverflowPolicy;
+    private final int maxInFlightPublishes;
+    private final String streamGroup;
+    private final String streamConsumer;
+    private final int streamReadBatchSize;
+    private final Duration streamBlockTimeout;
+    private final int streamAckBatchSize;
+    private final long streamMaxLength;
+    private final Duration streamClaimMinIdle;
+    private final boolean localDelivery;
+    private final Duration coalesceLinger;
+    private final int coalesceMaxBytes;
+    private final boolean multiplexed;
+    private final boolean jmxEnabled;
+    private final boolean frameEnvelope;
+    private final int deltaKeyframeInterval;
+    private final int commandPoolSize;
+    private final Duration commandPoolTimeout;
+    private final int nearCacheMaxSize;
+    private final Duration nearCacheTtl;
+    private final Duration conflationWindow;
+    private final int priorityLaneParallelism;
+    private final boolean lowPriorityConnection;
+    private final Duration clusterTopologyRefreshPeriod;
+    private final int largePayloadThreshold;
+    private final LargePayloadMode largePayloadMode;
+    private final int chunkSize;
+    private final Duration chunkReassemblyTimeout;
+    private final int maxReassemblyBytes;
+    private final Duration claimCheckTtl;
+
+    private PacketBridgeOptions(Builder builder) {
+        this.publishBatchSize = builder.publishBatchSize;
+        this.publishLinger = builder.publishLinger;
+        this.publishTimeout = builder.publishTimeout;
+        this.compressionThreshold = builder.compressionThreshold;
+        this.compressionLevel = builder.compressionLevel;
+        this.maxDecompressedBytes = builder.maxDecompressedBytes;
+        this.directBuffers = builder.directBuffers;
+        this.bufferInitialCapacity = builder.bufferInitialCapacity;
+        this.bufferMaxRetainedCapacity = builder.bufferMaxRetainedCapacity;
+        this.receiveParallelism = builder.receiveParallelism;
+        this.receiveQueueCapacity = builder.receiveQueueCapacity;
+        this.receiveOverflowPolicy = builder.receiveOverflowPolicy;
+        this.sendQueueCapacity = builder.sendQueueCapacity;
+        this.sendOverflowPolicy = builder.sendOverflowPolicy;
+        this.maxInFlightPublishes = builder.maxInFlightPublishes;
+        this.streamGroup = builder.streamGroup;
+        this.streamConsumer = builder.streamConsumer;
+        this.streamReadBatchSize = builder.streamReadBatchSize;
+        this.streamBlockTimeout = builder.streamBlockTimeout;
+        this.streamAckBatchSize = builder.streamAckBatchSize;
+        this.streamMaxLength = builder.streamMaxLength;
+        this.streamClaimMinIdle = builder.streamClaimMinIdle;
+        this.localDelivery = builder.localDelivery;
+        this.coalesceLinger = builder.coalesceLinger;
+        this.coalesceMaxBytes = builder.coalesceMaxBytes;
+        this.multiplexed = builder.multiplexed;
+        this.jmxEnabled = builder.jmxEnabled;
+        this.frameEnvelope = builder.frameEnvelope;
+        this.deltaKeyframeInterval = builder.deltaKeyframeInterval;
+        this.commandPoolSize = builder.commandPoolSize;
+        this.commandPoolTimeout = builder.commandPoolTimeout;
+        this.nearCacheMaxSize = builder.nearCacheMaxSize;
+        this.nearCacheTtl = builder.nearCacheTtl;
+        this.conflationWindow = builder.conflationWindow;
+        this.priorityLaneParallelism = builder.priorityLaneParallelism;
+        this.lowPriorityConnection = builder.lowPriorityConnection;
+        this.clusterTopologyRefreshPeriod = builder.clusterTopologyRefreshPeriod;
+        this.largePayloadThreshold = builder.largePayloadThreshold;
+        this.largePayloadMode = builder.largePayloadMode;
+        this.chunkSize = builder.chunkSize;
+        this.chunkReassemblyTimeout = builder.chunkReassemblyTimeout;
+        this.maxReassemblyBytes = builder.maxReassemblyBytes;
+        this.claimCheckTtl = builder.claimCheckTtl;
+    }
+
+    /**
+     * Maximum number of PUBLISH commands buffered before the pipeline is flushed.
+     *
+     * @return the publish batch size
+     */
+    public int publishBatchSize() {
+        return publishBatchSize;
+    }
+
+    /**
+     * Maximum time a buffered PUBLISH command waits for its batch to fill before the pipeline is flushed.
+     *
+     * @return the publish linger time
+     */
+    public Duration publishLinger() {
+        return publishLinger;
+    }
+
+    /**
+     * Time after which a pending publish future is completed exceptionally.
+     *
+     * @return the publish timeout
+     */
+    public Duration publishTimeout() {
+        return publishTimeout;
+    }
+
+    /**
+     * Payload size in bytes below which packets are sent uncompressed.
+     *
+     * @return the compression threshold
+     */
+    public int compressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Zstandard compression level used for packet payloads.
+     *
+     * @return the compression level
+     */
+    public int compressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * The largest size in bytes a received payload may decompress to. Payloads that announce more
+     * are rejected before anything is allocated for them.
+     * Default value is 64 MiB.
+     *
+     * @return the decompressed size limit in bytes
+     */
+    public int maxDecompressedBytes() {
+        return maxDecompressedBytes;
+    }
+
+    /**
+     * Whether pooled serialization buffers are allocated off-heap.
+     *
+     * @return {@code true} for direct buffers
+     */
+    public boolean directBuffers() {
+        return directBuffers;
+    }
+
+    /**
+     * Initial capacity in bytes of pooled serialization buffers.
+     *
+     * @return the initial buffer capacity
+     */
+    public int bufferInitialCapacity() {
+        return bufferInitialCapacity;
+    }
+
+    /**
+     * Largest capacity in bytes a pooled serialization buffer keeps once released.
+     *
+     * @return the maximum retained buffer capacity
+     */
+    public int bufferMaxRetainedCapacity() {
+        return bufferMaxRetainedCapacity;
+    }
+
+    /**
+     * Number of receive stripes handlers run on. Packets of one channel, or of one
+     * {@link com.pehenrii.packet.bridge.packet.KeyedPacket key}, always share a stripe.
+     *
+     * @return the receive parallelism
+     */
+    public int receiveParallelism() {
+        return receiveParallelism;
+    }
+
+    /**
+     * Maximum number of received packets queued on each receive stripe.
+     *
+     * @return the receive queue capacity per stripe
+     */
+    public int receiveQueueCapacity() {
+        return receiveQueueCapacity;
+    }
+
+    /**
+     * What happens to a received packet when its stripe's queue is full. Defaults to
+     * {@link OverflowPolicy#DROP_NEWEST}; dropped packets are counted in the metrics of their type
+     * and, when read from a stream, left unacknowledged for redelivery.
+     * {@link OverflowPolicy#BLOCK} stalls the Redis connection's I/O thread until the stripe
+     * catches up. That thread also delivers replies, so a handler waiting on a request can
+     * deadlock the bridge.
+     *
+     * @return the receive overflow policy
+     */
+    public OverflowPolicy receiveOverflowPolicy() {
+        return receiveOverflowPolicy;
+    }
+
+    /**
+     * Maximum number of packets queued for sending or awaiting a reply from Redis.
+     *
+     * @return the send queue capacity
+     */
+    public int sendQueueCapacity() {
+        return sendQueueCapacity;
+    }
+
+    /**
+     * What happens to a sent packet when the send queue is full.
+     *
+     * @return the send overflow policy
+     */
+    public OverflowPolicy sendOverflowPolicy() {
+        return sendOverflowPolicy;
+    }
+
+    /**
+     * Maximum number of PUBLISH commands awaiting a reply from Redis; further packets wait in the send queue.
+     *
+     * @return the in-flight publish limit
+     */
+    public int maxInFlightPublishes() {
+        return maxInFlightPublishes;
+    }
+
+    /**
+     * Consumer group that reads {@link com.pehenrii.packet.bridge.annotation.Delivery#STREAM stream} packet types.
+     * All instances of one service should share a group, so each packet is handled once per service.
+     *
+     * @return the consumer group name
+     */
+    public String streamGroup() {
+        return streamGroup;
+    }
+
+    /**
+     * Name of this instance within its consumer group. Must be unique across the group's instances.
+     *
+     * @return the consumer name
+     */
+    public String streamConsumer() {
+        return streamConsumer;
+    }
+
+    /**
+     * Maximum number of stream entries read by a single XREADGROUP command.
+     *
+     * @return the stream read batch size
+     */
+    public int streamReadBatchSize() {
+        return streamReadBatchSize;
+    }
+
+    /**
+     * How long a XREADGROUP command waits for new entries before returning empty.
+     * Also bounds how long newly registered stream types wait before they are read.
+     *
+     * @return the stream block timeout
+     */
+    public Duration streamBlockTimeout() {
+        return streamBlockTimeout;
+    }
+
+    /**
+     * Number of handled stream entries acknowledged by a single XACK command. Entries are also
+     * acknowledged after every read, so acknowledgements are never delayed much longer than
+     * {@link #streamBlockTimeout()}.
+     *
+     * @return the acknowledgement batch size
+     */
+    public int streamAckBatchSize() {
+        return streamAckBatchSize;
+    }
+
+    /**
+     * Approximate number of entries each stream is trimmed to on XADD. {@code 0} disables trimming.
+     *
+     * @return the approximate maximum stream length, or {@code 0} for unbounded streams
+     */
+    public long streamMaxLength() {
+        return streamMaxLength;
+    }
+
+    /**
+     * How long a stream entry stays unacknowledged by another consumer before this instance
+     * claims it, so entries read by a consumer that died are handled by another one.
+     * Pending entries are checked every half of this time.
+     *
+     * @return the minimum idle time of reclaimed entries
+     */
+    public Duration streamClaimMinIdle() {
+        return streamClaimMinIdle;
+    }
+
+    /**
+     * Whether broadcast packets are also handed straight to this bridge's own handler when sent,
+     * skipping the round trip through the transport. The handler then receives the very
+     * instance that was sent, so it must not be modified afterwards.
+     *
+     * @return whether sent packets are delivered locally
+     */
+    public boolean localDelivery() {
+        return localDelivery;
+    }
+
+    /**
+     * How long the first packet of a frame of a
+     * {@link com.pehenrii.packet.bridge.annotation.PacketInfo#coalesce() coalesced} type
+     * waits for more packets before the frame is sent.
+     *
+     * @return the coalescing linger
+     */
+    public Duration coalesceLinger() {
+        return coalesceLinger;
+    }
+
+    /**
+     * The serialized size at which a frame of coalesced packets is sent without waiting
+     * for the linger to expire.
+     *
+     * @return the coalesced frame size limit in bytes
+     */
+    public int coalesceMaxBytes() {
+        return coalesceMaxBytes;
+    }
+
+    /**
+     * Whether broadcast packet types share one channel per channel prefix instead of using a
+     * channel each. Frames then carry the id of their packet type, declared through
+     * {@link com.pehenrii.packet.bridge.annotation.PacketInfo#id()} or derived from the type
+     * name. Every service exchanging packets must use the same setting.
+     *
+     * @return whether broadcast packet types share the channel of their prefix
+     */
+    public boolean multiplexed() {
+        return multiplexed;
+    }
+
+    /**
+     * Whether the bridge registers its metrics as platform MXBeans under the
+     * {@code com.pehenrii.packetbridge} domain. Metrics are collected either way and are
+     * available through {@link PacketBridge#metrics()}.
+     *
+     * @return whether metrics are exposed over JMX
+     */
+    public boolean jmxEnabled() {
+        return jmxEnabled;
+    }
+
+    /**
+     * Whether published frames carry an envelope with the id of this bridge, a sequence number
+     * counted per channel and the send time, adding 10 bytes to each frame. Receivers use it to
+     * detect frames lost by the transport and to measure delivery latency; see
+     * {@link PacketBridge#addGapListener}. Frames of stream types never carry one, since each
+     * consumer of a group only sees some of them.
+     *
+     * @return whether frames carry an envelope
+     */
+    public boolean frameEnvelope() {
+        return frameEnvelope;
+    }
+
+    /**
+     * The number of packets of a {@link com.pehenrii.packet.bridge.annotation.PacketInfo#delta() delta}
+     * type sent per key between full keyframes. Receivers that join late or miss a frame
+     * discard packets until the next keyframe. Default value is {@code 16}.
+     *
+     * @return the keyframe interval in packets
+     */
+    public int deltaKeyframeInterval() {
+        return deltaKeyframeInterval;
+    }
+
+    /**
+     * The largest number of dedicated connections opened for pooled and pipelined Redis commands,
+     * which keep blocking commands and transactions off the shared command connection. Connections
+     * are opened on first use. Default value is {@code 8}.
+     *
+     * @return the command pool size
+     */
+    public int commandPoolSize() {
+        return commandPoolSize;
+    }
+
+    /**
+     * How long a pooled or pipelined Redis command waits for a connection when every pooled
+     * connection is in use. Default value is 5 seconds.
+     *
+     * @return the command pool wait timeout
+     */
+    public Duration commandPoolTimeout() {
+        return commandPoolTimeout;
+    }
+
+    /**
+     * The largest number of Redis keys kept in the near cache that serves
+     * {@link com.pehenrii.packet.bridge.PacketBridge#cachedGet(String) cached reads}; all cached hash
+     * fields of a key count as one. Redis invalidates cached keys as soon as they change, through
+     * {@code CLIENT TRACKING}. Default value is {@code 0}, meaning cached reads always go to Redis.
+     *
+     * @return the near cache size in keys
+     */
+    public int nearCacheMaxSize() {
+        return nearCacheMaxSize;
+    }
+
+    /**
+     * How long a key stays in the near cache after it was first cached, which bounds how stale
+     * it can get should invalidations be lost with the connection. Default value is 5 minutes.
+     *
+     * @return the near cache time to live
+     */
+    public Duration nearCacheTtl() {
+        return nearCacheTtl;
+    }
+
+    /**
+     * How long a packet of a {@link com.pehenrii.packet.bridge.annotation.PacketInfo#conflate() conflated}
+     * type waits before it is published. Packets with the same key sent meanwhile replace it, so only
+     * the newest is published. Zero publishes every packet right away, leaving conflation to receivers.
+     * Default value is 5 milliseconds.
+     *
+     * @return the conflation window
+     */
+    public Duration conflationWindow() {
+        return conflationWindow;
+    }
+
+    /**
+     * The number of receive stripes of the {@link com.pehenrii.packet.bridge.annotation.Priority#HIGH high}
+     * and {@link com.pehenrii.packet.bridge.annotation.Priority#LOW low} priority lanes each. Normal
+     * priority packets use {@link #receiveParallelism()} stripes. Default value is {@code 1}.
+     *
+     * @return the stripes per priority lane
+     */
+    public int priorityLaneParallelism() {
+        return priorityLaneParallelism;
+    }
+
+    /**
+     * Whether the low priority lane publishes over a Redis connection of its own. Otherwise it shares the
+     * publishing connection of the normal lane, and normal frames may wait behind bulk frames already
+     * written to it. The high priority lane always publishes over a connection of its own.
+     * Default value is {@code false}.
+     *
+     * @return whether the low priority lane has a dedicated connection
+     */
+    public boolean lowPriorityConnection() {
+        return lowPriorityConnection;
+    }
+
+    /**
+     * How often a bridge over a Redis Cluster refreshes its view of the cluster topology and moves the
+     * subscriptions of {@link com.pehenrii.packet.bridge.annotation.Delivery#SHARDED sharded} channels
+     * whose hash slot changed owner. Subscriptions a node drops when its slot migrates are moved at once.
+     *
+     * @return the topology refresh period
+     */
+    public Duration clusterTopologyRefreshPeriod() {
+        return clusterTopologyRefreshPeriod;
+    }
+
+    /**
+     * The frame size, in bytes after compression, above which frames are sent in the
+     * {@link #largePayloadMode() large payload mode} instead of as a single message.
+     * Zero sends every frame whole.
+     * Default value is 0.
+     *
+     * @return the large payload threshold in bytes
+     */
+    public int largePayloadThreshold() {
+        return largePayloadThreshold;
+    }
+
+    /**
+     * How frames above the {@link #largePayloadThreshold() large payload threshold} are sent.
+     * Default value is {@link LargePayloadMode#CHUNKED}.
+     *
+     * @return the large payload mode
+     */
+    public LargePayloadMode largePayloadMode() {
+        return largePayloadMode;
+    }
+
+    /**
+     * The number of frame bytes each chunk of a {@link LargePayloadMode#CHUNKED chunked} frame carries.
+     * Default value is 256 KiB.
+     *
+     * @return the chunk size in bytes
+     */
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * How long a receiver waits for the missing chunks of a frame, counted from its first chunk.
+     * Frames still incomplete by then are dropped.
+     * Default value is 30 seconds.
+     *
+     * @return the chunk reassembly timeout
+     */
+    public Duration chunkReassemblyTimeout() {
+        return chunkReassemblyTimeout;
+    }
+
+    /**
+     * The number of bytes a receiver holds for frames it is reassembling from chunks. Frames that
+     * would exceed it are dropped as their first chunk arrives.
+     * Default value is 64 MiB.
+     *
+     * @return the reassembly limit in bytes
+     */
+    public int maxReassemblyBytes() {
+        return maxReassemblyBytes;
+    }
+
+    /**
+     * How long a frame sent in {@link LargePayloadMode#CLAIM_CHECK claim check} mode is kept for
+     * receivers to fetch.
+     * Default value is 5 minutes.
+     *
+     * @return the claim check TTL
+     */
+    public Duration claimCheckTtl() {
+        return claimCheckTtl;
+    }
+
+    public static @NotNull PacketBridgeOptions defaults() {
+        return DEFAULTS;
+    }
+
+    @Contract(" -> new")
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private int publishBatchSize = 128;
+        private Duration publishLinger = Duration.ofMillis(1);
+        private Duration publishTimeout = Duration.ofSeconds(5);
+        private int compressionThreshold = 64;
+        private int compressionLevel = 3;
+        private int maxDecompressedBytes = 64 * 1024 * 1024;
+        private boolean directBuffers = false;
+        private int bufferInitialCapacity = 512;
+        private int bufferMaxRetainedCapacity = 64 * 1024;
+        private int receiveParallelism = Runtime.getRuntime().availableProcessors();
+        private int receiveQueueCapacity = 65_536;
+        private OverflowPolicy receiveOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+        private int sendQueueCapacity = 65_536;
+        private OverflowPolicy sendOverflowPolicy = OverflowPolicy.BLOCK;
+        private int maxInFlightPublishes = 8_192;
+        private String streamGroup = "packet-bridge";
+        private String streamConsumer = UUID.randomUUID().toString();
+        private int streamReadBatchSize = 128;
+        private Duration streamBlockTimeout = Duration.ofSeconds(1);
+        private int streamAckBatchSize = 64;
+        private long streamMaxLength = 100_000;
+        private Duration streamClaimMinIdle = Duration.ofSeconds(30);
+        private boolean localDelivery = false;
+        private Duration coalesceLinger = Duration.ofMillis(1);
+        private int coalesceMaxBytes = 16_384;
+        private boolean multiplexed = false;
+        private boolean jmxEnabled = false;
+        private boolean frameEnvelope = true;
+        private int deltaKeyframeInterval = 16;
+        private int commandPoolSize = 8;
+        private Duration commandPoolTimeout = Duration.ofSeconds(5);
+        private int nearCacheMaxSize = 0;
+        private Duration nearCacheTtl = Duration.ofMinutes(5);
+        private Duration conflationWindow = Duration.ofMillis(5);
+        private int priorityLaneParallelism = 1;
+        private boolean lowPriorityConnection = false;
+        private Duration clusterTopologyRefreshPeriod = Duration.ofSeconds(30);
+        private int largePayloadThreshold = 0;
+        private LargePayloadMode largePayloadMode = LargePayloadMode.CHUNKED;
+        private int chunkSize = 256 * 1024;
+        private Duration chunkReassemblyTimeout = Duration.ofSeconds(30);
+        private int maxReassemblyBytes = 64 * 1024 * 1024;
+        private Duration claimCheckTtl = Duration.ofMinutes(5);
+
+        private Builder() {
+        }
+
+        public Builder publishBatchSize(int publishBatchSize) {
+            if (publishBatchSize < 1) {
+                throw new IllegalArgumentException("publishBatchSize must be positive: " + publishBatchSize);
+            }
+
+            this.publishBatchSize = publishBatchSize;
+            return this;
+        }
+
+        public Builder publishLinger(@NonNull Duration publishLinger) {
+            if (publishLinger.isNegative()) {
+                throw new IllegalArgumentException("publishLinger must not be negative: " + publishLinger);
+            }
+
+            this.publishLinger = publishLinger;
+            return this;
+        }
+
+        public Builder publishTimeout(@NonNull Duration publishTimeout) {
+            this.publishTimeout = Objects.requireNonNull(publishTimeout, "publishTimeout");
+            return this;
+        }
+
+        public Builder compressionThreshold(int compressionThreshold) {
+            if (compressionThreshold < 0) {
+                throw new IllegalArgumentException("compressionThreshold must not be negative: " + compressionThreshold);
+            }
+
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        public Builder compressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        public Builder maxDecompressedBytes(int maxDecompressedBytes) {
+            if (maxDecompressedBytes < 1) {
+                throw new IllegalArgumentException("maxDecompressedBytes must be positive: " + maxDecompressedBytes);
+            }
+
+            this.maxDecompressedBytes = maxDecompressedBytes;
+            return this;
+        }
+
+        public Builder directBuffers(boolean directBuffers) {
+            this.directBuffers = directBuffers;
+            return this;
+        }
+
+        public Builder bufferInitialCapacity(int bufferInitialCapacity) {
+            if (bufferInitialCapacity < 1) {
+                throw new IllegalArgumentException("bufferInitialCapacity must be positive: " + bufferInitialCapacity);
+            }
+
+            this.bufferInitialCapacity = bufferInitialCapacity;
+            return this;
+        }
+
+        public Builder bufferMaxRetainedCapacity(int bufferMaxRetainedCapacity) {
+            if (bufferMaxRetainedCapacity < 1) {
+                throw new IllegalArgumentException("bufferMaxRetainedCapacity must be positive: " + bufferMaxRetainedCapacity);
+            }
+
+            this.bufferMaxRetainedCapacity = bufferMaxRetainedCapacity;
+            return this;
+        }
+
+        public Builder receiveParallelism(int receiveParallelism) {
+            if (receiveParallelism < 1) {
+                throw new IllegalArgumentException("receiveParallelism must be positive: " + receiveParallelism);
+            }
+
+            this.receiveParallelism = receiveParallelism;
+            return this;
+        }
+
+        public Builder receiveQueueCapacity(int receiveQueueCapacity) {
+            if (receiveQueueCapacity < 1) {
+                throw new IllegalArgumentException("receiveQueueCapacity must be positive: " + receiveQueueCapacity);
+            }
+
+            this.receiveQueueCapacity = receiveQueueCapacity;
+            return this;
+        }
+
+        public Builder receiveOverflowPolicy(@NonNull OverflowPolicy receiveOverflowPolicy) {
+            this.receiveOverflowPolicy = Objects.requireNonNull(receiveOverflowPolicy, "receiveOverflowPolicy");
+            return this;
+        }
+
+        public Builder sendQueueCapacity(int sendQueueCapacity) {
+            if (sendQueueCapacity < 1) {
+                throw new IllegalArgumentException("sendQueueCapacity must be positive: " + sendQueueCapacity);
+            }
+
+            this.sendQueueCapacity = sendQueueCapacity;
+            return this;
+        }
+
+        public Builder sendOverflowPolicy(@NonNull OverflowPolicy sendOverflowPolicy) {
+            this.sendOverflowPolicy = Objects.requireNonNull(sendOverflowPolicy, "sendOverflowPolicy");
+            return this;
+        }
+
+        public Builder maxInFlightPublishes(int maxInFlightPublishes) {
+            if (maxInFlightPublishes < 1) {
+                throw new IllegalArgumentException("maxInFlightPublishes must be positive: " + maxInFlightPublishes);
+            }
+
+            this.maxInFlightPublishes = maxInFlightPublishes;
+            return this;
+        }
+
+        public Builder streamGroup(@NonNull String streamGroup) {
+            if (streamGroup.isBlank()) {
+                throw new IllegalArgumentException("streamGroup must not be blank");
+            }
+
+            this.streamGroup = streamGroup;
+            return this;
+        }
+
+        public Builder streamConsumer(@NonNull String streamConsumer) {
+            if (streamConsumer.isBlank()) {
+                throw new IllegalArgumentException("streamConsumer must not be blank");
+            }
+
+            this.streamConsumer = streamConsumer;
+            return this;
+        }
+
+        public Builder streamReadBatchSize(int streamReadBatchSize) {
+            if (streamReadBatchSize < 1) {
+                throw new IllegalArgumentException("streamReadBatchSize must be positive: " + streamReadBatchSize);
+            }
+
+            this.streamReadBatchSize = streamReadBatchSize;
+            return this;
+        }
+
+        public Builder streamBlockTimeout(@NonNull Duration streamBlockTimeout) {
+            if (streamBlockTimeout.isNegative() || streamBlockTimeout.isZero()) {
+                throw new IllegalArgumentException("streamBlockTimeout must be positive: " + streamBlockTimeout);
+            }
+
+            this.streamBlockTimeout = streamBlockTimeout;
+            return this;
+        }
+
+        public Builder streamAckBatchSize(int streamAckBatchSize) {
+            if (streamAckBatchSize < 1) {
+                throw new IllegalArgumentException("streamAckBatchSize must be positive: " + streamAckBatchSize);
+            }
+
+            this.streamAckBatchSize = streamAckBatchSize;
+            return this;
+        }
+
+        public Builder streamMaxLength(long streamMaxLength) {
+            if (streamMaxLength < 0) {
+                throw new IllegalArgumentException("streamMaxLength must not be negative: " + streamMaxLength);
+            }
+
+            this.streamMaxLength = streamMaxLength;
+            return this;
+        }
+
+        public Builder streamClaimMinIdle(@NonNull Duration streamClaimMinIdle) {
+            if (streamClaimMinIdle.isNegative() || streamClaimMinIdle.isZero()) {
+                throw new IllegalArgumentException("streamClaimMinIdle must be positive: " + streamClaimMinIdle);
+            }
+
+            this.streamClaimMinIdle = streamClaimMinIdle;
+            return this;
+        }
+
+        public Builder localDelivery(boolean localDelivery) {
+            this.localDelivery = localDelivery;
+            return this;
+        }
+
+        public Builder coalesceLinger(@NonNull Duration coalesceLinger) {
+            if (coalesceLinger.isNegative()) {
+                throw new IllegalArgumentException("coalesceLinger must not be negative: " + coalesceLinger);
+            }
+
+            this.coalesceLinger = coalesceLinger;
+            return this;
+        }
+
+        public Builder coalesceMaxBytes(int coalesceMaxBytes) {
+            if (coalesceMaxBytes < 1) {
+                throw new IllegalArgumentException("coalesceMaxBytes must be positive: " + coalesceMaxBytes);
+            }
+
+            this.coalesceMaxBytes = coalesceMaxBytes;
+            return this;
+        }
+
+        public Builder multiplexed(boolean multiplexed) {
+            this.multiplexed = multiplexed;
+            return this;
+        }
+
+        public Builder jmxEnabled(boolean jmxEnabled) {
+            this.jmxEnabled = jmxEnabled;
+            return this;
+        }
+
+        public Builder frameEnvelope(boolean frameEnvelope) {
+            this.frameEnvelope = frameEnvelope;
+            return this;
+        }
+
+        public Builder deltaKeyframeInterval(int deltaKeyframeInterval) {
+            if (deltaKeyframeInterval < 1) {
+                throw new IllegalArgumentException("deltaKeyframeInterval must be positive: " + deltaKeyframeInterval);
+            }
+
+            this.deltaKeyframeInterval = deltaKeyframeInterval;
+            return this;
+        }
+
+        public Builder commandPoolSize(int commandPoolSize) {
+            if (commandPoolSize < 1) {
+                throw new IllegalArgumentException("commandPoolSize must be positive: " + commandPoolSize);
+            }
+
+            this.commandPoolSize = commandPoolSize;
+            return this;
+        }
+
+        public Builder commandPoolTimeout(@NonNull Duration commandPoolTimeout) {
+            if (commandPoolTimeout.isNegative() || commandPoolTimeout.isZero()) {
+                throw new IllegalArgumentException("commandPoolTimeout must be positive: " + commandPoolTimeout);
+            }
+
+            this.commandPoolTimeout = commandPoolTimeout;
+            return this;
+        }
+
+        public Builder nearCacheMaxSize(int nearCacheMaxSize) {
+            if (nearCacheMaxSize < 0) {
+                throw new IllegalArgumentException("nearCacheMaxSize must not be negative: " + nearCacheMaxSize);
+            }
+
+            this.nearCacheMaxSize = nearCacheMaxSize;
+            return this;
+        }
+
+        public Builder nearCacheTtl(@NonNull Duration nearCacheTtl) {
+            if (nearCacheTtl.isNegative() || nearCacheTtl.isZero()) {
+                throw new IllegalArgumentException("nearCacheTtl must be positive: " + nearCacheTtl);
+            }
+
+            this.nearCacheTtl = nearCacheTtl;
+            return this;
+        }
+
+        public Builder conflationWindow(@NonNull Duration conflationWindow) {
+            if (conflationWindow.isNegative()) {
+                throw new IllegalArgumentException("conflationWindow must not be negative: " + conflationWindow);
+            }
+
+            this.conflationWindow = conflationWindow;
+            return this;
+        }
+
+        public Builder priorityLaneParallelism(int priorityLaneParallelism) {
+            if (priorityLaneParallelism < 1) {
+                throw new IllegalArgumentException("priorityLaneParallelism must be positive: " + priorityLaneParallelism);
+            }
+
+            this.priorityLaneParallelism = priorityLaneParallelism;
+            return this;
+        }
+
+        public Builder lowPriorityConnection(boolean lowPriorityConnection) {
+            this.lowPriorityConnection = lowPriorityConnection;
+            return this;
+        }
+
+        public Builder clusterTopologyRefreshPeriod(@NonNull Duration clusterTopologyRefreshPeriod) {
+            if (clusterTopologyRefreshPeriod.isNegative() || clusterTopologyRefreshPeriod.isZero()) {
+                throw new IllegalArgumentException("clusterTopologyRefreshPeriod must be positive: " + clusterTopologyRefreshPeriod);
+            }
+
+            this.clusterTopologyRefreshPeriod = clusterTopologyRefreshPeriod;
+            return this;
+        }
+
+        public Builder largePayloadThreshold(int largePayloadThreshold) {
+            if (largePayloadThreshold < 0) {
+                throw new IllegalArgumentException("largePayloadThreshold must not be negative: " + largePayloadThreshold);
+            }
+
+            this.largePayloadThreshold = largePayloadThreshold;
+            return this;
+        }
+
+        public Builder largePayloadMode(@NonNull LargePayloadMode largePayloadMode) {
+            this.largePayloadMode = Objects.requireNonNull(largePayloadMode, "largePayloadMode");
+            return this;
+        }
+
+        public Builder chunkSize(int chunkSize) {
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+            }
+
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public Builder chunkReassemblyTimeout(@NonNull Duration chunkReassemblyTimeout) {
+            if (chunkReassemblyTimeout.isNegative() || chunkReassemblyTimeout.isZero()) {
+                throw new IllegalArgumentException("chunkReassemblyTimeout must be positive: " + chunkReassemblyTimeout);
+            }
+
+            this.chunkReassemblyTimeout = chunkReassemblyTimeout;
+            return this;
+        }
+
+        public Builder maxReassemblyBytes(int maxReassemblyBytes) {
+            if (maxReassemblyBytes < 1) {
+                throw new IllegalArgumentException("maxReassemblyBytes must be positive: " + maxReassemblyBytes);
+            }
+
+            this.maxReassemblyBytes = maxReassemblyBytes;
+            return this;
+        }
+
+        public Builder claimCheckTtl(@NonNull Duration claimCheckTtl) {
+            if (claimCheckTtl.isNegative() || claimCheckTtl.isZero()) {
+                throw new IllegalArgumentException("claimCheckTtl must be positive: " + claimCheckTtl);
+            }
+
+            this.claimCheckTtl = claimCheckTtl;
+            return this;
+        }
+
+        public PacketBridgeOptions build() {
+            return new PacketBridgeOptions(this);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.pehenrii.packet.bridge.annotation;
+
+/**
+ * How packets of a type travel between services.
+ */
+public enum Delivery {
+
+    /**
+     * Packets are published through Redis Pub/Sub. Every subscribed service instance
+     * receives every packet, and packets sent while an instance is disconnected are lost.
+     */
+    BROADCAST,
+
+    /**
+     * Packets are appended to a Redis stream and read through a consumer group.
+     * Each packet is handled by a single instance of every group, and packets appended
+     * while an instance is disconnected are read once it is back.
+     */
+    STREAM,
+
+    /**
+     * Packets are published through Redis 7 sharded Pub/Sub ({@code SPUBLISH}). In a Redis
+     * Cluster, a packet only travels through the shard owning its channel's hash slot instead
+     * of being forwarded to every node, so throughput grows with the number of shards.
+     * Otherwise delivered like {@link #BROADCAST}. Sharded types are never multiplexed.
+     */
+    SHARDED
+}
@@ -0,0 +1,53 @@
+package com.pehenrii.packet.bridge.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field of a packet class for serialization by a generated codec.
+ * <p>
+ * The {@code packet-bridge-processor} annotation processor generates a
+ * {@link com.pehenrii.packet.bridge.codec.PacketCodec} for every class with annotated
+ * fields, writing them in declaration order. Such classes must not implement
+ * {@code write} and {@code read} themselves. Annotated fields must not be private, static or final.
+ * </p>
+ *
+ * <p>
+ * Supported field types are the primitives, {@link String}, {@link java.util.UUID},
+ * {@code byte[]} and enums, which are written by ordinal. Strings may always be null.
+ * </p>
+ *
+ * <p>
+ * Example usage:
+ * <pre>
+ * &#64;PacketInfo(name = "chat")
+ * public class ChatPacket implements Packet {
+ *     &#64;PacketField UUID sender;
+ *     &#64;PacketField String message;
+ *     &#64;PacketField(varint = true) int room;
+ * }
+ * </pre>
+ * </p>
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface PacketField {
+
+    /**
+     * Whether an {@code int}, {@code short} or {@code long} field is written as a ZigZag varint,
+     * which takes fewer bytes for values close to zero. Default value is {@code false}.
+     *
+     * @return whether the field is variable-length encoded
+     */
+    boolean varint() default false;
+
+    /**
+     * Whether a {@link java.util.UUID}, {@code byte[]} or enum field may be null, at the cost
+     * of one byte marking its presence. Default value is {@code false}.
+     *
+     * @return whether the field may be null
+     */
+    boolean nullable() default false;
+}
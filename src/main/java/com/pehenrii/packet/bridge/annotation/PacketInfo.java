@@ -41,4 +41,74 @@ public @interface PacketInfo {
      * @return the channel name
      */
     String channel() default "";
+
+    /**
+     * How packets of this type are delivered.
+     * Default value is {@link Delivery#BROADCAST}.
+     *
+     * @return the delivery mode
+     */
+    Delivery delivery() default Delivery.BROADCAST;
+
+    /**
+     * Whether packets of this type sent close together are packed into a single frame.
+     * The frame is published once the packed packets reach the configured size, or once
+     * the first of them has waited the configured linger, and is compressed as a whole.
+     * Worthwhile for small, frequent packets. Default value is {@code false}.
+     *
+     * @return whether packets are coalesced
+     */
+    boolean coalesce() default false;
+
+    /**
+     * Whether packets of this type are sent as differences from the previous packet with the
+     * same {@link com.pehenrii.packet.bridge.packet.KeyedPacket#getPacketKey() key}, or of the
+     * type if it is not keyed. A full keyframe is sent every
+     * {@link com.pehenrii.packet.bridge.PacketBridgeOptions#deltaKeyframeInterval() keyframe interval}
+     * packets, and whenever the difference would not be smaller. Receivers rebuild full packets
+     * before handling them. Worthwhile for periodic state snapshots whose fields rarely change.
+     * Stream and coalesced types cannot use deltas. Default value is {@code false}.
+     *
+     * @return whether packets are delta encoded
+     */
+    boolean delta() default false;
+
+    /**
+     * Whether only the newest packet of this type with the same
+     * {@link com.pehenrii.packet.bridge.packet.KeyedPacket#getPacketKey() key}, or of the type if it is
+     * not keyed, is worth delivering. Senders hold each packet for the
+     * {@link com.pehenrii.packet.bridge.PacketBridgeOptions#conflationWindow() conflation window} and
+     * publish only the newest of those sent meanwhile. Receivers keep only the newest packet of each
+     * key waiting for the handler. Worthwhile for high-frequency updates, such as positions or load,
+     * as work under bursts is then bounded by the number of keys rather than by the packet rate.
+     * Stream and coalesced types cannot be conflated. Default value is {@code false}.
+     *
+     * @return whether packets are conflated
+     */
+    boolean conflate() default false;
+
+    /**
+     * The lane packets of this type are sent and handled on. Each lane has its own send and
+     * receive queues, so a flood of {@link Priority#LOW low} priority packets does not delay
+     * {@link Priority#HIGH high} priority ones. Default value is {@link Priority#NORMAL}.
+     *
+     * @return the priority
+     */
+    Priority priority() default Priority.NORMAL;
+
+    /**
+     * The id of the packet type on {@link com.pehenrii.packet.bridge.PacketBridgeOptions#multiplexed() multiplexed}
+     * channels, between {@code 0} and {@value #MAX_ID}. Receivers find the type of a frame by
+     * indexing an array with it, so ids should be small and dense. Types without an id use a
+     * stable hash of their name instead, which takes more bytes per frame and a hash lookup.
+     * Default value is {@code -1}, meaning no id.
+     *
+     * @return the type id
+     */
+    int id() default -1;
+
+    /**
+     * The largest explicit {@link #id()}.
+     */
+    int MAX_ID = 0xFFFF;
 }
@@ -0,0 +1,24 @@
+package com.pehenrii.packet.bridge.annotation;
+
+/**
+ * Which lane packets of a type are sent and handled on. Each lane has send and receive
+ * queues of its own, so packets of one lane never wait behind those of another.
+ */
+public enum Priority {
+
+    /**
+     * Latency-critical packets, such as shutdown, kick or transfer commands. Sent without
+     * waiting for a batch to fill and handled on threads of the highest priority.
+     */
+    HIGH,
+
+    /**
+     * Regular packets.
+     */
+    NORMAL,
+
+    /**
+     * Bulk packets, such as analytics or logs, handled on threads of the lowest priority.
+     */
+    LOW
+}
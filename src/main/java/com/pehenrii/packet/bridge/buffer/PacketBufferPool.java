@@ -0,0 +1,75 @@
+package com.pehenrii.packet.bridge.buffer;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Per-thread pool of {@link PacketByteBufferOutput} instances.
+ * <p>
+ * Each thread keeps one buffer that is handed out by {@link #acquire()} and returned
+ * when the buffer is closed. Nested acquisitions on the same thread receive a fresh,
+ * unpooled buffer. Buffers that grew beyond {@code maxRetainedCapacity} are shrunk
+ * back to their initial capacity on release so a single large packet does not pin
+ * memory for the lifetime of the thread.
+ * </p>
+ */
+public final class PacketBufferPool {
+
+    private final int initialCapacity;
+    private final int maxRetainedCapacity;
+    private final boolean direct;
+
+    private final ThreadLocal<Entry> entries;
+
+    /**
+     * @param initialCapacity     the initial capacity of pooled buffers
+     * @param maxRetainedCapacity the largest capacity kept after a buffer is released
+     * @param direct              whether buffers are allocated off-heap
+     */
+    public PacketBufferPool(int initialCapacity, int maxRetainedCapacity, boolean direct) {
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedCapacity = Math.max(initialCapacity, maxRetainedCapacity);
+        this.direct = direct;
+        this.entries = ThreadLocal.withInitial(() -> new Entry(new PacketByteBufferOutput(initialCapacity, direct, this)));
+    }
+
+    /**
+     * Acquires an empty buffer. The caller must {@link PacketByteBufferOutput#close() close}
+     * it once its contents have been consumed.
+     *
+     * @return an empty buffer
+     */
+    public @NonNull PacketByteBufferOutput acquire() {
+        Entry entry = entries.get();
+        if (entry.inUse) {
+            return new PacketByteBufferOutput(initialCapacity, direct);
+        }
+
+        entry.inUse = true;
+        return entry.buffer.clear();
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    void release(PacketByteBufferOutput buffer) {
+        Entry entry = entries.get();
+        if (entry.buffer != buffer) return;
+
+        if (buffer.capacity() > maxRetainedCapacity) {
+            buffer.reallocate(initialCapacity);
+        }
+
+        entry.inUse = false;
+    }
+
+    private static final class Entry {
+
+        private final PacketByteBufferOutput buffer;
+        private boolean inUse;
+
+        private Entry(PacketByteBufferOutput buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -1,57 +1,114 @@
 package com.pehenrii.packet.bridge.buffer;
 
-import com.google.common.io.ByteArrayDataInput;
-import com.google.common.io.ByteStreams;
-
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Function;
 
+/**
+ * Bounds-checked reader over a heap or direct {@link ByteBuffer}.
+ * <p>
+ * Every read checks the remaining bytes first and throws a {@link PacketDecodeException}
+ * describing the failed read instead of returning a default value.
+ * </p>
+ */
 public class PacketByteBufferInput {
 
-    private final ByteArrayDataInput buffer;
+    private static final ThreadLocal<char[]> CHARS = ThreadLocal.withInitial(() -> new char[256]);
+    private static final ThreadLocal<byte[]> BYTES = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private static final ClassValue<Object[]> ENUM_CONSTANTS = new ClassValue<>() {
+        @Override
+        protected Object[] computeValue(Class<?> type) {
+            return type.getEnumConstants();
+        }
+    };
+
+    private final ByteBuffer buffer;
 
     public PacketByteBufferInput(byte[] bytes) {
-        this.buffer = ByteStreams.newDataInput(bytes);
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    public PacketByteBufferInput(byte[] bytes, int offset, int length) {
+        this(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Reads from the buffer's position up to its limit. The buffer is read in place,
+     * so its position advances as values are read.
+     *
+     * @param buffer the buffer to read from
+     */
+    public PacketByteBufferInput(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns the number of bytes left to read.
+     *
+     * @return the remaining bytes
+     */
+    public int remaining() {
+        return buffer.remaining();
+    }
+
+    public boolean isReadable() {
+        return buffer.hasRemaining();
     }
 
     public byte readByte() {
-        return buffer.readByte();
+        ensureReadable(1, "byte");
+        return buffer.get();
     }
 
     public boolean readBoolean() {
-        return buffer.readBoolean();
+        ensureReadable(1, "boolean");
+        return buffer.get() != 0;
     }
 
     public short readShort() {
-        return buffer.readShort();
+        ensureReadable(Short.BYTES, "short");
+        return buffer.getShort();
     }
 
     public int readInt() {
-        return buffer.readInt();
+        ensureReadable(Integer.BYTES, "int");
+        return buffer.getInt();
     }
 
     public long readLong() {
-        return buffer.readLong();
+        ensureReadable(Long.BYTES, "long");
+        return buffer.getLong();
     }
 
     public float readFloat() {
-        return buffer.readFloat();
+        ensureReadable(Float.BYTES, "float");
+        return buffer.getFloat();
     }
 
     public double readDouble() {
-        return buffer.readDouble();
+        ensureReadable(Double.BYTES, "double");
+        return buffer.getDouble();
     }
 
+    /**
+     * Reads a string written by {@link PacketByteBufferOutput#writeString(String)}.
+     *
+     * @return the string, or {@code null} if a null string was written
+     * @throws PacketDecodeException if the data is truncated or not valid (modified) UTF-8
+     */
     public String readString() {
-        try {
-            boolean isValid = buffer.readBoolean();
-            if (!isValid) return null;
+        ensureReadable(1, "string marker");
+        byte marker = buffer.get();
+        if (marker == 0) return null;
 
-            return buffer.readUTF();
-        } catch (Exception e) {
-            return null;
-        }
+        return marker == PacketByteBufferOutput.LONG_STRING ? readUTF8() : readUTF();
     }
 
     public String readOptionalString() {
@@ -59,16 +116,24 @@ public class PacketByteBufferInput {
     }
 
     public UUID readUUID() {
-        return new UUID(buffer.readLong(), buffer.readLong());
+        ensureReadable(Long.BYTES * 2, "UUID");
+        return new UUID(buffer.getLong(), buffer.getLong());
     }
 
     public UUID readOptionalUUID() {
         return readBoolean() ? readUUID() : null;
     }
 
+    /**
+     * Reads an enum constant written by name.
+     *
+     * @param clazz the enum class
+     * @param <T>   the enum type
+     * @return the constant, or {@code null} if this side does not know the name
+     */
     public <T extends Enum<T>> T readEnum(Class<T> clazz) {
         try {
-            return Enum.valueOf(clazz, buffer.readUTF());
+            return Enum.valueOf(clazz, readUTF());
         } catch (IllegalArgumentException e) {
             return null;
         }
@@ -77,4 +142,264 @@ public class PacketByteBufferInput {
     public <T> Optional<T> readOptional(Function<PacketByteBufferInput, T> reader) {
         return readBoolean() ? Optional.of(reader.apply(this)) : Optional.empty();
     }
+
+    /**
+     * Reads an unsigned variable-length int written by {@link PacketByteBufferOutput#writeUnsignedVarInt(int)}.
+     *
+     * @return the value
+     * @throws PacketDecodeException if the data is truncated or the varint is longer than five bytes
+     */
+    public int readUnsignedVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+
+        throw new PacketDecodeException("Malformed varint at position " + buffer.position());
+    }
+
+    /**
+     * Reads a ZigZag-encoded int written by {@link PacketByteBufferOutput#writeVarInt(int)}.
+     *
+     * @return the value
+     */
+    public int readVarInt() {
+        int zigZag = readUnsignedVarInt();
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+
+    /**
+     * Reads a ZigZag-encoded long written by {@link PacketByteBufferOutput#writeVarLong(long)}.
+     *
+     * @return the value
+     * @throws PacketDecodeException if the data is truncated or the varint is longer than ten bytes
+     */
+    public long readVarLong() {
+        long zigZag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = readByte();
+            zigZag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+
+        throw new PacketDecodeException("Malformed varlong at position " + buffer.position());
+    }
+
+    /**
+     * Reads an enum constant written by {@link PacketByteBufferOutput#writeEnumOrdinal(Enum)}.
+     *
+     * @param clazz the enum class
+     * @param <T>   the enum type
+     * @return the constant
+     * @throws PacketDecodeException if the ordinal is out of range
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Enum<T>> T readEnumOrdinal(Class<T> clazz) {
+        int ordinal = readUnsignedVarInt();
+
+        Object[] constants = ENUM_CONSTANTS.get(clazz);
+        if (ordinal < 0 || ordinal >= constants.length) {
+            throw new PacketDecodeException("Ordinal " + ordinal + " out of range for " + clazz.getName());
+        }
+
+        return (T) constants[ordinal];
+    }
+
+    /**
+     * Reads a string written by {@link PacketByteBufferOutput#writeUTF8(String)}.
+     *
+     * @return the string, or {@code null} if a null string was written
+     * @throws PacketDecodeException if the data is truncated
+     */
+    public String readUTF8() {
+        int prefix = readUnsignedVarInt();
+        if (prefix == 0) return null;
+
+        int length = prefix - 1;
+        ensureReadable(length, "UTF-8 string");
+
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = BYTES.get();
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length << 1)];
+                BYTES.set(bytes);
+            }
+
+            buffer.get(bytes, 0, length);
+            value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        return value;
+    }
+
+    /**
+     * Reads a byte array written by {@link PacketByteBufferOutput#writeBytes(byte[], int, int)}.
+     *
+     * @return the bytes
+     * @throws PacketDecodeException if the data is truncated
+     */
+    public byte[] readBytes() {
+        int length = readUnsignedVarInt();
+        ensureReadable(length, "byte array");
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads a byte array written by {@link PacketByteBufferOutput#writeBytes(byte[], int, int)}
+     * into an existing array.
+     *
+     * @param target the array to copy the bytes to
+     * @param offset the index in {@code target} of the first byte
+     * @return the number of bytes read
+     * @throws PacketDecodeException if the data is truncated or does not fit in {@code target}
+     */
+    public int readBytes(byte[] target, int offset) {
+        int length = readUnsignedVarInt();
+        ensureReadable(length, "byte array");
+        if (length > target.length - offset) {
+            throw new PacketDecodeException("Byte array of " + length + " bytes exceeds its target");
+        }
+
+        buffer.get(target, offset, length);
+        return length;
+    }
+
+    /**
+     * Reads a length-prefixed byte sequence, such as one written by
+     * {@link PacketByteBufferOutput#writeBytes(PacketByteBufferOutput)}, as an input of its own.
+     * The bytes are not copied, so the returned input is only valid as long as this one is.
+     *
+     * @return an input over the bytes
+     * @throws PacketDecodeException if the data is truncated
+     */
+    public PacketByteBufferInput readSlice() {
+        int length = readUnsignedVarInt();
+        ensureReadable(length, "slice");
+
+        ByteBuffer slice = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return new PacketByteBufferInput(slice);
+    }
+
+    /**
+     * Reads a list written by {@link PacketByteBufferOutput#writeList(java.util.Collection, java.util.function.Consumer)}.
+     *
+     * @param reader reads a single element from this buffer
+     * @param <T>    the element type
+     * @return the elements, in written order
+     */
+    public <T> List<T> readList(Function<PacketByteBufferInput, T> reader) {
+        int size = readSize("list");
+
+        List<T> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(reader.apply(this));
+        }
+
+        return values;
+    }
+
+    /**
+     * Reads a map written by {@link PacketByteBufferOutput#writeMap(Map, java.util.function.Consumer, java.util.function.Consumer)}.
+     *
+     * @param keyReader   reads a single key from this buffer
+     * @param valueReader reads a single value from this buffer
+     * @param <K>         the key type
+     * @param <V>         the value type
+     * @return the entries
+     */
+    public <K, V> Map<K, V> readMap(Function<PacketByteBufferInput, K> keyReader, Function<PacketByteBufferInput, V> valueReader) {
+        int size = readSize("map");
+
+        Map<K, V> values = new HashMap<>((int) (size / 0.75f) + 1);
+        for (int i = 0; i < size; i++) {
+            K key = keyReader.apply(this);
+            values.put(key, valueReader.apply(this));
+        }
+
+        return values;
+    }
+
+    /**
+     * Reads a collection size, rejecting sizes that could not possibly fit in the remaining
+     * bytes so a corrupt prefix cannot trigger a huge allocation.
+     */
+    private int readSize(String what) {
+        int size = readUnsignedVarInt();
+        if (size < 0 || size > buffer.remaining()) {
+            throw new PacketDecodeException("Invalid " + what + " size " + size + " at position " + buffer.position()
+                    + ": only " + buffer.remaining() + " bytes remain");
+        }
+
+        return size;
+    }
+
+    /**
+     * Reads a modified UTF-8 string prefixed with its encoded length as an unsigned short,
+     * as specified by {@link java.io.DataInput#readUTF()}.
+     */
+    private String readUTF() {
+        ensureReadable(Short.BYTES, "string length");
+        int encodedLength = buffer.getShort() & 0xFFFF;
+        ensureReadable(encodedLength, "string");
+
+        char[] chars = CHARS.get();
+        if (chars.length < encodedLength) {
+            chars = new char[Math.max(encodedLength, chars.length << 1)];
+            CHARS.set(chars);
+        }
+
+        int end = buffer.position() + encodedLength;
+        int count = 0;
+        while (buffer.position() < end) {
+            int b = buffer.get() & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | continuation(end));
+            } else if ((b & 0xF0) == 0xE0) {
+                int second = continuation(end);
+                chars[count++] = (char) (((b & 0x0F) << 12) | (second << 6) | continuation(end));
+            } else {
+                throw malformed(buffer.position() - 1);
+            }
+        }
+
+        return new String(chars, 0, count);
+    }
+
+    private int continuation(int end) {
+        if (buffer.position() >= end) {
+            throw malformed(buffer.position());
+        }
+
+        int b = buffer.get() & 0xFF;
+        if ((b & 0xC0) != 0x80) {
+            throw malformed(buffer.position() - 1);
+        }
+
+        return b & 0x3F;
+    }
+
+    private PacketDecodeException malformed(int position) {
+        return new PacketDecodeException("Malformed modified UTF-8 string at position " + position);
+    }
+
+    private void ensureReadable(int bytes, String what) {
+        if (bytes < 0 || buffer.remaining() < bytes) {
+            throw new PacketDecodeException("Cannot read " + what + " (" + bytes + " bytes) at position "
+                    + buffer.position() + ": only " + buffer.remaining() + " bytes remain");
+        }
+    }
 }
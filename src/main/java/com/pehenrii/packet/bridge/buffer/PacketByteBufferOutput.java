@@ -1,63 +1,112 @@
 package com.pehenrii.packet.bridge.buffer;
 
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 import java.util.function.Consumer;
 
-public class PacketByteBufferOutput {
+/**
+ * Growable output buffer backed by a heap or direct {@link ByteBuffer}.
+ * <p>
+ * Buffers obtained from a {@link PacketBufferPool} are reused once {@link #close() closed};
+ * buffers created through the public constructors are simply garbage collected.
+ * </p>
+ */
+public class PacketByteBufferOutput implements AutoCloseable {
 
-    private final ByteArrayDataOutput buffer;
+    private static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Marks a string written by {@link #writeString(String)} whose encoding exceeds 64 KB.
+     */
+    static final byte LONG_STRING = 2;
+
+    private final boolean direct;
+    private final @Nullable PacketBufferPool pool;
+    private ByteBuffer buffer;
 
     public PacketByteBufferOutput() {
-        this.buffer = ByteStreams.newDataOutput();
+        this(DEFAULT_CAPACITY, false);
+    }
+
+    public PacketByteBufferOutput(int initialCapacity, boolean direct) {
+        this(initialCapacity, direct, null);
+    }
+
+    PacketByteBufferOutput(int initialCapacity, boolean direct, @Nullable PacketBufferPool pool) {
+        this.direct = direct;
+        this.pool = pool;
+        this.buffer = allocate(Math.max(initialCapacity, 16));
     }
 
     public PacketByteBufferOutput writeByte(byte value) {
-        buffer.writeByte(value);
+        ensureWritable(1);
+        buffer.put(value);
         return this;
     }
 
     public PacketByteBufferOutput writeBoolean(boolean value) {
-        buffer.writeBoolean(value);
+        ensureWritable(1);
+        buffer.put((byte) (value ? 1 : 0));
         return this;
     }
 
     public PacketByteBufferOutput writeShort(short value) {
-        buffer.writeShort(value);
+        ensureWritable(Short.BYTES);
+        buffer.putShort(value);
         return this;
     }
 
     public PacketByteBufferOutput writeInt(int value) {
-        buffer.writeInt(value);
+        ensureWritable(Integer.BYTES);
+        buffer.putInt(value);
         return this;
     }
 
     public PacketByteBufferOutput writeLong(long value) {
-        buffer.writeLong(value);
+        ensureWritable(Long.BYTES);
+        buffer.putLong(value);
         return this;
     }
 
     public PacketByteBufferOutput writeFloat(float value) {
-        buffer.writeFloat(value);
+        ensureWritable(Float.BYTES);
+        buffer.putFloat(value);
         return this;
     }
 
     public PacketByteBufferOutput writeDouble(double value) {
-        buffer.writeDouble(value);
+        ensureWritable(Double.BYTES);
+        buffer.putDouble(value);
         return this;
     }
 
+    /**
+     * Writes a string in modified UTF-8 after a marker byte: {@code 0} for a null string,
+     * {@code 1} for a string prefixed with its encoded length as an unsigned short. Strings
+     * whose encoding exceeds 64 KB are marked {@code 2} and written as by {@link #writeUTF8(String)}
+     * instead, so they are not limited in length but lose unpaired surrogates.
+     *
+     * @param value the string, may be {@code null}
+     * @return this buffer
+     */
     public PacketByteBufferOutput writeString(String value) {
         if (value == null) {
             writeBoolean(false);
             return this;
         }
 
+        if (modifiedUtf8Length(value) > 0xFFFF) {
+            writeByte(LONG_STRING);
+            return writeUTF8(value);
+        }
+
         writeBoolean(true);
-        buffer.writeUTF(value);
+        writeUTF(value);
         return this;
     }
 
@@ -71,8 +120,9 @@ public class PacketByteBufferOutput {
     }
 
     public PacketByteBufferOutput writeUUID(UUID value) {
-        buffer.writeLong(value.getMostSignificantBits());
-        buffer.writeLong(value.getLeastSignificantBits());
+        ensureWritable(Long.BYTES * 2);
+        buffer.putLong(value.getMostSignificantBits());
+        buffer.putLong(value.getLeastSignificantBits());
         return this;
     }
 
@@ -86,7 +136,7 @@ public class PacketByteBufferOutput {
     }
 
     public <T extends Enum<T>> PacketByteBufferOutput writeEnum(Enum<T> value) {
-        buffer.writeUTF(value.name());
+        writeUTF(value.name());
         return this;
     }
 
@@ -99,7 +149,390 @@ public class PacketByteBufferOutput {
         return this;
     }
 
+    /**
+     * Writes an unsigned variable-length int: 7 bits per byte, least significant group first.
+     * Values below 128 take a single byte; negative values always take five.
+     *
+     * @param value the value, interpreted as unsigned
+     * @return this buffer
+     */
+    public PacketByteBufferOutput writeUnsignedVarInt(int value) {
+        ensureWritable(5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+        return this;
+    }
+
+    /**
+     * Writes a ZigZag-encoded variable-length int, so small negative values stay small.
+     *
+     * @param value the value
+     * @return this buffer
+     */
+    public PacketByteBufferOutput writeVarInt(int value) {
+        return writeUnsignedVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a ZigZag-encoded variable-length long, so small negative values stay small.
+     *
+     * @param value the value
+     * @return this buffer
+     */
+    public PacketByteBufferOutput writeVarLong(long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+
+        ensureWritable(10);
+        while ((zigZag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+
+        buffer.put((byte) zigZag);
+        return this;
+    }
+
+    /**
+     * Writes an enum constant as its ordinal. Both sides must declare the constants in the same order.
+     *
+     * @param value the constant
+     * @param <T>   the enum type
+     * @return this buffer
+     */
+    public <T extends Enum<T>> PacketByteBufferOutput writeEnumOrdinal(Enum<T> value) {
+        return writeUnsignedVarInt(value.ordinal());
+    }
+
+    /**
+     * Writes a string as standard UTF-8, prefixed with its encoded length plus one as an
+     * unsigned varint. A prefix of zero marks a null string. Unlike
+     * {@link #writeString(String)}, the length is not limited to 64 KB. Unpaired surrogates
+     * are replaced with U+FFFD.
+     *
+     * @param value the string, may be {@code null}
+     * @return this buffer
+     */
+    public PacketByteBufferOutput writeUTF8(@Nullable String value) {
+        if (value == null) {
+            return writeUnsignedVarInt(0);
+        }
+
+        int length = value.length();
+        int encodedLength = utf8Length(value);
+        writeUnsignedVarInt(encodedLength + 1);
+        ensureWritable(encodedLength);
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    buffer.put((byte) 0xEF);
+                    buffer.put((byte) 0xBF);
+                    buffer.put((byte) 0xBD);
+                }
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes a byte array prefixed with its length as an unsigned varint.
+     *
+     * @param value the bytes
+     * @return this buffer
+     */
+    public PacketByteBufferOutput writeBytes(byte[] value) {
+        return writeBytes(value, 0, value.length);
+    }
+
+    /**
+     * Writes a slice of a byte array prefixed with its length as an unsigned varint.
+     *
+     * @param value  the bytes
+     * @param offset the index of the first byte to write
+     * @param length the number of bytes to write
+     * @return this buffer
+     */
+    public PacketByteBufferOutput writeBytes(byte[] value, int offset, int length) {
+        writeUnsignedVarInt(length);
+        ensureWritable(length);
+        buffer.put(value, offset, length);
+        return this;
+    }
+
+    /**
+     * Writes the data of another buffer prefixed with its length as an unsigned varint,
+     * so it can be read back with {@link PacketByteBufferInput#readSlice()}.
+     *
+     * @param source the buffer to copy
+     * @return this buffer
+     */
+    public PacketByteBufferOutput writeBytes(PacketByteBufferOutput source) {
+        int length = source.size();
+        writeUnsignedVarInt(length);
+        ensureWritable(length);
+        buffer.put(buffer.position(), source.buffer, 0, length);
+        buffer.position(buffer.position() + length);
+        return this;
+    }
+
+    /**
+     * Writes a collection prefixed with its size as an unsigned varint.
+     *
+     * @param values the elements
+     * @param writer writes a single element to this buffer
+     * @param <T>    the element type
+     * @return this buffer
+     */
+    public <T> PacketByteBufferOutput writeList(Collection<T> values, Consumer<T> writer) {
+        writeUnsignedVarInt(values.size());
+        for (T value : values) {
+            writer.accept(value);
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes a map prefixed with its size as an unsigned varint, each key followed by its value.
+     *
+     * @param values      the entries
+     * @param keyWriter   writes a single key to this buffer
+     * @param valueWriter writes a single value to this buffer
+     * @param <K>         the key type
+     * @param <V>         the value type
+     * @return this buffer
+     */
+    public <K, V> PacketByteBufferOutput writeMap(Map<K, V> values, Consumer<K> keyWriter, Consumer<V> valueWriter) {
+        writeUnsignedVarInt(values.size());
+        for (Map.Entry<K, V> entry : values.entrySet()) {
+            keyWriter.accept(entry.getKey());
+            valueWriter.accept(entry.getValue());
+        }
+
+        return this;
+    }
+
+    /**
+     * Ensures the next {@code bytes} bytes can be written without growing the buffer.
+     *
+     * @param bytes the number of bytes about to be written
+     * @return this buffer
+     */
+    public PacketByteBufferOutput reserve(int bytes) {
+        ensureWritable(bytes);
+        return this;
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     *
+     * @return the buffer size
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    /**
+     * Returns the backing buffer. Bytes {@code [0, size())} hold the written data.
+     * The buffer is replaced when it grows and reused once this output is released,
+     * so it must not be retained.
+     *
+     * @return the backing buffer
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Discards all written bytes, keeping the allocated capacity.
+     *
+     * @return this buffer
+     */
+    public PacketByteBufferOutput clear() {
+        buffer.clear();
+        return this;
+    }
+
     public byte[] toByteArray() {
-        return buffer.toByteArray();
+        if (buffer.hasArray()) {
+            return Arrays.copyOfRange(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.position());
+        }
+
+        byte[] bytes = new byte[buffer.position()];
+        buffer.get(0, bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns this buffer to the pool it was acquired from, if any.
+     * The buffer must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    void reallocate(int capacity) {
+        buffer = allocate(capacity);
+    }
+
+    /**
+     * Writes a string in modified UTF-8, prefixed with its encoded length as an unsigned short,
+     * as specified by {@link java.io.DataOutput#writeUTF(String)}.
+     */
+    private void writeUTF(String value) {
+        int length = value.length();
+        long encodedLength = modifiedUtf8Length(value);
+        if (encodedLength > 0xFFFF) {
+            throw new IllegalArgumentException("Encoded string too long: " + encodedLength + " bytes");
+        }
+
+        ensureWritable(Short.BYTES + (int) encodedLength);
+        buffer.putShort((short) encodedLength);
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80 && c != 0) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static long modifiedUtf8Length(String value) {
+        int length = value.length();
+        long encodedLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80 || c == 0) {
+                encodedLength += c >= 0x800 ? 2 : 1;
+            }
+        }
+
+        return encodedLength;
+    }
+
+    /**
+     * Returns the size of a value written by {@link #writeUnsignedVarInt(int)}.
+     *
+     * @param value the value, interpreted as unsigned
+     * @return the encoded size in bytes
+     */
+    public static int sizeOfUnsignedVarInt(int value) {
+        return (38 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+    }
+
+    /**
+     * Returns the size of a value written by {@link #writeVarInt(int)}.
+     *
+     * @param value the value
+     * @return the encoded size in bytes
+     */
+    public static int sizeOfVarInt(int value) {
+        return sizeOfUnsignedVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Returns the size of a value written by {@link #writeVarLong(long)}.
+     *
+     * @param value the value
+     * @return the encoded size in bytes
+     */
+    public static int sizeOfVarLong(long value) {
+        return (70 - Long.numberOfLeadingZeros(((value << 1) ^ (value >> 63)) | 1)) / 7;
+    }
+
+    /**
+     * Returns the size of a string written by {@link #writeUTF8(String)}.
+     *
+     * @param value the string, may be {@code null}
+     * @return the encoded size in bytes
+     */
+    public static int sizeOfUTF8(@Nullable String value) {
+        if (value == null) return 1;
+
+        int length = utf8Length(value);
+        return sizeOfUnsignedVarInt(length + 1) + length;
+    }
+
+    /**
+     * Returns the size of a byte array written by {@link #writeBytes(byte[])}.
+     *
+     * @param length the length of the array
+     * @return the encoded size in bytes
+     */
+    public static int sizeOfBytes(int length) {
+        return sizeOfUnsignedVarInt(length) + length;
+    }
+
+    private static int utf8Length(String value) {
+        int length = value.length();
+        long encodedLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                encodedLength += c < 0x800 ? 1 : 2;
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                }
+            }
+        }
+
+        if (encodedLength >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Encoded string too long: " + encodedLength + " bytes");
+        }
+
+        return (int) encodedLength;
+    }
+
+    private void ensureWritable(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+
+        int required = buffer.position() + bytes;
+        if (required < 0) {
+            throw new IllegalStateException("Buffer size exceeds " + Integer.MAX_VALUE + " bytes");
+        }
+
+        ByteBuffer grown = allocate(Math.max(required, buffer.capacity() << 1));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
     }
 }
@@ -0,0 +1,16 @@
+package com.pehenrii.packet.bridge.buffer;
+
+/**
+ * Thrown when a received payload cannot be decoded, for example because it is
+ * truncated, malformed or was encoded with settings the receiver does not have.
+ */
+public class PacketDecodeException extends RuntimeException {
+
+    public PacketDecodeException(String message) {
+        super(message);
+    }
+
+    public PacketDecodeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
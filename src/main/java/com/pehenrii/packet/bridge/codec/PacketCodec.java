@@ -0,0 +1,46 @@
+package com.pehenrii.packet.bridge.codec;
+
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.Packet;
+
+/**
+ * Serializes the packets of one type. Implementations are generated at compile time for
+ * packet classes with {@link com.pehenrii.packet.bridge.annotation.PacketField} fields and
+ * found through {@link PacketCodecs}.
+ *
+ * @param <T> the packet type
+ */
+public interface PacketCodec<T extends Packet> {
+
+    /**
+     * Creates an empty packet, ready to be read from a buffer.
+     *
+     * @return a new packet
+     */
+    T newInstance();
+
+    /**
+     * Returns the exact number of bytes {@link #write(Packet, PacketByteBufferOutput)} writes for a packet.
+     *
+     * @param packet the packet
+     * @return the serialized size in bytes
+     */
+    int sizeOf(T packet);
+
+    /**
+     * Serializes a packet into the provided output buffer.
+     *
+     * @param packet the packet
+     * @param buffer the output buffer to write data to
+     */
+    void write(T packet, PacketByteBufferOutput buffer);
+
+    /**
+     * Deserializes a packet from the provided input buffer.
+     *
+     * @param packet the packet to fill in
+     * @param buffer the input buffer to read data from
+     */
+    void read(T packet, PacketByteBufferInput buffer);
+}
@@ -0,0 +1,105 @@
+package com.pehenrii.packet.bridge.codec;
+
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.Packet;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Optional;
+
+/**
+ * Finds the generated {@link PacketCodec} of a packet class.
+ * <p>
+ * The codec of {@code com.example.ChatPacket} is {@code com.example.ChatPacketCodec}; nested
+ * classes join their names with underscores, so {@code Outer.Inner} has {@code Outer_InnerCodec}.
+ * Each class is looked up once and the result cached.
+ * </p>
+ */
+public final class PacketCodecs {
+
+    private static final ClassValue<Optional<PacketCodec<?>>> CODECS = new ClassValue<>() {
+        @Override
+        protected Optional<PacketCodec<?>> computeValue(Class<?> type) {
+            return Optional.ofNullable(load(type));
+        }
+    };
+
+    private PacketCodecs() {
+    }
+
+    /**
+     * Returns the generated codec of a packet class.
+     *
+     * @param packetClass the packet class
+     * @param <T>         the packet type
+     * @return the codec, or {@code null} if none was generated for the class
+     * @throws IllegalStateException if the codec class exists but cannot be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Packet> @Nullable PacketCodec<T> find(@NonNull Class<T> packetClass) {
+        return (PacketCodec<T>) CODECS.get(packetClass).orElse(null);
+    }
+
+    /**
+     * Returns the name of the codec generated for a packet class.
+     *
+     * @param packetClass the packet class
+     * @return the binary name of the codec class
+     */
+    public static String codecName(@NonNull Class<?> packetClass) {
+        String packageName = packetClass.getPackageName();
+        String simpleName = packetClass.getName().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        return (packageName.isEmpty() ? "" : packageName + ".") + simpleName.replace('$', '_') + "Codec";
+    }
+
+    /**
+     * Serializes a packet with its generated codec.
+     *
+     * @param packet the packet
+     * @param buffer the output buffer to write data to
+     * @throws IllegalStateException if no codec was generated for the packet class
+     */
+    @SuppressWarnings("unchecked")
+    public static void write(@NonNull Packet packet, @NonNull PacketByteBufferOutput buffer) {
+        ((PacketCodec<Packet>) require(packet.getClass())).write(packet, buffer);
+    }
+
+    /**
+     * Deserializes a packet with its generated codec.
+     *
+     * @param packet the packet to fill in
+     * @param buffer the input buffer to read data from
+     * @throws IllegalStateException if no codec was generated for the packet class
+     */
+    @SuppressWarnings("unchecked")
+    public static void read(@NonNull Packet packet, @NonNull PacketByteBufferInput buffer) {
+        ((PacketCodec<Packet>) require(packet.getClass())).read(packet, buffer);
+    }
+
+    private static PacketCodec<?> require(Class<? extends Packet> packetClass) {
+        PacketCodec<?> codec = find(packetClass);
+        if (codec == null) {
+            throw new IllegalStateException("Class " + packetClass.getName()
+                    + " implements neither write/read nor has @PacketField fields with a generated codec");
+        }
+
+        return codec;
+    }
+
+    private static @Nullable PacketCodec<?> load(Class<?> packetClass) {
+        String name = codecName(packetClass);
+        Class<?> codecClass;
+        try {
+            codecClass = Class.forName(name, true, packetClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        try {
+            return (PacketCodec<?>) codecClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalStateException("Failed to instantiate codec " + name, e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.pehenrii.packet.bridge.compression;
+
+/**
+ * Identifies how a payload body was encoded.
+ * <p>
+ * The codec id is written as the first byte of every payload so receivers can
+ * decode it without knowing the sender's compression settings.
+ * </p>
+ */
+public enum CompressionCodec {
+
+    /**
+     * The body is stored as-is.
+     */
+    RAW((byte) 0),
+
+    /**
+     * The body is a plain Zstandard frame.
+     */
+    ZSTD((byte) 1),
+
+    /**
+     * The body is a Zstandard frame compressed with the packet type's dictionary.
+     */
+    ZSTD_DICTIONARY((byte) 2);
+
+    private static final CompressionCodec[] BY_ID = values();
+
+    private final byte id;
+
+    CompressionCodec(byte id) {
+        this.id = id;
+    }
+
+    public byte id() {
+        return id;
+    }
+
+    /**
+     * Resolves a codec from its wire id.
+     *
+     * @param id the codec id
+     * @return the codec
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public static CompressionCodec fromId(byte id) {
+        if (id < 0 || id >= BY_ID.length) {
+            throw new IllegalArgumentException("Unknown compression codec id " + id);
+        }
+
+        return BY_ID[id];
+    }
+}
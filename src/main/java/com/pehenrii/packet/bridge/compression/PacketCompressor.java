@@ -0,0 +1,366 @@
+package com.pehenrii.packet.bridge.compression;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.pehenrii.packet.bridge.buffer.PacketDecodeException;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adaptive Zstandard compression for packet payloads.
+ * <p>
+ * Every encoded payload starts with a one-byte {@link CompressionCodec} id. Compressed
+ * payloads follow it with the uncompressed length as a varint and then the Zstandard frame,
+ * written without its own content size or checksum to keep small payloads small.
+ * </p>
+ * <p>
+ * Payloads shorter than the configured threshold, and payloads that do not shrink when
+ * compressed, are sent {@link CompressionCodec#RAW raw}. Packet types with a loaded
+ * dictionary are compressed with it. Compression and decompression contexts are reused
+ * per thread rather than created for every call, as are the scratch buffers compressed
+ * data is written to. Scratch buffers that would grow beyond a retained capacity are used
+ * once instead, so a single large payload does not pin memory for the lifetime of the thread.
+ * </p>
+ */
+public final class PacketCompressor {
+
+    private static final int MIN_SCRATCH_CAPACITY = 1024;
+    private static final int DEFAULT_MAX_DECOMPRESSED_BYTES = 64 * 1024 * 1024;
+    private static final int DEFAULT_MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private final int threshold;
+    private final int level;
+    private final int maxDecompressedBytes;
+    private final int maxRetainedCapacity;
+
+    private final Map<Class<?>, Dictionary> dictionaries = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<ZstdCompressCtx> compressContext;
+    private final ThreadLocal<ZstdCompressCtx> dictionaryCompressContext;
+    private final ThreadLocal<ZstdDecompressCtx> decompressContext;
+    private final ThreadLocal<ZstdDecompressCtx> dictionaryDecompressContext;
+    private final ThreadLocal<ByteBuffer> directScratch = new ThreadLocal<>();
+    private final ThreadLocal<byte[]> heapScratch = new ThreadLocal<>();
+    private final ThreadLocal<byte[]> decompressScratch = ThreadLocal.withInitial(() -> new byte[MIN_SCRATCH_CAPACITY]);
+
+    /**
+     * @param threshold payloads shorter than this many bytes are never compressed
+     * @param level     the Zstandard compression level
+     */
+    public PacketCompressor(int threshold, int level) {
+        this(threshold, level, DEFAULT_MAX_DECOMPRESSED_BYTES, DEFAULT_MAX_RETAINED_CAPACITY);
+    }
+
+    /**
+     * @param threshold            payloads shorter than this many bytes are never compressed
+     * @param level                the Zstandard compression level
+     * @param maxDecompressedBytes the largest size a payload may decompress to
+     * @param maxRetainedCapacity  the largest scratch buffer kept per thread
+     */
+    public PacketCompressor(int threshold, int level, int maxDecompressedBytes, int maxRetainedCapacity) {
+        this.threshold = threshold;
+        this.level = level;
+        this.maxDecompressedBytes = maxDecompressedBytes;
+        this.maxRetainedCapacity = Math.max(MIN_SCRATCH_CAPACITY, maxRetainedCapacity);
+
+        this.compressContext = ThreadLocal.withInitial(this::newCompressContext);
+        this.dictionaryCompressContext = ThreadLocal.withInitial(this::newCompressContext);
+        this.decompressContext = ThreadLocal.withInitial(ZstdDecompressCtx::new);
+        this.dictionaryDecompressContext = ThreadLocal.withInitial(ZstdDecompressCtx::new);
+    }
+
+    /**
+     * Loads a dictionary used for every payload of the given packet type.
+     * Senders and receivers of the type must load the same dictionary.
+     *
+     * @param type       the packet type
+     * @param dictionary the raw dictionary, as returned by {@link #trainDictionary(Collection, int)}
+     */
+    public void loadDictionary(@NonNull Class<?> type, byte @NonNull [] dictionary) {
+        dictionaries.put(type, new Dictionary(
+                new ZstdDictCompress(dictionary, level),
+                new ZstdDictDecompress(dictionary)));
+    }
+
+    /**
+     * Removes the dictionary of the given packet type, if any.
+     *
+     * @param type the packet type
+     */
+    public void unloadDictionary(@NonNull Class<?> type) {
+        dictionaries.remove(type);
+    }
+
+    public boolean hasDictionary(@NonNull Class<?> type) {
+        return dictionaries.containsKey(type);
+    }
+
+    /**
+     * Encodes a payload, compressing it when that is worthwhile.
+     *
+     * @param type    the packet type, used to select a dictionary; may be {@code null}
+     * @param payload the serialized packet
+     * @return the encoded payload, starting with its codec id
+     */
+    public byte[] compress(@Nullable Class<?> type, byte @NonNull [] payload) {
+        return compress(type, ByteBuffer.wrap(payload), 0, payload.length);
+    }
+
+    /**
+     * Encodes a payload held in a heap or direct buffer, compressing it when that is worthwhile.
+     * <p>
+     * The payload is compressed straight from the source buffer into a per-thread scratch
+     * buffer of the same kind, then copied once into the returned array, which is sized
+     * exactly and owned by the caller.
+     * </p>
+     *
+     * @param type   the packet type, used to select a dictionary; may be {@code null}
+     * @param source the buffer holding the serialized packet; its position and limit are ignored
+     * @param offset the index of the first payload byte
+     * @param length the payload length
+     * @return the encoded payload, starting with its codec id
+     */
+    public byte[] compress(@Nullable Class<?> type, @NonNull ByteBuffer source, int offset, int length) {
+        return compress(type, source, offset, length, 0);
+    }
+
+    /**
+     * Encodes a payload like {@link #compress(Class, ByteBuffer, int, int)}, leaving the first
+     * {@code headroom} bytes of the returned array free for the caller to fill in, so a frame
+     * header can be put in front of the payload without copying it again.
+     *
+     * @param type     the packet type, used to select a dictionary; may be {@code null}
+     * @param source   the buffer holding the serialized packet; its position and limit are ignored
+     * @param offset   the index of the first payload byte
+     * @param length   the payload length
+     * @param headroom the number of bytes to leave free at the start of the returned array
+     * @return the encoded payload, starting with its codec id at index {@code headroom}
+     */
+    public byte[] compress(@Nullable Class<?> type, @NonNull ByteBuffer source, int offset, int length, int headroom) {
+        if (length < threshold) {
+            return raw(source, offset, length, headroom);
+        }
+
+        Dictionary dictionary = type == null ? null : dictionaries.get(type);
+
+        CompressionCodec codec;
+        ZstdCompressCtx context;
+        if (dictionary != null) {
+            codec = CompressionCodec.ZSTD_DICTIONARY;
+            context = dictionaryCompressContext.get().loadDict(dictionary.compress());
+        } else {
+            codec = CompressionCodec.ZSTD;
+            context = compressContext.get();
+        }
+
+        int bound = (int) Zstd.compressBound(length);
+        int headerSize = headroom + 1 + varIntSize(length);
+
+        byte[] target;
+        if (source.isDirect()) {
+            ByteBuffer scratch = directScratch(bound);
+            int written = context.compressDirectByteBuffer(scratch, 0, bound, source, offset, length);
+            if (headerSize + written >= headroom + 1 + length) {
+                return raw(source, offset, length, headroom);
+            }
+
+            target = new byte[headerSize + written];
+            scratch.get(0, target, headerSize, written);
+        } else if (source.hasArray()) {
+            byte[] scratch = heapScratch(bound);
+            int written = context.compressByteArray(scratch, 0, bound, source.array(), source.arrayOffset() + offset, length);
+            if (headerSize + written >= headroom + 1 + length) {
+                return raw(source, offset, length, headroom);
+            }
+
+            target = new byte[headerSize + written];
+            System.arraycopy(scratch, 0, target, headerSize, written);
+        } else {
+            byte[] copy = new byte[length];
+            source.get(offset, copy);
+            return compress(type, ByteBuffer.wrap(copy), 0, length, headroom);
+        }
+
+        target[headroom] = codec.id();
+        writeVarInt(target, headroom + 1, length);
+        return target;
+    }
+
+    /**
+     * Decodes a payload produced by {@link #compress(Class, byte[])}.
+     * <p>
+     * Raw payloads are returned as a view over {@code encoded}. Compressed payloads are
+     * decompressed into a per-thread scratch buffer, so the returned buffer is only valid
+     * until the next call to this method on the same thread.
+     * </p>
+     *
+     * @param type    the packet type, used to select a dictionary; may be {@code null}
+     * @param encoded the encoded payload
+     * @return a buffer positioned at the first byte of the serialized packet and limited to its end
+     * @throws PacketDecodeException if the payload is malformed or needs a dictionary that is not loaded
+     */
+    public ByteBuffer decompress(@Nullable Class<?> type, byte @NonNull [] encoded) {
+        return decompress(type, encoded, 0);
+    }
+
+    /**
+     * Decodes a payload that starts at {@code offset} and runs to the end of the array,
+     * such as one following a frame header.
+     *
+     * @param type    the packet type, used to select a dictionary; may be {@code null}
+     * @param encoded the array holding the encoded payload
+     * @param offset  the index of the payload's codec id
+     * @return a buffer positioned at the first byte of the serialized packet and limited to its end
+     * @throws PacketDecodeException if the payload is malformed or needs a dictionary that is not loaded
+     * @see #decompress(Class, byte[])
+     */
+    public ByteBuffer decompress(@Nullable Class<?> type, byte @NonNull [] encoded, int offset) {
+        if (offset >= encoded.length) {
+            throw new PacketDecodeException("Empty payload");
+        }
+
+        CompressionCodec codec;
+        try {
+            codec = CompressionCodec.fromId(encoded[offset]);
+        } catch (IllegalArgumentException e) {
+            throw new PacketDecodeException(e.getMessage());
+        }
+
+        if (codec == CompressionCodec.RAW) {
+            return ByteBuffer.wrap(encoded, offset + 1, encoded.length - offset - 1);
+        }
+
+        int length = 0;
+        int position = offset + 1;
+        for (int shift = 0; ; shift += 7) {
+            if (position >= encoded.length || shift > 28) {
+                throw new PacketDecodeException("Malformed compressed payload header");
+            }
+
+            byte b = encoded[position++];
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) break;
+        }
+
+        if (length < 0 || length > maxDecompressedBytes) {
+            throw new PacketDecodeException("Invalid decompressed length " + length);
+        }
+
+        ZstdDecompressCtx context;
+        if (codec == CompressionCodec.ZSTD_DICTIONARY) {
+            Dictionary dictionary = type == null ? null : dictionaries.get(type);
+            if (dictionary == null) {
+                throw new PacketDecodeException("No compression dictionary loaded for " + type);
+            }
+
+            context = dictionaryDecompressContext.get().loadDict(dictionary.decompress());
+        } else {
+            context = decompressContext.get();
+        }
+
+        byte[] target = decompressScratch.get();
+        if (target.length < length) {
+            target = new byte[Math.max(length, Math.min(target.length << 1, maxRetainedCapacity))];
+            if (target.length <= maxRetainedCapacity) {
+                decompressScratch.set(target);
+            }
+        }
+
+        int read;
+        try {
+            read = context.decompressByteArray(target, 0, length, encoded, position, encoded.length - position);
+        } catch (RuntimeException e) {
+            throw new PacketDecodeException("Failed to decompress payload: " + e.getMessage(), e);
+        }
+
+        if (read != length) {
+            throw new PacketDecodeException("Expected " + length + " decompressed bytes but got " + read);
+        }
+
+        return ByteBuffer.wrap(target, 0, length);
+    }
+
+    /**
+     * Trains a Zstandard dictionary from sample payloads.
+     *
+     * @param samples        serialized packets representative of the traffic of one packet type
+     * @param dictionarySize the maximum dictionary size in bytes
+     * @return the raw dictionary
+     */
+    public static byte[] trainDictionary(@NonNull Collection<byte[]> samples, int dictionarySize) {
+        int sampleSize = 0;
+        for (byte[] sample : samples) {
+            sampleSize += sample.length;
+        }
+
+        ZstdDictTrainer trainer = new ZstdDictTrainer(sampleSize, dictionarySize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+
+        return trainer.trainSamples();
+    }
+
+    private ZstdCompressCtx newCompressContext() {
+        return new ZstdCompressCtx()
+                .setLevel(level)
+                .setContentSize(false)
+                .setChecksum(false);
+    }
+
+    private ByteBuffer directScratch(int capacity) {
+        ByteBuffer scratch = directScratch.get();
+        if (scratch == null || scratch.capacity() < capacity) {
+            scratch = ByteBuffer.allocateDirect(Math.max(capacity, MIN_SCRATCH_CAPACITY));
+            if (scratch.capacity() <= maxRetainedCapacity) {
+                directScratch.set(scratch);
+            }
+        }
+
+        return scratch;
+    }
+
+    private byte[] heapScratch(int capacity) {
+        byte[] scratch = heapScratch.get();
+        if (scratch == null || scratch.length < capacity) {
+            scratch = new byte[Math.max(capacity, MIN_SCRATCH_CAPACITY)];
+            if (scratch.length <= maxRetainedCapacity) {
+                heapScratch.set(scratch);
+            }
+        }
+
+        return scratch;
+    }
+
+    private static byte[] raw(ByteBuffer source, int offset, int length, int headroom) {
+        byte[] target = new byte[headroom + 1 + length];
+        target[headroom] = CompressionCodec.RAW.id();
+        source.get(offset, target, headroom + 1, length);
+        return target;
+    }
+
+    private static int varIntSize(int value) {
+        return (38 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+    }
+
+    private static void writeVarInt(byte[] target, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        target[position] = (byte) value;
+    }
+
+    private record Dictionary(ZstdDictCompress compress, ZstdDictDecompress decompress) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.pehenrii.packet.bridge.dispatch;
+
+/**
+ * What a bounded queue does with a new task when it is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The submitting thread waits until the queue has room.
+     */
+    BLOCK,
+
+    /**
+     * The oldest queued task is discarded to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new task is discarded.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The new task is refused with a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    REJECT
+}
@@ -0,0 +1,11 @@
+package com.pehenrii.packet.bridge.dispatch;
+
+/**
+ * Completes the future of a packet that was discarded because its queue was full.
+ */
+public class PacketDroppedException extends RuntimeException {
+
+    public PacketDroppedException(String message) {
+        super(message, null, false, false);
+    }
+}
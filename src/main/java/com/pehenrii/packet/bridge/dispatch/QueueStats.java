@@ -0,0 +1,23 @@
+package com.pehenrii.packet.bridge.dispatch;
+
+/**
+ * Point-in-time view of a bounded queue.
+ *
+ * @param depth    the number of queued items
+ * @param capacity the maximum number of queued items
+ * @param dropped  the number of items discarded by {@link OverflowPolicy#DROP_OLDEST} or {@link OverflowPolicy#DROP_NEWEST}
+ * @param rejected the number of items refused by {@link OverflowPolicy#REJECT}
+ */
+public record QueueStats(long depth, long capacity, long dropped, long rejected) {
+
+    /**
+     * Adds up the statistics of two queues.
+     *
+     * @param other the statistics of the other queue
+     * @return the combined statistics
+     */
+    public QueueStats plus(QueueStats other) {
+        return new QueueStats(depth + other.depth, capacity + other.capacity, dropped + other.dropped,
+                rejected + other.rejected);
+    }
+}
@@ -0,0 +1,307 @@
+package com.pehenrii.packet.bridge.dispatch;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor that spreads tasks across a fixed number of single-threaded stripes.
+ * <p>
+ * Tasks submitted with the same stripe key always run on the same stripe, in
+ * submission order, while tasks with different keys may run in parallel.
+ * </p>
+ * <p>
+ * Each stripe queues at most {@code capacity} tasks submitted through {@link #execute};
+ * once full, the configured {@link OverflowPolicy} applies. Tasks submitted through
+ * {@link #executeUnbounded} are never dropped, not even by {@link OverflowPolicy#DROP_OLDEST}.
+ * </p>
+ */
+public final class StripedExecutor implements AutoCloseable {
+
+    private final Stripe[] stripes;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param name        the thread name prefix
+     * @param parallelism the number of stripes
+     */
+    public StripedExecutor(@NonNull String name, int parallelism) {
+        this(name, parallelism, Integer.MAX_VALUE, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param name           the thread name prefix
+     * @param parallelism    the number of stripes
+     * @param capacity       the maximum number of queued tasks per stripe
+     * @param overflowPolicy what to do when a stripe's queue is full
+     */
+    public StripedExecutor(@NonNull String name, int parallelism, int capacity, @NonNull OverflowPolicy overflowPolicy) {
+        this(name, parallelism, capacity, overflowPolicy, Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * @param name           the thread name prefix
+     * @param parallelism    the number of stripes
+     * @param capacity       the maximum number of queued tasks per stripe
+     * @param overflowPolicy what to do when a stripe's queue is full
+     * @param threadPriority the priority of the stripe threads, between {@link Thread#MIN_PRIORITY}
+     *                       and {@link Thread#MAX_PRIORITY}
+     */
+    public StripedExecutor(@NonNull String name, int parallelism, int capacity, @NonNull OverflowPolicy overflowPolicy,
+                           int threadPriority) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+
+        ThreadFactory threadFactory = new DefaultThreadFactory(name, true, threadPriority);
+
+        this.stripes = new Stripe[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            stripes[i] = new Stripe(new ThreadPoolExecutor(
+                    1, 1, 0,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    threadFactory), new Semaphore(capacity));
+        }
+    }
+
+    /**
+     * Runs a task on the stripe selected by the key, applying the overflow policy
+     * if the stripe's queue is full.
+     *
+     * @param key  the stripe key, typically a hash code
+     * @param task the task to run
+     * @return {@code false} if the task was dropped
+     * @throws RejectedExecutionException if the task was rejected, or the executor is shut down
+     */
+    public boolean execute(int key, @NonNull Runnable task) {
+        return execute(key, task, null);
+    }
+
+    /**
+     * Runs a task like {@link #execute(int, Runnable)}, telling the submitter if the task is dropped
+     * from the queue later on, by {@link OverflowPolicy#DROP_OLDEST} making room for a newer task.
+     *
+     * @param key       the stripe key, typically a hash code
+     * @param task      the task to run
+     * @param onDropped run instead of the task if it is dropped once queued, on the thread submitting
+     *                  the newer task; may be {@code null}
+     * @return {@code false} if the task was dropped right away
+     * @throws RejectedExecutionException if the task was rejected, or the executor is shut down
+     */
+    public boolean execute(int key, @NonNull Runnable task, @Nullable Runnable onDropped) {
+        Stripe stripe = stripes[stripe(key)];
+        if (!acquire(stripe)) {
+            return false;
+        }
+
+        BoundedTask bounded = new BoundedTask(stripe.permits, task, onDropped);
+        try {
+            stripe.executor.execute(bounded);
+        } catch (RejectedExecutionException e) {
+            bounded.release();
+            throw e;
+        }
+
+        return true;
+    }
+
+    /**
+     * Runs a task on the stripe selected by the key without counting it against the
+     * stripe's capacity. Meant for tasks a stripe hands to another stripe: applying
+     * {@link OverflowPolicy#BLOCK} there could leave two full stripes waiting on each other.
+     *
+     * @param key  the stripe key, typically a hash code
+     * @param task the task to run
+     */
+    public void executeUnbounded(int key, @NonNull Runnable task) {
+        stripes[stripe(key)].executor.execute(task);
+    }
+
+    /**
+     * Returns the stripe index a key maps to.
+     *
+     * @param key the stripe key
+     * @return the stripe index
+     */
+    public int stripe(int key) {
+        return Math.floorMod(key ^ (key >>> 16), stripes.length);
+    }
+
+    public int parallelism() {
+        return stripes.length;
+    }
+
+    /**
+     * Returns the number of tasks waiting across all stripes.
+     *
+     * @return the queued task count
+     */
+    public int queuedTasks() {
+        int queued = 0;
+        for (Stripe stripe : stripes) {
+            queued += stripe.executor.getQueue().size();
+        }
+
+        return queued;
+    }
+
+    /**
+     * Returns the current depth, total capacity and drop counts of the stripe queues.
+     *
+     * @return the queue statistics
+     */
+    public QueueStats stats() {
+        return new QueueStats(queuedTasks(), (long) capacity * stripes.length, dropped.sum(), rejected.sum());
+    }
+
+    /**
+     * Stops accepting tasks and lets queued tasks finish.
+     */
+    public void shutdown() {
+        for (Stripe stripe : stripes) {
+            stripe.executor.shutdown();
+        }
+    }
+
+    /**
+     * Waits for every stripe to finish after {@link #shutdown()}.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of {@code timeout}
+     * @return {@code true} if every stripe terminated in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Stripe stripe : stripes) {
+            if (!stripe.executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    private boolean acquire(Stripe stripe) {
+        if (stripe.permits.tryAcquire()) {
+            return true;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                while (!stripe.permits.tryAcquire()) {
+                    if (stripe.executor.isShutdown()) {
+                        throw new RejectedExecutionException("Executor is shut down");
+                    }
+
+                    try {
+                        if (stripe.permits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                            return true;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for queue capacity", e);
+                    }
+                }
+
+                return true;
+            }
+            case DROP_OLDEST -> {
+                do {
+                    BoundedTask oldest = pollOldestBounded(stripe);
+                    if (oldest != null) {
+                        dropped.increment();
+                        oldest.drop();
+                    } else {
+                        // The permits are held by tasks the stripe thread is taking off the queue
+                        Thread.onSpinWait();
+                    }
+                } while (!stripe.permits.tryAcquire());
+
+                return true;
+            }
+            case DROP_NEWEST -> {
+                dropped.increment();
+                return false;
+            }
+            default -> {
+                rejected.increment();
+                throw new RejectedExecutionException("Queue is full (" + capacity + " tasks)");
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest queued task that holds a permit. Unbounded tasks stay queued, since their
+     * submitters count on them to run, such as a hand-off that finishes work another stripe started.
+     */
+    private static @Nullable BoundedTask pollOldestBounded(Stripe stripe) {
+        for (Runnable queued : stripe.executor.getQueue()) {
+            if (queued instanceof BoundedTask bounded && stripe.executor.getQueue().remove(bounded)) {
+                return bounded;
+            }
+        }
+
+        return null;
+    }
+
+    private record Stripe(ThreadPoolExecutor executor, Semaphore permits) {
+    }
+
+    /**
+     * Task holding one queue permit, given back as soon as the task leaves the queue.
+     */
+    private static final class BoundedTask implements Runnable {
+
+        private final Semaphore permits;
+        private final Runnable task;
+        private final @Nullable Runnable onDropped;
+
+        private BoundedTask(Semaphore permits, Runnable task, @Nullable Runnable onDropped) {
+            this.permits = permits;
+            this.task = task;
+            this.onDropped = onDropped;
+        }
+
+        @Override
+        public void run() {
+            permits.release();
+            task.run();
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        void drop() {
+            permits.release();
+            if (onDropped != null) {
+                onDropped.run();
+            }
+        }
+    }
+}
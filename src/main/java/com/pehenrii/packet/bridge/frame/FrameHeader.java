@@ -0,0 +1,615 @@
+package com.pehenrii.packet.bridge.frame;
+
+import com.pehenrii.packet.bridge.buffer.PacketDecodeException;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Header in front of every frame published by a packet bridge.
+ * <p>
+ * A header starts with the frame format {@link #VERSION} and a flags byte. Frames with an
+ * {@link #FLAG_ENVELOPE envelope} follow them with 4 bytes holding the priority lane the frame
+ * was sent on in their top 2 bits and the id of their sender in the rest, a 2-byte sequence
+ * number counted per sender, lane and channel, and the low 3 bytes of the send time in
+ * epoch milliseconds, so a frame with an envelope and no other header fields still has a header
+ * below a dozen bytes. The envelope sits at a fixed offset so it can be read, and stamped
+ * just before publishing, without decoding the rest of the header. Frames sent on
+ * multiplexed channels continue with the packet type id as an unsigned varint. Request frames
+ * continue with the request's correlation id as an unsigned varlong and the channel
+ * the reply must be published to, prefixed with its length as a varint. Response frames
+ * only carry the correlation id of the request they answer. Frames of any kind may end
+ * the header with the 8-byte id of the bridge that sent them. The encoded payload follows
+ * the header; in {@link #FLAG_BATCH batch} frames it holds several length-prefixed packets,
+ * in {@link #FLAG_DELTA delta} frames a keyframe or a difference from the previous packet.
+ * </p>
+ */
+public final class FrameHeader {
+
+    public static final byte VERSION = 4;
+
+    /**
+     * The oldest frame format still read. Version 1 frames are version 2 frames without an envelope,
+     * version 2 frames are version 3 frames without deltas, and version 3 frames are version 4 frames
+     * whose envelope holds the low 4 bytes of the send time and no lane, leaving all 4 bytes to the sender id.
+     */
+    public static final byte MIN_VERSION = 1;
+
+    private static final byte ENVELOPE_VERSION = 2;
+    private static final byte SHORT_TIMESTAMP_VERSION = 4;
+    private static final byte LANE_VERSION = 4;
+
+    private static final int LANE_SHIFT = 30;
+
+    /**
+     * The bits of the envelope's first 4 bytes that hold the sender id; the others hold the lane.
+     */
+    public static final int SENDER_MASK = (1 << LANE_SHIFT) - 1;
+
+    /**
+     * The number of lanes an envelope can tell apart.
+     */
+    public static final int LANES = 1 << (Integer.SIZE - LANE_SHIFT);
+
+    /**
+     * The size of the {@link #FLAG_ENVELOPE envelope}: sender id, sequence number and send time.
+     */
+    public static final int ENVELOPE_SIZE = 9;
+
+    private static final int LONG_TIMESTAMP_ENVELOPE_SIZE = ENVELOPE_SIZE + 1;
+
+    private static final int ENVELOPE_OFFSET = 2;
+    private static final int SEQUENCE_OFFSET = ENVELOPE_OFFSET + Integer.BYTES;
+    private static final int TIMESTAMP_OFFSET = SEQUENCE_OFFSET + Short.BYTES;
+
+    /**
+     * The offset right behind the envelope of a frame written with one, up to which {@link #stamp} writes.
+     */
+    public static final int ENVELOPE_END = ENVELOPE_OFFSET + ENVELOPE_SIZE;
+
+    /**
+     * The frame is a request; a correlation id and a reply channel follow the flags.
+     */
+    public static final int FLAG_REQUEST = 1;
+
+    /**
+     * The frame answers a request; a correlation id follows the flags.
+     */
+    public static final int FLAG_RESPONSE = 1 << 1;
+
+    /**
+     * The request failed on the responder. The payload is the UTF-8 error message
+     * instead of an encoded packet.
+     */
+    public static final int FLAG_ERROR = 1 << 2;
+
+    /**
+     * The header ends with the id of the bridge that sent the frame.
+     */
+    public static final int FLAG_ORIGIN = 1 << 3;
+
+    /**
+     * The payload packs several packets of one type, each prefixed with its length as a varint.
+     */
+    public static final int FLAG_BATCH = 1 << 4;
+
+    /**
+     * The packet type id follows the flags, since the frame shares its channel with other packet types.
+     */
+    public static final int FLAG_TYPE = 1 << 5;
+
+    /**
+     * The sender id, sequence number and send time follow the flags.
+     */
+    public static final int FLAG_ENVELOPE = 1 << 6;
+
+    /**
+     * The payload is a keyframe or a difference from the previous packet of the same key,
+     * which receivers rebuild packets from. Delta frames always carry an envelope, whose
+     * sender id tells whose previous packet the difference applies to.
+     */
+    public static final int FLAG_DELTA = 1 << 7;
+
+    private static final FrameHeader PLAIN = new FrameHeader(0, 0, 0, 0, 0, 0, null, 0);
+    private static final FrameHeader BATCH = new FrameHeader(FLAG_BATCH, 0, 0, 0, 0, 0, null, 0);
+
+    private final int flags;
+    private final int sender;
+    private final int lane;
+    private final int timestamp;
+    private final int typeId;
+    private final long correlationId;
+    private final byte[] replyChannel;
+    private final long origin;
+    private final int size;
+
+    private FrameHeader(int flags, int sender, int lane, int timestamp, int typeId, long correlationId,
+                        byte @Nullable [] replyChannel, long origin) {
+        this.flags = flags;
+        this.sender = sender;
+        this.lane = lane;
+        this.timestamp = timestamp;
+        this.typeId = typeId;
+        this.correlationId = correlationId;
+        this.replyChannel = replyChannel;
+        this.origin = origin;
+
+        int size = 2;
+        if ((flags & FLAG_ENVELOPE) != 0) {
+            size += ENVELOPE_SIZE;
+        }
+
+        if ((flags & FLAG_TYPE) != 0) {
+            size += varLongSize(typeId & 0xFFFFFFFFL);
+        }
+
+        if ((flags & (FLAG_REQUEST | FLAG_RESPONSE)) != 0) {
+            size += varLongSize(correlationId);
+        }
+
+        if (replyChannel != null) {
+            size += varLongSize(replyChannel.length) + replyChannel.length;
+        }
+
+        if ((flags & FLAG_ORIGIN) != 0) {
+            size += Long.BYTES;
+        }
+
+        this.size = size;
+    }
+
+    /**
+     * Returns the header of a packet that is neither a request nor a response.
+     *
+     * @return the shared plain header
+     */
+    public static FrameHeader plain() {
+        return PLAIN;
+    }
+
+    /**
+     * Returns the header of a frame packing several packets.
+     *
+     * @return the shared batch header
+     */
+    public static FrameHeader batch() {
+        return BATCH;
+    }
+
+    public static FrameHeader request(long correlationId, byte @NonNull [] replyChannel) {
+        return new FrameHeader(FLAG_REQUEST, 0, 0, 0, 0, correlationId, replyChannel, 0);
+    }
+
+    public static FrameHeader response(long correlationId) {
+        return new FrameHeader(FLAG_RESPONSE, 0, 0, 0, 0, correlationId, null, 0);
+    }
+
+    public static FrameHeader error(long correlationId) {
+        return new FrameHeader(FLAG_RESPONSE | FLAG_ERROR, 0, 0, 0, 0, correlationId, null, 0);
+    }
+
+    /**
+     * Returns a copy of this header that also carries the id of the sending bridge.
+     *
+     * @param origin the sender id
+     * @return the header with an origin
+     */
+    public FrameHeader withOrigin(long origin) {
+        return new FrameHeader(flags | FLAG_ORIGIN, sender, lane, timestamp, typeId, correlationId, replyChannel, origin);
+    }
+
+    /**
+     * Returns a copy of this header that also carries the id of the packet type.
+     *
+     * @param typeId the packet type id
+     * @return the header with a type id
+     */
+    public FrameHeader withType(int typeId) {
+        return new FrameHeader(flags | FLAG_TYPE, sender, lane, timestamp, typeId, correlationId, replyChannel, origin);
+    }
+
+    /**
+     * Returns a copy of this header that also carries an envelope. The sequence number and
+     * send time are left zero by {@link #write(byte[])} and filled in by {@link #stamp(byte[], int, long)}.
+     *
+     * @param sender the id of the sending bridge; only the bits of {@link #SENDER_MASK} are kept
+     * @param lane   the priority lane the frame is sent on, below {@link #LANES}
+     * @return the header with an envelope
+     */
+    public FrameHeader withEnvelope(int sender, int lane) {
+        if (lane < 0 || lane >= LANES) {
+            throw new IllegalArgumentException("Lane " + lane + " does not fit an envelope");
+        }
+
+        return new FrameHeader(flags | FLAG_ENVELOPE, sender & SENDER_MASK, lane, timestamp, typeId, correlationId,
+                replyChannel, origin);
+    }
+
+    /**
+     * Returns a copy of this header marking the payload as delta encoded. The header must
+     * already carry an {@link #withEnvelope(int, int) envelope}.
+     *
+     * @return the header of a delta frame
+     */
+    public FrameHeader withDelta() {
+        return new FrameHeader(flags | FLAG_DELTA, sender, lane, timestamp, typeId, correlationId, replyChannel, origin);
+    }
+
+    public int flags() {
+        return flags;
+    }
+
+    public boolean isRequest() {
+        return (flags & FLAG_REQUEST) != 0;
+    }
+
+    public boolean isResponse() {
+        return (flags & FLAG_RESPONSE) != 0;
+    }
+
+    public boolean isError() {
+        return (flags & FLAG_ERROR) != 0;
+    }
+
+    public long correlationId() {
+        return correlationId;
+    }
+
+    public boolean hasEnvelope() {
+        return (flags & FLAG_ENVELOPE) != 0;
+    }
+
+    /**
+     * Returns the id of the bridge that sent the frame, as carried by the envelope.
+     *
+     * @return the sender id, or {@code 0} if the header has no {@link #FLAG_ENVELOPE envelope}
+     */
+    public int sender() {
+        return sender;
+    }
+
+    /**
+     * Returns the priority lane the frame was sent on, as carried by the envelope.
+     *
+     * @return the lane, or {@code -1} if the header has no {@link #FLAG_ENVELOPE envelope} or predates lanes
+     */
+    public int lane() {
+        return hasEnvelope() ? lane : -1;
+    }
+
+    /**
+     * Returns the send time of the frame, as carried by the envelope.
+     *
+     * @return the low 24 bits of the send time in epoch milliseconds, or {@code 0} if the header
+     * has no {@link #FLAG_ENVELOPE envelope}
+     * @see #elapsedMillis(int, long)
+     */
+    public int timestamp() {
+        return timestamp;
+    }
+
+    public boolean hasType() {
+        return (flags & FLAG_TYPE) != 0;
+    }
+
+    /**
+     * Returns the id of the packet type of the frame.
+     *
+     * @return the type id, or {@code -1} if the header has no {@link #FLAG_TYPE type}
+     */
+    public int typeId() {
+        return hasType() ? typeId : -1;
+    }
+
+    public boolean isBatch() {
+        return (flags & FLAG_BATCH) != 0;
+    }
+
+    public boolean isDelta() {
+        return (flags & FLAG_DELTA) != 0;
+    }
+
+    public boolean hasOrigin() {
+        return (flags & FLAG_ORIGIN) != 0;
+    }
+
+    /**
+     * Returns the id of the bridge that sent the frame.
+     *
+     * @return the sender id, or {@code 0} if the header has no {@link #FLAG_ORIGIN origin}
+     */
+    public long origin() {
+        return origin;
+    }
+
+    /**
+     * Returns the channel a request's reply must be published to.
+     * The array is shared and must not be modified.
+     *
+     * @return the reply channel, or {@code null} if this is not a request
+     */
+    public byte @Nullable [] replyChannel() {
+        return replyChannel;
+    }
+
+    /**
+     * Returns the encoded size of this header, which is also the offset of the payload in its frame.
+     *
+     * @return the header size in bytes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes this header at the start of a frame whose first {@link #size()} bytes are free.
+     *
+     * @param frame the frame
+     */
+    public void write(byte @NonNull [] frame) {
+        frame[0] = VERSION;
+        frame[1] = (byte) flags;
+
+        int position = 2;
+        if ((flags & FLAG_ENVELOPE) != 0) {
+            writeInt(frame, ENVELOPE_OFFSET, lane << LANE_SHIFT | sender);
+            position += ENVELOPE_SIZE;
+        }
+
+        if ((flags & FLAG_TYPE) != 0) {
+            position = writeVarLong(frame, position, typeId & 0xFFFFFFFFL);
+        }
+
+        if ((flags & (FLAG_REQUEST | FLAG_RESPONSE)) != 0) {
+            position = writeVarLong(frame, position, correlationId);
+        }
+
+        if (replyChannel != null) {
+            position = writeVarLong(frame, position, replyChannel.length);
+            System.arraycopy(replyChannel, 0, frame, position, replyChannel.length);
+            position += replyChannel.length;
+        }
+
+        if ((flags & FLAG_ORIGIN) != 0) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                frame[position++] = (byte) (origin >>> shift);
+            }
+        }
+    }
+
+    /**
+     * Reads the header at the start of a frame.
+     *
+     * @param frame the frame
+     * @return the header; plain frames share a single instance
+     * @throws PacketDecodeException if the header is truncated or has an unknown version
+     */
+    public static FrameHeader read(byte @NonNull [] frame) {
+        if (frame.length < 2) {
+            throw new PacketDecodeException("Frame of " + frame.length + " bytes is too short for a header");
+        }
+
+        if (frame[0] < MIN_VERSION || frame[0] > VERSION) {
+            throw new PacketDecodeException("Unsupported frame version " + frame[0]);
+        }
+
+        int flags = frame[1] & 0xFF;
+        if (flags == 0) {
+            return PLAIN;
+        } else if (flags == FLAG_BATCH) {
+            return BATCH;
+        }
+
+        int[] position = {2};
+        int sender = 0;
+        int lane = 0;
+        int timestamp = 0;
+        if ((flags & FLAG_ENVELOPE) != 0) {
+            int envelopeSize = envelopeSize(frame[0]);
+            if (frame.length < ENVELOPE_OFFSET + envelopeSize) {
+                throw new PacketDecodeException("Truncated frame envelope");
+            }
+
+            sender = readSender(frame);
+            lane = readLane(frame);
+            timestamp = readTimestamp(frame);
+            position[0] += envelopeSize;
+        }
+
+        int typeId = 0;
+        if ((flags & FLAG_TYPE) != 0) {
+            typeId = (int) readVarLong(frame, position);
+        }
+
+        long correlationId = 0;
+        if ((flags & (FLAG_REQUEST | FLAG_RESPONSE)) != 0) {
+            correlationId = readVarLong(frame, position);
+        }
+
+        byte[] replyChannel = null;
+        if ((flags & FLAG_REQUEST) != 0) {
+            long length = readVarLong(frame, position);
+            if (length > frame.length - position[0]) {
+                throw new PacketDecodeException("Reply channel of " + length + " bytes exceeds the frame");
+            }
+
+            replyChannel = new byte[(int) length];
+            System.arraycopy(frame, position[0], replyChannel, 0, replyChannel.length);
+            position[0] += replyChannel.length;
+        }
+
+        long origin = 0;
+        if ((flags & FLAG_ORIGIN) != 0) {
+            if (frame.length - position[0] < Long.BYTES) {
+                throw new PacketDecodeException("Truncated frame origin");
+            }
+
+            for (int i = 0; i < Long.BYTES; i++) {
+                origin = (origin << 8) | (frame[position[0]++] & 0xFF);
+            }
+        }
+
+        return new FrameHeader(flags, sender, lane, timestamp, typeId, correlationId, replyChannel, origin);
+    }
+
+    /**
+     * Reads only the packet type id of a frame, without decoding the rest of its header.
+     *
+     * @param frame the frame
+     * @return the type id, or {@code -1} if the frame has no {@link #FLAG_TYPE type}
+     * @throws PacketDecodeException if the header is truncated or has an unknown version
+     */
+    public static int readTypeId(byte @NonNull [] frame) {
+        if (frame.length < 2 || frame[0] < MIN_VERSION || frame[0] > VERSION) {
+            throw new PacketDecodeException("Frame of " + frame.length + " bytes has no valid header");
+        }
+
+        if ((frame[1] & FLAG_TYPE) == 0) return -1;
+        return (int) readVarLong(frame, new int[]{(frame[1] & FLAG_ENVELOPE) != 0 ? 2 + envelopeSize(frame[0]) : 2});
+    }
+
+    /**
+     * Checks whether a frame carries a complete envelope, without decoding the rest of its header.
+     *
+     * @param frame the frame
+     * @return whether the envelope accessors may be used on the frame
+     */
+    public static boolean hasEnvelope(byte @NonNull [] frame) {
+        return frame.length >= ENVELOPE_OFFSET + ENVELOPE_SIZE && frame[0] >= ENVELOPE_VERSION && frame[0] <= VERSION
+                && (frame[1] & FLAG_ENVELOPE) != 0 && frame.length >= ENVELOPE_OFFSET + envelopeSize(frame[0]);
+    }
+
+    private static int envelopeSize(byte version) {
+        return version < SHORT_TIMESTAMP_VERSION ? LONG_TIMESTAMP_ENVELOPE_SIZE : ENVELOPE_SIZE;
+    }
+
+    /**
+     * Fills in the sequence number and send time of a frame written with an envelope.
+     *
+     * @param frame      the frame
+     * @param sequence   the sequence number; only the low 16 bits are kept
+     * @param timeMillis the send time in epoch milliseconds; only the low 24 bits are kept
+     */
+    public static void stamp(byte @NonNull [] frame, int sequence, long timeMillis) {
+        stamp(frame, 0, sequence, timeMillis);
+    }
+
+    /**
+     * Fills in the sequence number and send time of a frame written with an envelope that starts at an
+     * offset into an array, such as a frame split into chunks or carried by a reference.
+     *
+     * @param array      the array holding the frame
+     * @param offset     the offset of the frame in the array
+     * @param sequence   the sequence number; only the low 16 bits are kept
+     * @param timeMillis the send time in epoch milliseconds; only the low 24 bits are kept
+     */
+    public static void stamp(byte @NonNull [] array, int offset, int sequence, long timeMillis) {
+        array[offset + SEQUENCE_OFFSET] = (byte) (sequence >>> 8);
+        array[offset + SEQUENCE_OFFSET + 1] = (byte) sequence;
+        array[offset + TIMESTAMP_OFFSET] = (byte) (timeMillis >>> 16);
+        array[offset + TIMESTAMP_OFFSET + 1] = (byte) (timeMillis >>> 8);
+        array[offset + TIMESTAMP_OFFSET + 2] = (byte) timeMillis;
+    }
+
+    /**
+     * Reads the sender id of a frame that {@link #hasEnvelope(byte[]) has an envelope}.
+     *
+     * @param frame the frame
+     * @return the sender id
+     */
+    public static int readSender(byte @NonNull [] frame) {
+        int word = readInt(frame, ENVELOPE_OFFSET);
+        return frame[0] < LANE_VERSION ? word : word & SENDER_MASK;
+    }
+
+    /**
+     * Reads the priority lane of a frame that {@link #hasEnvelope(byte[]) has an envelope}.
+     *
+     * @param frame the frame
+     * @return the lane, or {@code -1} if the frame predates lanes
+     */
+    public static int readLane(byte @NonNull [] frame) {
+        return frame[0] < LANE_VERSION ? -1 : (frame[ENVELOPE_OFFSET] & 0xFF) >>> (LANE_SHIFT - 24);
+    }
+
+    /**
+     * Reads the sequence number of a frame that {@link #hasEnvelope(byte[]) has an envelope}.
+     *
+     * @param frame the frame
+     * @return the sequence number, from {@code 0} to {@code 65535}
+     */
+    public static int readSequence(byte @NonNull [] frame) {
+        return ((frame[SEQUENCE_OFFSET] & 0xFF) << 8) | (frame[SEQUENCE_OFFSET + 1] & 0xFF);
+    }
+
+    /**
+     * Reads the send time of a frame that {@link #hasEnvelope(byte[]) has an envelope}.
+     *
+     * @param frame the frame
+     * @return the low 24 bits of the send time in epoch milliseconds
+     * @see #elapsedMillis(int, long)
+     */
+    public static int readTimestamp(byte @NonNull [] frame) {
+        // Version 3 envelopes hold 4 bytes of the send time, of which the low 3 are kept
+        int position = frame[0] < SHORT_TIMESTAMP_VERSION ? TIMESTAMP_OFFSET + 1 : TIMESTAMP_OFFSET;
+        return ((frame[position] & 0xFF) << 16) | ((frame[position + 1] & 0xFF) << 8) | (frame[position + 2] & 0xFF);
+    }
+
+    /**
+     * Returns the time from a send time carried by an envelope until now. The send time wraps
+     * about every 4.6 hours, so the result is only meaningful between hosts whose clocks are less
+     * than half of that apart.
+     *
+     * @param timestamp the low 24 bits of the send time, as read from an envelope
+     * @param nowMillis the current time in epoch milliseconds
+     * @return the elapsed milliseconds, negative if the sender's clock is ahead
+     */
+    public static int elapsedMillis(int timestamp, long nowMillis) {
+        return ((int) nowMillis - timestamp) << 8 >> 8;
+    }
+
+    private static void writeInt(byte[] target, int position, int value) {
+        target[position] = (byte) (value >>> 24);
+        target[position + 1] = (byte) (value >>> 16);
+        target[position + 2] = (byte) (value >>> 8);
+        target[position + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] source, int position) {
+        return ((source[position] & 0xFF) << 24) | ((source[position + 1] & 0xFF) << 16)
+                | ((source[position + 2] & 0xFF) << 8) | (source[position + 3] & 0xFF);
+    }
+
+    private static int varLongSize(long value) {
+        return (70 - Long.numberOfLeadingZeros(value | 1)) / 7;
+    }
+
+    private static int writeVarLong(byte[] target, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarLong(byte[] source, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= source.length) {
+                throw new PacketDecodeException("Truncated frame header");
+            }
+
+            byte b = source[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+
+        throw new PacketDecodeException("Malformed varlong in frame header");
+    }
+
+    @Override
+    public String toString() {
+        return "FrameHeader{flags=" + flags + ", typeId=" + typeId + ", correlationId=" + correlationId + "}";
+    }
+}
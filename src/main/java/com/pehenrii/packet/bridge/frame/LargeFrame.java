@@ -0,0 +1,206 @@
+package com.pehenrii.packet.bridge.frame;
+
+import com.pehenrii.packet.bridge.buffer.PacketDecodeException;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Wrappers that carry frames too large to publish whole, as sent in a {@link LargePayloadMode}.
+ * <p>
+ * A {@link #CHUNK chunk} holds a slice of a frame: after its marker come the 8-byte id of the
+ * transfer, the chunk count, the index of the chunk, the length of the whole frame and the offset
+ * of the slice within it, each as a 4-byte int, then the slice itself. A {@link #REFERENCE reference}
+ * holds the length of the frame as a 4-byte int and the length of its envelope as a byte, followed by
+ * the envelope and the key the frame was stored under. The envelope is a frame of just a header carrying
+ * the {@link FrameHeader#FLAG_ENVELOPE envelope} of the stored frame, if it has one, so receivers can
+ * follow its sequence number as soon as the reference arrives.
+ * Both start with a marker outside the range of {@link FrameHeader#VERSION frame versions}, so they
+ * are told apart from frames by their first byte, and bridges that predate them reject them as
+ * frames of an unknown version.
+ * </p>
+ */
+public final class LargeFrame {
+
+    /**
+     * The first byte of a chunk.
+     */
+    public static final byte CHUNK = -1;
+
+    /**
+     * The first byte of a reference.
+     */
+    public static final byte REFERENCE = -2;
+
+    /**
+     * The size of the header in front of the slice of every chunk.
+     */
+    public static final int CHUNK_HEADER_SIZE = 1 + Long.BYTES + Integer.BYTES * 4;
+
+    private static final int REFERENCE_HEADER_SIZE = 1 + Integer.BYTES + 1;
+
+    private LargeFrame() {
+    }
+
+    public static boolean isChunk(byte @NonNull [] frame) {
+        return frame.length > 0 && frame[0] == CHUNK;
+    }
+
+    public static boolean isReference(byte @NonNull [] frame) {
+        return frame.length > 0 && frame[0] == REFERENCE;
+    }
+
+    /**
+     * Splits a frame into chunks.
+     *
+     * @param frame      the frame
+     * @param transferId the id the receivers reassemble the chunks by, unique per sender and channel
+     * @param sliceSize  the number of frame bytes per chunk
+     * @return the chunks, in frame order
+     */
+    public static List<byte[]> split(byte @NonNull [] frame, long transferId, int sliceSize) {
+        int count = (frame.length + sliceSize - 1) / sliceSize;
+        List<byte[]> chunks = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            int offset = index * sliceSize;
+            int length = Math.min(sliceSize, frame.length - offset);
+
+            byte[] chunk = new byte[CHUNK_HEADER_SIZE + length];
+            ByteBuffer.wrap(chunk)
+                    .put(CHUNK)
+                    .putLong(transferId)
+                    .putInt(count)
+                    .putInt(index)
+                    .putInt(frame.length)
+                    .putInt(offset)
+                    .put(frame, offset, length);
+            chunks.add(chunk);
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Reads the header of a chunk.
+     *
+     * @param chunk the chunk
+     * @return the chunk header
+     * @throws PacketDecodeException if the chunk is truncated or its slice lies outside the frame
+     */
+    public static Chunk readChunk(byte @NonNull [] chunk) {
+        if (chunk.length < CHUNK_HEADER_SIZE || chunk[0] != CHUNK) {
+            throw new PacketDecodeException("Chunk of " + chunk.length + " bytes has no valid header");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(chunk, 1, CHUNK_HEADER_SIZE - 1);
+        Chunk header = new Chunk(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                chunk.length - CHUNK_HEADER_SIZE);
+        if (header.count < 1 || header.index < 0 || header.index >= header.count) {
+            throw new PacketDecodeException("Chunk " + header.index + " of " + header.count + " is out of range");
+        }
+
+        if (header.offset < 0 || header.frameLength < 0 || header.offset > header.frameLength - header.length) {
+            throw new PacketDecodeException("Chunk slice at " + header.offset + " exceeds the frame of "
+                    + header.frameLength + " bytes");
+        }
+
+        return header;
+    }
+
+    /**
+     * Writes a reference to a frame stored under a key.
+     *
+     * @param key   the key
+     * @param frame the stored frame; its envelope, if it has one, is copied as it is, so a reference to
+     *              a frame stamped later is {@link #stampReference stamped} along with it
+     * @return the reference
+     */
+    public static byte[] reference(byte @NonNull [] key, byte @NonNull [] frame) {
+        byte[] envelope = new byte[0];
+        if (FrameHeader.hasEnvelope(frame)) {
+            FrameHeader header = FrameHeader.plain()
+                    .withEnvelope(FrameHeader.readSender(frame), FrameHeader.readLane(frame));
+            envelope = new byte[header.size()];
+            header.write(envelope);
+            FrameHeader.stamp(envelope, FrameHeader.readSequence(frame), FrameHeader.readTimestamp(frame));
+        }
+
+        byte[] reference = new byte[REFERENCE_HEADER_SIZE + envelope.length + key.length];
+        ByteBuffer.wrap(reference).put(REFERENCE).putInt(frame.length).put((byte) envelope.length).put(envelope).put(key);
+        return reference;
+    }
+
+    /**
+     * Fills in the sequence number and send time of the envelope a reference carries, as
+     * {@link FrameHeader#stamp(byte[], int, long)} does for the frame it points to.
+     *
+     * @param reference  a reference to a frame with an envelope
+     * @param sequence   the sequence number
+     * @param timeMillis the send time in epoch milliseconds
+     */
+    public static void stampReference(byte @NonNull [] reference, int sequence, long timeMillis) {
+        FrameHeader.stamp(reference, REFERENCE_HEADER_SIZE, sequence, timeMillis);
+    }
+
+    /**
+     * Reads the key of a reference.
+     *
+     * @param reference the reference
+     * @return the key the frame was stored under
+     * @throws PacketDecodeException if the reference is truncated
+     */
+    public static byte[] referenceKey(byte @NonNull [] reference) {
+        return Arrays.copyOfRange(reference, keyOffset(reference), reference.length);
+    }
+
+    /**
+     * Reads the length of the frame a reference points to.
+     *
+     * @param reference the reference
+     * @return the frame length
+     * @throws PacketDecodeException if the reference is truncated
+     */
+    public static int referenceLength(byte @NonNull [] reference) {
+        keyOffset(reference);
+        return ByteBuffer.wrap(reference, 1, Integer.BYTES).getInt();
+    }
+
+    /**
+     * Reads the envelope of the frame a reference points to.
+     *
+     * @param reference the reference
+     * @return a frame of just a header with the envelope, or {@code null} if the stored frame has none
+     * @throws PacketDecodeException if the reference is truncated
+     */
+    public static byte @Nullable [] referenceEnvelope(byte @NonNull [] reference) {
+        int offset = keyOffset(reference);
+        return offset > REFERENCE_HEADER_SIZE ? Arrays.copyOfRange(reference, REFERENCE_HEADER_SIZE, offset) : null;
+    }
+
+    private static int keyOffset(byte[] reference) {
+        int offset = reference.length < REFERENCE_HEADER_SIZE ? Integer.MAX_VALUE
+                : REFERENCE_HEADER_SIZE + (reference[REFERENCE_HEADER_SIZE - 1] & 0xFF);
+        if (offset >= reference.length || reference[0] != REFERENCE) {
+            throw new PacketDecodeException("Reference of " + reference.length + " bytes has no key");
+        }
+
+        return offset;
+    }
+
+    /**
+     * The header of a chunk.
+     *
+     * @param transferId  the id of the transfer the chunk belongs to
+     * @param count       the number of chunks of the transfer
+     * @param index       the index of the chunk
+     * @param frameLength the length of the whole frame
+     * @param offset      the offset of the slice within the frame
+     * @param length      the length of the slice, which follows the header
+     */
+    public record Chunk(long transferId, int count, int index, int frameLength, int offset, int length) {
+    }
+}
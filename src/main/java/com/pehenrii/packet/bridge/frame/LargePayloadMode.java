@@ -0,0 +1,22 @@
+package com.pehenrii.packet.bridge.frame;
+
+/**
+ * How frames above the {@link com.pehenrii.packet.bridge.PacketBridgeOptions#largePayloadThreshold() large payload threshold}
+ * are sent, so no single message holds the Redis event loop for long.
+ */
+public enum LargePayloadMode {
+
+    /**
+     * The frame is split into {@link LargeFrame#CHUNK chunks} published one after another on its
+     * channel, which receivers reassemble.
+     */
+    CHUNKED,
+
+    /**
+     * The frame is stored under a key that expires after the
+     * {@link com.pehenrii.packet.bridge.PacketBridgeOptions#claimCheckTtl() claim check TTL}, and only a
+     * {@link LargeFrame#REFERENCE reference} to it is published. Receivers fetch the frame when the
+     * reference arrives on a channel they handle.
+     */
+    CLAIM_CHECK
+}
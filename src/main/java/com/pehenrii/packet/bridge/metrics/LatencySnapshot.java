@@ -0,0 +1,16 @@
+package com.pehenrii.packet.bridge.metrics;
+
+/**
+ * Point-in-time view of a {@link LatencyHistogram}. All latencies are in nanoseconds.
+ *
+ * @param count     the number of recorded values
+ * @param meanNanos the mean latency
+ * @param p50Nanos  the median latency
+ * @param p90Nanos  the 90th percentile latency
+ * @param p99Nanos  the 99th percentile latency
+ * @param maxNanos  the largest recorded latency
+ */
+public record LatencySnapshot(long count, long meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+
+    static final LatencySnapshot EMPTY = new LatencySnapshot(0, 0, 0, 0, 0, 0);
+}
@@ -0,0 +1,239 @@
+package com.pehenrii.packet.bridge.metrics;
+
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the metrics of a packet bridge as platform MXBeans.
+ * <p>
+ * The bridge is registered as {@code com.pehenrii.packetbridge:type=Bridge,name=<bridge>},
+ * each packet type as {@code com.pehenrii.packetbridge:type=PacketType,bridge=<bridge>,name=<packet>}
+ * once it is first sent or received. Beans are unregistered on {@link #close()}.
+ * </p>
+ */
+public final class MetricsJmx implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsJmx.class);
+    private static final String DOMAIN = "com.pehenrii.packetbridge";
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final String bridgeName;
+    private final List<ObjectName> registered = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers the bean of a bridge.
+     *
+     * @param bridgeName a name unique within the JVM
+     * @param snapshot   supplies the current bridge metrics
+     */
+    public MetricsJmx(@NonNull String bridgeName, @NonNull Supplier<MetricsSnapshot> snapshot) {
+        this.bridgeName = ObjectName.quote(bridgeName);
+        register(DOMAIN + ":type=Bridge,name=" + this.bridgeName, new BridgeBean(snapshot));
+    }
+
+    /**
+     * Registers the bean of a packet type.
+     *
+     * @param metrics the metrics of the type
+     */
+    public void register(@NonNull TypeMetrics metrics) {
+        register(DOMAIN + ":type=PacketType,bridge=" + bridgeName + ",name=" + ObjectName.quote(metrics.name()),
+                new TypeBean(metrics));
+    }
+
+    private void register(String name, Object bean) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            server.registerMBean(bean, objectName);
+            registered.add(objectName);
+        } catch (JMException e) {
+            logger.warn("Failed to register MBean {}: {}", name, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ignored) {
+            }
+        }
+
+        registered.clear();
+    }
+
+    private static final class BridgeBean implements PacketBridgeMetricsMXBean {
+
+        private final Supplier<MetricsSnapshot> snapshot;
+
+        private BridgeBean(Supplier<MetricsSnapshot> snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        private QueueStats send() {
+            return snapshot.get().sendQueue();
+        }
+
+        private QueueStats receive() {
+            return snapshot.get().receiveQueue();
+        }
+
+        @Override
+        public long getSendQueueDepth() {
+            return send().depth();
+        }
+
+        @Override
+        public long getSendQueueCapacity() {
+            return send().capacity();
+        }
+
+        @Override
+        public long getSendDropped() {
+            return send().dropped();
+        }
+
+        @Override
+        public long getSendRejected() {
+            return send().rejected();
+        }
+
+        @Override
+        public long getReceiveQueueDepth() {
+            return receive().depth();
+        }
+
+        @Override
+        public long getReceiveQueueCapacity() {
+            return receive().capacity();
+        }
+
+        @Override
+        public long getReceiveDropped() {
+            return receive().dropped();
+        }
+
+        @Override
+        public long getReceiveRejected() {
+            return receive().rejected();
+        }
+
+        @Override
+        public int getRequestsInFlight() {
+            return snapshot.get().requestsInFlight();
+        }
+
+        @Override
+        public long getFramesMissing() {
+            return snapshot.get().framesMissing();
+        }
+
+        @Override
+        public long getNearCacheHits() {
+            return snapshot.get().nearCache().hits();
+        }
+
+        @Override
+        public long getNearCacheMisses() {
+            return snapshot.get().nearCache().misses();
+        }
+    }
+
+    private static final class TypeBean implements PacketTypeMetricsMXBean {
+
+        private final TypeMetrics metrics;
+
+        private TypeBean(TypeMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public String getName() {
+            return metrics.name();
+        }
+
+        @Override
+        public String getChannel() {
+            return metrics.channel();
+        }
+
+        @Override
+        public long getSent() {
+            return metrics.snapshot().sent();
+        }
+
+        @Override
+        public long getReceived() {
+            return metrics.snapshot().received();
+        }
+
+        @Override
+        public long getFailed() {
+            return metrics.snapshot().failed();
+        }
+
+        @Override
+        public long getDropped() {
+            return metrics.snapshot().dropped();
+        }
+
+        @Override
+        public long getDeltasDiscarded() {
+            return metrics.snapshot().deltasDiscarded();
+        }
+
+        @Override
+        public long getConflated() {
+            return metrics.snapshot().conflated();
+        }
+
+        @Override
+        public long getBytesBeforeCompression() {
+            return metrics.snapshot().bytesBeforeCompression();
+        }
+
+        @Override
+        public long getBytesAfterCompression() {
+            return metrics.snapshot().bytesAfterCompression();
+        }
+
+        @Override
+        public double getCompressionRatio() {
+            return metrics.snapshot().compressionRatio();
+        }
+
+        @Override
+        public Map<String, Double> getLatencyMicros() {
+            TypeMetricsSnapshot snapshot = metrics.snapshot();
+
+            Map<String, Double> latencies = new LinkedHashMap<>();
+            put(latencies, "serialize", snapshot.serialize());
+            put(latencies, "compress", snapshot.compress());
+            put(latencies, "publish", snapshot.publish());
+            put(latencies, "handle", snapshot.handle());
+            put(latencies, "delivery", snapshot.delivery());
+            return latencies;
+        }
+
+        private static void put(Map<String, Double> latencies, String stage, LatencySnapshot latency) {
+            latencies.put(stage + ".mean", latency.meanNanos() / 1_000.0);
+            latencies.put(stage + ".p50", latency.p50Nanos() / 1_000.0);
+            latencies.put(stage + ".p90", latency.p90Nanos() / 1_000.0);
+            latencies.put(stage + ".p99", latency.p99Nanos() / 1_000.0);
+            latencies.put(stage + ".max", latency.maxNanos() / 1_000.0);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.pehenrii.packet.bridge.metrics;
+
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Point-in-time view of the metrics of a packet bridge.
+ *
+ * @param types            the metrics of each packet type that was sent or received, by packet name
+ * @param sendQueue        the send queue statistics
+ * @param receiveQueue     the receive queue statistics, summed over all stripes
+ * @param requestsInFlight the number of requests awaiting a reply
+ * @param senders          the frames received from each sender on each lane of each channel
+ * @param nearCache        the statistics of the near cache
+ */
+public record MetricsSnapshot(Map<String, TypeMetricsSnapshot> types, QueueStats sendQueue, QueueStats receiveQueue,
+                              int requestsInFlight, List<SenderStats> senders, NearCacheStats nearCache) {
+
+    /**
+     * Returns the number of frames lost on any channel, as told by sequence gaps.
+     *
+     * @return the missing frames of all senders
+     */
+    public long framesMissing() {
+        long missing = 0;
+        for (SenderStats sender : senders) {
+            missing += sender.missing();
+        }
+
+        return missing;
+    }
+}
@@ -0,0 +1,28 @@
+package com.pehenrii.packet.bridge.metrics;
+
+/**
+ * Point-in-time view of the near cache serving cached Redis reads.
+ *
+ * @param hits          reads served from memory
+ * @param misses        reads that went to Redis
+ * @param evictions     keys dropped by the size limit or the time to live
+ * @param invalidations keys dropped because Redis reported they changed
+ * @param size          the number of keys cached
+ */
+public record NearCacheStats(long hits, long misses, long evictions, long invalidations, long size) {
+
+    /**
+     * The statistics of a bridge without a near cache.
+     */
+    public static final NearCacheStats EMPTY = new NearCacheStats(0, 0, 0, 0, 0);
+
+    /**
+     * Returns the share of reads served from memory.
+     *
+     * @return the hit ratio, or {@code 0} if nothing was read
+     */
+    public double hitRatio() {
+        long reads = hits + misses;
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+}
@@ -0,0 +1,31 @@
+package com.pehenrii.packet.bridge.metrics;
+
+/**
+ * JMX view of the queues of a packet bridge.
+ */
+public interface PacketBridgeMetricsMXBean {
+
+    long getSendQueueDepth();
+
+    long getSendQueueCapacity();
+
+    long getSendDropped();
+
+    long getSendRejected();
+
+    long getReceiveQueueDepth();
+
+    long getReceiveQueueCapacity();
+
+    long getReceiveDropped();
+
+    long getReceiveRejected();
+
+    int getRequestsInFlight();
+
+    long getFramesMissing();
+
+    long getNearCacheHits();
+
+    long getNearCacheMisses();
+}
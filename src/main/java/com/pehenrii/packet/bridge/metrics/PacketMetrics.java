@@ -0,0 +1,70 @@
+package com.pehenrii.packet.bridge.metrics;
+
+import com.pehenrii.packet.bridge.registry.PacketType;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Metrics of every packet type a bridge sent or received, created on first use.
+ * Looking up the metrics of a known type does not allocate.
+ */
+public final class PacketMetrics {
+
+    private final ConcurrentHashMap<Class<?>, TypeMetrics> types = new ConcurrentHashMap<>();
+    private final Consumer<TypeMetrics> onCreated;
+
+    public PacketMetrics() {
+        this(ignored -> {
+        });
+    }
+
+    /**
+     * @param onCreated called once for the metrics of each packet type, when they are created
+     */
+    public PacketMetrics(@NonNull Consumer<TypeMetrics> onCreated) {
+        this.onCreated = onCreated;
+    }
+
+    /**
+     * Returns the metrics of a packet type.
+     *
+     * @param type the packet type
+     * @return the metrics
+     */
+    public TypeMetrics type(@NonNull PacketType<?> type) {
+        TypeMetrics metrics = types.get(type.packetClass());
+        if (metrics != null) {
+            return metrics;
+        }
+
+        boolean[] created = new boolean[1];
+        metrics = types.computeIfAbsent(type.packetClass(), ignored -> {
+            created[0] = true;
+            return new TypeMetrics(type.name(), type.channel());
+        });
+
+        if (created[0]) {
+            onCreated.accept(metrics);
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of every packet type, by packet name.
+     *
+     * @return the snapshots, sorted by name
+     */
+    public Map<String, TypeMetricsSnapshot> snapshot() {
+        Map<String, TypeMetricsSnapshot> snapshots = new TreeMap<>();
+        for (TypeMetrics metrics : types.values()) {
+            snapshots.put(metrics.name(), metrics.snapshot());
+        }
+
+        return snapshots;
+    }
+}
@@ -0,0 +1,39 @@
+package com.pehenrii.packet.bridge.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics of a packet type.
+ */
+public interface PacketTypeMetricsMXBean {
+
+    String getName();
+
+    String getChannel();
+
+    long getSent();
+
+    long getReceived();
+
+    long getFailed();
+
+    long getDropped();
+
+    long getDeltasDiscarded();
+
+    long getConflated();
+
+    long getBytesBeforeCompression();
+
+    long getBytesAfterCompression();
+
+    double getCompressionRatio();
+
+    /**
+     * Returns the latency distributions in microseconds, keyed by stage and statistic,
+     * such as {@code handle.p99} or {@code publish.mean}.
+     *
+     * @return the latencies
+     */
+    Map<String, Double> getLatencyMicros();
+}
@@ -0,0 +1,22 @@
+package com.pehenrii.packet.bridge.metrics;
+
+import com.pehenrii.packet.bridge.annotation.Priority;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Point-in-time view of the frames received from one sender on one lane of one channel.
+ *
+ * @param channel  the channel
+ * @param sender   the id the sending bridge carries in its frame envelopes
+ * @param priority the lane the frames were sent on, each of which counts its own sequence numbers,
+ *                 or {@code null} for senders that predate lanes
+ * @param frames   frames received
+ * @param missing  frames skipped by the sequence numbers, which the channel lost
+ * @param late     frames that arrived after a frame with a higher sequence number; each was
+ *                 counted as missing when the gap was seen, or is a duplicate
+ * @param lag      time from the sender stamping a frame until it arrived. Measured across the
+ *                 clocks of two hosts, so skew between them shifts it; negative lags count as zero
+ */
+public record SenderStats(String channel, int sender, @Nullable Priority priority, long frames, long missing, long late,
+                          LatencySnapshot lag) {
+}
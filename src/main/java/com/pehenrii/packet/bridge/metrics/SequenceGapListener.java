@@ -0,0 +1,22 @@
+package com.pehenrii.packet.bridge.metrics;
+
+/**
+ * Notified when frames from a sender are missing on a channel, as told by the sequence
+ * numbers in their envelopes. Redis Pub/Sub drops messages without notice, for example when
+ * it disconnects a subscriber whose output buffer grew too large.
+ * <p>
+ * Listeners are called on the thread receiving from the transport and must return quickly.
+ * </p>
+ */
+@FunctionalInterface
+public interface SequenceGapListener {
+
+    /**
+     * Called when a frame arrives with a sequence number past the next one expected.
+     *
+     * @param channel the channel the frames were lost on
+     * @param sender  the id of the sending bridge
+     * @param missing the number of frames skipped
+     */
+    void onGap(String channel, int sender, int missing);
+}
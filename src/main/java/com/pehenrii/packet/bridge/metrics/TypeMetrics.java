@@ -0,0 +1,152 @@
+package com.pehenrii.packet.bridge.metrics;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of a single packet type.
+ * <p>
+ * Counters are {@link LongAdder}s, so recording from many threads does not contend
+ * on a single cache line.
+ * </p>
+ */
+public final class TypeMetrics {
+
+    private final String name;
+    private final String channel;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder deltasDiscarded = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder bytesBeforeCompression = new LongAdder();
+    private final LongAdder bytesAfterCompression = new LongAdder();
+
+    private final LatencyHistogram serialize = new LatencyHistogram();
+    private final LatencyHistogram compress = new LatencyHistogram();
+    private final LatencyHistogram publish = new LatencyHistogram();
+    private final LatencyHistogram handle = new LatencyHistogram();
+    private final LatencyHistogram delivery = new LatencyHistogram();
+
+    TypeMetrics(@NonNull String name, @NonNull String channel) {
+        this.name = name;
+        this.channel = channel;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String channel() {
+        return channel;
+    }
+
+    /**
+     * Counts a packet the transport accepted for delivery.
+     */
+    public void onSent() {
+        sent.increment();
+    }
+
+    /**
+     * Counts a received packet that was decoded.
+     */
+    public void onReceived() {
+        received.increment();
+    }
+
+    /**
+     * Counts a packet that failed to send, failed to decode or whose handler threw.
+     */
+    public void onFailed() {
+        failed.increment();
+    }
+
+    /**
+     * Counts a packet discarded by a full send or receive queue.
+     */
+    public void onDropped() {
+        dropped.increment();
+    }
+
+    /**
+     * Counts a received delta packet discarded because the packet it differs from was missed.
+     */
+    public void onDeltaDiscarded() {
+        deltasDiscarded.increment();
+    }
+
+    /**
+     * Counts a packet superseded by a newer packet with the same key before it was published or handled.
+     */
+    public void onConflated() {
+        conflated.increment();
+    }
+
+    /**
+     * Counts the size of a serialized payload before and after compression.
+     *
+     * @param before the serialized size
+     * @param after  the encoded size
+     */
+    public void onCompressed(int before, int after) {
+        bytesBeforeCompression.add(before);
+        bytesAfterCompression.add(after);
+    }
+
+    /**
+     * Returns the histogram of the time spent writing packets to buffers.
+     *
+     * @return the serialization latency
+     */
+    public LatencyHistogram serializeLatency() {
+        return serialize;
+    }
+
+    /**
+     * Returns the histogram of the time spent encoding serialized packets into frames.
+     *
+     * @return the compression latency
+     */
+    public LatencyHistogram compressLatency() {
+        return compress;
+    }
+
+    /**
+     * Returns the histogram of the time from handing a frame to the transport until the
+     * transport confirmed it.
+     *
+     * @return the publish latency
+     */
+    public LatencyHistogram publishLatency() {
+        return publish;
+    }
+
+    /**
+     * Returns the histogram of the time spent in handlers and responders.
+     *
+     * @return the handler latency
+     */
+    public LatencyHistogram handleLatency() {
+        return handle;
+    }
+
+    /**
+     * Returns the histogram of the time from the sender stamping a frame until its packet was handed
+     * to the handler. Measured across the clocks of two hosts, so skew between them shifts it.
+     *
+     * @return the delivery latency
+     */
+    public LatencyHistogram deliveryLatency() {
+        return delivery;
+    }
+
+    public TypeMetricsSnapshot snapshot() {
+        return new TypeMetricsSnapshot(name, channel, sent.sum(), received.sum(), failed.sum(), dropped.sum(),
+                deltasDiscarded.sum(), conflated.sum(), bytesBeforeCompression.sum(), bytesAfterCompression.sum(),
+                serialize.snapshot(), compress.snapshot(), publish.snapshot(), handle.snapshot(), delivery.snapshot());
+    }
+}
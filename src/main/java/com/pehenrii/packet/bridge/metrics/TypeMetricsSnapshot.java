@@ -0,0 +1,38 @@
+package com.pehenrii.packet.bridge.metrics;
+
+/**
+ * Point-in-time view of the metrics of a packet type. Counts are cumulative since the bridge started.
+ *
+ * @param name                   the packet name
+ * @param channel                the channel of the packet type
+ * @param sent                   packets accepted by the transport
+ * @param received               packets received and decoded
+ * @param failed                 packets that failed to send or decode, or whose handler threw
+ * @param dropped                packets discarded by a full send or receive queue
+ * @param deltasDiscarded        delta packets discarded until the next keyframe, as the packet
+ *                               they differ from was missed
+ * @param conflated              packets of conflated types superseded by a newer packet with the
+ *                               same key before they were published or handled
+ * @param bytesBeforeCompression total serialized size of sent packets
+ * @param bytesAfterCompression  total encoded size of sent packets, after delta encoding
+ * @param serialize              time spent writing packets to buffers
+ * @param compress               time spent encoding serialized packets
+ * @param publish                time until the transport confirmed a frame
+ * @param handle                 time spent in handlers and responders
+ * @param delivery               time from the sender stamping a frame until its packet was handled,
+ *                               across the clocks of both hosts
+ */
+public record TypeMetricsSnapshot(String name, String channel, long sent, long received, long failed, long dropped,
+                                  long deltasDiscarded, long conflated, long bytesBeforeCompression,
+                                  long bytesAfterCompression, LatencySnapshot serialize, LatencySnapshot compress,
+                                  LatencySnapshot publish, LatencySnapshot handle, LatencySnapshot delivery) {
+
+    /**
+     * Returns the encoded size of sent packets relative to their serialized size.
+     *
+     * @return the compression ratio, or {@code 1} if nothing was sent
+     */
+    public double compressionRatio() {
+        return bytesBeforeCompression == 0 ? 1 : (double) bytesAfterCompression / bytesBeforeCompression;
+    }
+}
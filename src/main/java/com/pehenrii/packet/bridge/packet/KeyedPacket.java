@@ -0,0 +1,20 @@
+package com.pehenrii.packet.bridge.packet;
+
+/**
+ * A packet that belongs to a logical entity, such as a player or a server.
+ * <p>
+ * Packets of the same type and key are handled in the order they were received,
+ * while packets with different keys may be handled in parallel.
+ * </p>
+ */
+public interface KeyedPacket extends Packet {
+
+    /**
+     * Returns the key of the entity this packet refers to.
+     * Keys are compared with {@link Object#equals(Object)} and must be available
+     * once the packet has been read.
+     *
+     * @return the packet key
+     */
+    Object getPacketKey();
+}
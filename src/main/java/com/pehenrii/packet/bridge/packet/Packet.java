@@ -2,13 +2,16 @@ package com.pehenrii.packet.bridge.packet;
 
 import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
 import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.codec.PacketCodecs;
 
 /**
  * Represents a generic packet that can be serialized and deserialized
  * using {@link PacketByteBufferOutput} and {@link PacketByteBufferInput}.
  * <p>
  * Implementations of this interface define how to write their data to an output buffer
- * and how to read their data from an input buffer.
+ * and how to read their data from an input buffer. Classes whose fields are annotated with
+ * {@link com.pehenrii.packet.bridge.annotation.PacketField} leave both to the codec generated
+ * for them at compile time instead. Classes that do neither are rejected when their type is resolved.
  * </p>
  */
 public interface Packet {
@@ -18,12 +21,16 @@ public interface Packet {
      *
      * @param buffer the output buffer to write data to
      */
-    void write(PacketByteBufferOutput buffer);
+    default void write(PacketByteBufferOutput buffer) {
+        PacketCodecs.write(this, buffer);
+    }
 
     /**
      * Deserializes the packet data from the provided input buffer.
      *
      * @param buffer the input buffer to read data from
      */
-    void read(PacketByteBufferInput buffer);
+    default void read(PacketByteBufferInput buffer) {
+        PacketCodecs.read(this, buffer);
+    }
 }
@@ -0,0 +1,12 @@
+package com.pehenrii.packet.bridge.packet;
+
+/**
+ * Thrown when a request could not be answered, either because its handler failed on the
+ * responding service or because no service is subscribed to the request's channel.
+ */
+public class PacketRequestException extends RuntimeException {
+
+    public PacketRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,32 @@
+package com.pehenrii.packet.bridge.packet;
+
+/**
+ * Answers requests of a specific type with a reply packet.
+ *
+ * <p>
+ * Implementations are registered for the request type on the responding service.
+ * The returned packet is sent back to the service that made the request, whose
+ * request future completes with it.
+ * </p>
+ *
+ * @param <T> the type of request packet
+ * @param <R> the type of reply packet
+ */
+public interface RequestHandler<T extends Packet, R extends Packet> {
+
+    /**
+     * Called when a request of type {@code T} is received.
+     * Exceptions thrown here fail the requester's future with a {@link PacketRequestException}.
+     *
+     * @param request the received request
+     * @return the reply to send back
+     */
+    R onRequest(T request);
+
+    /**
+     * Returns the class of the request packet handled by this handler.
+     *
+     * @return the request packet class
+     */
+    Class<T> getPacketClass();
+}
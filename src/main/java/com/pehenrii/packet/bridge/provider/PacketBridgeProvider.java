@@ -1,24 +1,51 @@
 package com.pehenrii.packet.bridge.provider;
 
 import com.pehenrii.packet.bridge.PacketBridge;
+import com.pehenrii.packet.bridge.PacketBridgeOptions;
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import com.pehenrii.packet.bridge.metrics.MetricsSnapshot;
+import com.pehenrii.packet.bridge.metrics.NearCacheStats;
+import com.pehenrii.packet.bridge.metrics.SequenceGapListener;
 import com.pehenrii.packet.bridge.packet.Packet;
 import com.pehenrii.packet.bridge.packet.PacketHandler;
+import com.pehenrii.packet.bridge.packet.RequestHandler;
+import com.pehenrii.packet.bridge.registry.PacketType;
 import com.pehenrii.packet.bridge.service.PacketService;
+import com.pehenrii.packet.bridge.transport.PacketTransport;
+import com.pehenrii.packet.bridge.transport.RedisClusterTransport;
+import com.pehenrii.packet.bridge.transport.RedisTransport;
+import io.lettuce.core.AbstractRedisClient;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.cluster.RedisClusterClient;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class PacketBridgeProvider implements PacketBridge {
 
-    private final RedisClient redisClient;
+    private final @Nullable AbstractRedisClient redisClient;
     private final PacketService packetService;
 
     public PacketBridgeProvider(@NonNull String address, int port, @NonNull String password, @NonNull String channel) {
-        this.redisClient = RedisClient.create(RedisURI.builder()
+        this(address, port, password, channel, PacketBridgeOptions.defaults());
+    }
+
+    public PacketBridgeProvider(@NonNull String address, int port, @NonNull String password, @NonNull String channel,
+                                @NonNull PacketBridgeOptions options) {
+        RedisClient redisClient = RedisClient.create(RedisURI.builder()
                 .withHost(address)
                 .withPort(port)
                 .withPassword(password.toCharArray())
@@ -26,7 +53,51 @@ public class PacketBridgeProvider implements PacketBridge {
                 .withTimeout(Duration.ofSeconds(30000))
                 .build());
 
-        this.packetService = new PacketService(redisClient, channel);
+        this.redisClient = redisClient;
+        this.packetService = new PacketService(new RedisTransport(redisClient, options), channel, options);
+    }
+
+    /**
+     * Connects to a Redis Cluster, keeping its topology up to date every
+     * {@link PacketBridgeOptions#clusterTopologyRefreshPeriod()} and whenever Redis redirects a command.
+     *
+     * @param nodes    the {@code host:port} addresses of some of the cluster's nodes
+     * @param password the password of the cluster
+     * @param channel  the channel prefix of packet types without an explicit channel
+     * @param options  the tuning options
+     */
+    public PacketBridgeProvider(@NonNull Collection<String> nodes, @NonNull String password, @NonNull String channel,
+                                @NonNull PacketBridgeOptions options) {
+        List<RedisURI> uris = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            int separator = node.lastIndexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Cluster node " + node + " is not a host:port address");
+            }
+
+            uris.add(RedisURI.builder()
+                    .withHost(node.substring(0, separator))
+                    .withPort(Integer.parseInt(node.substring(separator + 1)))
+                    .withPassword(password.toCharArray())
+                    .withTimeout(Duration.ofSeconds(30))
+                    .build());
+        }
+
+        RedisClusterClient clusterClient = RedisClusterClient.create(uris);
+        clusterClient.setOptions(ClusterClientOptions.builder()
+                .topologyRefreshOptions(ClusterTopologyRefreshOptions.builder()
+                        .enablePeriodicRefresh(options.clusterTopologyRefreshPeriod())
+                        .enableAllAdaptiveRefreshTriggers()
+                        .build())
+                .build());
+
+        this.redisClient = clusterClient;
+        this.packetService = new PacketService(new RedisClusterTransport(clusterClient, options), channel, options);
+    }
+
+    public PacketBridgeProvider(@NonNull PacketTransport transport, @NonNull String channel, @NonNull PacketBridgeOptions options) {
+        this.redisClient = null;
+        this.packetService = new PacketService(transport, channel, options);
     }
 
     @Override
@@ -34,24 +105,134 @@ public class PacketBridgeProvider implements PacketBridge {
         packetService.register(packetClass, handler);
     }
 
+    @Override
+    public <T extends Packet> void registerPacket(Class<T> packetClass, Supplier<T> factory, PacketHandler<T> handler) {
+        packetService.register(packetClass, factory, handler);
+    }
+
+    @Override
+    public <T extends Packet> void registerConflated(Class<T> packetClass, PacketHandler<T> handler) {
+        packetService.registerConflated(packetClass, handler);
+    }
+
+    @Override
+    public <T extends Packet, R extends Packet> void registerResponder(Class<T> packetClass, RequestHandler<T, R> responder) {
+        packetService.registerResponder(packetClass, responder);
+    }
+
+    @Override
+    public CompletableFuture<Void> registerAll(Collection<? extends PacketHandler<?>> handlers) {
+        return packetService.registerAll(handlers);
+    }
+
+    @Override
+    public List<PacketType<?>> preloadPacketTypes(ClassLoader classLoader) {
+        return packetService.preloadTypes(classLoader);
+    }
+
+    @Override
+    public <T extends Packet> byte[] trainDictionary(Class<T> packetClass, Collection<? extends T> samples, int dictionarySize) {
+        return packetService.trainDictionary(packetClass, samples, dictionarySize);
+    }
+
+    @Override
+    public void loadDictionary(Class<? extends Packet> packetClass, byte[] dictionary) {
+        packetService.loadDictionary(packetClass, dictionary);
+    }
+
     @Override
     public <T> T executeOperation(Function<RedisCommands<String, String>, T> operation) {
         return packetService.executeOperation(operation);
     }
 
     @Override
-    public void sendPacket(Packet packet) {
-        packetService.sendPacket(packet);
+    public <T> CompletableFuture<T> executeOperationAsync(
+            Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<T>> operation) {
+        return packetService.executeOperationAsync(operation);
+    }
+
+    @Override
+    public CompletableFuture<List<Object>> executeBatch(
+            List<Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<?>>> commands) {
+        return packetService.executeBatch(commands);
+    }
+
+    @Override
+    public <T> T executePooled(Function<RedisCommands<String, String>, T> operation) {
+        return packetService.executePooled(operation);
+    }
+
+    @Override
+    public <T> T executeBinaryOperation(Function<RedisCommands<byte[], byte[]>, T> operation) {
+        return packetService.executeBinaryOperation(operation);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> executeBinaryOperationAsync(
+            Function<RedisAsyncCommands<byte[], byte[]>, ? extends CompletionStage<T>> operation) {
+        return packetService.executeBinaryOperationAsync(operation);
+    }
+
+    @Override
+    public String cachedGet(String key) {
+        return packetService.cachedGet(key);
+    }
+
+    @Override
+    public String cachedHget(String key, String field) {
+        return packetService.cachedHget(key, field);
+    }
+
+    @Override
+    public NearCacheStats nearCacheStats() {
+        return packetService.nearCacheStats();
+    }
+
+    @Override
+    public CompletableFuture<Long> sendPacket(Packet packet) {
+        return packetService.sendPacket(packet);
+    }
+
+    @Override
+    public CompletableFuture<Long> sendPacket(Packet packet, String channel) {
+        return packetService.sendPacket(packet, channel);
+    }
+
+    @Override
+    public List<CompletableFuture<Long>> sendPackets(Collection<? extends Packet> packets) {
+        return packetService.sendPackets(packets);
+    }
+
+    @Override
+    public <R extends Packet> CompletableFuture<R> request(Packet request, Class<R> responseType, Duration timeout) {
+        return packetService.request(request, responseType, timeout);
+    }
+
+    @Override
+    public QueueStats sendQueueStats() {
+        return packetService.sendQueueStats();
+    }
+
+    @Override
+    public QueueStats receiveQueueStats() {
+        return packetService.receiveQueueStats();
+    }
+
+    @Override
+    public MetricsSnapshot metrics() {
+        return packetService.metrics();
     }
 
     @Override
-    public void sendPacket(Packet packet, String channel) {
-        packetService.sendPacket(packet, channel);
+    public void addGapListener(@NonNull SequenceGapListener listener) {
+        packetService.addGapListener(listener);
     }
 
     @Override
     public void shutdown() {
         packetService.shutdown();
-        redisClient.shutdown();
+        if (redisClient != null) {
+            redisClient.shutdown();
+        }
     }
 }
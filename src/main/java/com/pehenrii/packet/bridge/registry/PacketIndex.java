@@ -0,0 +1,86 @@
+package com.pehenrii.packet.bridge.registry;
+
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.packet.Packet;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the packet index written at compile time by the {@code packet-bridge-processor}.
+ * <p>
+ * Every jar or class directory compiled with the processor carries an index of its
+ * {@link PacketInfo} classes under {@value #RESOURCE}, so the packet types of an application
+ * are found without scanning the class path. Lines hold binary class names; blank lines and
+ * lines starting with {@code #} are ignored.
+ * </p>
+ */
+public final class PacketIndex {
+
+    /**
+     * The resource the index is written to.
+     */
+    public static final String RESOURCE = "META-INF/packet-bridge/packets";
+
+    private PacketIndex() {
+    }
+
+    /**
+     * Loads the classes listed by every index visible to a class loader.
+     *
+     * @param classLoader the class loader to read the indexes and load the classes with
+     * @return the indexed packet classes, in index order and without duplicates
+     * @throws IllegalStateException if an index cannot be read or lists a class that cannot be loaded
+     *                               or is not a packet
+     */
+    public static List<Class<? extends Packet>> load(@NonNull ClassLoader classLoader) {
+        Set<String> names = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+            while (resources.hasMoreElements()) {
+                read(resources.nextElement(), names);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read packet index " + RESOURCE, e);
+        }
+
+        List<Class<? extends Packet>> classes = new ArrayList<>(names.size());
+        for (String name : names) {
+            Class<?> clazz;
+            try {
+                clazz = Class.forName(name, false, classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new IllegalStateException("Indexed packet class " + name + " cannot be loaded", e);
+            }
+
+            if (!Packet.class.isAssignableFrom(clazz)) {
+                throw new IllegalStateException("Indexed class " + name + " does not implement Packet");
+            }
+
+            classes.add(clazz.asSubclass(Packet.class));
+        }
+
+        return classes;
+    }
+
+    private static void read(URL resource, Set<String> names) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    names.add(line);
+                }
+            }
+        }
+    }
+}
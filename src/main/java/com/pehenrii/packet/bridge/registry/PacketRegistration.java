@@ -0,0 +1,72 @@
+package com.pehenrii.packet.bridge.registry;
+
+import com.pehenrii.packet.bridge.packet.Packet;
+import com.pehenrii.packet.bridge.packet.PacketHandler;
+import com.pehenrii.packet.bridge.packet.RequestHandler;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A packet type bound to the handler that processes it on this service.
+ * Exactly one of {@code handler} and {@code responder} is set.
+ *
+ * @param type      the packet type
+ * @param handler   the handler for received packets, or {@code null} for a responder registration
+ * @param responder the handler answering received requests, or {@code null} for a plain registration
+ * @param conflate  whether only the newest packet of each key waiting to be handled is handled;
+ *                  requests are never conflated
+ * @param <T>       the packet type
+ */
+public record PacketRegistration<T extends Packet>(PacketType<T> type, @Nullable PacketHandler<T> handler,
+                                                   @Nullable RequestHandler<T, ?> responder, boolean conflate) {
+
+    public PacketRegistration(PacketType<T> type, PacketHandler<T> handler) {
+        this(type, handler, null, type.conflate());
+    }
+
+    public PacketRegistration(PacketType<T> type, RequestHandler<T, ?> responder) {
+        this(type, null, responder, false);
+    }
+
+    /**
+     * Passes a received packet, created from this registration's type, to the handler.
+     * Responder registrations answer the packet and discard the reply.
+     *
+     * @param packet the received packet
+     */
+    public void handle(Packet packet) {
+        if (handler != null) {
+            handler.onReceive(cast(packet));
+        } else {
+            respond(packet);
+        }
+    }
+
+    /**
+     * Whether received requests are answered by this registration.
+     *
+     * @return {@code true} for responder registrations
+     */
+    public boolean responds() {
+        return responder != null;
+    }
+
+    /**
+     * Passes a received request, created from this registration's type, to the responder.
+     *
+     * @param request the received request
+     * @return the reply
+     * @throws IllegalStateException if this is not a responder registration
+     */
+    public Packet respond(Packet request) {
+        if (responder == null) {
+            throw new IllegalStateException("No responder registered for " + type);
+        }
+
+        return responder.onRequest(cast(request));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Packet packet) {
+        return (T) packet;
+    }
+}
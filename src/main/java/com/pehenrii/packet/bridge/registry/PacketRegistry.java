@@ -0,0 +1,434 @@
+package com.pehenrii.packet.bridge.registry;
+
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.codec.PacketCodec;
+import com.pehenrii.packet.bridge.codec.PacketCodecs;
+import com.pehenrii.packet.bridge.packet.Packet;
+import com.pehenrii.packet.bridge.packet.PacketHandler;
+import com.pehenrii.packet.bridge.packet.RequestHandler;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Registry of packet types and the handlers registered for them.
+ * <p>
+ * Packet types are resolved once per class: the {@link PacketInfo} annotation is read,
+ * the channel name is encoded and the generated {@link PacketCodec} is looked up. Types
+ * without a codec get an instance factory generated through {@link LambdaMetafactory}.
+ * Registrations are kept in an immutable open-addressing table keyed by channel bytes,
+ * replaced as a whole on every {@link #register} call, so incoming channels are looked
+ * up without locking, reflection or allocation.
+ * </p>
+ * <p>
+ * In a multiplexed registry, broadcast types share the channel of their prefix and are told
+ * apart by their type id instead. Their registrations are kept in an immutable table indexed
+ * by explicit ids, falling back to a map for ids derived from type names.
+ * </p>
+ */
+public final class PacketRegistry {
+
+    private static final MethodType SUPPLIER_TYPE = MethodType.methodType(Supplier.class);
+    private static final MethodType GET_TYPE = MethodType.methodType(Object.class);
+
+    private final String baseChannel;
+    private final boolean multiplexed;
+    private final ClassValue<Optional<PacketType<?>>> types = new ClassValue<>() {
+        @Override
+        protected Optional<PacketType<?>> computeValue(Class<?> type) {
+            return Optional.ofNullable(createType(type));
+        }
+    };
+
+    private volatile ChannelTable table = ChannelTable.EMPTY;
+    private volatile TypeTable typeTable = TypeTable.EMPTY;
+
+    public PacketRegistry(@NonNull String baseChannel) {
+        this(baseChannel, false);
+    }
+
+    /**
+     * @param baseChannel the channel prefix of packet types without an explicit channel
+     * @param multiplexed whether broadcast types share the channel of their prefix
+     */
+    public PacketRegistry(@NonNull String baseChannel, boolean multiplexed) {
+        this.baseChannel = baseChannel;
+        this.multiplexed = multiplexed;
+    }
+
+    /**
+     * Resolves the packet type of a class.
+     *
+     * @param packetClass the packet class
+     * @param <T>         the packet type
+     * @return the packet type
+     * @throws IllegalArgumentException if the class does not have a {@link PacketInfo} annotation, or
+     *                                  neither implements {@code write} and {@code read} nor has a generated codec
+     */
+    public <T extends Packet> PacketType<T> type(@NonNull Class<T> packetClass) {
+        PacketType<T> type = typeIfAnnotated(packetClass);
+        if (type == null) {
+            throw new IllegalArgumentException("Class " + packetClass + " has no @PacketInfo annotation");
+        }
+
+        return type;
+    }
+
+    /**
+     * Resolves the packet type of a class if it has a {@link PacketInfo} annotation. Classes without
+     * one are remembered as well, so asking again costs no reflection.
+     *
+     * @param packetClass the packet class
+     * @param <T>         the packet type
+     * @return the packet type, or {@code null} if the class does not have a {@link PacketInfo} annotation
+     * @throws IllegalArgumentException if the class is annotated but not a valid packet type
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Packet> @Nullable PacketType<T> typeIfAnnotated(@NonNull Class<T> packetClass) {
+        return (PacketType<T>) types.get(packetClass).orElse(null);
+    }
+
+    /**
+     * Resolves the packet types of several classes up front, such as those listed by the
+     * {@link PacketIndex}, so their annotations, codecs and factories are not resolved on the
+     * first packet sent or received.
+     *
+     * @param packetClasses the packet classes
+     * @return the packet types, in order
+     * @throws IllegalArgumentException if a class does not have a {@link PacketInfo} annotation
+     */
+    public List<PacketType<?>> preload(@NonNull Collection<Class<? extends Packet>> packetClasses) {
+        List<PacketType<?>> resolved = new ArrayList<>(packetClasses.size());
+        for (Class<? extends Packet> packetClass : packetClasses) {
+            resolved.add(type(packetClass));
+        }
+
+        return resolved;
+    }
+
+    /**
+     * Registers a handler for a packet type, creating instances with the generated factory.
+     *
+     * @param packetClass the packet class
+     * @param handler     the handler for received packets
+     * @param <T>         the packet type
+     * @return the registration
+     */
+    public <T extends Packet> PacketRegistration<T> register(@NonNull Class<T> packetClass, @NonNull PacketHandler<T> handler) {
+        return register(type(packetClass), handler);
+    }
+
+    /**
+     * Registers a handler for a packet type, creating instances with the given factory.
+     *
+     * @param packetClass the packet class
+     * @param factory     creates empty packet instances
+     * @param handler     the handler for received packets
+     * @param <T>         the packet type
+     * @return the registration
+     */
+    public <T extends Packet> PacketRegistration<T> register(@NonNull Class<T> packetClass, @NonNull Supplier<T> factory,
+                                                             @NonNull PacketHandler<T> handler) {
+        return register(type(packetClass).withFactory(factory), handler);
+    }
+
+    /**
+     * Registers a handler for a packet type that only receives the newest packet of each key
+     * waiting to be handled, whether or not the type is {@link PacketInfo#conflate() conflated}.
+     *
+     * @param packetClass the packet class
+     * @param handler     the handler for received packets
+     * @param <T>         the packet type
+     * @return the registration
+     * @throws IllegalArgumentException if the type is a stream type
+     */
+    public <T extends Packet> PacketRegistration<T> registerConflated(@NonNull Class<T> packetClass,
+                                                                      @NonNull PacketHandler<T> handler) {
+        PacketType<T> type = type(packetClass);
+        if (type.stream()) {
+            throw new IllegalArgumentException("Stream type " + type.name() + " cannot be conflated");
+        }
+
+        return register(new PacketRegistration<>(type, handler, null, true));
+    }
+
+    /**
+     * Registers a handler answering requests of a packet type, creating instances with the generated factory.
+     *
+     * @param packetClass the request packet class
+     * @param responder   the handler answering received requests
+     * @param <T>         the request packet type
+     * @return the registration
+     */
+    public <T extends Packet> PacketRegistration<T> registerResponder(@NonNull Class<T> packetClass,
+                                                                      @NonNull RequestHandler<T, ?> responder) {
+        return register(new PacketRegistration<>(type(packetClass), responder));
+    }
+
+    private <T extends Packet> PacketRegistration<T> register(PacketType<T> type, PacketHandler<T> handler) {
+        return register(new PacketRegistration<>(type, handler));
+    }
+
+    private synchronized <T extends Packet> PacketRegistration<T> register(PacketRegistration<T> registration) {
+        PacketType<T> type = registration.type();
+        if (!type.multiplexed()) {
+            table = table.with(type.channelBytes(), registration);
+            return registration;
+        }
+
+        PacketRegistration<?> existing = typeTable.get(type.typeId());
+        if (existing != null && existing.type().packetClass() != type.packetClass()) {
+            throw new IllegalStateException("Packet types " + existing.type().packetClass().getName() + " and "
+                    + type.packetClass().getName() + " share type id " + type.typeId() + "; give one of them an explicit id");
+        }
+
+        typeTable = typeTable.with(registration);
+        return registration;
+    }
+
+    /**
+     * Finds the registration for an incoming channel.
+     *
+     * @param channel the raw channel name
+     * @return the registration, or {@code null} if no handler is registered for the channel
+     */
+    public @Nullable PacketRegistration<?> lookup(byte @NonNull [] channel) {
+        return table.get(channel);
+    }
+
+    /**
+     * Finds the registration for the type id of a frame received on a multiplexed channel.
+     *
+     * @param typeId the type id
+     * @return the registration, or {@code null} if no handler is registered for the type
+     */
+    public @Nullable PacketRegistration<?> lookup(int typeId) {
+        return typeTable.get(typeId);
+    }
+
+    /**
+     * Finds the registration for a packet type.
+     *
+     * @param type the packet type
+     * @return the registration, or {@code null} if no handler is registered for the type
+     */
+    public @Nullable PacketRegistration<?> lookup(@NonNull PacketType<?> type) {
+        return type.multiplexed() ? lookup(type.typeId()) : lookup(type.channelBytes());
+    }
+
+    private @Nullable PacketType<?> createType(Class<?> clazz) {
+        PacketInfo packetInfo = clazz.getAnnotation(PacketInfo.class);
+        if (packetInfo == null) return null;
+
+        if (!Packet.class.isAssignableFrom(clazz)) {
+            throw new IllegalArgumentException("Class " + clazz + " does not implement Packet");
+        }
+
+        int id = packetInfo.id();
+        if (id < -1 || id > PacketInfo.MAX_ID) {
+            throw new IllegalArgumentException("Class " + clazz + " has type id " + id + " outside [0, " + PacketInfo.MAX_ID + "]");
+        }
+
+        if (packetInfo.delta() && (packetInfo.delivery() == Delivery.STREAM || packetInfo.coalesce())) {
+            throw new IllegalArgumentException("Class " + clazz + " cannot be delta encoded, as it is a stream or coalesced type");
+        }
+
+        if (packetInfo.conflate() && (packetInfo.delivery() == Delivery.STREAM || packetInfo.coalesce())) {
+            throw new IllegalArgumentException("Class " + clazz + " cannot be conflated, as it is a stream or coalesced type");
+        }
+
+        // Streams are read through consumer groups per stream key, so they keep a key per type, and
+        // sharded types keep a channel per type so their traffic spreads over the shards
+        boolean multiplexed = this.multiplexed && packetInfo.delivery() == Delivery.BROADCAST;
+        String prefix = packetInfo.channel().isEmpty() ? baseChannel : packetInfo.channel();
+        String channel = multiplexed ? prefix : prefix + ":" + packetInfo.name();
+        int typeId = id >= 0 ? id : hashTypeId(packetInfo.name());
+
+        return newType(clazz.asSubclass(Packet.class), packetInfo.name(), channel, typeId, multiplexed,
+                packetInfo.delivery(), packetInfo.coalesce(), packetInfo.delta(), packetInfo.conflate(),
+                packetInfo.priority());
+    }
+
+    private static <T extends Packet> PacketType<T> newType(Class<T> clazz, String name, String channel, int typeId,
+                                                            boolean multiplexed, Delivery delivery, boolean coalesce,
+                                                            boolean delta, boolean conflate, Priority priority) {
+        PacketCodec<T> codec = PacketCodecs.find(clazz);
+        if (codec == null && !serializesItself(clazz)) {
+            throw new IllegalArgumentException("Class " + clazz
+                    + " implements neither write/read nor has @PacketField fields with a generated codec");
+        }
+
+        Supplier<T> factory = codec != null ? codec::newInstance : factory(clazz);
+        return new PacketType<>(clazz, name, channel, typeId, multiplexed, delivery, coalesce, delta, conflate,
+                priority, factory, codec);
+    }
+
+    /**
+     * Checks whether a packet class overrides both {@link Packet#write} and {@link Packet#read}, whose
+     * defaults only delegate to a generated codec.
+     */
+    private static boolean serializesItself(Class<?> clazz) {
+        try {
+            return clazz.getMethod("write", PacketByteBufferOutput.class).getDeclaringClass() != Packet.class
+                    && clazz.getMethod("read", PacketByteBufferInput.class).getDeclaringClass() != Packet.class;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Packet methods are missing from " + clazz, e);
+        }
+    }
+
+    /**
+     * Derives a type id from a packet name with 32-bit FNV-1a, so every service computes the same id.
+     * Derived ids lie above {@link PacketInfo#MAX_ID} and never collide with explicit ones.
+     */
+    static int hashTypeId(String name) {
+        int hash = 0x811C9DC5;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+
+        return (hash >>> 1) | (PacketInfo.MAX_ID + 1);
+    }
+
+    /**
+     * Generates a factory invoking the no-arg constructor of a packet class.
+     * Falls back to a method handle when a lambda cannot be spun for the class.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Packet> Supplier<T> factory(Class<T> clazz) {
+        MethodHandle constructor;
+        MethodHandles.Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+            constructor = lookup.findConstructor(clazz, MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Class " + clazz + " has no accessible no-arg constructor", e);
+        }
+
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                    lookup, "get", SUPPLIER_TYPE, GET_TYPE, constructor, MethodType.methodType(clazz));
+            return (Supplier<T>) site.getTarget().invokeExact();
+        } catch (Throwable ignored) {
+            MethodHandle handle = constructor.asType(MethodType.methodType(Packet.class));
+            return () -> {
+                try {
+                    return (T) (Packet) handle.invokeExact();
+                } catch (Throwable e) {
+                    throw new IllegalStateException("Failed to instantiate " + clazz, e);
+                }
+            };
+        }
+    }
+
+    /**
+     * Immutable table from type ids to registrations. Explicit ids index an array,
+     * ids derived from names are kept in a map.
+     */
+    private static final class TypeTable {
+
+        static final TypeTable EMPTY = new TypeTable(new PacketRegistration<?>[0], Map.of());
+
+        private final PacketRegistration<?>[] byId;
+        private final Map<Integer, PacketRegistration<?>> byHash;
+
+        private TypeTable(PacketRegistration<?>[] byId, Map<Integer, PacketRegistration<?>> byHash) {
+            this.byId = byId;
+            this.byHash = byHash;
+        }
+
+        @Nullable PacketRegistration<?> get(int typeId) {
+            if (typeId >= 0 && typeId < byId.length) {
+                return byId[typeId];
+            }
+
+            return typeId > PacketInfo.MAX_ID ? byHash.get(typeId) : null;
+        }
+
+        TypeTable with(PacketRegistration<?> registration) {
+            int typeId = registration.type().typeId();
+            if (typeId > PacketInfo.MAX_ID) {
+                Map<Integer, PacketRegistration<?>> newByHash = new HashMap<>(byHash);
+                newByHash.put(typeId, registration);
+                return new TypeTable(byId, Map.copyOf(newByHash));
+            }
+
+            PacketRegistration<?>[] newById = Arrays.copyOf(byId, Math.max(byId.length, typeId + 1));
+            newById[typeId] = registration;
+            return new TypeTable(newById, byHash);
+        }
+    }
+
+    /**
+     * Immutable open-addressing hash table from channel bytes to registrations.
+     */
+    private static final class ChannelTable {
+
+        static final ChannelTable EMPTY = new ChannelTable(new byte[1][], new PacketRegistration<?>[1], 0);
+
+        private final byte[][] keys;
+        private final PacketRegistration<?>[] values;
+        private final int size;
+        private final int mask;
+
+        private ChannelTable(byte[][] keys, PacketRegistration<?>[] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+            this.mask = keys.length - 1;
+        }
+
+        @Nullable PacketRegistration<?> get(byte[] key) {
+            for (int index = Arrays.hashCode(key) & mask; ; index = (index + 1) & mask) {
+                byte[] candidate = keys[index];
+                if (candidate == null) return null;
+                if (Arrays.equals(candidate, key)) return values[index];
+            }
+        }
+
+        ChannelTable with(byte[] key, PacketRegistration<?> value) {
+            int capacity = Integer.highestOneBit(Math.max(2, (size + 1) * 2) - 1) << 1;
+            byte[][] newKeys = new byte[capacity][];
+            PacketRegistration<?>[] newValues = new PacketRegistration<?>[capacity];
+
+            int newSize = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null && !Arrays.equals(keys[i], key)) {
+                    put(newKeys, newValues, keys[i], values[i]);
+                    newSize++;
+                }
+            }
+
+            put(newKeys, newValues, key, value);
+            return new ChannelTable(newKeys, newValues, newSize + 1);
+        }
+
+        private static void put(byte[][] keys, PacketRegistration<?>[] values, byte[] key, PacketRegistration<?> value) {
+            int mask = keys.length - 1;
+            int index = Arrays.hashCode(key) & mask;
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = key;
+            values[index] = value;
+        }
+    }
+}
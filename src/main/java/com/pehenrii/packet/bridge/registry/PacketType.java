@@ -0,0 +1,244 @@
+package com.pehenrii.packet.bridge.registry;
+
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.codec.PacketCodec;
+import com.pehenrii.packet.bridge.packet.KeyedPacket;
+import com.pehenrii.packet.bridge.packet.Packet;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Immutable description of a packet type, resolved once from its
+ * {@link com.pehenrii.packet.bridge.annotation.PacketInfo} annotation.
+ *
+ * @param <T> the packet type
+ */
+public final class PacketType<T extends Packet> {
+
+    private final Class<T> packetClass;
+    private final String name;
+    private final String channel;
+    private final byte[] channelBytes;
+    private final int channelHash;
+    private final int typeId;
+    private final boolean multiplexed;
+    private final boolean keyed;
+    private final Delivery delivery;
+    private final boolean coalesce;
+    private final boolean delta;
+    private final boolean conflate;
+    private final Priority priority;
+    private final Supplier<T> factory;
+    private final @Nullable PacketCodec<T> codec;
+
+    PacketType(@NonNull Class<T> packetClass, @NonNull String name, @NonNull String channel, int typeId, boolean multiplexed,
+               @NonNull Delivery delivery, boolean coalesce, boolean delta, boolean conflate, @NonNull Priority priority,
+               @NonNull Supplier<T> factory, @Nullable PacketCodec<T> codec) {
+        this.packetClass = packetClass;
+        this.name = name;
+        this.channel = channel;
+        this.channelBytes = channel.getBytes();
+        this.typeId = typeId;
+        this.multiplexed = multiplexed;
+        // Types sharing a multiplexed channel must still spread over the receive stripes
+        this.channelHash = multiplexed ? 31 * Arrays.hashCode(channelBytes) + typeId : Arrays.hashCode(channelBytes);
+        this.keyed = KeyedPacket.class.isAssignableFrom(packetClass);
+        this.delivery = delivery;
+        this.coalesce = coalesce;
+        this.delta = delta;
+        this.conflate = conflate;
+        this.priority = priority;
+        this.factory = factory;
+        this.codec = codec;
+    }
+
+    public Class<T> packetClass() {
+        return packetClass;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String channel() {
+        return channel;
+    }
+
+    /**
+     * Returns the encoded channel name. The array is shared and must not be modified.
+     *
+     * @return the channel bytes
+     */
+    public byte[] channelBytes() {
+        return channelBytes;
+    }
+
+    /**
+     * Returns the hash selecting the receive stripe of packets of this type.
+     *
+     * @return the stripe hash
+     */
+    public int channelHash() {
+        return channelHash;
+    }
+
+    /**
+     * Returns the id identifying this type on multiplexed channels, either declared through
+     * {@link com.pehenrii.packet.bridge.annotation.PacketInfo#id()} or derived from the type name.
+     *
+     * @return the type id
+     */
+    public int typeId() {
+        return typeId;
+    }
+
+    /**
+     * Whether this type shares its channel with other types, so frames must carry its {@link #typeId() id}.
+     *
+     * @return {@code true} for multiplexed types
+     */
+    public boolean multiplexed() {
+        return multiplexed;
+    }
+
+    /**
+     * Whether packets of this type implement {@link KeyedPacket}.
+     *
+     * @return {@code true} for keyed packet types
+     */
+    public boolean keyed() {
+        return keyed;
+    }
+
+    public Delivery delivery() {
+        return delivery;
+    }
+
+    /**
+     * Whether packets of this type are appended to a stream named after the channel
+     * instead of being published to the channel.
+     *
+     * @return {@code true} for {@link Delivery#STREAM} packet types
+     */
+    public boolean stream() {
+        return delivery == Delivery.STREAM;
+    }
+
+    /**
+     * Whether packets of this type are packed into shared frames before they are sent.
+     *
+     * @return {@code true} if the type is {@link com.pehenrii.packet.bridge.annotation.PacketInfo#coalesce() coalesced}
+     */
+    public boolean coalesce() {
+        return coalesce;
+    }
+
+    /**
+     * Whether packets of this type are sent as differences from the previous packet with the same key.
+     *
+     * @return {@code true} if the type is {@link com.pehenrii.packet.bridge.annotation.PacketInfo#delta() delta} encoded
+     */
+    public boolean delta() {
+        return delta;
+    }
+
+    /**
+     * Whether only the newest packet with the same key is published and handled.
+     *
+     * @return {@code true} if the type is {@link com.pehenrii.packet.bridge.annotation.PacketInfo#conflate() conflated}
+     */
+    public boolean conflate() {
+        return conflate;
+    }
+
+    /**
+     * Returns the lane packets of this type are sent and handled on.
+     *
+     * @return the {@link com.pehenrii.packet.bridge.annotation.PacketInfo#priority() priority}
+     */
+    public Priority priority() {
+        return priority;
+    }
+
+    /**
+     * Returns the key a packet of this type is conflated and delta encoded by.
+     *
+     * @param packet the packet
+     * @return the {@link KeyedPacket#getPacketKey() packet key}, or {@code null} if the type is not keyed
+     */
+    public @Nullable Object key(@NonNull Packet packet) {
+        return keyed ? ((KeyedPacket) packet).getPacketKey() : null;
+    }
+
+    /**
+     * Creates an empty packet instance, ready to be read from a buffer.
+     *
+     * @return a new packet
+     */
+    public T newInstance() {
+        return factory.get();
+    }
+
+    /**
+     * Returns the codec generated for this type at compile time.
+     *
+     * @return the codec, or {@code null} if the packet class serializes itself
+     */
+    public @Nullable PacketCodec<T> codec() {
+        return codec;
+    }
+
+    /**
+     * Returns the exact serialized size of a packet of this type, if it is known in advance.
+     *
+     * @param packet the packet
+     * @return the size in bytes, or {@code -1} if the type has no {@link #codec() codec}
+     */
+    public int sizeOf(@NonNull Packet packet) {
+        return codec != null ? codec.sizeOf(packetClass.cast(packet)) : -1;
+    }
+
+    /**
+     * Serializes a packet of this type, through its {@link #codec() codec} if it has one.
+     *
+     * @param packet the packet
+     * @param buffer the output buffer to write data to
+     */
+    public void write(@NonNull Packet packet, @NonNull PacketByteBufferOutput buffer) {
+        if (codec != null) {
+            codec.write(packetClass.cast(packet), buffer);
+        } else {
+            packet.write(buffer);
+        }
+    }
+
+    /**
+     * Deserializes a packet of this type, through its {@link #codec() codec} if it has one.
+     *
+     * @param packet the packet to fill in
+     * @param buffer the input buffer to read data from
+     */
+    public void read(@NonNull Packet packet, @NonNull PacketByteBufferInput buffer) {
+        if (codec != null) {
+            codec.read(packetClass.cast(packet), buffer);
+        } else {
+            packet.read(buffer);
+        }
+    }
+
+    PacketType<T> withFactory(@NonNull Supplier<T> factory) {
+        return new PacketType<>(packetClass, name, channel, typeId, multiplexed, delivery, coalesce, delta, conflate,
+                priority, factory, codec);
+    }
+
+    @Override
+    public String toString() {
+        return "PacketType{" + name + " #" + typeId + " @ " + channel + "}";
+    }
+}
@@ -0,0 +1,131 @@
+package com.pehenrii.packet.bridge.service;
+
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketDecodeException;
+import com.pehenrii.packet.bridge.registry.PacketType;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds packets of {@link PacketType#delta() delta} types from the delta records written by
+ * the {@link DeltaEncoder} of each sender.
+ * <p>
+ * The last packet of every chain is kept. A difference is only applied to the packet of the
+ * version right before it, so after a missed frame the differences of its chain are discarded
+ * until the next keyframe. Chains that have been silent for {@value #IDLE_MINUTES} minutes are
+ * forgotten once a new chain appears, so restarted bridges, which pick a new sender id, do not
+ * accumulate.
+ * </p>
+ */
+final class DeltaDecoder {
+
+    private static final int IDLE_MINUTES = 5;
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(IDLE_MINUTES);
+
+    private final ConcurrentHashMap<ChainKey, Chain> chains = new ConcurrentHashMap<>();
+
+    /**
+     * Rebuilds the packet of a delta record.
+     *
+     * @param type   the packet type
+     * @param sender the sender id carried by the envelope of the frame
+     * @param record the delta record
+     * @return an input over the serialized packet, or {@code null} if the record is a difference
+     * from a packet that was missed
+     * @throws PacketDecodeException if the record is malformed
+     */
+    @Nullable PacketByteBufferInput decode(@NonNull PacketType<?> type, int sender, @NonNull PacketByteBufferInput record) {
+        int stream = record.readUnsignedVarInt();
+        int version = record.readUnsignedVarInt();
+        ChainKey key = new ChainKey(type.packetClass(), sender, stream >>> 1);
+
+        Chain chain = chains.get(key);
+        if ((stream & 1) != 0) {
+            if (chain == null) {
+                evictIdle();
+                chain = chains.computeIfAbsent(key, ignored -> new Chain());
+            }
+
+            return chain.keyframe(version, record.readBytes());
+        }
+
+        return chain != null ? chain.apply(version, record) : null;
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        chains.values().removeIf(chain -> now - chain.lastSeenNanos > IDLE_NANOS);
+    }
+
+    /**
+     * Applies a difference written by {@link DeltaEncoder#diff(byte[], byte[], com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput)}.
+     *
+     * @param previous the packet the difference was taken from
+     * @param diff     the difference
+     * @return the rebuilt packet
+     * @throws PacketDecodeException if the difference is malformed or does not fit the previous packet
+     */
+    static byte[] patch(byte[] previous, PacketByteBufferInput diff) {
+        int length = diff.readUnsignedVarInt();
+        // Every byte is either copied or carried by the difference, which bounds the allocation
+        if (length < 0 || length > previous.length + diff.remaining()) {
+            throw new PacketDecodeException("Delta of " + length + " bytes exceeds its data");
+        }
+
+        byte[] current = new byte[length];
+        int position = 0;
+        while (position < length) {
+            int copy = diff.readUnsignedVarInt();
+            if (copy < 0 || copy > length - position || copy > previous.length - position) {
+                throw new PacketDecodeException("Delta copies " + copy + " bytes beyond the packet at " + position);
+            }
+
+            System.arraycopy(previous, position, current, position, copy);
+            position += copy;
+
+            int literal = diff.readBytes(current, position);
+            if (copy == 0 && literal == 0) {
+                throw new PacketDecodeException("Empty delta run at " + position);
+            }
+
+            position += literal;
+        }
+
+        return current;
+    }
+
+    private record ChainKey(Class<?> type, int sender, int stream) {
+    }
+
+    private static final class Chain {
+
+        private volatile long lastSeenNanos = System.nanoTime();
+        private int version;
+        private byte @Nullable [] previous;
+
+        private synchronized PacketByteBufferInput keyframe(int version, byte[] packet) {
+            lastSeenNanos = System.nanoTime();
+            this.version = version;
+            this.previous = packet;
+            return new PacketByteBufferInput(packet);
+        }
+
+        private synchronized @Nullable PacketByteBufferInput apply(int version, PacketByteBufferInput diff) {
+            lastSeenNanos = System.nanoTime();
+            if (previous == null || version != this.version + 1) return null;
+
+            try {
+                previous = patch(previous, diff);
+            } catch (PacketDecodeException e) {
+                previous = null;
+                throw e;
+            }
+
+            this.version = version;
+            return new PacketByteBufferInput(previous);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.pehenrii.packet.bridge.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.Packet;
+import com.pehenrii.packet.bridge.registry.PacketType;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encodes packets of {@link PacketType#delta() delta} types as differences from the previous
+ * packet with the same key.
+ * <p>
+ * Each key of each type has a chain, identified towards receivers by a stream id unique to this
+ * encoder. Every packet sent on a chain takes the next version number and is written as a delta
+ * record: the stream id shifted left by one with the low bit set for keyframes, the version, and
+ * either the whole serialized packet or its difference from the packet of the previous version.
+ * The difference works on serialized bytes. It alternates runs copied from the previous packet at
+ * the same offset with runs of new bytes, so it suits packets whose fields keep their size, such
+ * as those written by generated codecs. Packets whose difference would not be smaller are sent
+ * as keyframes. Chains that have not been used for {@value #IDLE_MINUTES} minutes are dropped, so
+ * keys that are no longer sent do not accumulate; the next packet of such a key starts a new chain
+ * with a keyframe.
+ * </p>
+ * <p>
+ * A chain must be locked from {@link #encode(Chain, byte[], PacketByteBufferOutput)} until its
+ * frame was queued on the transport, so the frames of a key reach receivers in version order.
+ * </p>
+ */
+final class DeltaEncoder {
+
+    /**
+     * The shortest run of unchanged bytes worth copying; a copy costs a varint of its own.
+     */
+    private static final int MIN_COPY = 3;
+
+    private static final Object NO_KEY = new Object();
+
+    private static final int IDLE_MINUTES = 5;
+
+    private final int keyframeInterval;
+    private final AtomicInteger nextStream = new AtomicInteger();
+    private final Cache<ChainKey, Chain> chains = CacheBuilder.newBuilder()
+            .expireAfterAccess(IDLE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * @param keyframeInterval the number of packets per chain from one keyframe to the next
+     */
+    DeltaEncoder(int keyframeInterval) {
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Returns the chain a packet is sent on, creating it for the first packet of its key or once its chain was dropped.
+     *
+     * @param type   the packet type
+     * @param packet the packet
+     * @return the chain of the packet's key
+     */
+    Chain chain(@NonNull PacketType<?> type, @NonNull Packet packet) {
+        ChainKey key = new ChainKey(type.packetClass(), Objects.requireNonNullElse(type.key(packet), NO_KEY));
+        return chains.asMap().computeIfAbsent(key, ignored -> new Chain(nextStream.getAndIncrement()));
+    }
+
+    /**
+     * Writes the delta record of a serialized packet and makes it the previous packet of its chain.
+     * The caller must hold the chain's lock.
+     *
+     * @param chain  the chain of the packet
+     * @param packet the serialized packet, which the chain keeps
+     * @param target an empty buffer to write the record to
+     */
+    void encode(@NonNull Chain chain, byte @NonNull [] packet, @NonNull PacketByteBufferOutput target) {
+        int version = chain.version++;
+        boolean keyframe = chain.previous == null || chain.sinceKeyframe >= keyframeInterval - 1;
+        if (!keyframe) {
+            target.writeUnsignedVarInt(chain.stream << 1).writeUnsignedVarInt(version);
+            diff(chain.previous, packet, target);
+
+            int keyframeSize = PacketByteBufferOutput.sizeOfUnsignedVarInt(chain.stream << 1 | 1)
+                    + PacketByteBufferOutput.sizeOfUnsignedVarInt(version) + PacketByteBufferOutput.sizeOfBytes(packet.length);
+            if (target.size() >= keyframeSize) {
+                target.clear();
+                keyframe = true;
+            }
+        }
+
+        if (keyframe) {
+            target.writeUnsignedVarInt(chain.stream << 1 | 1).writeUnsignedVarInt(version).writeBytes(packet);
+            chain.sinceKeyframe = 0;
+        } else {
+            chain.sinceKeyframe++;
+        }
+
+        chain.previous = packet;
+    }
+
+    /**
+     * Writes the difference between two serialized packets: the length of the current packet,
+     * then pairs of the number of bytes to copy from the previous packet as an unsigned varint
+     * and the bytes that follow them, prefixed with their length, until the packet is complete.
+     */
+    static void diff(byte[] previous, byte[] current, PacketByteBufferOutput target) {
+        target.writeUnsignedVarInt(current.length);
+
+        int position = 0;
+        while (position < current.length) {
+            int start = position;
+            while (position < current.length && position < previous.length && previous[position] == current[position]) {
+                position++;
+            }
+
+            int copy = position - start;
+            start = position;
+            while (position < current.length && !unchanged(previous, current, position)) {
+                position++;
+            }
+
+            target.writeUnsignedVarInt(copy);
+            target.writeBytes(current, start, position - start);
+        }
+    }
+
+    /**
+     * Checks whether a run of unchanged bytes worth copying starts at a position. Runs reaching
+     * the end of the current packet always are.
+     */
+    private static boolean unchanged(byte[] previous, byte[] current, int position) {
+        int end = Math.min(position + MIN_COPY, current.length);
+        if (end > previous.length) return false;
+
+        for (int i = position; i < end; i++) {
+            if (previous[i] != current[i]) return false;
+        }
+
+        return true;
+    }
+
+    private record ChainKey(Class<?> type, Object key) {
+    }
+
+    /**
+     * The packets sent for one key of one type. Guarded by itself.
+     */
+    static final class Chain {
+
+        private final int stream;
+        private int version;
+        private int sinceKeyframe;
+        private byte @Nullable [] previous;
+
+        private Chain(int stream) {
+            this.stream = stream;
+        }
+
+        /**
+         * Makes the next packet of the chain a keyframe, since receivers may have missed the
+         * frame of the previous one.
+         */
+        synchronized void reset() {
+            previous = null;
+        }
+    }
+}
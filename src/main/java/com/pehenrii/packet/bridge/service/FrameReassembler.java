@@ -0,0 +1,196 @@
+package com.pehenrii.packet.bridge.service;
+
+import com.pehenrii.packet.bridge.buffer.PacketDecodeException;
+import com.pehenrii.packet.bridge.frame.LargeFrame;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds frames that were sent as {@link LargeFrame#CHUNK chunks}.
+ * <p>
+ * A transfer starts with the first chunk of a frame, which reserves room for the whole frame
+ * as long as the frames being reassembled stay within {@code maxBytes}; frames that would exceed
+ * it are dropped. The chunks of a frame are published in order on one channel, so a chunk that
+ * does not follow its predecessor means one went missing, and the frame is dropped right away.
+ * Frames still incomplete once their {@code timeout} elapses are dropped as well, releasing
+ * their room. Chunks of dropped frames are ignored.
+ * </p>
+ */
+final class FrameReassembler implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrameReassembler.class);
+
+    private final long timeoutNanos;
+    private final int maxBytes;
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentHashMap<TransferKey, Transfer> transfers = new ConcurrentHashMap<>();
+    private final AtomicLong heldBytes = new AtomicLong();
+    private volatile boolean closed;
+
+    FrameReassembler(@NonNull Duration timeout, int maxBytes) {
+        this.timeoutNanos = timeout.toNanos();
+        this.maxBytes = maxBytes;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("packet-bridge-reassembly", true));
+    }
+
+    /**
+     * Adds a chunk to the frame it belongs to.
+     *
+     * @param channel the channel the chunk was received from
+     * @param chunk   the chunk
+     * @return the frame once its last chunk arrived, or {@code null} while chunks are missing
+     * or if the frame was dropped
+     * @throws PacketDecodeException if the chunk is malformed or does not match the earlier chunks of its frame
+     */
+    byte @Nullable [] add(byte @NonNull [] channel, byte @NonNull [] chunk) {
+        LargeFrame.Chunk header = LargeFrame.readChunk(chunk);
+        TransferKey key = new TransferKey(ByteBuffer.wrap(channel), header.transferId());
+
+        Transfer transfer = header.index() == 0 ? start(key, header) : transfers.get(key);
+        if (transfer == null) return null;
+
+        synchronized (transfer) {
+            if (transfer.frame == null) return null;
+
+            if (header.count() != transfer.count || header.frameLength() != transfer.frame.length) {
+                drop(key, transfer);
+                throw new PacketDecodeException("Chunk " + header.index() + " does not match the frame it belongs to");
+            }
+
+            if (header.index() != transfer.next) {
+                logger.warn("Dropped chunked frame of {} bytes from channel {}: chunk {} of {} is missing",
+                        transfer.frame.length, name(key), transfer.next, transfer.count);
+                drop(key, transfer);
+                return null;
+            }
+
+            System.arraycopy(chunk, LargeFrame.CHUNK_HEADER_SIZE, transfer.frame, header.offset(), header.length());
+            if (++transfer.next < transfer.count) return null;
+
+            byte[] frame = transfer.frame;
+            drop(key, transfer);
+            return frame;
+        }
+    }
+
+    private @Nullable Transfer start(TransferKey key, LargeFrame.Chunk header) {
+        if (closed) return null;
+
+        int length = header.frameLength();
+        if (!reserve(length)) {
+            logger.warn("Dropped chunked frame of {} bytes from channel {}: {} of {} reassembly bytes are in use",
+                    length, name(key), heldBytes.get(), maxBytes);
+            return null;
+        }
+
+        Transfer transfer = new Transfer(header.count(), length);
+        Transfer previous = transfers.put(key, transfer);
+        if (previous != null) {
+            synchronized (previous) {
+                release(previous);
+            }
+        }
+
+        try {
+            scheduler.schedule(() -> expire(key, transfer), timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile
+            drop(key, transfer);
+            return null;
+        }
+
+        return transfer;
+    }
+
+    private boolean reserve(int length) {
+        long held;
+        do {
+            held = heldBytes.get();
+            if (held + length > maxBytes) return false;
+        } while (!heldBytes.compareAndSet(held, held + length));
+
+        return true;
+    }
+
+    private void expire(TransferKey key, Transfer transfer) {
+        synchronized (transfer) {
+            if (transfer.frame == null) return;
+
+            logger.warn("Dropped chunked frame of {} bytes from channel {}: {} of {} chunks arrived in time",
+                    transfer.frame.length, name(key), transfer.next, transfer.count);
+            drop(key, transfer);
+        }
+    }
+
+    /**
+     * Forgets a transfer and releases its room. Must hold the lock of the transfer, unless it was never shared.
+     */
+    private void drop(TransferKey key, Transfer transfer) {
+        transfers.remove(key, transfer);
+        release(transfer);
+    }
+
+    private void release(Transfer transfer) {
+        if (transfer.frame != null) {
+            heldBytes.addAndGet(-transfer.frame.length);
+            transfer.frame = null;
+        }
+    }
+
+    private static String name(TransferKey key) {
+        return new String(key.channel.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of bytes held for frames being reassembled.
+     *
+     * @return the held bytes
+     */
+    long heldBytes() {
+        return heldBytes.get();
+    }
+
+    /**
+     * Drops every incomplete frame and stops accepting chunks.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+
+        transfers.forEach((key, transfer) -> {
+            synchronized (transfer) {
+                drop(key, transfer);
+            }
+        });
+    }
+
+    private record TransferKey(ByteBuffer channel, long transferId) {
+    }
+
+    private static final class Transfer {
+
+        private final int count;
+        private byte @Nullable [] frame;
+        private int next;
+
+        private Transfer(int count, int length) {
+            this.count = count;
+            this.frame = new byte[length];
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.pehenrii.packet.bridge.service;
+
+import com.pehenrii.packet.bridge.buffer.PacketBufferPool;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.Packet;
+import com.pehenrii.packet.bridge.registry.PacketType;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packs packets of {@link PacketType#coalesce() coalesced} types into shared frames.
+ * <p>
+ * Each packet type has one open frame. Packets are serialized into it as they are sent,
+ * each prefixed with its length, until the frame holds {@code maxBytes} or its first
+ * packet has waited {@code linger}, whichever comes first. The frame is then handed to
+ * the {@link Flusher}, which compresses and publishes it as a whole. A full frame is swapped
+ * out under the lock of its type and flushed once the lock is released, one frame of the type
+ * at a time and in the order they were swapped out, so the frames of a type are published in
+ * the order their packets were sent while packets keep being added to the next one.
+ * </p>
+ */
+final class PacketCoalescer implements AutoCloseable {
+
+    /**
+     * Publishes a frame of packed packets.
+     */
+    @FunctionalInterface
+    interface Flusher {
+
+        /**
+         * @param type   the type of the packed packets
+         * @param frame  the length-prefixed packets; only valid until this method returns
+         * @param local  whether the packets were also delivered to a local handler
+         * @return a future completed with the number of subscribers that received the frame
+         */
+        CompletableFuture<Long> flush(PacketType<?> type, PacketByteBufferOutput frame, boolean local);
+    }
+
+    private final PacketBufferPool bufferPool;
+    private final int initialCapacity;
+    private final int maxBytes;
+    private final long lingerNanos;
+    private final Flusher flusher;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<PacketType<?>, PendingFrame> frames = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    PacketCoalescer(@NonNull PacketBufferPool bufferPool, int initialCapacity, int maxBytes, @NonNull Duration linger,
+                    @NonNull Flusher flusher) {
+        this.bufferPool = bufferPool;
+        this.initialCapacity = initialCapacity;
+        this.maxBytes = maxBytes;
+        this.lingerNanos = linger.toNanos();
+        this.flusher = flusher;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("packet-bridge-coalesce", true));
+    }
+
+    /**
+     * Serializes a packet into the open frame of its type.
+     *
+     * @param type   the packet type
+     * @param packet the packet
+     * @param local  whether the packet is also delivered to a local handler; packets that
+     *               differ in this respect are never packed into the same frame
+     * @return a future completed with the number of subscribers that received the frame holding the packet
+     */
+    CompletableFuture<Long> add(PacketType<?> type, Packet packet, boolean local) {
+        PendingFrame frame = frames.computeIfAbsent(type, PendingFrame::new);
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        boolean sealed = false;
+        try {
+            synchronized (frame) {
+                if (closed) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("Packet bridge was shut down"));
+                }
+
+                if (!frame.futures.isEmpty() && frame.local != local) {
+                    sealed = frame.seal();
+                }
+
+                try (PacketByteBufferOutput buffer = bufferPool.acquire()) {
+                    type.write(packet, buffer);
+                    frame.buffer.writeBytes(buffer);
+                }
+
+                frame.local = local;
+                frame.futures.add(future);
+
+                if (frame.buffer.size() >= maxBytes || lingerNanos == 0) {
+                    sealed |= frame.seal();
+                } else if (frame.scheduledFlush == null) {
+                    frame.scheduledFlush = scheduler.schedule(() -> flushScheduled(frame), lingerNanos,
+                            TimeUnit.NANOSECONDS);
+                }
+            }
+        } finally {
+            if (sealed) {
+                frame.flushSealed();
+            }
+        }
+
+        return future;
+    }
+
+    private void flushScheduled(PendingFrame frame) {
+        synchronized (frame) {
+            frame.scheduledFlush = null;
+            if (!frame.seal()) return;
+        }
+
+        frame.flushSealed();
+    }
+
+    /**
+     * Flushes every open frame and stops accepting packets.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (PendingFrame frame : frames.values()) {
+            synchronized (frame) {
+                frame.seal();
+            }
+
+            frame.flushSealed();
+        }
+
+        scheduler.shutdown();
+    }
+
+    /**
+     * A frame sealed for flushing, with the futures of the packets it holds.
+     */
+    private record SealedFrame(PacketByteBufferOutput buffer, boolean local, List<CompletableFuture<Long>> futures) {
+    }
+
+    /**
+     * The open frame of a type and the frames sealed but not yet flushed. Guarded by itself; flushes are
+     * serialized by {@link #flushLock}, so adding packets to the next frame never waits for one.
+     */
+    private final class PendingFrame {
+
+        private final PacketType<?> type;
+        private final Object flushLock = new Object();
+        private final ArrayDeque<SealedFrame> sealed = new ArrayDeque<>();
+        private PacketByteBufferOutput buffer = newBuffer();
+        private @Nullable PacketByteBufferOutput spare;
+        private List<CompletableFuture<Long>> futures = new ArrayList<>();
+        private boolean local;
+        private ScheduledFuture<?> scheduledFlush;
+
+        private PendingFrame(PacketType<?> type) {
+            this.type = type;
+        }
+
+        /**
+         * Swaps out the open frame for an empty one, queueing it to be flushed. The caller must hold this frame's lock.
+         *
+         * @return whether the open frame held any packets
+         */
+        private boolean seal() {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+
+            if (futures.isEmpty()) return false;
+
+            sealed.add(new SealedFrame(buffer, local, futures));
+            buffer = spare != null ? spare : newBuffer();
+            spare = null;
+            futures = new ArrayList<>();
+            return true;
+        }
+
+        /**
+         * Hands the sealed frames to the flusher in the order they were sealed, without holding this frame's lock.
+         */
+        private void flushSealed() {
+            synchronized (flushLock) {
+                while (true) {
+                    SealedFrame frame;
+                    synchronized (this) {
+                        frame = sealed.poll();
+                    }
+
+                    if (frame == null) return;
+                    flush(frame);
+
+                    synchronized (this) {
+                        frame.buffer.clear();
+                        if (spare == null) {
+                            spare = frame.buffer;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void flush(SealedFrame frame) {
+            CompletableFuture<Long> result;
+            try {
+                result = flusher.flush(type, frame.buffer, frame.local);
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+
+            result.whenComplete((receivers, throwable) -> {
+                for (CompletableFuture<Long> future : frame.futures) {
+                    if (throwable != null) {
+                        future.completeExceptionally(throwable);
+                    } else {
+                        future.complete(receivers);
+                    }
+                }
+            });
+        }
+
+        private PacketByteBufferOutput newBuffer() {
+            return new PacketByteBufferOutput(initialCapacity, bufferPool.isDirect());
+        }
+    }
+}
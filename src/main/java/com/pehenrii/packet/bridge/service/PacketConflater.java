@@ -0,0 +1,152 @@
+package com.pehenrii.packet.bridge.service;
+
+import com.pehenrii.packet.bridge.packet.Packet;
+import com.pehenrii.packet.bridge.registry.PacketType;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds packets of {@link PacketType#conflate() conflated} types for a short window before they
+ * are published, so only the newest packet of each key sent meanwhile is.
+ * <p>
+ * The first packet of a key opens its window; packets with the same key sent before it closes
+ * replace the pending one, which is never published. Every packet sent within a window shares
+ * the future of the packet that is, since its update reaches receivers through it. Pending
+ * packets are kept until their window closes, so at most one packet per key is held.
+ * </p>
+ */
+final class PacketConflater implements AutoCloseable {
+
+    /**
+     * Publishes the newest packet of a window.
+     */
+    @FunctionalInterface
+    interface Publisher {
+
+        /**
+         * @param type   the packet type
+         * @param packet the packet
+         * @param local  whether the packet was also delivered to a local handler
+         * @return a future completed with the number of subscribers that received the packet
+         */
+        CompletableFuture<Long> publish(PacketType<?> type, Packet packet, boolean local);
+    }
+
+    private static final Object NO_KEY = new Object();
+
+    private final long windowNanos;
+    private final Publisher publisher;
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentHashMap<Key, Pending> pending = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    PacketConflater(@NonNull Duration window, @NonNull Publisher publisher) {
+        this.windowNanos = window.toNanos();
+        this.publisher = publisher;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("packet-bridge-conflate", true));
+    }
+
+    /**
+     * Holds a packet until the window of its key closes, replacing the packet pending for the key.
+     *
+     * @param type     the packet type
+     * @param packet   the packet
+     * @param local    whether the packet is also delivered to a local handler
+     * @param replaced called if a pending packet was replaced
+     * @return a future completed with the number of subscribers that received the newest packet of the window
+     */
+    CompletableFuture<Long> add(@NonNull PacketType<?> type, @NonNull Packet packet, boolean local, @NonNull Runnable replaced) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Packet bridge was shut down"));
+        }
+
+        if (windowNanos == 0) {
+            return publish(type, packet, local);
+        }
+
+        Key key = new Key(type, Objects.requireNonNullElse(type.key(packet), NO_KEY));
+        Pending created = new Pending(packet, local);
+        Pending current = pending.compute(key, (ignored, existing) -> {
+            if (existing == null) return created;
+
+            // The map's lock on the key orders this with the removal when the window closes
+            existing.packet = packet;
+            existing.local = local;
+            return existing;
+        });
+
+        if (current != created) {
+            replaced.run();
+            return current.future;
+        }
+
+        try {
+            scheduler.schedule(() -> flush(key), windowNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shut down meanwhile; close() may have drained the map before the packet was added
+            flush(key);
+        }
+
+        return created.future;
+    }
+
+    private void flush(Key key) {
+        Pending removed = pending.remove(key);
+        if (removed == null) return;
+
+        publish(key.type, removed.packet, removed.local).whenComplete((receivers, throwable) -> {
+            if (throwable != null) {
+                removed.future.completeExceptionally(throwable);
+            } else {
+                removed.future.complete(receivers);
+            }
+        });
+    }
+
+    private CompletableFuture<Long> publish(PacketType<?> type, Packet packet, boolean local) {
+        try {
+            return publisher.publish(type, packet, local);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Publishes every pending packet and stops accepting packets.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            flush(key);
+        }
+    }
+
+    private record Key(PacketType<?> type, Object key) {
+    }
+
+    private static final class Pending {
+
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+        private Packet packet;
+        private boolean local;
+
+        private Pending(Packet packet, boolean local) {
+            this.packet = packet;
+            this.local = local;
+        }
+    }
+}
@@ -1,58 +1,188 @@
 package com.pehenrii.packet.bridge.service;
 
-import com.github.luben.zstd.Zstd;
+import com.pehenrii.packet.bridge.PacketBridgeOptions;
+import com.pehenrii.packet.bridge.annotation.Delivery;
 import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.buffer.PacketBufferPool;
 import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
 import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.buffer.PacketDecodeException;
+import com.pehenrii.packet.bridge.compression.PacketCompressor;
+import com.pehenrii.packet.bridge.dispatch.PacketDroppedException;
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import com.pehenrii.packet.bridge.dispatch.StripedExecutor;
+import com.pehenrii.packet.bridge.frame.FrameHeader;
+import com.pehenrii.packet.bridge.frame.LargeFrame;
+import com.pehenrii.packet.bridge.frame.LargePayloadMode;
+import com.pehenrii.packet.bridge.metrics.MetricsJmx;
+import com.pehenrii.packet.bridge.metrics.MetricsSnapshot;
+import com.pehenrii.packet.bridge.metrics.NearCacheStats;
+import com.pehenrii.packet.bridge.metrics.PacketMetrics;
+import com.pehenrii.packet.bridge.metrics.SequenceGapListener;
+import com.pehenrii.packet.bridge.metrics.TypeMetrics;
+import com.pehenrii.packet.bridge.packet.KeyedPacket;
 import com.pehenrii.packet.bridge.packet.Packet;
 import com.pehenrii.packet.bridge.packet.PacketHandler;
+import com.pehenrii.packet.bridge.packet.PacketRequestException;
+import com.pehenrii.packet.bridge.packet.RequestHandler;
+import com.pehenrii.packet.bridge.registry.PacketIndex;
+import com.pehenrii.packet.bridge.registry.PacketRegistration;
+import com.pehenrii.packet.bridge.registry.PacketRegistry;
+import com.pehenrii.packet.bridge.registry.PacketType;
+import com.pehenrii.packet.bridge.transport.PacketTransport;
+import com.pehenrii.packet.bridge.transport.RedisCommandAccess;
+import com.pehenrii.packet.bridge.transport.RedisTransport;
 import io.lettuce.core.RedisClient;
-import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
-import io.lettuce.core.codec.ByteArrayCodec;
-import io.lettuce.core.pubsub.RedisPubSubAdapter;
-import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
-import io.netty.util.concurrent.DefaultThreadFactory;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.util.Map;
-import java.util.concurrent.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Service responsible for managing the sending and receiving of packets
- * through Redis Pub/Sub, including serialization, deserialization,
+ * over a {@link PacketTransport}, including serialization, deserialization,
  * compression, and handler registration.
  */
-public class PacketService extends RedisPubSubAdapter<byte[], byte[]> implements AutoCloseable {
+public class PacketService implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(PacketService.class);
 
-    private final String baseChannel;
-    private final ThreadPoolExecutor executor;
+    private static final Runnable NO_ACKNOWLEDGEMENT = () -> {
+    };
 
-    private final StatefulRedisConnection<byte[], byte[]> sender;
-    private final StatefulRedisPubSubConnection<byte[], byte[]> receiver;
-    private final RedisCommands<String, String> syncCommands;
+    private static final Object NO_KEY = new Object();
 
-    private final Map<String, PacketHandler<?>> packetHandlers = new ConcurrentHashMap<>();
+    private final PacketBridgeOptions options;
+    /**
+     * The receive executor of each {@link Priority}, by ordinal.
+     */
+    private final StripedExecutor[] receiveLanes;
+    private final PacketCompressor compressor;
+    private final PacketBufferPool bufferPool;
+
+    private final PacketTransport transport;
+    private final PacketCoalescer coalescer;
+    private final PacketConflater conflater;
+    private final FrameReassembler reassembler;
+    private final long instanceId = ThreadLocalRandom.current().nextLong();
+    private final int senderId = (int) (instanceId ^ (instanceId >>> 32)) & FrameHeader.SENDER_MASK;
+
+    /**
+     * The next sequence number of each channel, indexed by priority. Numbers are taken while the transport
+     * queues the frame, under the lock of its lane, so they reach receivers in order without a send that
+     * waits for room holding up senders on other channels or lanes. Each priority lane publishes on its own,
+     * so it counts its own sequence, which receivers follow by the lane its envelopes carry.
+     */
+    private final ConcurrentHashMap<String, AtomicIntegerArray> sequences = new ConcurrentHashMap<>();
+    private final SequenceTracker sequenceTracker = new SequenceTracker();
+    private final DeltaEncoder deltaEncoder;
+    private final DeltaDecoder deltaDecoder = new DeltaDecoder();
+
+    /**
+     * The newest received packet of each key of each conflated registration, until its handler runs.
+     */
+    private final ConcurrentHashMap<ConflationKey, PendingPacket> conflatedPackets = new ConcurrentHashMap<>();
+
+    /**
+     * The channels on which a referenced frame is being fetched, with the frames that arrived after its reference.
+     */
+    private final ConcurrentHashMap<ByteBuffer, HeldFrames> heldChannels = new ConcurrentHashMap<>();
+
+    private final PacketRegistry registry;
+    private final PacketMetrics metrics;
+    private final @Nullable MetricsJmx jmx;
+
+    /**
+     * The subscription of each subscribed channel, completed once frames sent to it are received.
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> subscriptions = new ConcurrentHashMap<>();
+
+    private final RequestTracker requests;
+    private final String replyChannel;
+    private final byte[] replyChannelBytes;
+    private final CompletableFuture<Void> replySubscription;
 
     public PacketService(@NonNull RedisClient redisClient, @NonNull String baseChannel) {
-        this.baseChannel = baseChannel;
-        this.executor = new ThreadPoolExecutor(
-                1, 2, 30,
-                TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
-                new DefaultThreadFactory("packet-messaging"));
+        this(redisClient, baseChannel, PacketBridgeOptions.defaults());
+    }
+
+    public PacketService(@NonNull RedisClient redisClient, @NonNull String baseChannel, @NonNull PacketBridgeOptions options) {
+        this(new RedisTransport(redisClient, options), baseChannel, options);
+    }
 
-        this.sender = redisClient.connect(new ByteArrayCodec());
-        this.receiver = redisClient.connectPubSub(new ByteArrayCodec());
-        this.syncCommands = redisClient.connect().sync();
+    /**
+     * Creates a service sending and receiving packets over the given transport.
+     * The service takes ownership of the transport and closes it on {@link #shutdown()}.
+     *
+     * @param transport   the transport
+     * @param baseChannel the channel prefix of packet types without an explicit channel
+     * @param options     the tuning options
+     */
+    public PacketService(@NonNull PacketTransport transport, @NonNull String baseChannel, @NonNull PacketBridgeOptions options) {
+        this.options = options;
+        this.transport = transport;
+        this.registry = new PacketRegistry(baseChannel, options.multiplexed());
+        if (options.jmxEnabled()) {
+            this.jmx = new MetricsJmx(baseChannel + "@" + Long.toHexString(instanceId), this::metrics);
+            this.metrics = new PacketMetrics(jmx::register);
+        } else {
+            this.jmx = null;
+            this.metrics = new PacketMetrics();
+        }
 
-        receiver.addListener(this);
+        this.receiveLanes = new StripedExecutor[Priority.values().length];
+        for (Priority priority : Priority.values()) {
+            receiveLanes[priority.ordinal()] = switch (priority) {
+                case HIGH -> new StripedExecutor("packet-bridge-receive-high", options.priorityLaneParallelism(),
+                        options.receiveQueueCapacity(), options.receiveOverflowPolicy(), Thread.MAX_PRIORITY);
+                case NORMAL -> new StripedExecutor("packet-bridge-receive", options.receiveParallelism(),
+                        options.receiveQueueCapacity(), options.receiveOverflowPolicy());
+                case LOW -> new StripedExecutor("packet-bridge-receive-low", options.priorityLaneParallelism(),
+                        options.receiveQueueCapacity(), options.receiveOverflowPolicy(), Thread.MIN_PRIORITY);
+            };
+        }
+        this.compressor = new PacketCompressor(options.compressionThreshold(), options.compressionLevel(),
+                options.maxDecompressedBytes(), options.bufferMaxRetainedCapacity());
+        this.bufferPool = new PacketBufferPool(
+                options.bufferInitialCapacity(), options.bufferMaxRetainedCapacity(), options.directBuffers());
+        this.deltaEncoder = new DeltaEncoder(options.deltaKeyframeInterval());
+        this.coalescer = new PacketCoalescer(bufferPool, options.bufferInitialCapacity(), options.coalesceMaxBytes(),
+                options.coalesceLinger(), this::publishBatch);
+        this.conflater = new PacketConflater(options.conflationWindow(), this::publishConflated);
+        this.reassembler = new FrameReassembler(options.chunkReassemblyTimeout(), options.maxReassemblyBytes());
+
+        this.requests = new RequestTracker();
+        this.replyChannel = baseChannel + ":reply:" + UUID.randomUUID();
+        this.replyChannelBytes = replyChannel.getBytes();
+
+        transport.start(this::receive);
+        this.replySubscription = transport.subscribe(replyChannelBytes, Delivery.BROADCAST);
     }
 
     /**
@@ -64,10 +194,176 @@ public class PacketService extends RedisPubSubAdapter<byte[], byte[]> implements
      * @param <T>           the type of packet
      */
     public <T extends Packet> void register(@NonNull Class<T> packetClazz, @NonNull PacketHandler<T> packetHandler) {
-        String channel = getPacketChannel(packetClazz);
+        subscribe(registry.register(packetClazz, packetHandler));
+    }
 
-        packetHandlers.put(channel, packetHandler);
-        receiver.async().subscribe(channel.getBytes());
+    /**
+     * Registers a packet handler for a specific packet class, creating received
+     * packets with the given factory instead of the class's no-arg constructor.
+     *
+     * @param packetClazz   the class of the packet
+     * @param factory       creates empty packet instances
+     * @param packetHandler the handler to process received packets
+     * @param <T>           the type of packet
+     */
+    public <T extends Packet> void register(@NonNull Class<T> packetClazz, @NonNull Supplier<T> factory,
+                                            @NonNull PacketHandler<T> packetHandler) {
+        subscribe(registry.register(packetClazz, factory, packetHandler));
+    }
+
+    /**
+     * Registers a packet handler for a specific packet class that only handles the newest received
+     * packet of each key. Packets superseded while waiting for the handler are skipped, so a handler
+     * falling behind catches up with the latest state instead of working through stale updates.
+     * Types declared {@link PacketInfo#conflate() conflated} are handled this way by every handler.
+     *
+     * @param packetClazz   the class of the packet
+     * @param packetHandler the handler to process received packets
+     * @param <T>           the type of packet
+     * @throws IllegalArgumentException if the packet class is a stream type
+     */
+    public <T extends Packet> void registerConflated(@NonNull Class<T> packetClazz, @NonNull PacketHandler<T> packetHandler) {
+        subscribe(registry.registerConflated(packetClazz, packetHandler));
+    }
+
+    /**
+     * Registers a handler answering requests of a specific packet class.
+     * Subscribes to the corresponding channel for receiving requests.
+     *
+     * @param packetClazz the class of the request packet
+     * @param responder   the handler answering received requests
+     * @param <T>         the type of request packet
+     */
+    public <T extends Packet> void registerResponder(@NonNull Class<T> packetClazz, @NonNull RequestHandler<T, ?> responder) {
+        subscribe(registry.registerResponder(packetClazz, responder));
+    }
+
+    /**
+     * Registers a handler for the packet class of each handler and subscribes every channel not
+     * subscribed yet with a single command, rather than one command per channel.
+     *
+     * @param handlers the handlers, each registered for its {@link PacketHandler#getPacketClass() packet class}
+     * @return a future completed once the channels of every handler, and the reply channel, are subscribed
+     */
+    public CompletableFuture<Void> registerAll(@NonNull Collection<? extends PacketHandler<?>> handlers) {
+        List<PacketType<?>> types = new ArrayList<>(handlers.size());
+        for (PacketHandler<?> handler : handlers) {
+            types.add(register(handler).type());
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(types.size() + 1);
+        futures.add(replySubscription);
+
+        List<PacketType<?>> subscribing = new ArrayList<>();
+        CompletableFuture<Void> subscribed = new CompletableFuture<>();
+        for (PacketType<?> type : types) {
+            CompletableFuture<Void> existing = subscriptions.putIfAbsent(type.channel(), subscribed);
+            if (existing == null) {
+                subscribing.add(type);
+            }
+
+            futures.add(existing != null ? existing : subscribed);
+        }
+
+        if (!subscribing.isEmpty()) {
+            List<byte[]> channels = subscribing.stream().map(PacketType::channelBytes).toList();
+            List<Delivery> deliveries = subscribing.stream().map(PacketType::delivery).toList();
+            subscribeAll(channels, deliveries).whenComplete((ignored, throwable) -> {
+                if (throwable != null) {
+                    logger.error("Failed to subscribe to {} channels: {}", channels.size(), throwable.getMessage());
+                    subscribed.completeExceptionally(throwable);
+                } else {
+                    subscribed.complete(null);
+                }
+            });
+        } else {
+            subscribed.complete(null);
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private <T extends Packet> PacketRegistration<T> register(PacketHandler<T> handler) {
+        return registry.register(handler.getPacketClass(), handler);
+    }
+
+    private CompletableFuture<Void> subscribeAll(List<byte[]> channels, List<Delivery> deliveries) {
+        try {
+            return transport.subscribeAll(channels, deliveries);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Resolves every packet type listed by the {@link PacketIndex packet index} up front, so the first
+     * packet of each type is not slowed down by reading its annotation, finding its codec or
+     * generating its factory.
+     *
+     * @param classLoader the class loader to read the index and load the packet classes with
+     * @return the resolved packet types
+     * @throws IllegalStateException    if the index lists a class that cannot be loaded
+     * @throws IllegalArgumentException if an indexed class is not a valid packet type
+     */
+    public List<PacketType<?>> preloadTypes(@NonNull ClassLoader classLoader) {
+        return registry.preload(PacketIndex.load(classLoader));
+    }
+
+    private void subscribe(PacketRegistration<?> registration) {
+        PacketType<?> type = registration.type();
+        CompletableFuture<Void> subscribed = new CompletableFuture<>();
+        // Multiplexed types share their channel, which only needs subscribing once
+        if (subscriptions.putIfAbsent(type.channel(), subscribed) != null) return;
+
+        transport.subscribe(type.channelBytes(), type.delivery()).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                logger.error("Failed to subscribe to channel {}: {}", type.channel(), throwable.getMessage());
+                subscribed.completeExceptionally(throwable);
+            } else {
+                subscribed.complete(null);
+            }
+        });
+    }
+
+    /**
+     * Trains a compression dictionary from sample packets of one type and loads it.
+     * The returned dictionary must also be loaded, through {@link #loadDictionary(Class, byte[])},
+     * by every other service that sends or receives the type.
+     *
+     * @param packetClazz    the class of the packet
+     * @param samples        packets representative of the type's traffic
+     * @param dictionarySize the maximum dictionary size in bytes
+     * @param <T>            the type of packet
+     * @return the trained dictionary
+     */
+    public <T extends Packet> byte[] trainDictionary(@NonNull Class<T> packetClazz, @NonNull Collection<? extends T> samples,
+                                                     int dictionarySize) {
+        PacketType<T> type = registry.typeIfAnnotated(packetClazz);
+        List<byte[]> payloads = new ArrayList<>(samples.size());
+        for (T sample : samples) {
+            PacketByteBufferOutput buffer = new PacketByteBufferOutput();
+            if (type != null) {
+                type.write(sample, buffer);
+            } else {
+                sample.write(buffer);
+            }
+
+            payloads.add(buffer.toByteArray());
+        }
+
+        byte[] dictionary = PacketCompressor.trainDictionary(payloads, dictionarySize);
+        compressor.loadDictionary(packetClazz, dictionary);
+        return dictionary;
+    }
+
+    /**
+     * Loads a compression dictionary for a packet type.
+     *
+     * @param packetClazz the class of the packet
+     * @param dictionary  the dictionary, as returned by {@link #trainDictionary(Class, Collection, int)}
+     */
+    public void loadDictionary(@NonNull Class<? extends Packet> packetClazz, byte @NonNull [] dictionary) {
+        compressor.loadDictionary(packetClazz, dictionary);
     }
 
     /**
@@ -76,130 +372,1192 @@ public class PacketService extends RedisPubSubAdapter<byte[], byte[]> implements
      * @param operation Function that receives {@link RedisCommands} and returns a result of type {@code T}.
      * @param <T>       The type of the result returned by the operation.
      * @return The result of executing the {@code operation} function.
+     * @throws UnsupportedOperationException if the transport does not run Redis commands
      */
     public <T> T executeOperation(@NonNull Function<RedisCommands<String, String>, T> operation) {
-        return operation.apply(syncCommands);
+        return redis().executeOperation(operation);
+    }
+
+    /**
+     * Executes a provided operation using the asynchronous Redis commands of the shared
+     * command connection, without blocking the calling thread.
+     *
+     * @param operation Function that receives {@link RedisAsyncCommands} and returns the future of its result.
+     * @param <T>       The type of the result returned by the operation.
+     * @return A future completed with the result of the operation.
+     * @throws UnsupportedOperationException if the transport does not run Redis commands
+     */
+    public <T> CompletableFuture<T> executeOperationAsync(
+            @NonNull Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<T>> operation) {
+        return redis().executeOperationAsync(operation);
+    }
+
+    /**
+     * Executes several commands in a single pipelined write, on a pooled connection.
+     *
+     * @param commands Functions that each issue one command through {@link RedisAsyncCommands} and return its future.
+     * @return A future completed with the result of each command, in order, or failed with the first failure.
+     * @throws UnsupportedOperationException if the transport does not run Redis commands
+     */
+    public CompletableFuture<List<Object>> executeBatch(
+            @NonNull List<Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<?>>> commands) {
+        return redis().executeBatch(commands);
+    }
+
+    /**
+     * Executes a provided operation on a pooled connection that no other caller uses until the
+     * operation returns. Suited to blocking commands, such as {@code BLPOP}, and transactions.
+     * The calling thread waits for a connection if every pooled connection is in use.
+     *
+     * @param operation Function that receives {@link RedisCommands} and returns a result of type {@code T}.
+     * @param <T>       The type of the result returned by the operation.
+     * @return The result of executing the {@code operation} function.
+     * @throws UnsupportedOperationException if the transport does not run Redis commands
+     */
+    public <T> T executePooled(@NonNull Function<RedisCommands<String, String>, T> operation) {
+        return redis().executePooled(operation);
+    }
+
+    /**
+     * Executes a provided operation using synchronous Redis commands that take keys and values as raw bytes.
+     *
+     * @param operation Function that receives {@link RedisCommands} and returns a result of type {@code T}.
+     * @param <T>       The type of the result returned by the operation.
+     * @return The result of executing the {@code operation} function.
+     * @throws UnsupportedOperationException if the transport does not run Redis commands
+     */
+    public <T> T executeBinaryOperation(@NonNull Function<RedisCommands<byte[], byte[]>, T> operation) {
+        return redis().executeBinaryOperation(operation);
+    }
+
+    /**
+     * Executes a provided operation using asynchronous Redis commands that take keys and values as raw bytes.
+     *
+     * @param operation Function that receives {@link RedisAsyncCommands} and returns the future of its result.
+     * @param <T>       The type of the result returned by the operation.
+     * @return A future completed with the result of the operation.
+     * @throws UnsupportedOperationException if the transport does not run Redis commands
+     */
+    public <T> CompletableFuture<T> executeBinaryOperationAsync(
+            @NonNull Function<RedisAsyncCommands<byte[], byte[]>, ? extends CompletionStage<T>> operation) {
+        return redis().executeBinaryOperationAsync(operation);
+    }
+
+    /**
+     * Reads the value of a string key. With a {@link PacketBridgeOptions#nearCacheMaxSize() near cache},
+     * values are kept in memory until Redis reports that the key changed or the
+     * {@link PacketBridgeOptions#nearCacheTtl() time to live} passes.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the key does not exist
+     * @throws UnsupportedOperationException if the transport does not run Redis commands
+     */
+    public @Nullable String cachedGet(@NonNull String key) {
+        return redis().cachedGet(key);
+    }
+
+    /**
+     * Reads the value of a hash field, through the near cache like {@link #cachedGet(String)}.
+     * Any change to the hash drops all of its cached fields.
+     *
+     * @param key   the key of the hash
+     * @param field the field
+     * @return the value, or {@code null} if the key or the field does not exist
+     * @throws UnsupportedOperationException if the transport does not run Redis commands
+     */
+    public @Nullable String cachedHget(@NonNull String key, @NonNull String field) {
+        return redis().cachedHget(key, field);
+    }
+
+    private RedisCommandAccess redis() {
+        return transport.redisCommands().orElseThrow(() -> new UnsupportedOperationException(
+                transport.getClass().getSimpleName() + " does not run Redis commands"));
+    }
+
+    /**
+     * Returns the statistics of the near cache.
+     *
+     * @return the statistics, all zero without a near cache
+     */
+    public NearCacheStats nearCacheStats() {
+        return transport.nearCacheStats();
     }
 
     /**
      * Sends a packet using its associated channel.
+     * Packets of stream types are appended to the stream named after the channel instead.
+     * <p>
+     * With {@link PacketBridgeOptions#localDelivery() local delivery}, broadcast packets of a
+     * type this service handles itself are also passed straight to the local handler, which
+     * receives the very instance that was sent; this service then ignores the copy coming
+     * back from the transport.
+     * </p>
+     * <p>
+     * Packets of {@link PacketType#coalesce() coalesced} types are packed into a frame shared
+     * with the packets of the same type sent shortly before or after them. Packets of
+     * {@link PacketType#delta() delta} types are sent as differences from the previous packet
+     * with the same key. Packets of {@link PacketType#conflate() conflated} types are held for the
+     * {@link PacketBridgeOptions#conflationWindow() conflation window}, and only the newest packet
+     * of each key sent meanwhile is published.
+     * </p>
      *
      * @param packet the packet to send
+     * @return a future completed with the number of subscribers that received the packet,
+     * or {@code 1} once a stream packet was appended
      */
-    public void sendPacket(@NonNull Packet packet) {
-        String channel = getPacketChannel(packet.getClass());
-        sendPacket(packet, channel);
+    public CompletableFuture<Long> sendPacket(@NonNull Packet packet) {
+        PacketType<?> type = registry.type(packet.getClass());
+
+        PacketRegistration<?> local = localRegistration(type);
+        CompletableFuture<Long> future;
+        if (type.coalesce()) {
+            future = withTimeout(coalescer.add(type, packet, local != null), type.channel(), metrics.type(type), System.nanoTime());
+        } else if (type.conflate()) {
+            TypeMetrics typeMetrics = metrics.type(type);
+            future = withTimeout(conflater.add(type, packet, local != null, typeMetrics::onConflated), type.channel(),
+                    typeMetrics, System.nanoTime());
+        } else if (type.delta()) {
+            future = withTimeout(sendDelta(packet, type, local != null), type.channel(), metrics.type(type), System.nanoTime());
+        } else {
+            future = send(packet, header(FrameHeader.plain(), type, local != null), type.channelBytes(), type.channel(),
+                    type.delivery(), type);
+        }
+
+        if (local != null) {
+            deliverLocally(local, packet);
+        }
+
+        return future;
     }
 
     /**
      * Sends a packet to a specific channel.
-     * The packet is serialized and compressed before being published.
+     * The packet is serialized and compressed on the calling thread, then queued
+     * on the publish pipeline, which flushes once its batch fills or its linger time elapses.
      *
      * @param packet  the packet to send
      * @param channel the channel to publish the packet to
+     * @return a future completed with the number of subscribers that received the packet
      */
-    public void sendPacket(@NonNull Packet packet, @NonNull String channel) {
-        CompletableFuture.runAsync(() -> {
-            PacketByteBufferOutput buffer = new PacketByteBufferOutput();
-            packet.write(buffer);
-            byte[] payload = buffer.toByteArray();
-
-            sender.sync().publish(channel.getBytes(), compress(payload));
-        }, executor)
-                .orTimeout(5 * 1000, TimeUnit.MILLISECONDS)
-                .exceptionally(throwable -> {
-                    logger.error("Failed to send packet to channel {}: {}", channel, throwable.getMessage());
-                    return null;
-                });
+    public CompletableFuture<Long> sendPacket(@NonNull Packet packet, @NonNull String channel) {
+        FrameHeader header = FrameHeader.plain();
+        PacketType<?> type;
+        try {
+            type = typeOf(packet);
+            if (options.multiplexed()) {
+                header = header(header, registry.type(packet.getClass()), false);
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return send(packet, envelope(header, priority(type)), channel.getBytes(), channel, Delivery.BROADCAST, type);
+    }
+
+    private CompletableFuture<Long> send(Packet packet, FrameHeader header, byte[] channelBytes, String channel, Delivery delivery,
+                                         @Nullable PacketType<?> type) {
+        TypeMetrics typeMetrics = type != null ? metrics.type(type) : null;
+        CompletableFuture<Long> future;
+        long startNanos = 0;
+        try {
+            byte[] frame = serialize(packet, header, type, null);
+            startNanos = System.nanoTime();
+            future = publish(channelBytes, channel, frame, delivery, priority(type));
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        return withTimeout(future, channel, typeMetrics, startNanos);
+    }
+
+    /**
+     * Sends a packet of a delta type as a keyframe or as a difference from the previous packet of its key.
+     * The chain of the key stays locked until the frame is queued, so frames reach the transport in version order.
+     */
+    private CompletableFuture<Long> sendDelta(Packet packet, PacketType<?> type, boolean local) {
+        FrameHeader header = header(FrameHeader.plain(), type, local);
+        header = (header.hasEnvelope() ? header : header.withEnvelope(senderId, type.priority().ordinal())).withDelta();
+
+        DeltaEncoder.Chain chain = deltaEncoder.chain(type, packet);
+        CompletableFuture<Long> future;
+        synchronized (chain) {
+            try {
+                byte[] frame = serialize(packet, header, type, chain);
+                future = publish(type.channelBytes(), type.channel(), frame, type.delivery(), type.priority());
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+        }
+
+        // Receivers cannot apply differences from a packet they never got
+        return future.whenComplete((receivers, throwable) -> {
+            if (throwable != null) {
+                chain.reset();
+            }
+        });
     }
 
     /**
-     * Handles incoming messages from subscribed channels.
-     * Deserializes and decompresses the packet, then delegates to the appropriate handler.
+     * Publishes the newest packet of a {@link PacketConflater} window, as a difference if its type is delta encoded.
+     */
+    private CompletableFuture<Long> publishConflated(PacketType<?> type, Packet packet, boolean local) {
+        if (type.delta()) {
+            return sendDelta(packet, type, local);
+        }
+
+        byte[] frame = serialize(packet, header(FrameHeader.plain(), type, local), type, null);
+        return publish(type.channelBytes(), type.channel(), frame, type.delivery(), type.priority());
+    }
+
+    /**
+     * Sends several packets, each to its associated channel.
+     * The packets of each priority are queued on the publish pipeline of its lane together and share its flushes.
+     * Packets of coalesced and conflated types are packed into frames or held as by {@link #sendPacket(Packet)}.
+     *
+     * A packet that cannot be sent fails only its own future, and is not handled locally.
      *
-     * @param channel the channel from which the message was received
-     * @param message the received message payload
+     * @param packets the packets to send
+     * @return a future for each packet in iteration order, completed with the number of subscribers that received it
      */
-    @SuppressWarnings("unchecked")
-    @Override
-    public void message(byte[] channel, byte[] message) {
-        executor.execute(() -> {
+    public List<CompletableFuture<Long>> sendPackets(@NonNull Collection<? extends Packet> packets) {
+        Packet[] sent = packets.toArray(Packet[]::new);
+        PacketType<?>[] types = new PacketType<?>[sent.length];
+        PacketRegistration<?>[] locals = new PacketRegistration<?>[sent.length];
+        List<CompletableFuture<Long>> futures = new ArrayList<>(sent.length);
+        PendingBatch[] batches = new PendingBatch[Priority.values().length];
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < sent.length; i++) {
+            Packet packet = sent[i];
+            try {
+                PacketType<?> type = types[i] = registry.type(packet.getClass());
+                PacketRegistration<?> local = localRegistration(type);
+
+                if (type.coalesce()) {
+                    futures.add(coalescer.add(type, packet, local != null));
+                } else if (type.conflate()) {
+                    futures.add(conflater.add(type, packet, local != null, metrics.type(type)::onConflated));
+                } else if (type.delta()) {
+                    futures.add(sendDelta(packet, type, local != null));
+                } else {
+                    byte[] frame = serialize(packet, header(FrameHeader.plain(), type, local != null), type, null);
+                    PendingBatch batch = batches[type.priority().ordinal()];
+                    if (batch == null) {
+                        batch = batches[type.priority().ordinal()] = new PendingBatch();
+                    }
+
+                    batch.indices.add(i);
+                    batch.types.add(type);
+                    batch.frames.add(frame);
+                    futures.add(null);
+                }
+
+                locals[i] = local;
+            } catch (RuntimeException e) {
+                if (types[i] == null) {
+                    logger.error("Failed to send packet {}: {}", packet.getClass().getName(), e.getMessage());
+                }
+
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        for (Priority priority : Priority.values()) {
+            PendingBatch batch = batches[priority.ordinal()];
+            if (batch == null) continue;
+
             try {
-                PacketHandler<?> packetHandler = packetHandlers.get(new String(channel));
-                if (packetHandler == null) return;
+                List<CompletableFuture<Long>> results = publishAll(batch, priority);
+                for (int i = 0; i < results.size(); i++) {
+                    futures.set(batch.indices.get(i), results.get(i));
+                }
+            } catch (RuntimeException e) {
+                // Packets that never reached the transport are not handled locally either
+                for (int index : batch.indices) {
+                    futures.set(index, CompletableFuture.failedFuture(e));
+                    locals[index] = null;
+                }
+            }
+        }
+
+        for (int i = 0; i < sent.length; i++) {
+            PacketType<?> type = types[i];
+            if (type != null) {
+                futures.set(i, withTimeout(futures.get(i), type.channel(), metrics.type(type), startNanos));
+            }
+
+            if (locals[i] != null) {
+                deliverLocally(locals[i], sent[i]);
+            }
+        }
+
+        return futures;
+    }
+
+    /**
+     * Sends a request and waits for a single reply.
+     * <p>
+     * The request is published to the channel of its type with a correlation id and the
+     * reply channel of this service in its frame header. The first reply carrying the
+     * correlation id completes the future; replies from further responders are ignored.
+     * </p>
+     *
+     * @param request      the request to send
+     * @param responseType the class of the expected reply, which must have a {@link com.pehenrii.packet.bridge.annotation.PacketInfo} annotation
+     * @param timeout      how long to wait for the reply
+     * @param <R>          the type of reply packet
+     * @return a future completed with the reply, or failed with a {@link java.util.concurrent.TimeoutException}
+     * if none arrives in time, or a {@link PacketRequestException} if the responder failed or nothing is
+     * subscribed to the request channel
+     */
+    public <R extends Packet> CompletableFuture<R> request(@NonNull Packet request, @NonNull Class<R> responseType,
+                                                           @NonNull Duration timeout) {
+        PacketType<?> type = registry.type(request.getClass());
+        RequestTracker.PendingRequest<R> pending = requests.open(registry.type(responseType), timeout, type.channel());
+        long correlationId = pending.correlationId();
+
+        byte[] frame;
+        try {
+            frame = serialize(request, header(FrameHeader.request(correlationId, replyChannelBytes), type, false), type, null);
+        } catch (RuntimeException e) {
+            requests.fail(correlationId, e);
+            return pending.future();
+        }
+
+        replySubscription
+                .thenCompose(ignored -> publish(type.channelBytes(), type.channel(), frame, type.delivery(), type.priority()))
+                .whenComplete((receivers, throwable) -> {
+                    if (throwable != null) {
+                        requests.fail(correlationId, throwable);
+                    } else if (receivers == 0) {
+                        requests.fail(correlationId, new PacketRequestException(
+                                "No service is subscribed to channel " + type.channel()));
+                    }
+                });
+
+        return pending.future();
+    }
+
+    /**
+     * Finds the registration a sent packet can be handed to directly, if local delivery is
+     * enabled. Stream packets are never delivered locally, since another instance of the
+     * consumer group may be the one to handle them.
+     */
+    private PacketRegistration<?> localRegistration(PacketType<?> type) {
+        if (!options.localDelivery() || type.stream()) return null;
+        return registry.lookup(type);
+    }
+
+    private FrameHeader header(FrameHeader header, PacketType<?> type, boolean local) {
+        if (type.multiplexed()) {
+            header = header.withType(type.typeId());
+        }
+
+        if (!type.stream()) {
+            header = envelope(header, type.priority());
+        }
+
+        return local ? header.withOrigin(instanceId) : header;
+    }
+
+    private FrameHeader envelope(FrameHeader header, Priority priority) {
+        return options.frameEnvelope() ? header.withEnvelope(senderId, priority.ordinal()) : header;
+    }
+
+    /**
+     * Hands a frame to the transport, in the {@link PacketBridgeOptions#largePayloadMode() large payload mode}
+     * if it exceeds the threshold. The transport stamps the sequence number and send time of an envelope
+     * where the frame takes its place on its lane, so sequence numbers reach receivers in order. Chunks
+     * of one frame could reach different consumers of a stream, so stream frames are always claim-checked.
+     */
+    private CompletableFuture<Long> publish(byte[] channelBytes, String channel, byte[] frame, Delivery delivery,
+                                            Priority priority) {
+        boolean envelope = FrameHeader.hasEnvelope(frame);
+        if (!isLarge(frame)) {
+            return envelope
+                    ? transport.publish(channelBytes, frame, delivery, priority, () -> stamp(channel, priority, frame, 0))
+                    : transport.publish(channelBytes, frame, delivery, priority);
+        }
+
+        if (options.largePayloadMode() == LargePayloadMode.CHUNKED && delivery != Delivery.STREAM) {
+            // The envelope is stamped in the first chunk, so it must hold all of it
+            int sliceSize = Math.max(options.chunkSize(), FrameHeader.ENVELOPE_END);
+            List<byte[]> chunks = LargeFrame.split(frame, ThreadLocalRandom.current().nextLong(), sliceSize);
+            List<byte[]> channels = Collections.nCopies(chunks.size(), channelBytes);
+            List<Delivery> deliveries = Collections.nCopies(chunks.size(), delivery);
+            byte[] first = chunks.get(0);
+            List<CompletableFuture<Long>> futures = envelope
+                    ? transport.publishAll(channels, chunks, deliveries, priority,
+                            () -> stamp(channel, priority, first, LargeFrame.CHUNK_HEADER_SIZE))
+                    : transport.publishAll(channels, chunks, deliveries, priority);
+
+            // Receivers handle the frame once its last chunk arrives
+            CompletableFuture<Long> last = futures.get(futures.size() - 1);
+            return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(ignored -> last.join());
+        }
+
+        byte[] key = payloadKey(channelBytes);
+        byte[] reference = LargeFrame.reference(key, frame);
+        Runnable stamp = () -> {
+            if (envelope) {
+                int sequence = nextSequence(channel, priority);
+                long timeMillis = System.currentTimeMillis();
+                FrameHeader.stamp(frame, sequence, timeMillis);
+                LargeFrame.stampReference(reference, sequence, timeMillis);
+            }
+        };
+
+        return transport.publishStored(key, frame, options.claimCheckTtl(), channelBytes, reference, delivery, priority,
+                stamp);
+    }
+
+    /**
+     * Hands the frames of a batch to the transport on the lane of their priority, stamping them as by {@link #publish}.
+     */
+    private List<CompletableFuture<Long>> publishAll(PendingBatch batch, Priority priority) {
+        List<byte[]> frames = batch.frames;
+        List<byte[]> channels = new ArrayList<>(frames.size());
+        List<Delivery> deliveries = new ArrayList<>(frames.size());
+        for (PacketType<?> type : batch.types) {
+            channels.add(type.channelBytes());
+            deliveries.add(type.delivery());
+        }
+
+        boolean large = false;
+        boolean envelope = false;
+        for (byte[] frame : frames) {
+            large |= isLarge(frame);
+            envelope |= FrameHeader.hasEnvelope(frame);
+        }
+
+        if (large) {
+            // Large frames cannot join the single write of the others
+            List<CompletableFuture<Long>> futures = new ArrayList<>(frames.size());
+            for (int i = 0; i < frames.size(); i++) {
+                String channel = batch.types.get(i).channel();
+                futures.add(publish(channels.get(i), channel, frames.get(i), deliveries.get(i), priority));
+            }
+
+            return futures;
+        }
+
+        if (!envelope) {
+            return transport.publishAll(channels, frames, deliveries, priority);
+        }
+
+        return transport.publishAll(channels, frames, deliveries, priority, () -> {
+            for (int i = 0; i < frames.size(); i++) {
+                if (FrameHeader.hasEnvelope(frames.get(i))) {
+                    stamp(batch.types.get(i).channel(), priority, frames.get(i), 0);
+                }
+            }
+        });
+    }
+
+    private boolean isLarge(byte[] frame) {
+        int threshold = options.largePayloadThreshold();
+        return threshold > 0 && frame.length > threshold;
+    }
+
+    private static byte[] payloadKey(byte[] channel) {
+        byte[] suffix = (":payload:" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        byte[] key = Arrays.copyOf(channel, channel.length + suffix.length);
+        System.arraycopy(suffix, 0, key, channel.length, suffix.length);
+        return key;
+    }
 
-                Class<?> packetClass = packetHandler.getPacketClass();
-                Constructor<?> constructor = packetClass.getDeclaredConstructor();
-                constructor.setAccessible(true);
-                Packet packet = (Packet) constructor.newInstance();
+    /**
+     * Stamps the envelope of a frame starting at an offset into an array. Only called by the transport,
+     * where the frame takes its place on its lane.
+     */
+    private void stamp(String channel, Priority priority, byte[] array, int offset) {
+        FrameHeader.stamp(array, offset, nextSequence(channel, priority), System.currentTimeMillis());
+    }
 
-                PacketByteBufferInput buffer = new PacketByteBufferInput(decompress(message));
-                packet.read(buffer);
+    private int nextSequence(String channel, Priority priority) {
+        return sequences.computeIfAbsent(channel, ignored -> new AtomicIntegerArray(Priority.values().length))
+                .getAndIncrement(priority.ordinal());
+    }
 
-                ((PacketHandler<Packet>) packetHandler).onReceive(packet);
+    private void deliverLocally(PacketRegistration<?> registration, Packet packet) {
+        PacketType<?> type = registration.type();
+        try {
+            lane(type).execute(type.channelHash(), () -> route(registration, packet, FrameHeader.plain(), NO_ACKNOWLEDGEMENT));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejected local packet for channel {}: {}", type.channel(), e.getMessage());
+        }
+    }
 
-            } catch (InstantiationException
-                     | IllegalAccessException
-                     | NoSuchMethodException
-                     | InvocationTargetException e) {
-                logger.error("Failed to process packet from channel {}: {}", new String(channel), e.getMessage());
+    private static Priority priority(@Nullable PacketType<?> type) {
+        return type != null ? type.priority() : Priority.NORMAL;
+    }
+
+    /**
+     * Returns the type of a packet sent outside its type's channel, which need not have one.
+     */
+    private @Nullable PacketType<?> typeOf(Packet packet) {
+        return registry.typeIfAnnotated(packet.getClass());
+    }
+
+    /**
+     * Serializes and compresses a packet into a frame. Packets with a generated codec are
+     * written through it, into a buffer reserved at their exact size up front. Packets sent
+     * on a delta chain are encoded into a delta record before compression.
+     */
+    private byte[] serialize(Packet packet, FrameHeader header, @Nullable PacketType<?> type,
+                             DeltaEncoder.@Nullable Chain chain) {
+        TypeMetrics typeMetrics = type != null ? metrics.type(type) : null;
+        try (PacketByteBufferOutput buffer = bufferPool.acquire()) {
+            long startNanos = System.nanoTime();
+            if (type != null) {
+                int size = type.sizeOf(packet);
+                if (size > 0) {
+                    buffer.reserve(size);
+                }
+
+                type.write(packet, buffer);
+            } else {
+                packet.write(buffer);
+            }
+
+            long writtenNanos = System.nanoTime();
+            byte[] frame;
+            if (chain != null) {
+                try (PacketByteBufferOutput record = bufferPool.acquire()) {
+                    deltaEncoder.encode(chain, buffer.toByteArray(), record);
+                    frame = compress(packet.getClass(), record, header.size());
+                }
+            } else {
+                frame = compress(packet.getClass(), buffer, header.size());
             }
+
+            if (typeMetrics != null) {
+                typeMetrics.serializeLatency().record(writtenNanos - startNanos);
+                typeMetrics.compressLatency().recordSince(writtenNanos);
+                typeMetrics.onCompressed(buffer.size(), frame.length - header.size());
+            }
+
+            header.write(frame);
+            return frame;
+        }
+    }
+
+    /**
+     * Compresses a frame of packets packed by the {@link PacketCoalescer} as a whole and publishes it.
+     */
+    private CompletableFuture<Long> publishBatch(PacketType<?> type, PacketByteBufferOutput batch, boolean local) {
+        FrameHeader header = header(FrameHeader.batch(), type, local);
+        TypeMetrics typeMetrics = metrics.type(type);
+
+        long startNanos = System.nanoTime();
+        byte[] frame = compress(type.packetClass(), batch, header.size());
+        typeMetrics.compressLatency().recordSince(startNanos);
+        typeMetrics.onCompressed(batch.size(), frame.length - header.size());
+
+        header.write(frame);
+        return publish(type.channelBytes(), type.channel(), frame, type.delivery(), type.priority());
+    }
+
+    /**
+     * Bounds the wait for the transport and records the outcome of the send.
+     *
+     * @param startNanos when the packet was handed to the transport or coalescer
+     */
+    private CompletableFuture<Long> withTimeout(CompletableFuture<Long> future, String channel,
+                                                @Nullable TypeMetrics typeMetrics, long startNanos) {
+        return future
+                .orTimeout(options.publishTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((receivers, throwable) -> {
+                    if (throwable != null) {
+                        logger.error("Failed to send packet to channel {}: {}", channel, throwable.getMessage());
+                    }
+
+                    if (typeMetrics == null) return;
+                    if (throwable == null) {
+                        typeMetrics.onSent();
+                        typeMetrics.publishLatency().recordSince(startNanos);
+                    } else if (unwrap(throwable) instanceof PacketDroppedException) {
+                        typeMetrics.onDropped();
+                    } else {
+                        typeMetrics.onFailed();
+                    }
+                });
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    /**
+     * Handles frames received from subscribed channels.
+     * The packet is decoded on the receive stripe of its channel, so packets of one channel
+     * are decoded in order. {@link KeyedPacket Keyed} packets are then handed to the stripe
+     * of their key, other packets are handled right away on the channel stripe.
+     * Frames are acknowledged once handled; frames that are dropped or rejected are not,
+     * so transports that redeliver unacknowledged frames will deliver them again.
+     * Frames that arrive while the frame of an earlier reference on their channel is fetched
+     * are held back until it was received.
+     *
+     * @param channel     the channel from which the frame was received
+     * @param message     the received frame
+     * @param acknowledge acknowledges the frame to the transport
+     */
+    private void receive(byte[] channel, byte[] message, Runnable acknowledge) {
+        if (LargeFrame.isChunk(message)) {
+            message = reassemble(channel, message);
+            if (message == null) {
+                acknowledge.run();
+                return;
+            }
+        }
+
+        boolean reference = LargeFrame.isReference(message);
+        byte[] envelope = reference ? referenceEnvelope(message) : message;
+        if (envelope != null && FrameHeader.hasEnvelope(envelope)) {
+            sequenceTracker.track(channel, envelope);
+        }
+
+        if (!heldChannels.isEmpty() && holdBack(channel, message, acknowledge)) return;
+
+        if (reference) {
+            fetch(channel, message, acknowledge, null);
+        } else {
+            deliver(channel, message, acknowledge);
+        }
+    }
+
+    /**
+     * Hands a complete frame to the handler of its channel, or to the request awaiting it.
+     */
+    private void deliver(byte[] channel, byte[] message, Runnable acknowledge) {
+        if (Arrays.equals(channel, replyChannelBytes)) {
+            receiveResponse(message);
+            acknowledge.run();
+            return;
+        }
+
+        PacketRegistration<?> registration = registry.lookup(channel);
+        if (registration == null && options.multiplexed()) {
+            registration = lookupMultiplexed(channel, message);
+        }
+
+        if (registration == null) {
+            acknowledge.run();
+            return;
+        }
+
+        dispatch(registration, message, acknowledge);
+    }
+
+    private byte @Nullable [] reassemble(byte[] channel, byte[] chunk) {
+        try {
+            return reassembler.add(channel, chunk);
+        } catch (PacketDecodeException e) {
+            logger.error("Failed to decode chunk from channel {}: {}", new String(channel), e.getMessage());
+            return null;
+        }
+    }
+
+    private byte @Nullable [] referenceEnvelope(byte[] reference) {
+        try {
+            return LargeFrame.referenceEnvelope(reference);
+        } catch (PacketDecodeException e) {
+            // Reported once its frame is fetched
+            return null;
+        }
+    }
+
+    /**
+     * Fetches the frame a reference points to and delivers it, unless nothing here handles its channel.
+     * Frames received on the channel meanwhile are held back, and delivered in order once the frame was.
+     * Frames that cannot be fetched are not acknowledged, so transports that redeliver frames deliver
+     * their reference again.
+     *
+     * @param held the frames held back on the channel, or {@code null} to start holding them back
+     */
+    private void fetch(byte[] channel, byte[] reference, Runnable acknowledge, @Nullable HeldFrames held) {
+        boolean handled = registry.lookup(channel) != null || options.multiplexed() || Arrays.equals(channel, replyChannelBytes);
+        if (!handled) {
+            acknowledge.run();
+            if (held != null) release(held);
+            return;
+        }
+
+        byte[] key;
+        int length;
+        CompletableFuture<byte[]> fetched;
+        try {
+            key = LargeFrame.referenceKey(reference);
+            length = LargeFrame.referenceLength(reference);
+            fetched = transport.fetchPayload(key);
+        } catch (RuntimeException e) {
+            logger.error("Failed to fetch frame from channel {}: {}", new String(channel), e.getMessage());
+            if (held != null) release(held);
+            return;
+        }
+
+        HeldFrames holding = held != null ? held : new HeldFrames(ByteBuffer.wrap(channel));
+        if (held == null) {
+            heldChannels.put(holding.channel, holding);
+        }
+
+        fetched.whenComplete((frame, throwable) -> {
+            if (throwable != null) {
+                logger.error("Failed to fetch frame {} from channel {}: {}", new String(key), new String(channel),
+                        throwable.getMessage());
+            } else if (frame == null) {
+                logger.warn("Frame {} from channel {} expired before it was fetched", new String(key), new String(channel));
+                acknowledge.run();
+            } else if (frame.length != length) {
+                logger.error("Fetched frame {} from channel {} has {} bytes instead of {}", new String(key), new String(channel),
+                        frame.length, length);
+                acknowledge.run();
+            } else {
+                deliver(channel, frame, acknowledge);
+            }
+
+            release(holding);
         });
     }
 
     /**
-     * Shuts down the PacketService, closing Redis connections and the executor.
+     * Queues a frame behind the reference being fetched on its channel, if there is one. At most
+     * {@link PacketBridgeOptions#receiveQueueCapacity()} frames wait per channel; further frames are
+     * dropped unacknowledged.
+     *
+     * @return whether the frame was taken
+     */
+    private boolean holdBack(byte[] channel, byte[] message, Runnable acknowledge) {
+        HeldFrames held = heldChannels.get(ByteBuffer.wrap(channel));
+        if (held == null) return false;
+
+        synchronized (held) {
+            if (held.released) return false;
+
+            if (held.frames.size() < options.receiveQueueCapacity()) {
+                held.frames.add(new HeldFrame(message, acknowledge));
+            } else {
+                logger.warn("Dropped frame from channel {}: {} frames wait for a fetched frame",
+                        new String(channel), held.frames.size());
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Delivers the frames held back on a channel in order, until they run out or the next is another reference.
      */
-    public void shutdown() {
+    private void release(HeldFrames held) {
+        byte[] channel = held.channel.array();
+        while (true) {
+            HeldFrame next;
+            synchronized (held) {
+                next = held.frames.poll();
+                if (next == null) {
+                    held.released = true;
+                    heldChannels.remove(held.channel, held);
+                    return;
+                }
+            }
+
+            if (LargeFrame.isReference(next.message())) {
+                fetch(channel, next.message(), next.acknowledge(), held);
+                return;
+            }
+
+            deliver(channel, next.message(), next.acknowledge());
+        }
+    }
+
+    /**
+     * Finds the registration of a frame received on a multiplexed channel by the type id in its header.
+     */
+    private PacketRegistration<?> lookupMultiplexed(byte[] channel, byte[] message) {
         try {
-            sender.close();
-            receiver.close();
-            executor.shutdown();
-        } catch (Exception ignored) {
+            int typeId = FrameHeader.readTypeId(message);
+            return typeId < 0 ? null : registry.lookup(typeId);
+        } catch (PacketDecodeException e) {
+            logger.error("Failed to decode frame from channel {}: {}", new String(channel), e.getMessage());
+            return null;
         }
     }
 
     /**
-     * Retrieves the channel name for a given packet class based on its {@link PacketInfo} annotation.
+     * Returns the receive executor of the {@link PacketType#priority() priority} of a type. Packets of
+     * each lane are queued and handled on stripes of their own, so bulk packets never delay urgent ones.
+     */
+    private StripedExecutor lane(PacketType<?> type) {
+        return receiveLanes[type.priority().ordinal()];
+    }
+
+    private void dispatch(PacketRegistration<?> registration, byte[] message, Runnable onHandled) {
+        PacketType<?> type = registration.type();
+        TypeMetrics typeMetrics = metrics.type(type);
+        try {
+            if (!lane(type).execute(type.channelHash(), () -> decodeAndHandle(registration, message, onHandled),
+                    typeMetrics::onDropped)) {
+                typeMetrics.onDropped();
+            }
+        } catch (RejectedExecutionException e) {
+            typeMetrics.onDropped();
+            logger.warn("Rejected packet from channel {}: {}", type.channel(), e.getMessage());
+        }
+    }
+
+    private void decodeAndHandle(PacketRegistration<?> registration, byte[] message, Runnable onHandled) {
+        PacketType<?> type = registration.type();
+
+        FrameHeader header;
+        Packet packet;
+        try {
+            header = FrameHeader.read(message);
+            if (header.hasOrigin() && header.origin() == instanceId) {
+                // Already handed to the local handler when it was sent
+                onHandled.run();
+                return;
+            }
+
+            PacketByteBufferInput buffer = new PacketByteBufferInput(decompress(type.packetClass(), message, header.size()));
+            if (header.isBatch()) {
+                decodeAndHandleBatch(registration, buffer, header, onHandled);
+                return;
+            }
+
+            if (header.isDelta()) {
+                buffer = deltaDecoder.decode(type, header.sender(), buffer);
+                if (buffer == null) {
+                    // A difference from a packet that was missed; the chain resumes at its next keyframe
+                    metrics.type(type).onDeltaDiscarded();
+                    onHandled.run();
+                    return;
+                }
+            }
+
+            packet = type.newInstance();
+            type.read(packet, buffer);
+        } catch (RuntimeException e) {
+            metrics.type(type).onFailed();
+            logger.error("Failed to decode packet from channel {}: {}", type.channel(), e.getMessage());
+            onHandled.run();
+            return;
+        }
+
+        metrics.type(type).onReceived();
+        route(registration, packet, header, onHandled);
+    }
+
+    /**
+     * Unpacks a frame of coalesced packets and routes them in order. All packets are decoded
+     * before any is handled, so a frame that fails to decode is dropped as a whole.
+     * The frame is acknowledged once every packet in it has been handled.
+     */
+    private void decodeAndHandleBatch(PacketRegistration<?> registration, PacketByteBufferInput buffer, FrameHeader header,
+                                      Runnable onHandled) {
+        PacketType<?> type = registration.type();
+
+        List<Packet> packets = new ArrayList<>();
+        while (buffer.isReadable()) {
+            Packet packet = type.newInstance();
+            type.read(packet, buffer.readSlice());
+            packets.add(packet);
+        }
+
+        if (packets.isEmpty()) {
+            onHandled.run();
+            return;
+        }
+
+        TypeMetrics typeMetrics = metrics.type(type);
+        for (int i = 0; i < packets.size(); i++) {
+            typeMetrics.onReceived();
+        }
+
+        AtomicInteger remaining = new AtomicInteger(packets.size());
+        Runnable onPacketHandled = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                onHandled.run();
+            }
+        };
+
+        for (Packet packet : packets) {
+            route(registration, packet, header, onPacketHandled);
+        }
+    }
+
+    private void route(PacketRegistration<?> registration, Packet packet, FrameHeader header, Runnable onHandled) {
+        if (registration.conflate() && !header.isRequest()) {
+            conflate(registration, packet, header, onHandled);
+        } else if (registration.type().keyed()) {
+            // Forwarding between stripes must not block, or two stripes forwarding to each other could deadlock
+            int key = Objects.hashCode(((KeyedPacket) packet).getPacketKey());
+            lane(registration.type()).executeUnbounded(key, () -> handle(registration, packet, header, onHandled));
+        } else {
+            handle(registration, packet, header, onHandled);
+        }
+    }
+
+    /**
+     * Keeps a packet of a conflated registration as the newest of its key until the handler is free.
+     * The first packet of a key schedules the handler on the stripe of the key, or of the channel for
+     * types that are not keyed; packets arriving before it runs replace the pending one, which is
+     * acknowledged without being handled. A handler task scheduled on the channel stripe runs after
+     * the frames already queued there were decoded, so a backlog of frames is handled only once per key.
+     */
+    private void conflate(PacketRegistration<?> registration, Packet packet, FrameHeader header, Runnable onHandled) {
+        PacketType<?> type = registration.type();
+        Object key = type.key(packet);
+        ConflationKey conflationKey = new ConflationKey(registration, Objects.requireNonNullElse(key, NO_KEY));
+
+        PendingPacket previous = conflatedPackets.put(conflationKey, new PendingPacket(packet, header, onHandled));
+        if (previous != null) {
+            metrics.type(type).onConflated();
+            previous.onHandled().run();
+            return;
+        }
+
+        int stripe = type.keyed() ? Objects.hashCode(key) : type.channelHash();
+        lane(type).executeUnbounded(stripe, () -> {
+            PendingPacket newest = conflatedPackets.remove(conflationKey);
+            handle(registration, newest.packet(), newest.header(), newest.onHandled());
+        });
+    }
+
+    private void handle(PacketRegistration<?> registration, Packet packet, FrameHeader header, Runnable onHandled) {
+        TypeMetrics typeMetrics = metrics.type(registration.type());
+        if (header.hasEnvelope()) {
+            typeMetrics.deliveryLatency().record(
+                    TimeUnit.MILLISECONDS.toNanos(FrameHeader.elapsedMillis(header.timestamp(), System.currentTimeMillis())));
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            if (header.isRequest() && registration.responds()) {
+                respond(registration, packet, header);
+            } else {
+                registration.handle(packet);
+            }
+        } catch (RuntimeException e) {
+            typeMetrics.onFailed();
+            logger.error("Handler for channel {} failed: {}", registration.type().channel(), e.getMessage());
+        } finally {
+            typeMetrics.handleLatency().recordSince(startNanos);
+            onHandled.run();
+        }
+    }
+
+    /**
+     * Answers a request and publishes the reply, or the responder's failure, to the requester's reply channel.
+     */
+    private void respond(PacketRegistration<?> registration, Packet request, FrameHeader header) {
+        long correlationId = header.correlationId();
+        Priority priority = registration.type().priority();
+
+        byte[] frame;
+        try {
+            Packet reply = registration.respond(request);
+            if (reply == null) {
+                throw new IllegalStateException("Responder returned no reply");
+            }
+
+            frame = serialize(reply, envelope(FrameHeader.response(correlationId), priority), typeOf(reply), null);
+        } catch (RuntimeException e) {
+            logger.error("Responder for channel {} failed: {}", registration.type().channel(), e.getMessage());
+            frame = errorFrame(envelope(FrameHeader.error(correlationId), priority), String.valueOf(e.getMessage()));
+        }
+
+        byte[] channelBytes = header.replyChannel();
+        String channel = new String(channelBytes);
+        CompletableFuture<Long> future;
+        try {
+            future = publish(channelBytes, channel, frame, Delivery.BROADCAST, priority);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        withTimeout(future, channel, null, 0);
+    }
+
+    private static byte[] errorFrame(FrameHeader header, String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+
+        byte[] frame = new byte[header.size() + bytes.length];
+        header.write(frame);
+        System.arraycopy(bytes, 0, frame, header.size(), bytes.length);
+        return frame;
+    }
+
+    /**
+     * Completes the pending request a reply belongs to. The reply is decoded on a receive
+     * stripe chosen by its correlation id, so the future completes on that stripe's thread.
+     */
+    private void receiveResponse(byte[] message) {
+        FrameHeader header;
+        try {
+            header = FrameHeader.read(message);
+        } catch (PacketDecodeException e) {
+            logger.error("Failed to decode reply: {}", e.getMessage());
+            return;
+        }
+
+        RequestTracker.PendingRequest<?> pending = requests.remove(header.correlationId());
+        if (pending == null) return;
+
+        try {
+            Runnable onDropped = () -> pending.future()
+                    .completeExceptionally(new PacketDroppedException("Receive queue is full"));
+            if (!lane(pending.responseType()).execute(Long.hashCode(header.correlationId()),
+                    () -> completeRequest(pending, header, message), onDropped)) {
+                onDropped.run();
+            }
+        } catch (RejectedExecutionException e) {
+            pending.future().completeExceptionally(e);
+        }
+    }
+
+    private void completeRequest(RequestTracker.PendingRequest<?> pending, FrameHeader header, byte[] message) {
+        if (header.isError()) {
+            String error = new String(message, header.size(), message.length - header.size(), StandardCharsets.UTF_8);
+            pending.future().completeExceptionally(new PacketRequestException(error));
+            return;
+        }
+
+        PacketType<?> type = pending.responseType();
+        try {
+            Packet reply = type.newInstance();
+            type.read(reply, new PacketByteBufferInput(decompress(type.packetClass(), message, header.size())));
+            pending.complete(reply);
+        } catch (RuntimeException e) {
+            pending.future().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Returns the depth and drop counts of the send queue.
+     *
+     * @return the send queue statistics
+     */
+    public QueueStats sendQueueStats() {
+        return transport.sendQueueStats();
+    }
+
+    /**
+     * Returns the depth and drop counts of the receive stripes, summed over all stripes of every priority lane.
      *
-     * @param clazz the packet class
-     * @return the channel name
-     * @throws IllegalArgumentException if the class does not have a {@link PacketInfo} annotation
+     * @return the receive queue statistics
      */
-    @NonNull
-    private String getPacketChannel(@NonNull Class<?> clazz) {
-        PacketInfo packetInfo = clazz.getAnnotation(PacketInfo.class);
-        if (packetInfo == null) {
-            throw new IllegalArgumentException("Class " + clazz + " has no @PacketInfo annotation");
+    public QueueStats receiveQueueStats() {
+        QueueStats stats = receiveLanes[0].stats();
+        for (int i = 1; i < receiveLanes.length; i++) {
+            stats = stats.plus(receiveLanes[i].stats());
         }
 
-        return packetInfo.channel().isEmpty()
-                ? baseChannel + ":" + packetInfo.name()
-                : packetInfo.channel() + ":" + packetInfo.name();
+        return stats;
+    }
+
+    /**
+     * Returns the counters and latency distributions of every packet type this service
+     * sent or received, along with its queue statistics, the frames received from each sender
+     * and the statistics of the near cache.
+     *
+     * @return the metrics snapshot
+     */
+    public MetricsSnapshot metrics() {
+        return new MetricsSnapshot(metrics.snapshot(), sendQueueStats(), receiveQueueStats(), requests.inFlight(),
+                sequenceTracker.snapshot(), transport.nearCacheStats());
+    }
+
+    /**
+     * Adds a listener notified when frames from another bridge went missing on a subscribed channel.
+     * Only frames sent with {@link PacketBridgeOptions#frameEnvelope() envelopes} can be followed.
+     *
+     * @param listener the listener
+     */
+    public void addGapListener(@NonNull SequenceGapListener listener) {
+        sequenceTracker.addListener(listener);
+    }
+
+    /**
+     * Shuts down the PacketService, closing the transport and the executor.
+     */
+    public void shutdown() {
+        try {
+            if (jmx != null) {
+                jmx.close();
+            }
+
+            requests.close();
+            conflater.close();
+            coalescer.close();
+            transport.close();
+            reassembler.close();
+            for (StripedExecutor lane : receiveLanes) {
+                lane.shutdown();
+            }
+        } catch (Exception ignored) {
+        }
     }
 
     /**
-     * Compresses a byte array using Zstandard.
+     * Encodes a serialized packet straight from its buffer, compressing it when worthwhile.
      *
-     * @param bytes the data to compress
-     * @return the compressed data
+     * @param packetClass the packet class, used to select a compression dictionary
+     * @param buffer      the buffer holding the serialized packet
+     * @param headerSize  the number of bytes to leave free for the frame header
+     * @return the frame, with the encoded data after the free header bytes
      */
-    private byte[] compress(byte[] bytes) {
-        return Zstd.compress(bytes);
+    private byte[] compress(Class<?> packetClass, PacketByteBufferOutput buffer, int headerSize) {
+        return compressor.compress(packetClass, buffer.buffer(), 0, buffer.size(), headerSize);
     }
 
     /**
-     * Decompresses a byte array using Zstandard.
+     * Decodes a payload produced by {@link #compress(Class, PacketByteBufferOutput, int)}.
      *
-     * @param bytes the compressed data
-     * @return the decompressed data
+     * @param packetClass the packet class, used to select a compression dictionary
+     * @param bytes       the frame
+     * @param offset      the size of the frame header
+     * @return a buffer over the decompressed data, valid until the next decompression on this thread
      */
-    private byte[] decompress(byte[] bytes) {
-        return Zstd.decompress(bytes, (int) Zstd.decompressedSize(bytes));
+    private ByteBuffer decompress(Class<?> packetClass, byte[] bytes, int offset) {
+        return compressor.decompress(packetClass, bytes, offset);
     }
 
     @Override
     public void close() throws Exception {
         shutdown();
     }
+
+    /**
+     * The frames {@link #sendPackets} publishes together on one lane, with the types they were sent as and
+     * the positions of their packets in the call.
+     */
+    private static final class PendingBatch {
+
+        private final List<Integer> indices = new ArrayList<>();
+        private final List<PacketType<?>> types = new ArrayList<>();
+        private final List<byte[]> frames = new ArrayList<>();
+    }
+
+    /**
+     * The frames held back on a channel while a referenced frame is fetched. Guarded by itself.
+     */
+    private static final class HeldFrames {
+
+        private final ByteBuffer channel;
+        private final ArrayDeque<HeldFrame> frames = new ArrayDeque<>();
+        private boolean released;
+
+        private HeldFrames(ByteBuffer channel) {
+            this.channel = channel;
+        }
+    }
+
+    private record HeldFrame(byte[] message, Runnable acknowledge) {
+    }
+
+    private record ConflationKey(PacketRegistration<?> registration, Object key) {
+    }
+
+    private record PendingPacket(Packet packet, FrameHeader header, Runnable onHandled) {
+    }
 }
@@ -0,0 +1,141 @@
+package com.pehenrii.packet.bridge.service;
+
+import com.pehenrii.packet.bridge.packet.Packet;
+import com.pehenrii.packet.bridge.registry.PacketType;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks requests awaiting a reply, keyed by correlation id.
+ * <p>
+ * Timeouts are scheduled on a hashed wheel timer rather than a scheduled executor, so
+ * scheduling and cancelling one is constant time regardless of how many requests are
+ * in flight, and a single thread expires all of them. The timer ticks every
+ * {@value #TICK_MILLIS} milliseconds, which bounds how late a timeout may fire.
+ * </p>
+ */
+final class RequestTracker implements AutoCloseable {
+
+    private static final long TICK_MILLIS = 10;
+    private static final int TICKS_PER_WHEEL = 512;
+
+    private final Timer timer = new HashedWheelTimer(
+            new DefaultThreadFactory("packet-bridge-request-timer", true), TICK_MILLIS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+    private final ConcurrentHashMap<Long, PendingRequest<?>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextCorrelationId = new AtomicLong();
+
+    /**
+     * Starts tracking a new request.
+     *
+     * @param responseType the type of the expected reply
+     * @param timeout      how long to wait for the reply
+     * @param channel      the request channel, used in the timeout message
+     * @param <R>          the reply type
+     * @return the pending request, holding its correlation id and future
+     */
+    <R extends Packet> PendingRequest<R> open(PacketType<R> responseType, Duration timeout, String channel) {
+        PendingRequest<R> request = new PendingRequest<>(nextCorrelationId.incrementAndGet(), responseType);
+        pending.put(request.correlationId, request);
+
+        request.timeout = timer.newTimeout(ignored -> {
+            if (pending.remove(request.correlationId, request)) {
+                request.future.completeExceptionally(new TimeoutException(
+                        "Request on channel " + channel + " timed out after " + timeout.toMillis() + " ms"));
+            }
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+
+        return request;
+    }
+
+    /**
+     * Stops tracking a request and cancels its timeout.
+     *
+     * @param correlationId the correlation id of the request
+     * @return the request, or {@code null} if it already completed or timed out
+     */
+    @Nullable PendingRequest<?> remove(long correlationId) {
+        PendingRequest<?> request = pending.remove(correlationId);
+        if (request != null) {
+            Timeout timeout = request.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        return request;
+    }
+
+    /**
+     * Stops tracking a request and fails its future.
+     *
+     * @param correlationId the correlation id of the request
+     * @param cause         the failure
+     */
+    void fail(long correlationId, Throwable cause) {
+        PendingRequest<?> request = remove(correlationId);
+        if (request != null) {
+            request.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Returns the number of requests awaiting a reply.
+     *
+     * @return the in-flight request count
+     */
+    int inFlight() {
+        return pending.size();
+    }
+
+    /**
+     * Stops the timer and fails every request still awaiting a reply.
+     */
+    @Override
+    public void close() {
+        timer.stop();
+
+        for (Long correlationId : pending.keySet()) {
+            fail(correlationId, new IllegalStateException("Packet bridge was shut down"));
+        }
+    }
+
+    static final class PendingRequest<R extends Packet> {
+
+        private final long correlationId;
+        private final PacketType<R> responseType;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+        private volatile Timeout timeout;
+
+        private PendingRequest(long correlationId, PacketType<R> responseType) {
+            this.correlationId = correlationId;
+            this.responseType = responseType;
+        }
+
+        long correlationId() {
+            return correlationId;
+        }
+
+        PacketType<R> responseType() {
+            return responseType;
+        }
+
+        CompletableFuture<R> future() {
+            return future;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Packet response) {
+            future.complete((R) response);
+        }
+    }
+}
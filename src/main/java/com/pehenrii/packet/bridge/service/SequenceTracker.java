@@ -0,0 +1,148 @@
+package com.pehenrii.packet.bridge.service;
+
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.frame.FrameHeader;
+import com.pehenrii.packet.bridge.metrics.LatencyHistogram;
+import com.pehenrii.packet.bridge.metrics.SenderStats;
+import com.pehenrii.packet.bridge.metrics.SequenceGapListener;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the sequence numbers of the frames each sender publishes to each channel on each of its
+ * lanes, counting missing and late frames and the lag between sending and receiving.
+ * <p>
+ * Sequence numbers are 16 bits wide and compared modulo 2<sup>16</sup>, so a gap of 32768 frames
+ * or more is taken for late frames instead. Senders that have been silent for
+ * {@value #IDLE_MINUTES} minutes are forgotten once a new sender appears, so restarted bridges,
+ * which pick a new sender id, do not accumulate.
+ * </p>
+ */
+final class SequenceTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceTracker.class);
+
+    private static final int IDLE_MINUTES = 5;
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(IDLE_MINUTES);
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final ConcurrentHashMap<SenderKey, SenderState> senders = new ConcurrentHashMap<>();
+    private final List<SequenceGapListener> listeners = new CopyOnWriteArrayList<>();
+
+    void addListener(@NonNull SequenceGapListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Tracks a received frame that {@link FrameHeader#hasEnvelope(byte[]) has an envelope}.
+     *
+     * @param channel the channel the frame was received from
+     * @param frame   the frame
+     */
+    void track(byte[] channel, byte[] frame) {
+        int sender = FrameHeader.readSender(frame);
+        int lane = FrameHeader.readLane(frame);
+        SenderKey key = new SenderKey(ByteBuffer.wrap(channel), sender, lane);
+
+        SenderState state = senders.get(key);
+        if (state == null) {
+            evictIdle();
+            Priority priority = lane >= 0 && lane < PRIORITIES.length ? PRIORITIES[lane] : null;
+            state = senders.computeIfAbsent(key,
+                    ignored -> new SenderState(new String(channel, StandardCharsets.UTF_8), sender, priority));
+        }
+
+        int missing = state.track(FrameHeader.readSequence(frame), FrameHeader.readTimestamp(frame));
+        if (missing > 0) {
+            for (SequenceGapListener listener : listeners) {
+                try {
+                    listener.onGap(state.channel, sender, missing);
+                } catch (RuntimeException e) {
+                    logger.error("Sequence gap listener failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        senders.values().removeIf(state -> now - state.lastSeenNanos > IDLE_NANOS);
+    }
+
+    /**
+     * Returns the statistics of every sender heard from recently.
+     *
+     * @return the statistics, by channel, sender and lane
+     */
+    List<SenderStats> snapshot() {
+        List<SenderStats> stats = new ArrayList<>(senders.size());
+        for (SenderState state : senders.values()) {
+            stats.add(state.snapshot());
+        }
+
+        return stats;
+    }
+
+    private record SenderKey(ByteBuffer channel, int sender, int lane) {
+    }
+
+    private static final class SenderState {
+
+        private final String channel;
+        private final int sender;
+        private final @Nullable Priority priority;
+        private final LatencyHistogram lag = new LatencyHistogram();
+
+        private volatile long lastSeenNanos = System.nanoTime();
+        private boolean started;
+        private int next;
+        private long frames;
+        private long missing;
+        private long late;
+
+        private SenderState(String channel, int sender, @Nullable Priority priority) {
+            this.channel = channel;
+            this.sender = sender;
+            this.priority = priority;
+        }
+
+        /**
+         * @return the number of frames skipped before this one
+         */
+        private synchronized int track(int sequence, int timestamp) {
+            lastSeenNanos = System.nanoTime();
+            frames++;
+            lag.record(TimeUnit.MILLISECONDS.toNanos(FrameHeader.elapsedMillis(timestamp, System.currentTimeMillis())));
+
+            if (!started) {
+                started = true;
+                next = (sequence + 1) & 0xFFFF;
+                return 0;
+            }
+
+            int distance = (short) (sequence - next);
+            if (distance < 0) {
+                late++;
+                return 0;
+            }
+
+            missing += distance;
+            next = (sequence + 1) & 0xFFFF;
+            return distance;
+        }
+
+        private synchronized SenderStats snapshot() {
+            return new SenderStats(channel, sender, priority, frames, missing, late, lag.snapshot());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.pehenrii.packet.bridge.transport;
+
+/**
+ * Receives the frames a {@link PacketTransport} reads from its subscribed channels.
+ */
+@FunctionalInterface
+public interface FrameReceiver {
+
+    /**
+     * Called for every received frame, on a transport thread, so implementations must
+     * hand the frame off quickly.
+     *
+     * @param channel     the channel the frame was received on
+     * @param frame       the frame
+     * @param acknowledge tells the transport the frame was handled; transports that
+     *                    redeliver unhandled frames keep it until then
+     */
+    void receive(byte[] channel, byte[] frame, Runnable acknowledge);
+}
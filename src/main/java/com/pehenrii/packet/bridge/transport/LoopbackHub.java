@@ -0,0 +1,94 @@
+package com.pehenrii.packet.bridge.transport;
+
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-JVM message bus connecting {@link LoopbackTransport} instances.
+ * <p>
+ * Broadcast frames reach every transport subscribed to their channel. Stream frames reach
+ * one subscribed transport, chosen round-robin, as if all of them belonged to a single
+ * consumer group. Unlike Redis, the hub stores no frames: frames sent to a channel without
+ * subscribers are lost, and a stream frame is delivered at most once. Claim-checked payloads
+ * are kept in memory until they expire.
+ * </p>
+ */
+public final class LoopbackHub {
+
+    private final ConcurrentHashMap<ByteBuffer, Subscribers> channels = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ByteBuffer, StoredPayload> payloads = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a transport connected to this hub.
+     *
+     * @return a new transport
+     */
+    public LoopbackTransport connect() {
+        return new LoopbackTransport(this);
+    }
+
+    void subscribe(byte @NonNull [] channel, @NonNull LoopbackTransport transport) {
+        channels.computeIfAbsent(ByteBuffer.wrap(channel.clone()), ignored -> new Subscribers()).add(transport);
+    }
+
+    void unsubscribe(@NonNull LoopbackTransport transport) {
+        for (Subscribers subscribers : channels.values()) {
+            subscribers.transports.remove(transport);
+        }
+    }
+
+    long publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery) {
+        Subscribers subscribers = channels.get(ByteBuffer.wrap(channel));
+        if (subscribers == null) return 0;
+
+        Object[] transports = subscribers.transports.toArray();
+        if (transports.length == 0) return 0;
+
+        if (delivery == Delivery.STREAM) {
+            int index = Math.floorMod(subscribers.cursor.getAndIncrement(), transports.length);
+            ((LoopbackTransport) transports[index]).deliver(channel, frame);
+            return 1;
+        }
+
+        for (Object transport : transports) {
+            ((LoopbackTransport) transport).deliver(channel, frame);
+        }
+
+        return transports.length;
+    }
+
+    void store(byte @NonNull [] key, byte @NonNull [] payload, @NonNull Duration ttl) {
+        long now = System.nanoTime();
+        payloads.values().removeIf(stored -> stored.expired(now));
+        payloads.put(ByteBuffer.wrap(key.clone()), new StoredPayload(payload, now + ttl.toNanos()));
+    }
+
+    byte @Nullable [] fetch(byte @NonNull [] key) {
+        StoredPayload stored = payloads.get(ByteBuffer.wrap(key));
+        return stored == null || stored.expired(System.nanoTime()) ? null : stored.payload;
+    }
+
+    private record StoredPayload(byte[] payload, long expiresAtNanos) {
+
+        private boolean expired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+
+    private static final class Subscribers {
+
+        private final CopyOnWriteArrayList<LoopbackTransport> transports = new CopyOnWriteArrayList<>();
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        private void add(LoopbackTransport transport) {
+            transports.addIfAbsent(transport);
+        }
+    }
+}
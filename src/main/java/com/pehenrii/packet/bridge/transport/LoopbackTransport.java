@@ -0,0 +1,96 @@
+package com.pehenrii.packet.bridge.transport;
+
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport that delivers frames within the JVM through a {@link LoopbackHub}, without
+ * any network or Redis server.
+ * <p>
+ * Frames are handed to the receivers of subscribed transports on the sending thread, so
+ * sending completes once every receiver has taken the frame. A transport created with
+ * {@link #LoopbackTransport()} has a hub of its own and only talks to itself; bridges that
+ * should talk to each other are given transports from the same hub.
+ * </p>
+ */
+public final class LoopbackTransport implements PacketTransport {
+
+    private static final QueueStats NO_QUEUE = new QueueStats(0, 0, 0, 0);
+    private static final Runnable NO_ACKNOWLEDGEMENT = () -> {
+    };
+
+    private final LoopbackHub hub;
+    private volatile FrameReceiver receiver;
+    private volatile boolean closed;
+
+    public LoopbackTransport() {
+        this(new LoopbackHub());
+    }
+
+    LoopbackTransport(@NonNull LoopbackHub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void start(@NonNull FrameReceiver receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public CompletableFuture<Void> subscribe(byte @NonNull [] channel, @NonNull Delivery delivery) {
+        hub.subscribe(channel, this);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Transport is closed"));
+        }
+
+        return CompletableFuture.completedFuture(hub.publish(channel, frame, delivery));
+    }
+
+    @Override
+    public synchronized CompletableFuture<Long> publishStored(byte @NonNull [] key, byte @NonNull [] payload,
+                                                              @NonNull Duration ttl, byte @NonNull [] channel,
+                                                              byte @NonNull [] reference, @NonNull Delivery delivery,
+                                                              @NonNull Priority priority, @NonNull Runnable stamp) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Transport is closed"));
+        }
+
+        stamp.run();
+        hub.store(key, payload, ttl);
+        return CompletableFuture.completedFuture(hub.publish(channel, reference, delivery));
+    }
+
+    @Override
+    public CompletableFuture<byte @Nullable []> fetchPayload(byte @NonNull [] key) {
+        return CompletableFuture.completedFuture(hub.fetch(key));
+    }
+
+    @Override
+    public QueueStats sendQueueStats() {
+        return NO_QUEUE;
+    }
+
+    void deliver(byte[] channel, byte[] frame) {
+        FrameReceiver receiver = this.receiver;
+        if (receiver != null && !closed) {
+            receiver.receive(channel, frame, NO_ACKNOWLEDGEMENT);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        hub.unsubscribe(this);
+    }
+}
@@ -0,0 +1,236 @@
+package com.pehenrii.packet.bridge.transport;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.pehenrii.packet.bridge.metrics.NearCacheStats;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.StringCodec;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * In-memory cache of Redis string values and hash fields, kept coherent through server-assisted
+ * client-side caching.
+ * <p>
+ * Values are read through a connection of its own with {@code CLIENT TRACKING} enabled. Redis
+ * remembers every key read on it and sends an {@code invalidate} push message over RESP3 once
+ * any client modifies one of them; the key is then dropped with all its cached hash fields.
+ * Keys are also evicted by size and once they are older than the time to live.
+ * </p>
+ * <p>
+ * Redis forgets the keys a connection tracks once it drops, and invalidations sent meanwhile
+ * are lost. Every key is dropped when the connection goes down, and values read until tracking
+ * is enabled again on the new connection are not cached.
+ * </p>
+ * <p>
+ * An invalidation may arrive while its key is being read. Every read notes the invalidation
+ * generation of its key's stripe beforehand and drops the key if the generation moved by the
+ * time the value is cached.
+ * </p>
+ */
+final class NearCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearCache.class);
+
+    private static final int STRIPES = 64;
+
+    private final RedisClient redisClient;
+    private final StatefulRedisConnection<String, String> connection;
+    private final RedisConnectionStateListener connectionListener = new ConnectionListener();
+    private final Cache<String, Entry> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private volatile boolean tracking;
+
+    /**
+     * Opens the tracking connection.
+     *
+     * @param redisClient the client to connect with
+     * @param maxSize     the largest number of keys cached
+     * @param ttl         how long a key stays cached
+     */
+    NearCache(@NonNull RedisClient redisClient, int maxSize, @NonNull Duration ttl) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.redisClient = redisClient;
+        this.connection = redisClient.connect();
+        connection.addListener(this::onPush);
+        connection.sync().clientTracking(TrackingArgs.Builder.enabled());
+        this.tracking = true;
+        redisClient.addListener(connectionListener);
+    }
+
+    /**
+     * Reads the value of a string key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the key does not exist
+     */
+    @Nullable String get(@NonNull String key) {
+        Entry entry = cache.getIfPresent(key);
+        Optional<String> value = entry != null ? entry.value : null;
+        if (value != null) {
+            hits.increment();
+            return value.orElse(null);
+        }
+
+        return load(key, commands -> commands.get(key), (loaded, read) -> loaded.value = Optional.ofNullable(read));
+    }
+
+    /**
+     * Reads the value of a hash field.
+     *
+     * @param key   the key of the hash
+     * @param field the field
+     * @return the value, or {@code null} if the key or the field does not exist
+     */
+    @Nullable String hget(@NonNull String key, @NonNull String field) {
+        Entry entry = cache.getIfPresent(key);
+        Optional<String> value = entry != null ? entry.fields.get(field) : null;
+        if (value != null) {
+            hits.increment();
+            return value.orElse(null);
+        }
+
+        return load(key, commands -> commands.hget(key, field),
+                (loaded, read) -> loaded.fields.put(field, Optional.ofNullable(read)));
+    }
+
+    private @Nullable String load(String key, Function<RedisCommands<String, String>, String> read,
+                                  BiConsumer<Entry, String> store) {
+        misses.increment();
+
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        String value = read.apply(connection.sync());
+        if (!tracking) {
+            // Redis would not tell when the value changes
+            return value;
+        }
+
+        Entry entry = cache.asMap().computeIfAbsent(key, ignored -> new Entry());
+        store.accept(entry, value);
+
+        if (generations.get(stripe) != generation) {
+            // Invalidated while it was read, maybe before the value was cached
+            cache.invalidate(key);
+        }
+
+        return value;
+    }
+
+    /**
+     * Handles the push messages of the tracking connection, on its I/O thread. An invalidation
+     * without keys means Redis flushed its tracking table, so every key is dropped.
+     */
+    private void onPush(PushMessage message) {
+        if (!"invalidate".equals(message.getType())) return;
+
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        if (!(keys instanceof List<?> list)) {
+            invalidateAll();
+            return;
+        }
+
+        for (Object key : list) {
+            generations.incrementAndGet(stripe(key));
+            if (cache.asMap().remove(key) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    private void invalidateAll() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            generations.incrementAndGet(stripe);
+        }
+
+        invalidations.add(cache.size());
+        cache.invalidateAll();
+    }
+
+    private static int stripe(Object key) {
+        return (key.hashCode() & 0x7FFFFFFF) % STRIPES;
+    }
+
+    NearCacheStats stats() {
+        return new NearCacheStats(hits.sum(), misses.sum(), cache.stats().evictionCount(), invalidations.sum(), cache.size());
+    }
+
+    @Override
+    public void close() {
+        redisClient.removeListener(connectionListener);
+        connection.close();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Follows the tracking connection through reconnects, on its I/O thread. Tracking is enabled
+     * again asynchronously, since commands sent from the I/O thread cannot be waited on there.
+     */
+    private final class ConnectionListener implements RedisConnectionStateListener {
+
+        @Override
+        public void onRedisDisconnected(RedisChannelHandler<?, ?> handler) {
+            if (handler != connection) return;
+
+            tracking = false;
+            invalidateAll();
+        }
+
+        @Override
+        public void onRedisConnected(RedisChannelHandler<?, ?> handler, SocketAddress address) {
+            if (handler != connection) return;
+
+            connection.async().clientTracking(TrackingArgs.Builder.enabled()).whenComplete((reply, error) -> {
+                if (error != null) {
+                    logger.error("Failed to enable client tracking after reconnecting, values stay uncached: {}",
+                            error.getMessage());
+                    return;
+                }
+
+                // Drops the values read while the connection was not tracked
+                invalidateAll();
+                tracking = true;
+            });
+        }
+    }
+
+    /**
+     * The cached values of one key: its string value, or the fields of its hash.
+     */
+    private static final class Entry {
+
+        /**
+         * The string value; empty if the key did not exist, {@code null} if it was not read.
+         */
+        private volatile Optional<String> value;
+        private final ConcurrentHashMap<String, Optional<String>> fields = new ConcurrentHashMap<>();
+    }
+}
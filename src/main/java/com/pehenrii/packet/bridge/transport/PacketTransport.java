@@ -0,0 +1,229 @@
+package com.pehenrii.packet.bridge.transport;
+
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import com.pehenrii.packet.bridge.metrics.NearCacheStats;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Moves encoded frames between packet bridges.
+ * <p>
+ * A transport knows nothing about packet types: it publishes frames to channels and
+ * hands the frames received on subscribed channels to the {@link FrameReceiver} it
+ * was {@link #start(FrameReceiver) started} with. {@link RedisTransport} is the
+ * default implementation; {@link RedisClusterTransport} sends frames over a Redis Cluster
+ * and {@link LoopbackTransport} delivers frames within the JVM.
+ * </p>
+ */
+public interface PacketTransport extends AutoCloseable {
+
+    /**
+     * Starts delivering received frames. Called once, before any subscription.
+     *
+     * @param receiver the receiver of every frame arriving on a subscribed channel
+     */
+    void start(@NonNull FrameReceiver receiver);
+
+    /**
+     * Starts receiving the frames sent to a channel.
+     *
+     * @param channel  the channel
+     * @param delivery how frames are delivered on the channel
+     * @return a future completed once frames sent from now on will be received
+     */
+    CompletableFuture<Void> subscribe(byte @NonNull [] channel, @NonNull Delivery delivery);
+
+    /**
+     * Starts receiving the frames sent to several channels. Transports that can subscribe to
+     * several channels at once do so in a single command.
+     *
+     * @param channels   the channels
+     * @param deliveries how frames are delivered on each channel, index-aligned with {@code channels}
+     * @return a future completed once frames sent from now on will be received on every channel
+     */
+    default CompletableFuture<Void> subscribeAll(@NonNull List<byte[]> channels, @NonNull List<Delivery> deliveries) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[channels.size()];
+        for (int i = 0; i < channels.size(); i++) {
+            futures[i] = subscribe(channels.get(i), deliveries.get(i));
+        }
+
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Sends a frame to a channel.
+     *
+     * @param channel  the channel
+     * @param frame    the frame; owned by the transport from now on
+     * @param delivery how the frame is delivered
+     * @return a future completed with the number of receivers the frame reached, or {@code 1}
+     * once a {@link Delivery#STREAM stream} frame was stored
+     */
+    CompletableFuture<Long> publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery);
+
+    /**
+     * Sends a frame on the lane of a priority. Transports without lanes send every frame alike.
+     *
+     * @param channel  the channel
+     * @param frame    the frame; owned by the transport from now on
+     * @param delivery how the frame is delivered
+     * @param priority the lane to send the frame on
+     * @return a future completed as by {@link #publish(byte[], byte[], Delivery)}
+     */
+    default CompletableFuture<Long> publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery,
+                                            @NonNull Priority priority) {
+        return publish(channel, frame, delivery);
+    }
+
+    /**
+     * Sends a frame on the lane of a priority, running {@code stamp} first at the point where the frame
+     * takes its place among the frames of the lane. Frames stamped this way therefore reach the receivers
+     * in the order they were stamped, without the caller holding a lock while the transport waits for room.
+     * Transports that queue frames run it under the lock of their queue; others run it under the lock of
+     * the transport.
+     *
+     * @param channel  the channel
+     * @param frame    the frame; owned by the transport from now on
+     * @param delivery how the frame is delivered
+     * @param priority the lane to send the frame on
+     * @param stamp    fills in the parts of the frame that depend on its position, such as its sequence number
+     * @return a future completed as by {@link #publish(byte[], byte[], Delivery)}
+     */
+    default CompletableFuture<Long> publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery,
+                                            @NonNull Priority priority, @NonNull Runnable stamp) {
+        synchronized (this) {
+            stamp.run();
+            return publish(channel, frame, delivery, priority);
+        }
+    }
+
+    /**
+     * Sends several frames on the {@link Priority#NORMAL normal} lane. Transports that batch writes send them together.
+     *
+     * @param channels   the channels, index-aligned with {@code frames}
+     * @param frames     the frames
+     * @param deliveries how each frame is delivered, index-aligned with {@code frames}
+     * @return one future per frame, as returned by {@link #publish(byte[], byte[], Delivery)}
+     */
+    default List<CompletableFuture<Long>> publishAll(@NonNull List<byte[]> channels, @NonNull List<byte[]> frames,
+                                                     @NonNull List<Delivery> deliveries) {
+        List<CompletableFuture<Long>> futures = new ArrayList<>(frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            futures.add(publish(channels.get(i), frames.get(i), deliveries.get(i)));
+        }
+
+        return futures;
+    }
+
+    /**
+     * Sends several frames on the lane of a priority. Transports without lanes send them as by
+     * {@link #publishAll(List, List, List)}.
+     *
+     * @param channels   the channels, index-aligned with {@code frames}
+     * @param frames     the frames
+     * @param deliveries how each frame is delivered, index-aligned with {@code frames}
+     * @param priority   the lane to send the frames on
+     * @return one future per frame, as returned by {@link #publish(byte[], byte[], Delivery)}
+     */
+    default List<CompletableFuture<Long>> publishAll(@NonNull List<byte[]> channels, @NonNull List<byte[]> frames,
+                                                     @NonNull List<Delivery> deliveries, @NonNull Priority priority) {
+        return publishAll(channels, frames, deliveries);
+    }
+
+    /**
+     * Sends several frames back to back on the lane of a priority, running {@code stamp} first as by
+     * {@link #publish(byte[], byte[], Delivery, Priority, Runnable)}.
+     *
+     * @param channels   the channels, index-aligned with {@code frames}
+     * @param frames     the frames
+     * @param deliveries how each frame is delivered, index-aligned with {@code frames}
+     * @param priority   the lane to send the frames on
+     * @param stamp      fills in the parts of the frames that depend on their position
+     * @return one future per frame, as returned by {@link #publish(byte[], byte[], Delivery)}
+     */
+    default List<CompletableFuture<Long>> publishAll(@NonNull List<byte[]> channels, @NonNull List<byte[]> frames,
+                                                     @NonNull List<Delivery> deliveries, @NonNull Priority priority,
+                                                     @NonNull Runnable stamp) {
+        synchronized (this) {
+            stamp.run();
+            return publishAll(channels, frames, deliveries, priority);
+        }
+    }
+
+    /**
+     * Stores the body of a large frame under a key that expires after a while, then publishes a reference
+     * to it right behind, for its receivers to {@link #fetchPayload(byte[]) fetch}. {@code stamp} runs
+     * first, as by {@link #publish(byte[], byte[], Delivery, Priority, Runnable)}.
+     *
+     * @param key       the key
+     * @param payload   the payload; owned by the transport from now on
+     * @param ttl       how long the payload is kept
+     * @param channel   the channel to publish the reference to
+     * @param reference the reference; owned by the transport from now on
+     * @param delivery  how the reference is delivered
+     * @param priority  the lane to store the payload and publish the reference on
+     * @param stamp     fills in the parts of the payload and reference that depend on their position
+     * @return a future completed as by {@link #publish(byte[], byte[], Delivery)} once the payload was stored
+     * @throws UnsupportedOperationException if this transport cannot store payloads
+     */
+    default CompletableFuture<Long> publishStored(byte @NonNull [] key, byte @NonNull [] payload, @NonNull Duration ttl,
+                                                  byte @NonNull [] channel, byte @NonNull [] reference,
+                                                  @NonNull Delivery delivery, @NonNull Priority priority,
+                                                  @NonNull Runnable stamp) {
+        throw storageUnsupported();
+    }
+
+    /**
+     * Reads a payload stored by {@link #publishStored}.
+     *
+     * @param key the key
+     * @return a future completed with the payload, or with {@code null} if it expired or was never stored
+     * @throws UnsupportedOperationException if this transport cannot store payloads
+     */
+    default CompletableFuture<byte @Nullable []> fetchPayload(byte @NonNull [] key) {
+        throw storageUnsupported();
+    }
+
+    /**
+     * Returns the depth and drop counts of the frames waiting to be sent.
+     *
+     * @return the send queue statistics
+     */
+    QueueStats sendQueueStats();
+
+    /**
+     * Returns the Redis commands of the server behind this transport, for transports that run them.
+     *
+     * @return the commands, or empty if this transport does not run Redis commands
+     */
+    default Optional<RedisCommandAccess> redisCommands() {
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the statistics of the near cache.
+     *
+     * @return the statistics, or {@link NearCacheStats#EMPTY} if the transport keeps no near cache
+     */
+    default NearCacheStats nearCacheStats() {
+        return NearCacheStats.EMPTY;
+    }
+
+    private UnsupportedOperationException storageUnsupported() {
+        return new UnsupportedOperationException(getClass().getSimpleName() + " cannot store payloads");
+    }
+
+    /**
+     * Stops sending and receiving, releasing the transport's connections.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,403 @@
+package com.pehenrii.packet.bridge.transport;
+
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.dispatch.OverflowPolicy;
+import com.pehenrii.packet.bridge.dispatch.PacketDroppedException;
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.XAddArgs;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pipelines PUBLISH commands, SPUBLISH commands for sharded packet types and XADD commands for
+ * stream packet types, over an asynchronous Lettuce connection to a Redis server or cluster.
+ * SET commands storing claim-checked payloads share the queue, so a payload is written
+ * before the reference queued with it.
+ * <p>
+ * Auto-flush is disabled on the underlying connection. Publishes wait in a bounded queue
+ * until either {@code batchSize} of them are queued or the oldest has waited {@code linger},
+ * whichever comes first, and are then written to the connection in a single flush.
+ * </p>
+ * <p>
+ * At most {@code maxInFlight} publishes are awaiting a reply from Redis at any time; while
+ * that window is full, new publishes stay queued. Once {@code capacity} publishes are
+ * queued or in flight, the configured {@link OverflowPolicy} applies. Publishes that were
+ * already written to the connection cannot be recalled, so {@link OverflowPolicy#DROP_OLDEST}
+ * only discards publishes that are still queued.
+ * </p>
+ */
+final class PublishPipeline implements AutoCloseable {
+
+    private final StatefulConnection<byte[], byte[]> connection;
+    private final RedisClusterAsyncCommands<byte[], byte[]> commands;
+    private final ScheduledExecutorService scheduler;
+
+    private final int batchSize;
+    private final long lingerNanos;
+    private final int capacity;
+    private final int maxInFlight;
+    private final OverflowPolicy overflowPolicy;
+    private final XAddArgs streamArgs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<PendingPublish> queue = new ArrayDeque<>();
+    private int inFlight;
+    private boolean closed;
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param connection the connection to write to
+     * @param commands   the asynchronous commands of {@code connection}
+     */
+    PublishPipeline(@NonNull StatefulConnection<byte[], byte[]> connection, @NonNull RedisClusterAsyncCommands<byte[], byte[]> commands,
+                    int batchSize, @NonNull Duration linger, int capacity, int maxInFlight,
+                    @NonNull OverflowPolicy overflowPolicy, long streamMaxLength) {
+        this.connection = connection;
+        this.commands = commands;
+        this.batchSize = batchSize;
+        this.lingerNanos = linger.toNanos();
+        this.capacity = capacity;
+        this.maxInFlight = maxInFlight;
+        this.overflowPolicy = overflowPolicy;
+        this.streamArgs = streamMaxLength > 0
+                ? new XAddArgs().maxlen(streamMaxLength).approximateTrimming()
+                : new XAddArgs();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("packet-bridge-flush", true));
+
+        connection.setAutoFlushCommands(false);
+    }
+
+    /**
+     * Queues a PUBLISH command on the pipeline.
+     *
+     * @param channel the channel to publish to
+     * @param payload the message payload
+     * @return a future completed with the number of subscribers that received the message
+     * @throws RejectedExecutionException if the queue is full and the policy is {@link OverflowPolicy#REJECT}
+     */
+    CompletableFuture<Long> publish(byte[] channel, byte[] payload) {
+        return enqueue(new PendingPublish(channel, payload, Delivery.BROADCAST));
+    }
+
+    /**
+     * Queues an SPUBLISH command on the pipeline.
+     *
+     * @param channel the shard channel to publish to
+     * @param payload the message payload
+     * @return a future completed with the number of subscribers that received the message
+     * @throws RejectedExecutionException if the queue is full and the policy is {@link OverflowPolicy#REJECT}
+     */
+    CompletableFuture<Long> publishSharded(byte[] channel, byte[] payload) {
+        return enqueue(new PendingPublish(channel, payload, Delivery.SHARDED));
+    }
+
+    /**
+     * Queues an XADD command on the pipeline, trimming the stream to its configured length.
+     *
+     * @param stream  the stream key
+     * @param payload the message payload
+     * @return a future completed with {@code 1} once the entry was appended
+     * @throws RejectedExecutionException if the queue is full and the policy is {@link OverflowPolicy#REJECT}
+     */
+    CompletableFuture<Long> append(byte[] stream, byte[] payload) {
+        return enqueue(new PendingPublish(stream, payload, Delivery.STREAM));
+    }
+
+    /**
+     * Queues a SET command storing a payload that expires after a while, followed by a PUBLISH,
+     * SPUBLISH or XADD command, as a single unit.
+     *
+     * @param key          the key to store the payload under
+     * @param payload      the payload
+     * @param ttl          how long the payload is kept
+     * @param channel      the channel to publish to, or stream to append to
+     * @param message      the message payload
+     * @param delivery     whether the message is published, published to a shard or appended to a stream
+     * @param beforeQueued runs under the lock of the queue just before the commands are queued
+     * @return a future completed as by {@link #publish(byte[], byte[])} once the payload was also stored
+     * @throws RejectedExecutionException if the queue is full and the policy is {@link OverflowPolicy#REJECT}
+     */
+    CompletableFuture<Long> storeAndPublish(byte[] key, byte[] payload, Duration ttl, byte[] channel, byte[] message,
+                                            Delivery delivery, @NonNull Runnable beforeQueued) {
+        PendingPublish store = new PendingPublish(key, payload, SetArgs.Builder.px(ttl.toMillis()));
+        PendingPublish publish = new PendingPublish(channel, message, delivery);
+        enqueueAll(List.of(store, publish), beforeQueued);
+        return store.future.thenCombine(publish.future, (stored, receivers) -> receivers);
+    }
+
+    private CompletableFuture<Long> enqueue(PendingPublish publish) {
+        enqueueAll(List.of(publish), null);
+        return publish.future;
+    }
+
+    /**
+     * Queues several PUBLISH, SPUBLISH or XADD commands on the pipeline as a single unit, so they
+     * are written to the connection back to back. The overflow policy applies to the unit as a
+     * whole: either every command is queued, or none is.
+     *
+     * @param channels the channels to publish to, or streams to append to
+     * @param payloads the message payloads, index-aligned with {@code channels}
+     * @param deliveries whether each command publishes, publishes to a shard or appends to a stream,
+     *                   index-aligned with {@code channels}
+     * @return one future per command, in the same order as the arguments
+     * @throws RejectedExecutionException if the queue is full and the policy is {@link OverflowPolicy#REJECT}
+     */
+    List<CompletableFuture<Long>> publishAll(List<byte[]> channels, List<byte[]> payloads, List<Delivery> deliveries) {
+        return publishAll(channels, payloads, deliveries, null);
+    }
+
+    /**
+     * Queues several commands as a single unit as by {@link #publishAll(List, List, List)}, running
+     * {@code beforeQueued} under the lock of the queue once there is room for them, just before they are
+     * queued. The commands of units queued from several threads are therefore written in the order their
+     * {@code beforeQueued} ran.
+     *
+     * @param beforeQueued runs just before the commands are queued, or {@code null}
+     * @return one future per command, in the same order as the arguments
+     * @throws RejectedExecutionException if the queue is full and the policy is {@link OverflowPolicy#REJECT}
+     */
+    List<CompletableFuture<Long>> publishAll(List<byte[]> channels, List<byte[]> payloads, List<Delivery> deliveries,
+                                             @Nullable Runnable beforeQueued) {
+        List<PendingPublish> publishes = new ArrayList<>(channels.size());
+        List<CompletableFuture<Long>> futures = new ArrayList<>(channels.size());
+        for (int i = 0; i < channels.size(); i++) {
+            PendingPublish publish = new PendingPublish(channels.get(i), payloads.get(i), deliveries.get(i));
+            publishes.add(publish);
+            futures.add(publish.future);
+        }
+
+        enqueueAll(publishes, beforeQueued);
+        return futures;
+    }
+
+    private void enqueueAll(List<PendingPublish> publishes, @Nullable Runnable beforeQueued) {
+        lock.lock();
+        try {
+            if (reserve(publishes)) {
+                if (beforeQueued != null) {
+                    beforeQueued.run();
+                }
+
+                queue.addAll(publishes);
+            }
+        } finally {
+            onQueued();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes queued commands to the connection, as far as the in-flight window allows.
+     */
+    void flush() {
+        lock.lock();
+        try {
+            drainLocked(false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of publishes queued or awaiting a reply, along with drop counts.
+     *
+     * @return the send queue statistics
+     */
+    QueueStats stats() {
+        lock.lock();
+        try {
+            return new QueueStats(queue.size() + inFlight, capacity, dropped.sum(), rejected.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes room for a unit of publishes as the overflow policy says, without queuing any of them.
+     * A unit larger than the capacity waits for an empty queue instead. Units that cannot be queued
+     * fail as a whole.
+     *
+     * @return whether the publishes may be queued
+     */
+    private boolean reserve(List<PendingPublish> publishes) {
+        if (closed) {
+            fail(publishes, new IllegalStateException("Publish pipeline is closed"));
+            return false;
+        }
+
+        int room = Math.min(publishes.size(), capacity);
+        while (capacity - queue.size() - inFlight < room) {
+            switch (overflowPolicy) {
+                case BLOCK -> {
+                    drainLocked(false);
+                    try {
+                        notFull.await(100, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        fail(publishes, e);
+                        return false;
+                    }
+
+                    if (closed) {
+                        fail(publishes, new IllegalStateException("Publish pipeline is closed"));
+                        return false;
+                    }
+                }
+                case DROP_OLDEST -> {
+                    PendingPublish oldest = queue.poll();
+                    if (oldest == null) {
+                        dropped.add(publishes.size());
+                        fail(publishes, new PacketDroppedException("Send queue is full"));
+                        return false;
+                    }
+
+                    dropped.increment();
+                    oldest.future.completeExceptionally(new PacketDroppedException("Dropped by a newer packet"));
+                }
+                case DROP_NEWEST -> {
+                    dropped.add(publishes.size());
+                    fail(publishes, new PacketDroppedException("Send queue is full"));
+                    return false;
+                }
+                case REJECT -> {
+                    rejected.add(publishes.size());
+                    throw new RejectedExecutionException("Send queue is full (" + capacity + " packets)");
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static void fail(List<PendingPublish> publishes, Throwable cause) {
+        for (PendingPublish publish : publishes) {
+            publish.future.completeExceptionally(cause);
+        }
+    }
+
+    private void onQueued() {
+        if (queue.size() >= batchSize || lingerNanos == 0) {
+            drainLocked(false);
+        } else if (scheduledFlush == null && !queue.isEmpty()) {
+            scheduledFlush = scheduler.schedule(this::flush, lingerNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void drainLocked(boolean force) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        int written = 0;
+        PendingPublish publish;
+        while ((force || inFlight < maxInFlight) && (publish = queue.poll()) != null) {
+            inFlight++;
+            written++;
+
+            CompletableFuture<Long> future = publish.future;
+            CompletionStage<Long> result;
+            if (publish.storeArgs != null) {
+                result = commands.set(publish.channel, publish.payload, publish.storeArgs).thenApply(ok -> 1L);
+            } else {
+                result = switch (publish.delivery) {
+                    case BROADCAST -> commands.publish(publish.channel, publish.payload);
+                    case SHARDED -> commands.spublish(publish.channel, publish.payload);
+                    case STREAM -> commands.xadd(publish.channel, streamArgs, StreamConsumer.PAYLOAD_FIELD, publish.payload)
+                            .thenApply(id -> 1L);
+                };
+            }
+
+            result.whenComplete((receivers, throwable) -> {
+                onCompleted();
+                if (throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else {
+                    future.complete(receivers);
+                }
+            });
+        }
+
+        if (written > 0) {
+            connection.flushCommands();
+        }
+    }
+
+    private void onCompleted() {
+        lock.lock();
+        try {
+            inFlight--;
+            // Waiting units may need more room than one publish frees, so every one checks again
+            notFull.signalAll();
+
+            if (!queue.isEmpty() && scheduledFlush == null) {
+                drainLocked(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            drainLocked(true);
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        scheduler.shutdown();
+    }
+
+    private static final class PendingPublish {
+
+        private final byte[] channel;
+        private final byte[] payload;
+        private final Delivery delivery;
+        /**
+         * The arguments of the SET command storing the payload under {@code channel}, or {@code null} to publish it.
+         */
+        private final @Nullable SetArgs storeArgs;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private PendingPublish(byte[] channel, byte[] payload, Delivery delivery) {
+            this.channel = channel;
+            this.payload = payload;
+            this.delivery = delivery;
+            this.storeArgs = null;
+        }
+
+        private PendingPublish(byte[] key, byte[] payload, SetArgs storeArgs) {
+            this.channel = key;
+            this.payload = payload;
+            this.delivery = Delivery.BROADCAST;
+            this.storeArgs = storeArgs;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.pehenrii.packet.bridge.transport;
+
+import com.pehenrii.packet.bridge.PacketBridgeOptions;
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.models.partitions.Partitions;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import io.lettuce.core.cluster.pubsub.RedisClusterPubSubAdapter;
+import io.lettuce.core.cluster.pubsub.StatefulRedisClusterPubSubConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport over a Redis Cluster.
+ * <p>
+ * Frames are sent through a {@link PublishPipeline} per {@link Priority} over a cluster connection,
+ * as by {@link RedisTransport}. The cluster forwards {@link Delivery#BROADCAST broadcast} frames to
+ * every node, so their channels are subscribed on a single node. {@link Delivery#SHARDED Sharded}
+ * frames only travel through the shard owning the hash slot of their channel, so their channels
+ * are subscribed on the node owning the slot, over a connection to that node.
+ * </p>
+ * <p>
+ * A node drops the sharded subscriptions of a slot once the slot migrates away. Those channels
+ * are subscribed again on the new owner right after the topology is refreshed. Every
+ * {@link PacketBridgeOptions#clusterTopologyRefreshPeriod()}, channels whose slot changed owner
+ * for any other reason, such as a failover, are moved as well.
+ * </p>
+ * <p>
+ * {@link Delivery#STREAM Stream} types cannot be subscribed, since streams of different slots
+ * cannot be read by one blocking {@code XREADGROUP}. Redis commands are not supported, apart from
+ * storing and fetching claim-checked payloads; payloads are fetched over a connection of their own.
+ * </p>
+ */
+public final class RedisClusterTransport extends RedisClusterPubSubAdapter<byte[], byte[]> implements PacketTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisClusterTransport.class);
+
+    private static final Runnable NO_ACKNOWLEDGEMENT = () -> {
+    };
+    private static final String UNSUBSCRIBED = "";
+
+    private final RedisClusterClient clusterClient;
+    private final List<StatefulRedisClusterConnection<byte[], byte[]>> senders = new ArrayList<>();
+    /**
+     * The publish pipeline of each {@link Priority}, by ordinal.
+     */
+    private final PublishPipeline[] publishLanes = new PublishPipeline[Priority.values().length];
+    private final StatefulRedisClusterPubSubConnection<byte[], byte[]> receiver;
+    private final ScheduledExecutorService topologyScheduler;
+
+    /**
+     * The id of the node each sharded channel is subscribed on, or {@link #UNSUBSCRIBED}.
+     */
+    private final ConcurrentHashMap<ByteBuffer, String> shardOwners = new ConcurrentHashMap<>();
+    /**
+     * The channels whose subscription Redis has not confirmed yet.
+     */
+    private final ConcurrentHashMap<ByteBuffer, CompletableFuture<Void>> pendingSubscriptions = new ConcurrentHashMap<>();
+
+    private volatile @Nullable StatefulRedisClusterConnection<byte[], byte[]> fetchConnection;
+
+    private volatile FrameReceiver frameReceiver;
+    private volatile boolean closed;
+
+    public RedisClusterTransport(@NonNull RedisClusterClient clusterClient, @NonNull PacketBridgeOptions options) {
+        this.clusterClient = clusterClient;
+        StatefulRedisClusterConnection<byte[], byte[]> sender = clusterClient.connect(new ByteArrayCodec());
+        senders.add(sender);
+        for (Priority priority : Priority.values()) {
+            StatefulRedisClusterConnection<byte[], byte[]> connection = sender;
+            if (priority == Priority.HIGH || priority == Priority.LOW && options.lowPriorityConnection()) {
+                connection = clusterClient.connect(new ByteArrayCodec());
+                senders.add(connection);
+            }
+
+            Duration linger = priority == Priority.HIGH ? Duration.ZERO : options.publishLinger();
+            publishLanes[priority.ordinal()] = new PublishPipeline(connection, connection.async(), options.publishBatchSize(),
+                    linger, options.sendQueueCapacity(), options.maxInFlightPublishes(), options.sendOverflowPolicy(),
+                    options.streamMaxLength());
+        }
+
+        this.receiver = clusterClient.connectPubSub(new ByteArrayCodec());
+        // Messages of the per-node connections reach the listener of the cluster connection
+        receiver.setNodeMessagePropagation(true);
+
+        long period = options.clusterTopologyRefreshPeriod().toNanos();
+        this.topologyScheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("packet-bridge-topology", true));
+        topologyScheduler.scheduleWithFixedDelay(this::moveSubscriptions, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void start(@NonNull FrameReceiver receiver) {
+        this.frameReceiver = receiver;
+        this.receiver.addListener(this);
+    }
+
+    @Override
+    public CompletableFuture<Void> subscribe(byte @NonNull [] channel, @NonNull Delivery delivery) {
+        return switch (delivery) {
+            case BROADCAST -> receiver.async().subscribe(channel).toCompletableFuture();
+            case SHARDED -> subscribeSharded(List.of(channel));
+            case STREAM -> CompletableFuture.failedFuture(streamsUnsupported());
+        };
+    }
+
+    /**
+     * Subscribes every broadcast channel with a single {@code SUBSCRIBE}, and the sharded channels
+     * of each hash slot with a single {@code SSUBSCRIBE} to its owner. The returned future waits
+     * for the confirmation of every channel.
+     */
+    @Override
+    public CompletableFuture<Void> subscribeAll(@NonNull List<byte[]> channels, @NonNull List<Delivery> deliveries) {
+        List<byte[]> broadcast = new ArrayList<>();
+        List<byte[]> sharded = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < channels.size(); i++) {
+            byte[] channel = channels.get(i);
+            switch (deliveries.get(i)) {
+                case BROADCAST -> {
+                    broadcast.add(channel);
+                    futures.add(pendingSubscription(channel));
+                }
+                case SHARDED -> sharded.add(channel);
+                case STREAM -> futures.add(CompletableFuture.failedFuture(streamsUnsupported()));
+            }
+        }
+
+        if (!broadcast.isEmpty()) {
+            receiver.async().subscribe(broadcast.toArray(new byte[0][])).whenComplete((ignored, throwable) -> {
+                if (throwable != null) {
+                    failPendingSubscriptions(broadcast, throwable);
+                }
+            });
+        }
+
+        if (!sharded.isEmpty()) {
+            futures.add(subscribeSharded(sharded));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private CompletableFuture<Void> subscribeSharded(List<byte[]> channels) {
+        Map<Integer, List<byte[]>> slots = new HashMap<>();
+        for (byte[] channel : channels) {
+            shardOwners.putIfAbsent(ByteBuffer.wrap(channel), UNSUBSCRIBED);
+            slots.computeIfAbsent(SlotHash.getSlot(channel), ignored -> new ArrayList<>()).add(channel);
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(slots.size());
+        slots.forEach((slot, slotChannels) -> futures.add(subscribeSlot(slot, slotChannels)));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Subscribes sharded channels of one hash slot on the node currently owning it. A single
+     * {@code SSUBSCRIBE} may only name channels of one slot.
+     */
+    private CompletableFuture<Void> subscribeSlot(int slot, List<byte[]> channels) {
+        RedisClusterNode owner = clusterClient.getPartitions().getPartitionBySlot(slot);
+        if (owner == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No cluster node serves slot " + slot));
+        }
+
+        String nodeId = owner.getNodeId();
+        List<CompletableFuture<Void>> confirmations = new ArrayList<>(channels.size());
+        for (byte[] channel : channels) {
+            shardOwners.put(ByteBuffer.wrap(channel), nodeId);
+            confirmations.add(pendingSubscription(channel));
+        }
+
+        receiver.getConnectionAsync(nodeId)
+                .thenCompose(connection -> connection.async().ssubscribe(channels.toArray(new byte[0][])))
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable == null) return;
+
+                    // Retried once the topology is checked again
+                    for (byte[] channel : channels) {
+                        shardOwners.replace(ByteBuffer.wrap(channel), nodeId, UNSUBSCRIBED);
+                    }
+
+                    failPendingSubscriptions(channels, throwable);
+                });
+
+        return CompletableFuture.allOf(confirmations.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Subscribes the sharded channels whose slot is owned by another node than the one they are
+     * subscribed on, or that are not subscribed at all, on the current owner.
+     */
+    private void moveSubscriptions() {
+        try {
+            Partitions partitions = clusterClient.getPartitions();
+            Map<Integer, List<byte[]>> moved = new HashMap<>();
+            shardOwners.forEach((channel, nodeId) -> {
+                int slot = SlotHash.getSlot(channel.array());
+                RedisClusterNode owner = partitions.getPartitionBySlot(slot);
+                if (owner != null && !owner.getNodeId().equals(nodeId)) {
+                    moved.computeIfAbsent(slot, ignored -> new ArrayList<>()).add(channel.array());
+                }
+            });
+
+            moved.forEach((slot, channels) -> subscribeSlot(slot, channels).whenComplete((ignored, throwable) -> {
+                if (throwable != null) {
+                    logger.warn("Failed to move {} channels of slot {}: {}", channels.size(), slot, throwable.getMessage());
+                }
+            }));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to check the subscriptions of moved slots: {}", e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Void> pendingSubscription(byte[] channel) {
+        return pendingSubscriptions.computeIfAbsent(ByteBuffer.wrap(channel), ignored -> new CompletableFuture<>());
+    }
+
+    private void failPendingSubscriptions(List<byte[]> channels, Throwable throwable) {
+        for (byte[] channel : channels) {
+            CompletableFuture<Void> confirmed = pendingSubscriptions.remove(ByteBuffer.wrap(channel));
+            if (confirmed != null) {
+                confirmed.completeExceptionally(throwable);
+            }
+        }
+    }
+
+    private static UnsupportedOperationException streamsUnsupported() {
+        return new UnsupportedOperationException("Stream packet types cannot be received over a Redis Cluster");
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery) {
+        return publish(channel, frame, delivery, Priority.NORMAL);
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery,
+                                           @NonNull Priority priority) {
+        PublishPipeline lane = publishLanes[priority.ordinal()];
+        return switch (delivery) {
+            case BROADCAST -> lane.publish(channel, frame);
+            case SHARDED -> lane.publishSharded(channel, frame);
+            case STREAM -> lane.append(channel, frame);
+        };
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery,
+                                           @NonNull Priority priority, @NonNull Runnable stamp) {
+        return publishLanes[priority.ordinal()]
+                .publishAll(List.of(channel), List.of(frame), List.of(delivery), stamp)
+                .get(0);
+    }
+
+    @Override
+    public List<CompletableFuture<Long>> publishAll(@NonNull List<byte[]> channels, @NonNull List<byte[]> frames,
+                                                    @NonNull List<Delivery> deliveries) {
+        return publishAll(channels, frames, deliveries, Priority.NORMAL);
+    }
+
+    @Override
+    public List<CompletableFuture<Long>> publishAll(@NonNull List<byte[]> channels, @NonNull List<byte[]> frames,
+                                                    @NonNull List<Delivery> deliveries, @NonNull Priority priority) {
+        return publishLanes[priority.ordinal()].publishAll(channels, frames, deliveries);
+    }
+
+    @Override
+    public List<CompletableFuture<Long>> publishAll(@NonNull List<byte[]> channels, @NonNull List<byte[]> frames,
+                                                    @NonNull List<Delivery> deliveries, @NonNull Priority priority,
+                                                    @NonNull Runnable stamp) {
+        return publishLanes[priority.ordinal()].publishAll(channels, frames, deliveries, stamp);
+    }
+
+    @Override
+    public CompletableFuture<Long> publishStored(byte @NonNull [] key, byte @NonNull [] payload, @NonNull Duration ttl,
+                                                 byte @NonNull [] channel, byte @NonNull [] reference,
+                                                 @NonNull Delivery delivery, @NonNull Priority priority,
+                                                 @NonNull Runnable stamp) {
+        return publishLanes[priority.ordinal()].storeAndPublish(key, payload, ttl, channel, reference, delivery, stamp);
+    }
+
+    @Override
+    public CompletableFuture<byte @Nullable []> fetchPayload(byte @NonNull [] key) {
+        try {
+            return fetchConnection().async().get(key).toCompletableFuture();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns the connection payloads are fetched over, opening it on first use. The publishing
+     * connections cannot be shared, as their {@link PublishPipeline} flushes them by hand.
+     */
+    private StatefulRedisClusterConnection<byte[], byte[]> fetchConnection() {
+        StatefulRedisClusterConnection<byte[], byte[]> connection = fetchConnection;
+        if (connection != null) return connection;
+
+        synchronized (senders) {
+            if (fetchConnection == null) {
+                fetchConnection = clusterClient.connect(new ByteArrayCodec());
+            }
+
+            return fetchConnection;
+        }
+    }
+
+    @Override
+    public QueueStats sendQueueStats() {
+        QueueStats stats = publishLanes[0].stats();
+        for (int i = 1; i < publishLanes.length; i++) {
+            stats = stats.plus(publishLanes[i].stats());
+        }
+
+        return stats;
+    }
+
+    /**
+     * Receives Pub/Sub messages on the I/O thread of the connection they arrived on.
+     *
+     * @param node    the node the message was received from
+     * @param channel the channel from which the message was received
+     * @param message the received message payload
+     */
+    @Override
+    public void message(RedisClusterNode node, byte[] channel, byte[] message) {
+        frameReceiver.receive(channel, message, NO_ACKNOWLEDGEMENT);
+    }
+
+    /**
+     * Receives sharded Pub/Sub messages on the I/O thread of the connection to their node.
+     *
+     * @param node    the node the message was received from
+     * @param channel the shard channel from which the message was received
+     * @param message the received message payload
+     */
+    @Override
+    public void smessage(RedisClusterNode node, byte[] channel, byte[] message) {
+        frameReceiver.receive(channel, message, NO_ACKNOWLEDGEMENT);
+    }
+
+    @Override
+    public void subscribed(RedisClusterNode node, byte[] channel, long count) {
+        confirm(channel);
+    }
+
+    @Override
+    public void ssubscribed(RedisClusterNode node, byte[] channel, long count) {
+        confirm(channel);
+    }
+
+    private void confirm(byte[] channel) {
+        CompletableFuture<Void> confirmed = pendingSubscriptions.remove(ByteBuffer.wrap(channel));
+        if (confirmed != null) {
+            confirmed.complete(null);
+        }
+    }
+
+    /**
+     * Called once a node dropped the subscription of a sharded channel, which happens when the slot
+     * of the channel migrates to another node. The channel is subscribed on the new owner once the
+     * topology has been refreshed.
+     *
+     * @param node    the node that dropped the subscription
+     * @param channel the shard channel
+     * @param count   the number of channels the node connection is subscribed to
+     */
+    @Override
+    public void sunsubscribed(RedisClusterNode node, byte[] channel, long count) {
+        if (closed || node == null || !shardOwners.replace(ByteBuffer.wrap(channel), node.getNodeId(), UNSUBSCRIBED)) return;
+
+        try {
+            topologyScheduler.execute(() -> {
+                try {
+                    clusterClient.refreshPartitions();
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to refresh the cluster topology: {}", e.getMessage());
+                }
+
+                moveSubscriptions();
+            });
+        } catch (RejectedExecutionException ignored) {
+            // Closed meanwhile
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        topologyScheduler.shutdownNow();
+        for (PublishPipeline lane : publishLanes) {
+            lane.close();
+        }
+
+        senders.forEach(StatefulRedisClusterConnection::close);
+        synchronized (senders) {
+            if (fetchConnection != null) {
+                fetchConnection.close();
+            }
+        }
+
+        receiver.close();
+        pendingSubscriptions.values().forEach(confirmed ->
+                confirmed.completeExceptionally(new IllegalStateException("Transport was closed")));
+    }
+}
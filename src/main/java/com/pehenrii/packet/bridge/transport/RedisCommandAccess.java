@@ -0,0 +1,94 @@
+package com.pehenrii.packet.bridge.transport;
+
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Runs commands against the Redis server behind a {@link PacketTransport}, as offered by
+ * {@link PacketTransport#redisCommands()}. Only transports over a single Redis server run them;
+ * {@link RedisTransport} does.
+ */
+public interface RedisCommandAccess {
+
+    /**
+     * Runs an operation against the Redis server behind the transport.
+     *
+     * @param operation the operation
+     * @param <T>       the result type
+     * @return the operation's result
+     */
+    <T> T executeOperation(@NonNull Function<RedisCommands<String, String>, T> operation);
+
+    /**
+     * Runs an asynchronous operation against the Redis server behind the transport.
+     *
+     * @param operation the operation, returning the future of its last command
+     * @param <T>       the result type
+     * @return a future completed with the operation's result
+     */
+    <T> CompletableFuture<T> executeOperationAsync(
+            @NonNull Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<T>> operation);
+
+    /**
+     * Sends several commands to the Redis server behind the transport in a single write.
+     *
+     * @param commands the commands, each issuing one command and returning its future
+     * @return a future completed with the result of each command, in order
+     */
+    CompletableFuture<List<Object>> executeBatch(
+            @NonNull List<Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<?>>> commands);
+
+    /**
+     * Runs an operation on a connection no other caller uses until it returns, so it may
+     * block or run a transaction.
+     *
+     * @param operation the operation
+     * @param <T>       the result type
+     * @return the operation's result
+     */
+    <T> T executePooled(@NonNull Function<RedisCommands<String, String>, T> operation);
+
+    /**
+     * Runs an operation against the Redis server behind the transport, with keys and values as raw bytes.
+     *
+     * @param operation the operation
+     * @param <T>       the result type
+     * @return the operation's result
+     */
+    <T> T executeBinaryOperation(@NonNull Function<RedisCommands<byte[], byte[]>, T> operation);
+
+    /**
+     * Runs an asynchronous operation against the Redis server behind the transport, with keys
+     * and values as raw bytes.
+     *
+     * @param operation the operation, returning the future of its last command
+     * @param <T>       the result type
+     * @return a future completed with the operation's result
+     */
+    <T> CompletableFuture<T> executeBinaryOperationAsync(
+            @NonNull Function<RedisAsyncCommands<byte[], byte[]>, ? extends CompletionStage<T>> operation);
+
+    /**
+     * Reads the value of a string key through the near cache, if the transport keeps one.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the key does not exist
+     */
+    @Nullable String cachedGet(@NonNull String key);
+
+    /**
+     * Reads the value of a hash field through the near cache, if the transport keeps one.
+     *
+     * @param key   the key of the hash
+     * @param field the field
+     * @return the value, or {@code null} if the key or the field does not exist
+     */
+    @Nullable String cachedHget(@NonNull String key, @NonNull String field);
+}
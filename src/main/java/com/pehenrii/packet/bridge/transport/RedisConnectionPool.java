@@ -0,0 +1,120 @@
+package com.pehenrii.packet.bridge.transport;
+
+import io.lettuce.core.RedisException;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of dedicated Redis connections, for commands that must not run on a shared
+ * connection: blocking commands, which would stall every other caller, transactions, whose
+ * commands must not interleave with those of other callers, and pipelines, which turn off
+ * automatic flushing.
+ * <p>
+ * Connections are opened on demand, up to the pool size, and kept open once returned.
+ * Callers wait up to the timeout while every connection is in use. Connections whose
+ * operation threw are closed instead of returned, since they may be left inside a
+ * transaction or waiting on a blocking command.
+ * </p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class RedisConnectionPool<K, V> implements AutoCloseable {
+
+    private final Supplier<StatefulRedisConnection<K, V>> connector;
+    private final Semaphore permits;
+    private final Duration timeout;
+    private final ConcurrentLinkedDeque<StatefulRedisConnection<K, V>> idle = new ConcurrentLinkedDeque<>();
+
+    private volatile boolean closed;
+
+    /**
+     * @param connector opens a new connection
+     * @param size      the largest number of connections in use at once
+     * @param timeout   how long to wait for a connection
+     */
+    RedisConnectionPool(@NonNull Supplier<StatefulRedisConnection<K, V>> connector, int size, @NonNull Duration timeout) {
+        this.connector = connector;
+        this.permits = new Semaphore(size);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs an operation on a connection of its own.
+     *
+     * @param operation the operation
+     * @param <T>       the result type
+     * @return the operation's result
+     * @throws RedisException if no connection became available in time
+     */
+    <T> T execute(@NonNull Function<StatefulRedisConnection<K, V>, T> operation) {
+        StatefulRedisConnection<K, V> connection = borrow();
+        boolean reusable = false;
+        try {
+            T result = operation.apply(connection);
+            reusable = true;
+            return result;
+        } finally {
+            release(connection, reusable);
+        }
+    }
+
+    private StatefulRedisConnection<K, V> borrow() {
+        if (closed) {
+            throw new IllegalStateException("Connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new RedisException("No pooled connection became available within " + timeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisException("Interrupted while waiting for a pooled connection", e);
+        }
+
+        try {
+            StatefulRedisConnection<K, V> connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (connection.isOpen()) return connection;
+                connection.close();
+            }
+
+            return connector.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(StatefulRedisConnection<K, V> connection, boolean reusable) {
+        if (reusable && !closed && connection.isOpen()) {
+            idle.offerFirst(connection);
+            // close() may have drained the pool before the connection was returned
+            if (closed && idle.remove(connection)) {
+                connection.close();
+            }
+        } else {
+            connection.close();
+        }
+
+        permits.release();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        StatefulRedisConnection<K, V> connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+}
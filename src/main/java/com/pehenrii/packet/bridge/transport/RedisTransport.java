@@ -0,0 +1,396 @@
+package com.pehenrii.packet.bridge.transport;
+
+import com.pehenrii.packet.bridge.PacketBridgeOptions;
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import com.pehenrii.packet.bridge.metrics.NearCacheStats;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Transport over a Redis server.
+ * <p>
+ * {@link Delivery#BROADCAST Broadcast} frames are sent through Pub/Sub, {@link Delivery#SHARDED sharded}
+ * frames through sharded Pub/Sub and {@link Delivery#STREAM stream} frames through Redis Streams, all
+ * over a pipelined connection.
+ * Each {@link Priority} has a {@link PublishPipeline} of its own, so its frames never queue
+ * behind those of another lane. High priority frames are written without lingering, over a
+ * connection of their own. The low priority lane shares the connection of the normal lane,
+ * unless {@link PacketBridgeOptions#lowPriorityConnection()} gives it one too. Pub/Sub frames
+ * are received on a dedicated subscriber connection and stream frames by a {@link StreamConsumer},
+ * which connects when the first stream is subscribed.
+ * </p>
+ * <p>
+ * Commands run by callers share a command connection, opened for string and for binary
+ * commands separately. Claim-checked payloads are stored through the publish pipeline of their
+ * lane, ahead of their reference, and fetched over the binary command connection. Pooled and
+ * pipelined commands run on connections of their own, taken from a {@link RedisConnectionPool}.
+ * Cached reads go through a {@link NearCache} when {@link PacketBridgeOptions#nearCacheMaxSize()} is set.
+ * </p>
+ */
+public final class RedisTransport extends RedisPubSubAdapter<byte[], byte[]>
+        implements PacketTransport, RedisCommandAccess {
+
+    private static final Runnable NO_ACKNOWLEDGEMENT = () -> {
+    };
+
+    private final List<StatefulRedisConnection<byte[], byte[]>> senders = new ArrayList<>();
+    /**
+     * The publish pipeline of each {@link Priority}, by ordinal.
+     */
+    private final PublishPipeline[] publishLanes = new PublishPipeline[Priority.values().length];
+    private final StatefulRedisPubSubConnection<byte[], byte[]> receiver;
+    /**
+     * The channels of {@link #subscribeAll} calls that Redis has not confirmed yet.
+     */
+    private final ConcurrentHashMap<ByteBuffer, CompletableFuture<Void>> pendingSubscriptions = new ConcurrentHashMap<>();
+    private final StreamConsumer streamConsumer;
+    private final StatefulRedisConnection<String, String> commandConnection;
+    private final RedisConnectionPool<String, String> commandPool;
+    private final RedisClient redisClient;
+    private final @Nullable NearCache nearCache;
+    private volatile StatefulRedisConnection<byte[], byte[]> binaryConnection;
+
+    private volatile FrameReceiver frameReceiver;
+
+    public RedisTransport(@NonNull RedisClient redisClient, @NonNull PacketBridgeOptions options) {
+        StatefulRedisConnection<byte[], byte[]> sender = redisClient.connect(new ByteArrayCodec());
+        senders.add(sender);
+        for (Priority priority : Priority.values()) {
+            StatefulRedisConnection<byte[], byte[]> connection = sender;
+            if (priority == Priority.HIGH || priority == Priority.LOW && options.lowPriorityConnection()) {
+                connection = redisClient.connect(new ByteArrayCodec());
+                senders.add(connection);
+            }
+
+            Duration linger = priority == Priority.HIGH ? Duration.ZERO : options.publishLinger();
+            publishLanes[priority.ordinal()] = new PublishPipeline(connection, connection.async(), options.publishBatchSize(), linger,
+                    options.sendQueueCapacity(), options.maxInFlightPublishes(), options.sendOverflowPolicy(),
+                    options.streamMaxLength());
+        }
+        this.receiver = redisClient.connectPubSub(new ByteArrayCodec());
+        this.streamConsumer = new StreamConsumer(redisClient, options,
+                (stream, frame, acknowledge) -> frameReceiver.receive(stream, frame, acknowledge));
+        this.commandConnection = redisClient.connect();
+        this.commandPool = new RedisConnectionPool<>(redisClient::connect, options.commandPoolSize(), options.commandPoolTimeout());
+        this.redisClient = redisClient;
+        this.nearCache = options.nearCacheMaxSize() > 0
+                ? new NearCache(redisClient, options.nearCacheMaxSize(), options.nearCacheTtl())
+                : null;
+    }
+
+    @Override
+    public void start(@NonNull FrameReceiver receiver) {
+        this.frameReceiver = receiver;
+        this.receiver.addListener(this);
+    }
+
+    @Override
+    public CompletableFuture<Void> subscribe(byte @NonNull [] channel, @NonNull Delivery delivery) {
+        if (delivery == Delivery.BROADCAST) {
+            return receiver.async().subscribe(channel).toCompletableFuture();
+        } else if (delivery == Delivery.SHARDED) {
+            return receiver.async().ssubscribe(channel).toCompletableFuture();
+        }
+
+        try {
+            streamConsumer.add(channel);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Subscribes every broadcast channel with a single {@code SUBSCRIBE}. Redis confirms each
+     * channel of the command separately and the command completes with the first confirmation,
+     * so the returned future waits for the confirmation of every channel instead.
+     */
+    @Override
+    public CompletableFuture<Void> subscribeAll(@NonNull List<byte[]> channels, @NonNull List<Delivery> deliveries) {
+        List<byte[]> broadcast = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(channels.size());
+        for (int i = 0; i < channels.size(); i++) {
+            byte[] channel = channels.get(i);
+            if (deliveries.get(i) == Delivery.BROADCAST) {
+                broadcast.add(channel);
+                futures.add(pendingSubscriptions.computeIfAbsent(ByteBuffer.wrap(channel), ignored -> new CompletableFuture<>()));
+            } else {
+                futures.add(subscribe(channel, deliveries.get(i)));
+            }
+        }
+
+        if (!broadcast.isEmpty()) {
+            receiver.async().subscribe(broadcast.toArray(new byte[0][])).whenComplete((ignored, throwable) -> {
+                if (throwable == null) return;
+
+                for (byte[] channel : broadcast) {
+                    CompletableFuture<Void> confirmed = pendingSubscriptions.remove(ByteBuffer.wrap(channel));
+                    if (confirmed != null) {
+                        confirmed.completeExceptionally(throwable);
+                    }
+                }
+            });
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery) {
+        return publish(channel, frame, delivery, Priority.NORMAL);
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery,
+                                           @NonNull Priority priority) {
+        PublishPipeline lane = publishLanes[priority.ordinal()];
+        return switch (delivery) {
+            case BROADCAST -> lane.publish(channel, frame);
+            case SHARDED -> lane.publishSharded(channel, frame);
+            case STREAM -> lane.append(channel, frame);
+        };
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(byte @NonNull [] channel, byte @NonNull [] frame, @NonNull Delivery delivery,
+                                           @NonNull Priority priority, @NonNull Runnable stamp) {
+        return publishLanes[priority.ordinal()]
+                .publishAll(List.of(channel), List.of(frame), List.of(delivery), stamp)
+                .get(0);
+    }
+
+    @Override
+    public List<CompletableFuture<Long>> publishAll(@NonNull List<byte[]> channels, @NonNull List<byte[]> frames,
+                                                    @NonNull List<Delivery> deliveries) {
+        return publishAll(channels, frames, deliveries, Priority.NORMAL);
+    }
+
+    @Override
+    public List<CompletableFuture<Long>> publishAll(@NonNull List<byte[]> channels, @NonNull List<byte[]> frames,
+                                                    @NonNull List<Delivery> deliveries, @NonNull Priority priority) {
+        return publishLanes[priority.ordinal()].publishAll(channels, frames, deliveries);
+    }
+
+    @Override
+    public List<CompletableFuture<Long>> publishAll(@NonNull List<byte[]> channels, @NonNull List<byte[]> frames,
+                                                    @NonNull List<Delivery> deliveries, @NonNull Priority priority,
+                                                    @NonNull Runnable stamp) {
+        return publishLanes[priority.ordinal()].publishAll(channels, frames, deliveries, stamp);
+    }
+
+    @Override
+    public CompletableFuture<Long> publishStored(byte @NonNull [] key, byte @NonNull [] payload, @NonNull Duration ttl,
+                                                 byte @NonNull [] channel, byte @NonNull [] reference,
+                                                 @NonNull Delivery delivery, @NonNull Priority priority,
+                                                 @NonNull Runnable stamp) {
+        return publishLanes[priority.ordinal()].storeAndPublish(key, payload, ttl, channel, reference, delivery, stamp);
+    }
+
+    @Override
+    public CompletableFuture<byte @Nullable []> fetchPayload(byte @NonNull [] key) {
+        return async(this::binaryConnection, commands -> commands.get(key));
+    }
+
+    @Override
+    public QueueStats sendQueueStats() {
+        QueueStats stats = publishLanes[0].stats();
+        for (int i = 1; i < publishLanes.length; i++) {
+            stats = stats.plus(publishLanes[i].stats());
+        }
+
+        return stats;
+    }
+
+    @Override
+    public Optional<RedisCommandAccess> redisCommands() {
+        return Optional.of(this);
+    }
+
+    @Override
+    public <T> T executeOperation(@NonNull Function<RedisCommands<String, String>, T> operation) {
+        return operation.apply(commandConnection.sync());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> executeOperationAsync(
+            @NonNull Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<T>> operation) {
+        return async(() -> commandConnection, operation);
+    }
+
+    /**
+     * Queues every command on a pooled connection with automatic flushing turned off, then
+     * writes them at once. The connection returns to the pool as soon as the commands are
+     * written, without waiting for their replies.
+     */
+    @Override
+    public CompletableFuture<List<Object>> executeBatch(
+            @NonNull List<Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<?>>> commands) {
+        List<CompletableFuture<?>> futures;
+        try {
+            futures = commandPool.execute(connection -> {
+                List<CompletableFuture<?>> queued = new ArrayList<>(commands.size());
+                connection.setAutoFlushCommands(false);
+                try {
+                    RedisAsyncCommands<String, String> async = connection.async();
+                    for (Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<?>> command : commands) {
+                        queued.add(command.apply(async).toCompletableFuture());
+                    }
+                } finally {
+                    connection.flushCommands();
+                    connection.setAutoFlushCommands(true);
+                }
+
+                return queued;
+            });
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    List<Object> results = new ArrayList<>(futures.size());
+                    for (CompletableFuture<?> future : futures) {
+                        results.add(future.join());
+                    }
+
+                    return results;
+                });
+    }
+
+    @Override
+    public <T> T executePooled(@NonNull Function<RedisCommands<String, String>, T> operation) {
+        return commandPool.execute(connection -> operation.apply(connection.sync()));
+    }
+
+    @Override
+    public <T> T executeBinaryOperation(@NonNull Function<RedisCommands<byte[], byte[]>, T> operation) {
+        return operation.apply(binaryConnection().sync());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> executeBinaryOperationAsync(
+            @NonNull Function<RedisAsyncCommands<byte[], byte[]>, ? extends CompletionStage<T>> operation) {
+        return async(this::binaryConnection, operation);
+    }
+
+    @Override
+    public @Nullable String cachedGet(@NonNull String key) {
+        return nearCache != null ? nearCache.get(key) : commandConnection.sync().get(key);
+    }
+
+    @Override
+    public @Nullable String cachedHget(@NonNull String key, @NonNull String field) {
+        return nearCache != null ? nearCache.hget(key, field) : commandConnection.sync().hget(key, field);
+    }
+
+    @Override
+    public NearCacheStats nearCacheStats() {
+        return nearCache != null ? nearCache.stats() : NearCacheStats.EMPTY;
+    }
+
+    private static <K, V, T> CompletableFuture<T> async(Supplier<StatefulRedisConnection<K, V>> connection,
+                                                         Function<RedisAsyncCommands<K, V>, ? extends CompletionStage<T>> operation) {
+        try {
+            return operation.apply(connection.get().async()).toCompletableFuture();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns the binary command connection, opening it on first use. The publishing connection
+     * cannot be shared, as the {@link PublishPipeline} flushes it by hand.
+     */
+    private StatefulRedisConnection<byte[], byte[]> binaryConnection() {
+        StatefulRedisConnection<byte[], byte[]> connection = binaryConnection;
+        if (connection != null) return connection;
+
+        synchronized (commandPool) {
+            if (binaryConnection == null) {
+                binaryConnection = redisClient.connect(new ByteArrayCodec());
+            }
+
+            return binaryConnection;
+        }
+    }
+
+    /**
+     * Receives Pub/Sub messages on the subscriber connection's I/O thread.
+     *
+     * @param channel the channel from which the message was received
+     * @param message the received message payload
+     */
+    @Override
+    public void message(byte[] channel, byte[] message) {
+        frameReceiver.receive(channel, message, NO_ACKNOWLEDGEMENT);
+    }
+
+    /**
+     * Receives sharded Pub/Sub messages on the subscriber connection's I/O thread.
+     *
+     * @param channel the shard channel from which the message was received
+     * @param message the received message payload
+     */
+    @Override
+    public void smessage(byte[] channel, byte[] message) {
+        frameReceiver.receive(channel, message, NO_ACKNOWLEDGEMENT);
+    }
+
+    /**
+     * Completes the pending {@link #subscribeAll} future of a channel once Redis confirmed it.
+     *
+     * @param channel the subscribed channel
+     * @param count   the number of channels the connection is subscribed to
+     */
+    @Override
+    public void subscribed(byte[] channel, long count) {
+        CompletableFuture<Void> confirmed = pendingSubscriptions.remove(ByteBuffer.wrap(channel));
+        if (confirmed != null) {
+            confirmed.complete(null);
+        }
+    }
+
+    @Override
+    public void close() {
+        streamConsumer.close();
+        for (PublishPipeline lane : publishLanes) {
+            lane.close();
+        }
+
+        senders.forEach(StatefulRedisConnection::close);
+        receiver.close();
+        pendingSubscriptions.values().forEach(confirmed ->
+                confirmed.completeExceptionally(new IllegalStateException("Transport was closed")));
+        commandConnection.close();
+        commandPool.close();
+        if (nearCache != null) {
+            nearCache.close();
+        }
+
+        synchronized (commandPool) {
+            if (binaryConnection != null) {
+                binaryConnection.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.pehenrii.packet.bridge.transport;
+
+import com.pehenrii.packet.bridge.PacketBridgeOptions;
+import io.lettuce.core.ClaimedMessages;
+import io.lettuce.core.Consumer;
+import io.lettuce.core.RedisBusyException;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.XAutoClaimArgs;
+import io.lettuce.core.XGroupCreateArgs;
+import io.lettuce.core.XReadArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reads stream packet types through a Redis consumer group.
+ * <p>
+ * A single thread reads every registered stream with one blocking XREADGROUP command
+ * on a dedicated connection and hands the entries to a {@link FrameReceiver}. Entries
+ * are acknowledged once handled, with XACK commands batched per stream on a second
+ * connection. Every half of the configured claim idle time, entries left pending by
+ * other consumers for longer than that are claimed with XAUTOCLAIM, so the entries of
+ * a consumer that died are handled by the rest of its group. XAUTOCLAIM needs Redis 6.2.
+ * </p>
+ * <p>
+ * Entries are delivered at least once: an entry that was dropped, or whose consumer
+ * stopped before acknowledging it, is claimed again once it has been idle long enough.
+ * </p>
+ */
+final class StreamConsumer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamConsumer.class);
+
+    /**
+     * The stream entry field holding the frame.
+     */
+    static final byte[] PAYLOAD_FIELD = {'p'};
+
+    private static final String CLAIM_START = "0-0";
+    private static final long RETRY_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RedisClient redisClient;
+    private final FrameReceiver handler;
+
+    private final byte[] group;
+    private final Consumer<byte[]> consumer;
+    private final XReadArgs readArgs;
+    private final int readBatchSize;
+    private final int ackBatchSize;
+    private final Duration claimMinIdle;
+    private final long claimIntervalNanos;
+
+    private volatile StreamState[] streams = new StreamState[0];
+    private volatile boolean running = true;
+
+    private StatefulRedisConnection<byte[], byte[]> readConnection;
+    private StatefulRedisConnection<byte[], byte[]> ackConnection;
+    private RedisAsyncCommands<byte[], byte[]> ackCommands;
+    private Thread thread;
+
+    StreamConsumer(@NonNull RedisClient redisClient, @NonNull PacketBridgeOptions options, @NonNull FrameReceiver handler) {
+        this.redisClient = redisClient;
+        this.handler = handler;
+
+        this.group = options.streamGroup().getBytes();
+        this.consumer = Consumer.from(group, options.streamConsumer().getBytes());
+        this.readArgs = XReadArgs.Builder.count(options.streamReadBatchSize()).block(options.streamBlockTimeout());
+        this.readBatchSize = options.streamReadBatchSize();
+        this.ackBatchSize = options.streamAckBatchSize();
+        this.claimMinIdle = options.streamClaimMinIdle();
+        this.claimIntervalNanos = options.streamClaimMinIdle().toNanos() / 2;
+    }
+
+    /**
+     * Starts reading a stream, creating the consumer group if it does not exist yet.
+     * A new group only receives entries appended after it was created.
+     * Connections and the reader thread are set up when the first stream is added.
+     *
+     * @param stream the stream key
+     */
+    synchronized void add(byte @NonNull [] stream) {
+        if (!running) {
+            throw new IllegalStateException("Stream consumer is closed");
+        }
+
+        for (StreamState state : streams) {
+            if (Arrays.equals(state.key, stream)) return;
+        }
+
+        if (thread == null) {
+            readConnection = redisClient.connect(new ByteArrayCodec());
+            ackConnection = redisClient.connect(new ByteArrayCodec());
+            ackCommands = ackConnection.async();
+        }
+
+        try {
+            ackConnection.sync().xgroupCreate(XReadArgs.StreamOffset.latest(stream), group, XGroupCreateArgs.Builder.mkstream());
+        } catch (RedisBusyException ignored) {
+            // BUSYGROUP: another instance already created the group
+        }
+
+        StreamState[] current = streams;
+        StreamState[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = new StreamState(stream);
+        streams = updated;
+
+        if (thread == null) {
+            thread = new DefaultThreadFactory("packet-bridge-stream", true).newThread(this::run);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        RedisCommands<byte[], byte[]> commands = readConnection.sync();
+        long nextClaim = System.nanoTime() + claimIntervalNanos;
+
+        while (running) {
+            StreamState[] current = streams;
+            try {
+                if (System.nanoTime() - nextClaim >= 0) {
+                    for (StreamState state : current) {
+                        claim(commands, state);
+                    }
+
+                    nextClaim = System.nanoTime() + claimIntervalNanos;
+                }
+
+                @SuppressWarnings("unchecked")
+                XReadArgs.StreamOffset<byte[]>[] offsets = new XReadArgs.StreamOffset[current.length];
+                for (int i = 0; i < current.length; i++) {
+                    offsets[i] = current[i].offset;
+                }
+
+                List<StreamMessage<byte[], byte[]>> messages = commands.xreadgroup(consumer, readArgs, offsets);
+                if (messages != null) {
+                    for (StreamMessage<byte[], byte[]> message : messages) {
+                        deliver(state(current, message.getStream()), message);
+                    }
+                }
+
+                for (StreamState state : current) {
+                    flushAcks(state);
+                }
+            } catch (RuntimeException e) {
+                if (!running) break;
+
+                logger.error("Failed to read streams: {}", e.getMessage());
+                LockSupport.parkNanos(RETRY_DELAY_NANOS);
+            }
+        }
+    }
+
+    private void claim(RedisCommands<byte[], byte[]> commands, StreamState state) {
+        ClaimedMessages<byte[], byte[]> claimed = commands.xautoclaim(state.key,
+                XAutoClaimArgs.Builder.xautoclaim(consumer, claimMinIdle, state.claimCursor).count(readBatchSize));
+
+        state.claimCursor = claimed.getId() == null ? CLAIM_START : claimed.getId();
+        for (StreamMessage<byte[], byte[]> message : claimed.getMessages()) {
+            deliver(state, message);
+        }
+    }
+
+    private void deliver(@Nullable StreamState state, StreamMessage<byte[], byte[]> message) {
+        if (state == null) return;
+
+        String id = message.getId();
+        byte[] payload = payload(message.getBody());
+        if (payload == null) {
+            logger.error("Stream entry {} has no payload field", id);
+            acknowledge(state, id);
+            return;
+        }
+
+        handler.receive(state.key, payload, () -> acknowledge(state, id));
+    }
+
+    private void acknowledge(StreamState state, String id) {
+        state.acks.add(id);
+        if (state.pendingAcks.incrementAndGet() >= ackBatchSize) {
+            flushAcks(state);
+        }
+    }
+
+    private @Nullable RedisFuture<Long> flushAcks(StreamState state) {
+        List<String> ids = new ArrayList<>();
+        String id;
+        while ((id = state.acks.poll()) != null) {
+            ids.add(id);
+        }
+
+        if (ids.isEmpty()) return null;
+
+        state.pendingAcks.addAndGet(-ids.size());
+        RedisFuture<Long> future = ackCommands.xack(state.key, group, ids.toArray(String[]::new));
+        future.whenComplete((acknowledged, throwable) -> {
+            if (throwable != null) {
+                logger.error("Failed to acknowledge {} stream entries: {}", ids.size(), throwable.getMessage());
+            }
+        });
+
+        return future;
+    }
+
+    private static @Nullable StreamState state(StreamState[] states, byte[] stream) {
+        for (StreamState state : states) {
+            if (Arrays.equals(state.key, stream)) return state;
+        }
+
+        return null;
+    }
+
+    private static byte @Nullable [] payload(@Nullable Map<byte[], byte[]> body) {
+        if (body == null) return null;
+
+        // Field names are byte arrays, which the body map can only compare by identity
+        for (Map.Entry<byte[], byte[]> entry : body.entrySet()) {
+            if (Arrays.equals(entry.getKey(), PAYLOAD_FIELD)) {
+                return entry.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Stops reading and acknowledges the entries handled so far. Entries still being
+     * handled are left pending and will be claimed by another consumer of the group.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (thread == null) return;
+
+        readConnection.close();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+
+            for (StreamState state : streams) {
+                RedisFuture<Long> acknowledged = flushAcks(state);
+                if (acknowledged != null) {
+                    acknowledged.await(1, TimeUnit.SECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        ackConnection.close();
+    }
+
+    private static final class StreamState {
+
+        private final byte[] key;
+        private final XReadArgs.StreamOffset<byte[]> offset;
+        private final ConcurrentLinkedQueue<String> acks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingAcks = new AtomicInteger();
+        private String claimCursor = CLAIM_START;
+
+        private StreamState(byte[] key) {
+            this.key = key;
+            this.offset = XReadArgs.StreamOffset.lastConsumed(key);
+        }
+    }
+}
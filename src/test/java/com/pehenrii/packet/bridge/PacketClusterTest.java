@@ -0,0 +1,206 @@
+package com.pehenrii.packet.bridge;
+
+import com.pehenrii.packet.bridge.packet.PacketHandler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs bridges against a cluster of three local {@code redis-server} processes, which must be on the path.
+ */
+class PacketClusterTest {
+
+    private static final String PASSWORD = "testpass";
+    private static final int[] PORTS = {7101, 7102, 7103};
+    private static final List<Process> servers = new ArrayList<>();
+
+    private PacketBridge senderService;
+    private PacketBridge receiverService;
+
+    @BeforeAll
+    static void startCluster() throws Exception {
+        Assumptions.assumeTrue(installed("redis-server") && installed("redis-cli"), "redis-server is not installed");
+
+        Path directory = Files.createTempDirectory("packet-bridge-cluster");
+        List<String> nodes = new ArrayList<>();
+        for (int port : PORTS) {
+            Path nodeDirectory = Files.createDirectories(directory.resolve(String.valueOf(port)));
+            servers.add(new ProcessBuilder("redis-server", "--port", String.valueOf(port), "--cluster-enabled", "yes",
+                    "--requirepass", PASSWORD, "--masterauth", PASSWORD, "--save", "", "--appendonly", "no")
+                    .directory(nodeDirectory.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(nodeDirectory.resolve("redis.log").toFile())
+                    .start());
+            nodes.add("127.0.0.1:" + port);
+        }
+
+        for (int port : PORTS) {
+            await(() -> redis(port, "ping").contains("PONG"), "Node " + port + " did not start");
+        }
+
+        List<String> create = new ArrayList<>(List.of("redis-cli", "-a", PASSWORD, "--cluster", "create"));
+        create.addAll(nodes);
+        create.addAll(List.of("--cluster-replicas", "0", "--cluster-yes"));
+        run(create);
+
+        for (int port : PORTS) {
+            await(() -> redis(port, "cluster", "info").contains("cluster_state:ok"), "Cluster did not form");
+        }
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        servers.forEach(Process::destroy);
+    }
+
+    @BeforeEach
+    void setup() {
+        List<String> nodes = List.of("127.0.0.1:" + PORTS[0]);
+        PacketBridgeOptions options = PacketBridgeOptions.builder()
+                .clusterTopologyRefreshPeriod(Duration.ofSeconds(1))
+                .build();
+
+        senderService = PacketBridge.createCluster(nodes, PASSWORD, "test-channel", options);
+        receiverService = PacketBridge.createCluster(nodes, PASSWORD, "test-channel", options);
+    }
+
+    @AfterEach
+    void teardown() {
+        if (senderService != null) senderService.shutdown();
+        if (receiverService != null) receiverService.shutdown();
+    }
+
+    private BlockingQueue<TestShardedMessage> subscribe() throws Exception {
+        BlockingQueue<TestShardedMessage> received = new LinkedBlockingQueue<>();
+        receiverService.registerAll(List.of(new PacketHandler<TestShardedMessage>() {
+            @Override
+            public void onReceive(TestShardedMessage packet) {
+                received.add(packet);
+            }
+
+            @Override
+            public Class<TestShardedMessage> getPacketClass() {
+                return TestShardedMessage.class;
+            }
+        })).get(10, TimeUnit.SECONDS);
+
+        return received;
+    }
+
+    @Test
+    @DisplayName("Test Sharded Packets Reach Subscribers Of Their Shard")
+    void shouldDeliverShardedPackets() throws Exception {
+        BlockingQueue<TestShardedMessage> received = subscribe();
+
+        long receivers = senderService.sendPacket(new TestShardedMessage("Hello, shard!")).get(5, TimeUnit.SECONDS);
+        assert receivers == 1 : "Unexpected subscriber count " + receivers;
+
+        TestShardedMessage packet = received.poll(5, TimeUnit.SECONDS);
+        assert packet != null : "Sharded packet was not received in time";
+        assert packet.getContent().equals("Hello, shard!") : "Contents do not match";
+    }
+
+    @Test
+    @DisplayName("Test Sharded Subscriptions Follow A Migrated Slot")
+    void shouldResubscribeAfterSlotMigration() throws Exception {
+        BlockingQueue<TestShardedMessage> received = subscribe();
+
+        String channel = "test-channel:test-sharded-message";
+        int slot = Integer.parseInt(redis(PORTS[0], "cluster", "keyslot", channel).strip());
+        int source = owner(slot);
+        int target = Arrays.stream(PORTS).filter(port -> port != source).findFirst().orElseThrow();
+        String sourceId = redis(source, "cluster", "myid").strip();
+        String targetId = redis(target, "cluster", "myid").strip();
+
+        // The slot holds no keys, so it moves without MIGRATE
+        redis(target, "cluster", "setslot", String.valueOf(slot), "importing", sourceId);
+        redis(source, "cluster", "setslot", String.valueOf(slot), "migrating", targetId);
+        for (int port : PORTS) {
+            redis(port, "cluster", "setslot", String.valueOf(slot), "node", targetId);
+        }
+
+        await(() -> owner(slot) == target, "Slot did not move");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        TestShardedMessage packet = null;
+        while (packet == null && System.nanoTime() < deadline) {
+            senderService.sendPacket(new TestShardedMessage("After migration"));
+            packet = received.poll(500, TimeUnit.MILLISECONDS);
+        }
+
+        assert packet != null : "Subscription did not follow the migrated slot";
+        assert packet.getContent().equals("After migration") : "Contents do not match";
+    }
+
+    private static int owner(int slot) throws IOException, InterruptedException {
+        for (String line : redis(PORTS[0], "cluster", "nodes").split("\n")) {
+            String[] fields = line.strip().split(" ");
+            for (int i = 8; i < fields.length; i++) {
+                String[] range = fields[i].split("-");
+                if (range[0].startsWith("[")) continue;
+
+                int start = Integer.parseInt(range[0]);
+                int end = range.length > 1 ? Integer.parseInt(range[1]) : start;
+                if (slot >= start && slot <= end) {
+                    String address = fields[1].split("@")[0];
+                    return Integer.parseInt(address.substring(address.lastIndexOf(':') + 1));
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private static String redis(int port, String... command) throws IOException, InterruptedException {
+        List<String> arguments = new ArrayList<>(List.of("redis-cli", "-a", PASSWORD, "--no-auth-warning", "-p", String.valueOf(port)));
+        arguments.addAll(List.of(command));
+        return run(arguments);
+    }
+
+    private static String run(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        process.waitFor(10, TimeUnit.SECONDS);
+        return output;
+    }
+
+    private static boolean installed(String executable) {
+        String path = System.getenv("PATH");
+        return path != null && Arrays.stream(path.split(File.pathSeparator))
+                .anyMatch(directory -> Files.isExecutable(Path.of(directory, executable)));
+    }
+
+    private static void await(Check check, String message) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (!check.passes()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(message);
+            }
+
+            Thread.sleep(100);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Check {
+
+        boolean passes() throws Exception;
+    }
+}
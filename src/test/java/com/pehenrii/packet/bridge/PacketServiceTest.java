@@ -1,6 +1,12 @@
 package com.pehenrii.packet.bridge;
 
 
+import com.pehenrii.packet.bridge.metrics.NearCacheStats;
+import com.pehenrii.packet.bridge.packet.PacketHandler;
+import com.pehenrii.packet.bridge.packet.PacketRequestException;
+import com.pehenrii.packet.bridge.packet.RequestHandler;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.KillArgs;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,9 +14,16 @@ import org.junit.jupiter.api.DisplayName;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.utility.DockerImageName;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 class PacketServiceTest {
@@ -79,4 +92,231 @@ class PacketServiceTest {
         assert received.getNumber() == testMessagePacket.getNumber() : "Numbers do not match";
         assert received.isFlag() == testMessagePacket.isFlag() : "Flags do not match";
     }
+
+    @Test
+    @DisplayName("Test Batched Packet Sending")
+    void shouldSendPacketBatch() throws Exception {
+        int count = 500;
+        CountDownLatch latch = new CountDownLatch(count);
+        List<Integer> receivedNumbers = new ArrayList<>();
+
+        receiverService.registerPacket(TestMessage.class, new TestMessageHandler(packet -> {
+            synchronized (receivedNumbers) {
+                receivedNumbers.add(packet.getNumber());
+            }
+            latch.countDown();
+        }));
+
+        Thread.sleep(100);
+
+        List<TestMessage> packets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            packets.add(new TestMessage(UUID.randomUUID(), "batch", i, false));
+        }
+
+        List<CompletableFuture<Long>> futures = senderService.sendPackets(packets);
+        assert futures.size() == count : "Missing publish results";
+        for (CompletableFuture<Long> future : futures) {
+            assert future.get(5, TimeUnit.SECONDS) == 1L : "Unexpected subscriber count";
+        }
+
+        boolean messagesReceived = latch.await(5, TimeUnit.SECONDS);
+        assert messagesReceived : "Packets were not received in time";
+
+        synchronized (receivedNumbers) {
+            for (int i = 0; i < count; i++) {
+                assert receivedNumbers.get(i) == i : "Packets were received out of order";
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test Request And Reply")
+    void shouldAnswerRequests() throws Exception {
+        receiverService.registerResponder(TestMessage.class, new RequestHandler<TestMessage, TestMessage>() {
+            @Override
+            public TestMessage onRequest(TestMessage request) {
+                if (request.isFlag()) {
+                    throw new IllegalArgumentException("Flagged request");
+                }
+
+                return new TestMessage(request.getUniqueId(), "reply", request.getNumber() * 2, false);
+            }
+
+            @Override
+            public Class<TestMessage> getPacketClass() {
+                return TestMessage.class;
+            }
+        });
+
+        Thread.sleep(100);
+
+        int count = 200;
+        List<CompletableFuture<TestMessage>> replies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TestMessage request = new TestMessage(UUID.randomUUID(), "request", i, false);
+            replies.add(senderService.request(request, TestMessage.class, Duration.ofSeconds(5)));
+        }
+
+        for (int i = 0; i < count; i++) {
+            TestMessage reply = replies.get(i).get(5, TimeUnit.SECONDS);
+            assert reply.getNumber() == i * 2 : "Reply does not match its request";
+            assert reply.getContent().equals("reply") : "Unexpected reply content";
+        }
+
+        CompletableFuture<TestMessage> failed = senderService.request(
+                new TestMessage(UUID.randomUUID(), "request", 0, true), TestMessage.class, Duration.ofSeconds(5));
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            assert false : "Failed request completed normally";
+        } catch (ExecutionException e) {
+            assert e.getCause() instanceof PacketRequestException : "Unexpected failure " + e.getCause();
+            assert e.getCause().getMessage().equals("Flagged request") : "Responder error was not forwarded";
+        }
+    }
+
+    @Test
+    @DisplayName("Test Stream Packets Are Handled Once Per Group")
+    void shouldHandleStreamPacketsOncePerGroup() throws Exception {
+        int count = 200;
+        CountDownLatch latch = new CountDownLatch(count);
+        AtomicInteger handled = new AtomicInteger();
+
+        PacketHandler<TestStreamMessage> handler = new PacketHandler<>() {
+            @Override
+            public void onReceive(TestStreamMessage packet) {
+                handled.incrementAndGet();
+                latch.countDown();
+            }
+
+            @Override
+            public Class<TestStreamMessage> getPacketClass() {
+                return TestStreamMessage.class;
+            }
+        };
+
+        // Both services use the default consumer group, so each packet goes to only one of them
+        senderService.registerPacket(TestStreamMessage.class, handler);
+        receiverService.registerPacket(TestStreamMessage.class, handler);
+
+        List<TestStreamMessage> packets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            packets.add(new TestStreamMessage(i));
+        }
+
+        for (CompletableFuture<Long> future : senderService.sendPackets(packets)) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        boolean messagesReceived = latch.await(10, TimeUnit.SECONDS);
+        assert messagesReceived : "Stream packets were not received in time";
+
+        Thread.sleep(500);
+        assert handled.get() == count : "Expected " + count + " handled packets but got " + handled.get();
+    }
+
+    @Test
+    @DisplayName("Test Async, Batched, Pooled And Binary Redis Commands")
+    void shouldExecuteRedisCommands() throws Exception {
+        String key = "test-key:" + UUID.randomUUID();
+
+        String set = senderService.executeOperationAsync(commands -> commands.set(key, "1")).get(5, TimeUnit.SECONDS);
+        assert "OK".equals(set) : "Unexpected SET reply " + set;
+
+        List<Object> results = senderService.executeBatch(List.of(
+                commands -> commands.incr(key),
+                commands -> commands.incr(key),
+                commands -> commands.get(key)
+        )).get(5, TimeUnit.SECONDS);
+        assert results.equals(List.of(2L, 3L, "3")) : "Unexpected batch results " + results;
+
+        // The blocking pop holds a pooled connection, so the shared connection can still push
+        String list = key + ":list";
+        CompletableFuture<KeyValue<String, String>> popped = CompletableFuture.supplyAsync(
+                () -> senderService.executePooled(commands -> commands.blpop(5, list)));
+        Thread.sleep(100);
+        senderService.executeOperation(commands -> commands.rpush(list, "item"));
+        assert popped.get(5, TimeUnit.SECONDS).getValue().equals("item") : "Blocking pop did not receive the item";
+
+        byte[] binaryKey = (key + ":binary").getBytes();
+        byte[] value = {0, (byte) 0xFF, 42};
+        senderService.executeBinaryOperation(commands -> commands.set(binaryKey, value));
+        byte[] read = senderService.executeBinaryOperationAsync(commands -> commands.get(binaryKey)).get(5, TimeUnit.SECONDS);
+        assert Arrays.equals(read, value) : "Binary value did not round trip";
+    }
+
+    @Test
+    @DisplayName("Test Near Cache Is Invalidated By Writes Of Other Clients")
+    void shouldInvalidateNearCache() throws Exception {
+        PacketBridge cachingService = PacketBridge.create(redis.getHost(), redis.getMappedPort(6379), "testpass", "test-channel",
+                PacketBridgeOptions.builder().nearCacheMaxSize(100).build());
+        try {
+            String key = "test-cached:" + UUID.randomUUID();
+            senderService.executeOperation(commands -> commands.set(key, "first"));
+
+            assert "first".equals(cachingService.cachedGet(key)) : "Cached read missed the stored value";
+            assert "first".equals(cachingService.cachedGet(key)) : "Second cached read returned another value";
+            assert cachingService.nearCacheStats().hits() == 1 : "Second read was not served from the near cache";
+
+            senderService.executeOperation(commands -> commands.set(key, "second"));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!"second".equals(cachingService.cachedGet(key))) {
+                assert System.nanoTime() < deadline : "Near cache kept the overwritten value";
+                Thread.sleep(10);
+            }
+
+            assert cachingService.nearCacheStats().invalidations() >= 1 : "Invalidation was not counted";
+            assert senderService.nearCacheStats().equals(NearCacheStats.EMPTY) : "Bridge without a near cache reported statistics";
+        } finally {
+            cachingService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Test Near Cache Tracks Keys Again After Reconnecting")
+    void shouldTrackNearCacheAfterReconnect() throws Exception {
+        PacketBridge cachingService = PacketBridge.create(redis.getHost(), redis.getMappedPort(6379), "testpass", "test-channel",
+                PacketBridgeOptions.builder().nearCacheMaxSize(100).build());
+        try {
+            String key = "test-cached:" + UUID.randomUUID();
+            senderService.executeOperation(commands -> commands.set(key, "first"));
+            assert "first".equals(cachingService.cachedGet(key)) : "Cached read missed the stored value";
+
+            // Redis forgets what the killed connection tracked, and nobody tells it about the next write
+            senderService.executeOperation(commands -> {
+                for (String client : commands.clientList().split("\n")) {
+                    if (client.matches(".*\\bflags=\\w*t.*")) {
+                        commands.clientKill(KillArgs.Builder.id(Long.parseLong(client.replaceAll("^id=(\\d+) .*", "$1"))));
+                    }
+                }
+
+                return commands.set(key, "second");
+            });
+
+            awaitCached(cachingService, key, "second");
+
+            // Values read before tracking is enabled again are not cached
+            long hits = cachingService.nearCacheStats().hits();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (cachingService.nearCacheStats().hits() == hits) {
+                assert System.nanoTime() < deadline : "Values were not cached after reconnecting";
+                assert "second".equals(cachingService.cachedGet(key)) : "Cached read returned another value";
+                Thread.sleep(10);
+            }
+
+            senderService.executeOperation(commands -> commands.set(key, "third"));
+            awaitCached(cachingService, key, "third");
+        } finally {
+            cachingService.shutdown();
+        }
+    }
+
+    private static void awaitCached(PacketBridge bridge, String key, String value) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!value.equals(bridge.cachedGet(key))) {
+            assert System.nanoTime() < deadline : "Near cache kept a stale value instead of " + value;
+            Thread.sleep(10);
+        }
+    }
 }
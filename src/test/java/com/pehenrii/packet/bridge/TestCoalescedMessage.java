@@ -0,0 +1,32 @@
+package com.pehenrii.packet.bridge;
+
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.Packet;
+
+@PacketInfo(name = "test-coalesced-message", coalesce = true)
+public class TestCoalescedMessage implements Packet {
+
+    private int number;
+
+    public TestCoalescedMessage() {}
+
+    public TestCoalescedMessage(int number) {
+        this.number = number;
+    }
+
+    @Override
+    public void write(PacketByteBufferOutput buffer) {
+        buffer.writeVarInt(number);
+    }
+
+    @Override
+    public void read(PacketByteBufferInput buffer) {
+        this.number = buffer.readVarInt();
+    }
+
+    public int getNumber() {
+        return number;
+    }
+}
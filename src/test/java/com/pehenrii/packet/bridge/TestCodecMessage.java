@@ -0,0 +1,87 @@
+package com.pehenrii.packet.bridge;
+
+import com.pehenrii.packet.bridge.annotation.PacketField;
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.packet.Packet;
+
+import java.util.UUID;
+
+@PacketInfo(name = "test-codec-message")
+public class TestCodecMessage implements Packet {
+
+    public enum Mood {
+        CALM, EXCITED
+    }
+
+    @PacketField
+    UUID uniqueId;
+    @PacketField
+    String content;
+    @PacketField(varint = true)
+    int count;
+    @PacketField
+    long timestamp;
+    @PacketField
+    boolean flag;
+    @PacketField
+    double ratio;
+    @PacketField(varint = true)
+    short delta;
+    @PacketField(nullable = true)
+    Mood mood;
+    @PacketField(nullable = true)
+    byte[] attachment;
+
+    String ignored;
+
+    public TestCodecMessage() {}
+
+    public TestCodecMessage(UUID uniqueId, String content, int count, long timestamp, boolean flag, double ratio, short delta,
+                            Mood mood, byte[] attachment) {
+        this.uniqueId = uniqueId;
+        this.content = content;
+        this.count = count;
+        this.timestamp = timestamp;
+        this.flag = flag;
+        this.ratio = ratio;
+        this.delta = delta;
+        this.mood = mood;
+        this.attachment = attachment;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isFlag() {
+        return flag;
+    }
+
+    public double getRatio() {
+        return ratio;
+    }
+
+    public short getDelta() {
+        return delta;
+    }
+
+    public Mood getMood() {
+        return mood;
+    }
+
+    public byte[] getAttachment() {
+        return attachment;
+    }
+}
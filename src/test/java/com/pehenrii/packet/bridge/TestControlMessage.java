@@ -0,0 +1,33 @@
+package com.pehenrii.packet.bridge;
+
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.Packet;
+
+@PacketInfo(name = "test-control-message", priority = Priority.HIGH)
+public class TestControlMessage implements Packet {
+
+    private String command;
+
+    public TestControlMessage() {}
+
+    public TestControlMessage(String command) {
+        this.command = command;
+    }
+
+    @Override
+    public void write(PacketByteBufferOutput buffer) {
+        buffer.writeUTF8(command);
+    }
+
+    @Override
+    public void read(PacketByteBufferInput buffer) {
+        this.command = buffer.readUTF8();
+    }
+
+    public String getCommand() {
+        return command;
+    }
+}
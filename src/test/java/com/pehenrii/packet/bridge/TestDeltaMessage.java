@@ -0,0 +1,61 @@
+package com.pehenrii.packet.bridge;
+
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.KeyedPacket;
+
+@PacketInfo(name = "test-delta-message", delta = true)
+public class TestDeltaMessage implements KeyedPacket {
+
+    private String server;
+    private String motd;
+    private int players;
+    private long uptime;
+
+    public TestDeltaMessage() {}
+
+    public TestDeltaMessage(String server, String motd, int players, long uptime) {
+        this.server = server;
+        this.motd = motd;
+        this.players = players;
+        this.uptime = uptime;
+    }
+
+    @Override
+    public void write(PacketByteBufferOutput buffer) {
+        buffer.writeUTF8(server);
+        buffer.writeUTF8(motd);
+        buffer.writeInt(players);
+        buffer.writeLong(uptime);
+    }
+
+    @Override
+    public void read(PacketByteBufferInput buffer) {
+        this.server = buffer.readUTF8();
+        this.motd = buffer.readUTF8();
+        this.players = buffer.readInt();
+        this.uptime = buffer.readLong();
+    }
+
+    @Override
+    public Object getPacketKey() {
+        return server;
+    }
+
+    public String getServer() {
+        return server;
+    }
+
+    public String getMotd() {
+        return motd;
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+    public long getUptime() {
+        return uptime;
+    }
+}
@@ -0,0 +1,45 @@
+package com.pehenrii.packet.bridge;
+
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.KeyedPacket;
+
+@PacketInfo(name = "test-position-message", conflate = true)
+public class TestPositionMessage implements KeyedPacket {
+
+    private String player;
+    private int tick;
+
+    public TestPositionMessage() {}
+
+    public TestPositionMessage(String player, int tick) {
+        this.player = player;
+        this.tick = tick;
+    }
+
+    @Override
+    public void write(PacketByteBufferOutput buffer) {
+        buffer.writeUTF8(player);
+        buffer.writeInt(tick);
+    }
+
+    @Override
+    public void read(PacketByteBufferInput buffer) {
+        this.player = buffer.readUTF8();
+        this.tick = buffer.readInt();
+    }
+
+    @Override
+    public Object getPacketKey() {
+        return player;
+    }
+
+    public String getPlayer() {
+        return player;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+}
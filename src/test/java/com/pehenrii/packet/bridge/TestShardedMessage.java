@@ -0,0 +1,33 @@
+package com.pehenrii.packet.bridge;
+
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.Packet;
+
+@PacketInfo(name = "test-sharded-message", delivery = Delivery.SHARDED)
+public class TestShardedMessage implements Packet {
+
+    private String content;
+
+    public TestShardedMessage() {}
+
+    public TestShardedMessage(String content) {
+        this.content = content;
+    }
+
+    @Override
+    public void write(PacketByteBufferOutput buffer) {
+        buffer.writeUTF8(content);
+    }
+
+    @Override
+    public void read(PacketByteBufferInput buffer) {
+        this.content = buffer.readUTF8();
+    }
+
+    public String getContent() {
+        return content;
+    }
+}
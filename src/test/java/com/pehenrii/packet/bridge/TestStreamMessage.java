@@ -0,0 +1,33 @@
+package com.pehenrii.packet.bridge;
+
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.packet.Packet;
+
+@PacketInfo(name = "test-stream-message", delivery = Delivery.STREAM)
+public class TestStreamMessage implements Packet {
+
+    private int number;
+
+    public TestStreamMessage() {}
+
+    public TestStreamMessage(int number) {
+        this.number = number;
+    }
+
+    @Override
+    public void write(PacketByteBufferOutput buffer) {
+        buffer.writeVarInt(number);
+    }
+
+    @Override
+    public void read(PacketByteBufferInput buffer) {
+        this.number = buffer.readVarInt();
+    }
+
+    public int getNumber() {
+        return number;
+    }
+}
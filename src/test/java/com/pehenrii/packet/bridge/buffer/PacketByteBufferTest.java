@@ -0,0 +1,136 @@
+package com.pehenrii.packet.bridge.buffer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+class PacketByteBufferTest {
+
+    @Test
+    @DisplayName("Test Primitive Round Trip")
+    void shouldRoundTripPrimitives() {
+        for (boolean direct : new boolean[]{false, true}) {
+            UUID uniqueId = UUID.randomUUID();
+            PacketByteBufferOutput output = new PacketByteBufferOutput(16, direct)
+                    .writeByte((byte) -3)
+                    .writeBoolean(true)
+                    .writeShort((short) 1234)
+                    .writeInt(-42)
+                    .writeLong(Long.MAX_VALUE)
+                    .writeFloat(1.5f)
+                    .writeDouble(-2.25)
+                    .writeString("h\u00e9llo \u0000 w\u00f6rld \ud83d\ude00")
+                    .writeString(null)
+                    .writeString("\u00e7".repeat(40_000))
+                    .writeUUID(uniqueId)
+                    .writeEnum(Thread.State.BLOCKED);
+
+            PacketByteBufferInput input = new PacketByteBufferInput(output.toByteArray());
+            assert input.readByte() == -3 : "Bytes do not match";
+            assert input.readBoolean() : "Booleans do not match";
+            assert input.readShort() == 1234 : "Shorts do not match";
+            assert input.readInt() == -42 : "Ints do not match";
+            assert input.readLong() == Long.MAX_VALUE : "Longs do not match";
+            assert input.readFloat() == 1.5f : "Floats do not match";
+            assert input.readDouble() == -2.25 : "Doubles do not match";
+            assert "h\u00e9llo \u0000 w\u00f6rld \ud83d\ude00".equals(input.readString()) : "Strings do not match";
+            assert input.readString() == null : "Null string was not preserved";
+            assert "\u00e7".repeat(40_000).equals(input.readString()) : "Strings beyond 64 KB do not match";
+            assert uniqueId.equals(input.readUUID()) : "UUIDs do not match";
+            assert input.readEnum(Thread.State.class) == Thread.State.BLOCKED : "Enums do not match";
+        }
+    }
+
+    @Test
+    @DisplayName("Test Compact Encoding Round Trip")
+    void shouldRoundTripCompactEncoding() {
+        String large = "\u00e7".repeat(70_000);
+        byte[] bytes = {1, 2, 3, 4, 5};
+
+        PacketByteBufferOutput output = new PacketByteBufferOutput()
+                .writeVarInt(-1)
+                .writeVarInt(Integer.MIN_VALUE)
+                .writeVarLong(300L)
+                .writeVarLong(Long.MIN_VALUE)
+                .writeEnumOrdinal(Thread.State.WAITING)
+                .writeUTF8(large)
+                .writeUTF8(null)
+                .writeBytes(bytes, 1, 3);
+        output.writeList(List.of("a", "b"), output::writeUTF8);
+        output.writeMap(Map.of(1, 2L), output::writeVarInt, output::writeVarLong);
+
+        assert new PacketByteBufferOutput().writeVarInt(-1).size() == 1 : "Small negative varint is not compact";
+
+        PacketByteBufferInput input = new PacketByteBufferInput(output.toByteArray());
+        assert input.readVarInt() == -1 : "Varints do not match";
+        assert input.readVarInt() == Integer.MIN_VALUE : "Varints do not match";
+        assert input.readVarLong() == 300L : "Varlongs do not match";
+        assert input.readVarLong() == Long.MIN_VALUE : "Varlongs do not match";
+        assert input.readEnumOrdinal(Thread.State.class) == Thread.State.WAITING : "Enum ordinals do not match";
+        assert large.equals(input.readUTF8()) : "UTF-8 strings do not match";
+        assert input.readUTF8() == null : "Null UTF-8 string was not preserved";
+        assert Arrays.equals(input.readBytes(), new byte[]{2, 3, 4}) : "Byte slices do not match";
+        assert input.readList(PacketByteBufferInput::readUTF8).equals(List.of("a", "b")) : "Lists do not match";
+        assert input.readMap(PacketByteBufferInput::readVarInt, PacketByteBufferInput::readVarLong).equals(Map.of(1, 2L))
+                : "Maps do not match";
+        assert !input.isReadable() : "Unread bytes remain";
+    }
+
+    @Test
+    @DisplayName("Test Length-Prefixed Slices")
+    void shouldReadSlices() {
+        PacketByteBufferOutput output = new PacketByteBufferOutput(16, true);
+        for (int i = 0; i < 3; i++) {
+            PacketByteBufferOutput entry = new PacketByteBufferOutput();
+            entry.writeVarInt(i).writeUTF8("entry-" + i);
+            output.writeBytes(entry);
+        }
+
+        PacketByteBufferInput input = new PacketByteBufferInput(output.toByteArray());
+        for (int i = 0; i < 3; i++) {
+            PacketByteBufferInput slice = input.readSlice();
+            assert slice.readVarInt() == i : "Slice values do not match";
+            assert slice.readUTF8().equals("entry-" + i) : "Slice strings do not match";
+            assert !slice.isReadable() : "Slice has unread bytes";
+        }
+
+        assert !input.isReadable() : "Unread bytes remain";
+    }
+
+    @Test
+    @DisplayName("Test Pooled Buffer Reuse")
+    void shouldReusePooledBuffer() {
+        PacketBufferPool pool = new PacketBufferPool(32, 64, false);
+
+        PacketByteBufferOutput first = pool.acquire();
+        first.writeLong(1L);
+        PacketByteBufferOutput nested = pool.acquire();
+        assert nested != first : "Nested acquisition returned a buffer in use";
+        first.close();
+
+        PacketByteBufferOutput second = pool.acquire();
+        assert second == first : "Released buffer was not reused";
+        assert second.size() == 0 : "Reused buffer was not cleared";
+
+        second.writeString("x".repeat(200));
+        second.close();
+        assert pool.acquire().buffer().capacity() == 32 : "Oversized buffer was retained";
+    }
+
+    @Test
+    @DisplayName("Test Truncated Input Fails Fast")
+    void shouldRejectTruncatedInput() {
+        byte[] bytes = new PacketByteBufferOutput().writeString("truncated").toByteArray();
+        PacketByteBufferInput input = new PacketByteBufferInput(bytes, 0, bytes.length - 2);
+
+        try {
+            input.readString();
+            assert false : "Truncated string was read";
+        } catch (PacketDecodeException expected) {
+        }
+    }
+}
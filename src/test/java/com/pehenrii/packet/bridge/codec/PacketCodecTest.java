@@ -0,0 +1,82 @@
+package com.pehenrii.packet.bridge.codec;
+
+import com.pehenrii.packet.bridge.TestCodecMessage;
+import com.pehenrii.packet.bridge.TestMessage;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.registry.PacketRegistry;
+import com.pehenrii.packet.bridge.registry.PacketType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+class PacketCodecTest {
+
+    private static final List<TestCodecMessage> MESSAGES = List.of(
+            new TestCodecMessage(UUID.randomUUID(), "Hello, Codec!", 3, 1_700_000_000_000L, true, 0.5, (short) -2,
+                    TestCodecMessage.Mood.EXCITED, new byte[]{1, 2, 3}),
+            new TestCodecMessage(UUID.randomUUID(), null, Integer.MIN_VALUE, -1, false, Double.NaN, Short.MAX_VALUE, null, null),
+            new TestCodecMessage(UUID.randomUUID(), "ünïcødé 🚀 ".repeat(100), 1 << 20, Long.MAX_VALUE, true, -1e300,
+                    (short) 0, TestCodecMessage.Mood.CALM, new byte[300])
+    );
+
+    @Test
+    @DisplayName("Test Generated Codec Is Found")
+    void shouldFindGeneratedCodec() {
+        PacketCodec<TestCodecMessage> codec = PacketCodecs.find(TestCodecMessage.class);
+        assert codec != null : "Generated codec was not found";
+        assert codec.getClass().getName().equals("com.pehenrii.packet.bridge.TestCodecMessageCodec") : "Unexpected codec " + codec;
+        assert codec.newInstance() != null : "Codec did not create a packet";
+        assert PacketCodecs.find(TestMessage.class) == null : "Hand-written packet has a codec";
+
+        PacketType<TestCodecMessage> type = new PacketRegistry("test-channel").type(TestCodecMessage.class);
+        assert type.codec() == codec : "Packet type does not use the generated codec";
+    }
+
+    @Test
+    @DisplayName("Test Generated Codec Round Trip With Exact Sizes")
+    void shouldRoundTripWithExactSize() {
+        PacketCodec<TestCodecMessage> codec = PacketCodecs.find(TestCodecMessage.class);
+        assert codec != null : "Generated codec was not found";
+
+        for (TestCodecMessage message : MESSAGES) {
+            PacketByteBufferOutput output = new PacketByteBufferOutput();
+            codec.write(message, output);
+            assert output.size() == codec.sizeOf(message) : "Size " + codec.sizeOf(message) + " does not match written " + output.size();
+
+            PacketByteBufferInput input = new PacketByteBufferInput(output.toByteArray());
+            TestCodecMessage read = codec.newInstance();
+            codec.read(read, input);
+            assert !input.isReadable() : "Bytes were left unread";
+            assertEqual(message, read);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Packet Methods Delegate To The Generated Codec")
+    void shouldDelegatePacketMethods() {
+        TestCodecMessage message = MESSAGES.get(0);
+        PacketByteBufferOutput output = new PacketByteBufferOutput();
+        message.write(output);
+
+        TestCodecMessage read = new TestCodecMessage();
+        read.read(new PacketByteBufferInput(output.toByteArray()));
+        assertEqual(message, read);
+    }
+
+    private static void assertEqual(TestCodecMessage expected, TestCodecMessage actual) {
+        assert expected.getUniqueId().equals(actual.getUniqueId()) : "Unique IDs do not match";
+        assert Objects.equals(expected.getContent(), actual.getContent()) : "Contents do not match";
+        assert expected.getCount() == actual.getCount() : "Counts do not match";
+        assert expected.getTimestamp() == actual.getTimestamp() : "Timestamps do not match";
+        assert expected.isFlag() == actual.isFlag() : "Flags do not match";
+        assert Double.compare(expected.getRatio(), actual.getRatio()) == 0 : "Ratios do not match";
+        assert expected.getDelta() == actual.getDelta() : "Deltas do not match";
+        assert expected.getMood() == actual.getMood() : "Moods do not match";
+        assert Arrays.equals(expected.getAttachment(), actual.getAttachment()) : "Attachments do not match";
+    }
+}
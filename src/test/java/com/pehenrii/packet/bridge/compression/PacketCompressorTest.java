@@ -0,0 +1,84 @@
+package com.pehenrii.packet.bridge.compression;
+
+import com.pehenrii.packet.bridge.TestMessage;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.buffer.PacketDecodeException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+class PacketCompressorTest {
+
+    @Test
+    @DisplayName("Test Small Payloads Are Sent Raw")
+    void shouldSkipCompressionBelowThreshold() {
+        PacketCompressor compressor = new PacketCompressor(64, 3);
+        byte[] payload = serialize(new TestMessage(UUID.randomUUID(), "short", 1, true));
+
+        byte[] encoded = compressor.compress(TestMessage.class, payload);
+        assert encoded[0] == CompressionCodec.RAW.id() : "Small payload was compressed";
+        assert encoded.length == payload.length + 1 : "Raw payload has unexpected overhead";
+        assert Arrays.equals(toByteArray(compressor.decompress(TestMessage.class, encoded)), payload) : "Payloads do not match";
+    }
+
+    @Test
+    @DisplayName("Test Compressed Round Trip")
+    void shouldCompressLargePayloads() {
+        PacketCompressor compressor = new PacketCompressor(64, 3);
+        byte[] payload = serialize(new TestMessage(UUID.randomUUID(), "repeated ".repeat(100), 7, false));
+
+        byte[] encoded = compressor.compress(TestMessage.class, payload);
+        assert encoded[0] == CompressionCodec.ZSTD.id() : "Large payload was not compressed";
+        assert encoded.length < payload.length : "Compressed payload is not smaller";
+        assert Arrays.equals(toByteArray(compressor.decompress(TestMessage.class, encoded)), payload) : "Payloads do not match";
+    }
+
+    @Test
+    @DisplayName("Test Dictionary Round Trip")
+    void shouldCompressWithDictionary() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            samples.add(serialize(new TestMessage(UUID.randomUUID(), "server-" + (i % 32) + " status online, region sa-east-1, tps 20.0", i, i % 2 == 0)));
+        }
+
+        PacketCompressor compressor = new PacketCompressor(16, 3);
+        compressor.loadDictionary(TestMessage.class, PacketCompressor.trainDictionary(samples, 4096));
+
+        byte[] payload = serialize(new TestMessage(UUID.randomUUID(), "server-7 status online, region sa-east-1, tps 20.0", 42, true));
+        byte[] encoded = compressor.compress(TestMessage.class, payload);
+        assert encoded[0] == CompressionCodec.ZSTD_DICTIONARY.id() : "Payload was not compressed with the dictionary";
+        assert Arrays.equals(toByteArray(compressor.decompress(TestMessage.class, encoded)), payload) : "Payloads do not match";
+    }
+
+    @Test
+    @DisplayName("Test Payloads Announcing More Than The Limit Are Rejected")
+    void shouldRejectOversizedPayloads() {
+        PacketCompressor compressor = new PacketCompressor(64, 3, 1024, 1024);
+        PacketByteBufferOutput buffer = new PacketByteBufferOutput();
+        buffer.writeByte(CompressionCodec.ZSTD.id()).writeUnsignedVarInt(1025).writeBytes(new byte[16]);
+
+        try {
+            compressor.decompress(TestMessage.class, buffer.toByteArray());
+            assert false : "Oversized payload was decompressed";
+        } catch (PacketDecodeException e) {
+            assert e.getMessage().contains("1025") : "Unexpected message " + e.getMessage();
+        }
+    }
+
+    private static byte[] toByteArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] serialize(TestMessage message) {
+        PacketByteBufferOutput buffer = new PacketByteBufferOutput();
+        message.write(buffer);
+        return buffer.toByteArray();
+    }
+}
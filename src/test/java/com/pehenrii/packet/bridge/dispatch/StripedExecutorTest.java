@@ -0,0 +1,157 @@
+package com.pehenrii.packet.bridge.dispatch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class StripedExecutorTest {
+
+    @Test
+    @DisplayName("Test Order Is Preserved Per Key")
+    void shouldPreserveOrderPerKey() throws InterruptedException {
+        StripedExecutor executor = new StripedExecutor("test-stripes", 4);
+        int keys = 8;
+        int tasksPerKey = 1000;
+
+        List<List<Integer>> results = new ArrayList<>();
+        for (int key = 0; key < keys; key++) {
+            results.add(new ArrayList<>());
+        }
+
+        CountDownLatch latch = new CountDownLatch(keys * tasksPerKey);
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (int key = 0; key < keys; key++) {
+                int value = i;
+                List<Integer> result = results.get(key);
+                executor.execute(key, () -> {
+                    result.add(value);
+                    latch.countDown();
+                });
+            }
+        }
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Tasks did not complete in time";
+        executor.shutdown();
+
+        for (List<Integer> result : results) {
+            for (int i = 0; i < tasksPerKey; i++) {
+                assert result.get(i) == i : "Tasks ran out of order";
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test Slow Stripe Does Not Block Others")
+    void shouldRunStripesInParallel() throws InterruptedException {
+        StripedExecutor executor = new StripedExecutor("test-stripes", 2);
+        int slowKey = 0;
+        int fastKey = 1;
+        assert executor.stripe(slowKey) != executor.stripe(fastKey) : "Keys share a stripe";
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+        executor.execute(slowKey, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(fastKey, fastDone::countDown);
+
+        assert fastDone.await(5, TimeUnit.SECONDS) : "Fast stripe was blocked by slow stripe";
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test Full Stripe Applies Overflow Policy")
+    void shouldApplyOverflowPolicy() throws InterruptedException {
+        StripedExecutor dropping = new StripedExecutor("test-stripes", 1, 1, OverflowPolicy.DROP_NEWEST);
+        CountDownLatch release = blockStripe(dropping);
+
+        assert dropping.execute(0, () -> { }) : "Task within capacity was dropped";
+        assert !dropping.execute(0, () -> { }) : "Task beyond capacity was not dropped";
+
+        QueueStats stats = dropping.stats();
+        assert stats.depth() == 1 : "Expected one queued task but got " + stats.depth();
+        assert stats.dropped() == 1 : "Expected one dropped task but got " + stats.dropped();
+        release.countDown();
+        dropping.shutdown();
+
+        StripedExecutor rejecting = new StripedExecutor("test-stripes", 1, 1, OverflowPolicy.REJECT);
+        release = blockStripe(rejecting);
+        rejecting.execute(0, () -> { });
+
+        boolean rejected = false;
+        try {
+            rejecting.execute(0, () -> { });
+        } catch (RejectedExecutionException e) {
+            rejected = true;
+        }
+
+        assert rejected : "Task beyond capacity was not rejected";
+        assert rejecting.stats().rejected() == 1 : "Rejection was not counted";
+        release.countDown();
+        rejecting.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test Dropping The Oldest Task Spares Unbounded Tasks")
+    void shouldKeepUnboundedTasksWhenDroppingOldest() throws InterruptedException {
+        StripedExecutor executor = new StripedExecutor("test-stripes", 1, 1, OverflowPolicy.DROP_OLDEST);
+        CountDownLatch release = blockStripe(executor);
+
+        CountDownLatch handedOff = new CountDownLatch(1);
+        executor.executeUnbounded(0, handedOff::countDown);
+        for (int i = 0; i < 10; i++) {
+            assert executor.execute(0, () -> { }) : "Task was dropped instead of the oldest one";
+        }
+
+        assert executor.stats().dropped() == 9 : "Expected nine dropped tasks but got " + executor.stats().dropped();
+        release.countDown();
+        assert handedOff.await(5, TimeUnit.SECONDS) : "Unbounded task was dropped";
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test Tasks Dropped For Newer Ones Tell Their Submitter")
+    void shouldNotifyDroppedTasks() throws Exception {
+        StripedExecutor executor = new StripedExecutor("test-stripes", 1, 1, OverflowPolicy.DROP_OLDEST);
+        CountDownLatch release = blockStripe(executor);
+
+        AtomicInteger dropped = new AtomicInteger();
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            executor.execute(0, ran::incrementAndGet, dropped::incrementAndGet);
+        }
+
+        assert dropped.get() == 4 : "Expected four dropped tasks but got " + dropped.get();
+        release.countDown();
+        executor.shutdown();
+        assert executor.awaitTermination(5, TimeUnit.SECONDS) : "Executor did not terminate";
+        assert ran.get() == 1 : "Dropped tasks ran anyway: " + ran.get();
+    }
+
+    private static CountDownLatch blockStripe(StripedExecutor executor) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(0, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assert started.await(5, TimeUnit.SECONDS) : "Blocking task did not start";
+        return release;
+    }
+}
@@ -0,0 +1,134 @@
+package com.pehenrii.packet.bridge.frame;
+
+import com.pehenrii.packet.bridge.buffer.PacketDecodeException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+class FrameHeaderTest {
+
+    @Test
+    @DisplayName("Test Plain Header Round Trip")
+    void shouldRoundTripPlainHeader() {
+        byte[] frame = new byte[FrameHeader.plain().size() + 1];
+        FrameHeader.plain().write(frame);
+
+        FrameHeader header = FrameHeader.read(frame);
+        assert header == FrameHeader.plain() : "Plain header was not shared";
+        assert header.size() == 2 : "Unexpected plain header size " + header.size();
+
+        FrameHeader.batch().write(frame);
+        assert FrameHeader.read(frame) == FrameHeader.batch() : "Batch header was not shared";
+        assert FrameHeader.batch().isBatch() && !FrameHeader.plain().isBatch() : "Unexpected batch flags";
+    }
+
+    @Test
+    @DisplayName("Test Request And Response Header Round Trip")
+    void shouldRoundTripRequestHeaders() {
+        byte[] replyChannel = "base:reply:instance".getBytes();
+        long correlationId = Long.MAX_VALUE - 1;
+
+        FrameHeader request = FrameHeader.request(correlationId, replyChannel).withOrigin(-42L);
+        byte[] frame = new byte[request.size()];
+        request.write(frame);
+
+        FrameHeader read = FrameHeader.read(frame);
+        assert read.isRequest() && !read.isResponse() : "Request flag was not read";
+        assert read.correlationId() == correlationId : "Correlation id does not match";
+        assert Arrays.equals(read.replyChannel(), replyChannel) : "Reply channel does not match";
+        assert read.origin() == -42L : "Origin does not match";
+        assert read.size() == request.size() : "Header sizes do not match";
+
+        FrameHeader typed = FrameHeader.request(correlationId, replyChannel).withType(70_000);
+        frame = new byte[typed.size()];
+        typed.write(frame);
+
+        assert FrameHeader.readTypeId(frame) == 70_000 : "Peeked type id does not match";
+        read = FrameHeader.read(frame);
+        assert read.typeId() == 70_000 : "Type id does not match";
+        assert read.correlationId() == correlationId : "Correlation id does not match after type id";
+        assert FrameHeader.readTypeId(new byte[]{FrameHeader.VERSION, 0}) == -1 : "Untyped frame has a type id";
+
+        FrameHeader error = FrameHeader.error(300);
+        frame = new byte[error.size()];
+        error.write(frame);
+
+        read = FrameHeader.read(frame);
+        assert read.isResponse() && read.isError() : "Error flags were not read";
+        assert read.correlationId() == 300 : "Correlation id does not match";
+        assert read.replyChannel() == null : "Response carries a reply channel";
+    }
+
+    @Test
+    @DisplayName("Test Malformed Headers Are Rejected")
+    void shouldRejectMalformedHeaders() {
+        byte[][] frames = {
+                {},
+                {42, 0},
+                {FrameHeader.VERSION, FrameHeader.FLAG_REQUEST, 1, 10, 'a'},
+                {FrameHeader.VERSION, FrameHeader.FLAG_ENVELOPE, 1, 2, 3}
+        };
+
+        for (byte[] frame : frames) {
+            boolean rejected = false;
+            try {
+                FrameHeader.read(frame);
+            } catch (PacketDecodeException e) {
+                rejected = true;
+            }
+
+            assert rejected : "Malformed header was accepted: " + Arrays.toString(frame);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Envelope Round Trip")
+    void shouldRoundTripEnvelope() {
+        FrameHeader header = FrameHeader.request(7, "reply".getBytes()).withType(3).withEnvelope(12345, 2);
+        byte[] frame = new byte[header.size() + 1];
+        header.write(frame);
+        assert header.size() == 2 + FrameHeader.ENVELOPE_SIZE + 1 + 1 + 1 + 5 : "Unexpected header size " + header.size();
+
+        long now = System.currentTimeMillis();
+        FrameHeader.stamp(frame, 70_000, now);
+        assert FrameHeader.hasEnvelope(frame) : "Envelope was not found";
+        assert FrameHeader.readSender(frame) == 12345 : "Sender does not match";
+        assert FrameHeader.readLane(frame) == 2 : "Lane does not match";
+        assert FrameHeader.readSequence(frame) == (70_000 & 0xFFFF) : "Sequence was not truncated to 16 bits";
+        assert FrameHeader.readTimestamp(frame) == ((int) now & 0xFFFFFF) : "Timestamp does not match";
+        assert FrameHeader.readTypeId(frame) == 3 : "Type id was not found after the envelope";
+
+        FrameHeader read = FrameHeader.read(frame);
+        assert read.hasEnvelope() && read.sender() == 12345 && read.lane() == 2 : "Envelope was not read";
+        assert read.timestamp() == ((int) now & 0xFFFFFF) : "Timestamp was not read";
+        assert read.correlationId() == 7 : "Correlation id was not read after the envelope";
+        assert Arrays.equals(read.replyChannel(), "reply".getBytes()) : "Reply channel was not read after the envelope";
+
+        byte[] legacy = {1, 0, 'x'};
+        assert FrameHeader.read(legacy) == FrameHeader.plain() : "Version 1 frame was not read";
+        assert !FrameHeader.hasEnvelope(legacy) : "Version 1 frame has an envelope";
+    }
+
+    @Test
+    @DisplayName("Test Envelope Header Stays Below A Dozen Bytes")
+    void shouldKeepEnvelopeHeaderShort() {
+        FrameHeader header = FrameHeader.plain().withEnvelope(1, 0);
+        assert header.size() < 12 : "Header with an envelope takes " + header.size() + " bytes";
+
+        long now = System.currentTimeMillis();
+        assert FrameHeader.elapsedMillis((int) (now - 250) & 0xFFFFFF, now) == 250 : "Elapsed time does not match";
+        assert FrameHeader.elapsedMillis((int) (now + 40) & 0xFFFFFF, now) == -40 : "Clock skew was not kept negative";
+
+        // Version 3 envelopes hold 4 bytes of the send time
+        byte[] legacy = {3, FrameHeader.FLAG_ENVELOPE | FrameHeader.FLAG_TYPE, 0, 0, 0, 9, 0, 5, 0x12, 0x34, 0x56, 0x78, 42};
+        assert FrameHeader.hasEnvelope(legacy) : "Version 3 envelope was not found";
+        assert FrameHeader.readSequence(legacy) == 5 : "Version 3 sequence does not match";
+        assert FrameHeader.readTimestamp(legacy) == 0x345678 : "Version 3 timestamp was not truncated to 24 bits";
+        assert FrameHeader.readTypeId(legacy) == 42 : "Type id was not found after the version 3 envelope";
+
+        FrameHeader read = FrameHeader.read(legacy);
+        assert read.sender() == 9 && read.typeId() == 42 : "Version 3 header was not read";
+        assert read.lane() == -1 && FrameHeader.readLane(legacy) == -1 : "Version 3 frame has a lane";
+    }
+}
@@ -0,0 +1,57 @@
+package com.pehenrii.packet.bridge.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Test Bucket Bounds Cover Recorded Values Within 12.5%")
+    void shouldBoundValues() {
+        long[] values = {0, 1, 15, 16, 17, 100, 1_000, 123_456, 10_000_000_000L, Long.MAX_VALUE};
+        for (long value : values) {
+            long bound = LatencyHistogram.upperBound(LatencyHistogram.bucket(value));
+            assert bound >= value : "Bound " + bound + " is below " + value;
+            assert bound - value <= value / 8 : "Bound " + bound + " is too far above " + value;
+        }
+
+        for (int bucket = 1; bucket <= LatencyHistogram.bucket(Long.MAX_VALUE); bucket++) {
+            long lowest = LatencyHistogram.upperBound(bucket - 1) + 1;
+            assert LatencyHistogram.bucket(lowest) == bucket : "Value " + lowest + " is not in bucket " + bucket;
+        }
+    }
+
+    @Test
+    @DisplayName("Test Percentiles Of A Uniform Distribution")
+    void shouldReportPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assert snapshot.count() == 1_000 : "Unexpected count " + snapshot.count();
+        assert snapshot.meanNanos() == 500_500 : "Unexpected mean " + snapshot.meanNanos();
+        assert snapshot.maxNanos() == 1_000_000 : "Unexpected max " + snapshot.maxNanos();
+        assertWithin(snapshot.p50Nanos(), 500_000);
+        assertWithin(snapshot.p90Nanos(), 900_000);
+        assertWithin(snapshot.p99Nanos(), 990_000);
+    }
+
+    @Test
+    @DisplayName("Test Empty Histogram Reports Zeros")
+    void shouldReportEmptySnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assert snapshot.count() == 1 : "Negative value was not recorded";
+        assert snapshot.maxNanos() == 0 : "Negative value was not clamped";
+        assert new LatencyHistogram().snapshot() == LatencySnapshot.EMPTY : "Empty histogram has values";
+    }
+
+    private static void assertWithin(long reported, long expected) {
+        assert reported >= expected && reported <= expected + expected / 8
+                : "Percentile " + reported + " is not within 12.5% above " + expected;
+    }
+}
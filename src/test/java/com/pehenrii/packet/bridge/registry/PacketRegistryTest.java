@@ -0,0 +1,129 @@
+package com.pehenrii.packet.bridge.registry;
+
+import com.pehenrii.packet.bridge.TestMessage;
+import com.pehenrii.packet.bridge.TestMessageHandler;
+import com.pehenrii.packet.bridge.TestShardedMessage;
+import com.pehenrii.packet.bridge.annotation.PacketInfo;
+import com.pehenrii.packet.bridge.packet.Packet;
+import com.pehenrii.packet.bridge.packet.PacketHandler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class PacketRegistryTest {
+
+    @Test
+    @DisplayName("Test Channel Lookup And Instance Factory")
+    void shouldResolveRegisteredChannel() {
+        PacketRegistry registry = new PacketRegistry("test-channel");
+        registry.register(TestMessage.class, new TestMessageHandler(packet -> {}));
+
+        PacketRegistration<?> registration = registry.lookup("test-channel:test-message".getBytes());
+        assert registration != null : "Registered channel was not found";
+        assert registration.type().packetClass() == TestMessage.class : "Unexpected packet class";
+        assert registration.type().newInstance() instanceof TestMessage : "Factory created an unexpected instance";
+
+        assert registry.lookup("test-channel:unknown".getBytes()) == null : "Unknown channel was resolved";
+    }
+
+    @Test
+    @DisplayName("Test Unannotated Packet Is Rejected")
+    void shouldRejectUnannotatedPacket() {
+        PacketRegistry registry = new PacketRegistry("test-channel");
+        assert registry.typeIfAnnotated(UnannotatedPacket.class) == null : "Unannotated packet has a type";
+        assert registry.typeIfAnnotated(TestMessage.class) == registry.type(TestMessage.class) : "Annotated packet type was not cached";
+
+        try {
+            registry.type(UnannotatedPacket.class);
+            assert false : "Unannotated packet was accepted";
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    @DisplayName("Test Packet Without Codec Or Serialization Is Rejected")
+    void shouldRejectUnserializablePacket() {
+        PacketRegistry registry = new PacketRegistry("test-channel");
+
+        try {
+            registry.type(UnserializablePacket.class);
+            assert false : "Packet without write/read or codec was accepted";
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    @DisplayName("Test Multiplexed Type Lookup")
+    void shouldResolveMultiplexedTypes() {
+        PacketRegistry registry = new PacketRegistry("test-channel", true);
+        registry.register(TestMessage.class, new TestMessageHandler(packet -> {}));
+        registry.register(IdentifiedPacket.class, handler(IdentifiedPacket.class));
+
+        PacketType<TestMessage> hashed = registry.type(TestMessage.class);
+        PacketType<IdentifiedPacket> identified = registry.type(IdentifiedPacket.class);
+        assert hashed.multiplexed() && identified.multiplexed() : "Types were not multiplexed";
+        assert hashed.channel().equals("test-channel") : "Unexpected multiplexed channel " + hashed.channel();
+        assert identified.typeId() == 3 : "Explicit type id was not used";
+        assert hashed.typeId() == PacketRegistry.hashTypeId("test-message") : "Derived type id is not stable";
+        assert hashed.typeId() > PacketInfo.MAX_ID : "Derived type id overlaps explicit ids";
+        assert hashed.channelHash() != identified.channelHash() : "Multiplexed types share a receive stripe";
+
+        PacketType<TestShardedMessage> sharded = registry.type(TestShardedMessage.class);
+        assert !sharded.multiplexed() : "Sharded type was multiplexed";
+        assert sharded.channel().equals("test-channel:test-sharded-message") : "Unexpected sharded channel " + sharded.channel();
+
+        assert registry.lookup(3).type() == identified : "Explicit type id was not resolved";
+        assert registry.lookup(hashed.typeId()).type() == hashed : "Derived type id was not resolved";
+        assert registry.lookup(4) == null : "Unknown type id was resolved";
+
+        try {
+            registry.register(ClashingPacket.class, handler(ClashingPacket.class));
+            assert false : "Clashing type id was accepted";
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    @DisplayName("Test Indexed Packet Types Are Preloaded")
+    void shouldPreloadIndexedTypes() {
+        List<Class<? extends Packet>> indexed = PacketIndex.load(getClass().getClassLoader());
+        assert indexed.contains(TestMessage.class) : "Packet class was not indexed";
+        assert indexed.contains(IdentifiedPacket.class) : "Nested packet class was not indexed";
+        assert !indexed.contains(UnannotatedPacket.class) : "Unannotated class was indexed";
+
+        List<Class<? extends Packet>> valid = indexed.stream().filter(type -> type != UnserializablePacket.class).toList();
+        List<PacketType<?>> types = new PacketRegistry("test-channel").preload(valid);
+        assert types.size() == valid.size() : "Not every indexed type was resolved";
+        assert types.stream().anyMatch(type -> type.channel().equals("test-channel:test-message"))
+                : "Indexed type was resolved on an unexpected channel";
+    }
+
+    private static <T extends TestMessage> PacketHandler<T> handler(Class<T> packetClass) {
+        return new PacketHandler<>() {
+            @Override
+            public void onReceive(T packet) {
+            }
+
+            @Override
+            public Class<T> getPacketClass() {
+                return packetClass;
+            }
+        };
+    }
+
+    static class UnannotatedPacket extends TestMessage {
+    }
+
+    @PacketInfo(name = "identified", id = 3)
+    static class IdentifiedPacket extends TestMessage {
+    }
+
+    @PacketInfo(name = "clashing", id = 3)
+    static class ClashingPacket extends TestMessage {
+    }
+
+    @PacketInfo(name = "unserializable")
+    static class UnserializablePacket implements Packet {
+    }
+}
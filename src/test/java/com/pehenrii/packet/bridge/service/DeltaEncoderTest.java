@@ -0,0 +1,110 @@
+package com.pehenrii.packet.bridge.service;
+
+import com.pehenrii.packet.bridge.TestDeltaMessage;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferInput;
+import com.pehenrii.packet.bridge.buffer.PacketByteBufferOutput;
+import com.pehenrii.packet.bridge.registry.PacketRegistry;
+import com.pehenrii.packet.bridge.registry.PacketType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+class DeltaEncoderTest {
+
+    private final PacketType<TestDeltaMessage> type = new PacketRegistry("test-channel").type(TestDeltaMessage.class);
+
+    private static byte[] serialize(TestDeltaMessage message) {
+        PacketByteBufferOutput buffer = new PacketByteBufferOutput();
+        message.write(buffer);
+        return buffer.toByteArray();
+    }
+
+    private byte[] encode(DeltaEncoder encoder, TestDeltaMessage message) {
+        PacketByteBufferOutput record = new PacketByteBufferOutput();
+        encoder.encode(encoder.chain(type, message), serialize(message), record);
+        return record.toByteArray();
+    }
+
+    private TestDeltaMessage decode(DeltaDecoder decoder, byte[] record) {
+        PacketByteBufferInput buffer = decoder.decode(type, 1, new PacketByteBufferInput(record));
+        if (buffer == null) return null;
+
+        TestDeltaMessage message = new TestDeltaMessage();
+        message.read(buffer);
+        return message;
+    }
+
+    @Test
+    @DisplayName("Test Differences Rebuild The Sent Packets")
+    void shouldRoundTripDeltas() {
+        DeltaEncoder encoder = new DeltaEncoder(16);
+        DeltaDecoder decoder = new DeltaDecoder();
+
+        String motd = "Welcome to the lobby, have fun and be nice to each other!";
+        TestDeltaMessage[] messages = {
+                new TestDeltaMessage("lobby-1", motd, 10, 1_000),
+                new TestDeltaMessage("lobby-1", motd, 11, 2_000),
+                new TestDeltaMessage("lobby-1", motd.toUpperCase(), 11, 3_000),
+                new TestDeltaMessage("lobby-1", "Short", 12, 4_000),
+                new TestDeltaMessage("lobby-1", "Short", 12, 4_000)
+        };
+
+        int[] sizes = new int[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            byte[] record = encode(encoder, messages[i]);
+            sizes[i] = record.length;
+
+            TestDeltaMessage decoded = decode(decoder, record);
+            assert decoded != null : "Packet " + i + " was not rebuilt";
+            assert Arrays.equals(serialize(decoded), serialize(messages[i])) : "Packet " + i + " was rebuilt wrong";
+        }
+
+        int full = serialize(messages[0]).length;
+        assert sizes[1] < full / 4 : "Difference of one field takes " + sizes[1] + " of " + full + " bytes";
+        assert sizes[4] < 8 : "Unchanged packet takes " + sizes[4] + " bytes";
+    }
+
+    @Test
+    @DisplayName("Test Missed Frames Are Recovered At The Next Keyframe")
+    void shouldAwaitKeyframeAfterGap() {
+        DeltaEncoder encoder = new DeltaEncoder(4);
+        DeltaDecoder decoder = new DeltaDecoder();
+
+        byte[][] records = new byte[6][];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = encode(encoder, new TestDeltaMessage("survival", "Survival", i, i * 1_000L));
+        }
+
+        assert decode(decoder, records[0]) != null : "Keyframe was not decoded";
+        // Record 1 is lost
+        assert decode(decoder, records[2]) == null : "Difference from a missed packet was applied";
+        assert decode(decoder, records[3]) == null : "Difference after a gap was applied";
+
+        TestDeltaMessage keyframe = decode(decoder, records[4]);
+        assert keyframe != null && keyframe.getPlayers() == 4 : "Keyframe did not resume the chain";
+
+        TestDeltaMessage next = decode(decoder, records[5]);
+        assert next != null && next.getPlayers() == 5 : "Chain did not resume after the keyframe";
+
+        DeltaDecoder late = new DeltaDecoder();
+        assert decode(late, records[5]) == null : "Late receiver applied a difference without a keyframe";
+    }
+
+    @Test
+    @DisplayName("Test Keys Are Encoded On Separate Chains")
+    void shouldSeparateKeys() {
+        DeltaEncoder encoder = new DeltaEncoder(16);
+        DeltaDecoder decoder = new DeltaDecoder();
+
+        decode(decoder, encode(encoder, new TestDeltaMessage("lobby-1", "Lobby", 1, 0)));
+        decode(decoder, encode(encoder, new TestDeltaMessage("lobby-2", "Other lobby", 2, 0)));
+
+        TestDeltaMessage first = decode(decoder, encode(encoder, new TestDeltaMessage("lobby-1", "Lobby", 3, 0)));
+        TestDeltaMessage second = decode(decoder, encode(encoder, new TestDeltaMessage("lobby-2", "Other lobby", 4, 0)));
+
+        assert first != null && first.getMotd().equals("Lobby") && first.getPlayers() == 3 : "First key was rebuilt wrong";
+        assert second != null && second.getMotd().equals("Other lobby") && second.getPlayers() == 4
+                : "Second key was rebuilt wrong";
+    }
+}
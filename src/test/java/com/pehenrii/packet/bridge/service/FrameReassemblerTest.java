@@ -0,0 +1,75 @@
+package com.pehenrii.packet.bridge.service;
+
+import com.pehenrii.packet.bridge.frame.LargeFrame;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+class FrameReassemblerTest {
+
+    private static final byte[] CHANNEL = "test-channel:chat".getBytes();
+
+    private static byte[] frame(int length) {
+        byte[] frame = new byte[length];
+        ThreadLocalRandom.current().nextBytes(frame);
+        return frame;
+    }
+
+    @Test
+    @DisplayName("Test Chunks Are Reassembled Into Their Frame")
+    void shouldReassembleFrames() {
+        try (FrameReassembler reassembler = new FrameReassembler(Duration.ofSeconds(5), 1024 * 1024)) {
+            byte[] frame = frame(10_000);
+            List<byte[]> chunks = LargeFrame.split(frame, 1, 4096);
+            assert chunks.size() == 3 : "Unexpected chunk count " + chunks.size();
+
+            assert reassembler.add(CHANNEL, chunks.get(0)) == null : "Frame completed early";
+            assert reassembler.add(CHANNEL, chunks.get(1)) == null : "Frame completed early";
+            assert reassembler.heldBytes() == frame.length : "Room for the frame was not reserved";
+
+            byte[] reassembled = reassembler.add(CHANNEL, chunks.get(2));
+            assert Arrays.equals(reassembled, frame) : "Reassembled frame does not match";
+            assert reassembler.heldBytes() == 0 : "Room was not released";
+        }
+    }
+
+    @Test
+    @DisplayName("Test Frames Missing A Chunk Or Beyond The Limit Are Dropped")
+    void shouldDropIncompleteFrames() {
+        try (FrameReassembler reassembler = new FrameReassembler(Duration.ofSeconds(5), 16 * 1024)) {
+            List<byte[]> chunks = LargeFrame.split(frame(10_000), 1, 4096);
+            reassembler.add(CHANNEL, chunks.get(0));
+            assert reassembler.add(CHANNEL, chunks.get(2)) == null : "Frame missing a chunk was completed";
+            assert reassembler.heldBytes() == 0 : "Room of the dropped frame was not released";
+
+            List<byte[]> tooLarge = LargeFrame.split(frame(20_000), 2, 4096);
+            for (byte[] chunk : tooLarge) {
+                assert reassembler.add(CHANNEL, chunk) == null : "Frame beyond the limit was completed";
+            }
+
+            assert reassembler.heldBytes() == 0 : "Frame beyond the limit holds room";
+        }
+    }
+
+    @Test
+    @DisplayName("Test Incomplete Frames Expire")
+    void shouldExpireIncompleteFrames() throws Exception {
+        try (FrameReassembler reassembler = new FrameReassembler(Duration.ofMillis(50), 1024 * 1024)) {
+            List<byte[]> chunks = LargeFrame.split(frame(10_000), 1, 4096);
+            reassembler.add(CHANNEL, chunks.get(0));
+            reassembler.add(CHANNEL, chunks.get(1));
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (reassembler.heldBytes() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assert reassembler.heldBytes() == 0 : "Incomplete frame did not expire";
+            assert reassembler.add(CHANNEL, chunks.get(2)) == null : "Expired frame was completed";
+        }
+    }
+}
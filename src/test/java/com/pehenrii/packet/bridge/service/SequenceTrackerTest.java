@@ -0,0 +1,90 @@
+package com.pehenrii.packet.bridge.service;
+
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.frame.FrameHeader;
+import com.pehenrii.packet.bridge.metrics.SenderStats;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class SequenceTrackerTest {
+
+    private static final byte[] CHANNEL = "test-channel:chat".getBytes();
+
+    private static byte[] frame(int sender, int sequence) {
+        return frame(sender, Priority.NORMAL, sequence);
+    }
+
+    private static byte[] frame(int sender, Priority priority, int sequence) {
+        FrameHeader header = FrameHeader.plain().withEnvelope(sender, priority.ordinal());
+        byte[] frame = new byte[header.size()];
+        header.write(frame);
+        FrameHeader.stamp(frame, sequence, System.currentTimeMillis());
+        return frame;
+    }
+
+    @Test
+    @DisplayName("Test Gaps And Late Frames Are Counted Per Sender")
+    void shouldDetectGaps() {
+        SequenceTracker tracker = new SequenceTracker();
+        List<Integer> gaps = new ArrayList<>();
+        tracker.addListener((channel, sender, missing) -> gaps.add(missing));
+
+        for (int sequence : new int[]{10, 11, 14, 12, 15}) {
+            tracker.track(CHANNEL, frame(1, sequence));
+        }
+
+        tracker.track(CHANNEL, frame(2, 0));
+        tracker.track(CHANNEL, frame(2, 1));
+
+        assert gaps.equals(List.of(2)) : "Unexpected gaps " + gaps;
+
+        List<SenderStats> stats = tracker.snapshot();
+        assert stats.size() == 2 : "Senders were not tracked separately";
+
+        SenderStats first = stats.stream().filter(sender -> sender.sender() == 1).findFirst().orElseThrow();
+        assert first.channel().equals("test-channel:chat") : "Channel does not match";
+        assert first.frames() == 5 : "Unexpected frame count " + first.frames();
+        assert first.missing() == 2 : "Unexpected missing count " + first.missing();
+        assert first.late() == 1 : "Unexpected late count " + first.late();
+        assert first.lag().count() == 5 : "Lag was not recorded";
+    }
+
+    @Test
+    @DisplayName("Test The Lanes Of One Sender Are Tracked Separately")
+    void shouldTrackLanesSeparately() {
+        SequenceTracker tracker = new SequenceTracker();
+        List<Integer> senders = new ArrayList<>();
+        tracker.addListener((channel, sender, missing) -> senders.add(sender));
+
+        tracker.track(CHANNEL, frame(1, Priority.NORMAL, 0));
+        tracker.track(CHANNEL, frame(1, Priority.HIGH, 0));
+        tracker.track(CHANNEL, frame(1, Priority.NORMAL, 1));
+        tracker.track(CHANNEL, frame(1, Priority.HIGH, 2));
+
+        assert senders.equals(List.of(1)) : "Gap was not reported for the sender " + senders;
+
+        List<SenderStats> stats = tracker.snapshot();
+        assert stats.size() == 2 : "Lanes were not tracked separately: " + stats;
+        for (SenderStats lane : stats) {
+            assert lane.sender() == 1 : "Lane was tracked under another sender " + lane;
+            assert lane.missing() == (lane.priority() == Priority.HIGH ? 1 : 0) : "Unexpected missing count " + lane;
+        }
+    }
+
+    @Test
+    @DisplayName("Test Sequence Numbers Wrap Around")
+    void shouldWrapSequences() {
+        SequenceTracker tracker = new SequenceTracker();
+        tracker.track(CHANNEL, frame(1, 0xFFFE));
+        tracker.track(CHANNEL, frame(1, 0xFFFF));
+        tracker.track(CHANNEL, frame(1, 0x10000));
+        tracker.track(CHANNEL, frame(1, 0x10002));
+
+        SenderStats stats = tracker.snapshot().get(0);
+        assert stats.missing() == 1 : "Unexpected missing count across the wrap " + stats.missing();
+        assert stats.late() == 0 : "Wrapped frames were counted as late";
+    }
+}
@@ -0,0 +1,803 @@
+package com.pehenrii.packet.bridge.transport;
+
+import com.pehenrii.packet.bridge.PacketBridge;
+import com.pehenrii.packet.bridge.PacketBridgeOptions;
+import com.pehenrii.packet.bridge.TestCoalescedMessage;
+import com.pehenrii.packet.bridge.TestControlMessage;
+import com.pehenrii.packet.bridge.TestDeltaMessage;
+import com.pehenrii.packet.bridge.TestMessage;
+import com.pehenrii.packet.bridge.TestMessageHandler;
+import com.pehenrii.packet.bridge.TestPositionMessage;
+import com.pehenrii.packet.bridge.TestStreamMessage;
+import com.pehenrii.packet.bridge.annotation.Delivery;
+import com.pehenrii.packet.bridge.annotation.Priority;
+import com.pehenrii.packet.bridge.dispatch.OverflowPolicy;
+import com.pehenrii.packet.bridge.dispatch.QueueStats;
+import com.pehenrii.packet.bridge.frame.LargePayloadMode;
+import com.pehenrii.packet.bridge.metrics.MetricsSnapshot;
+import com.pehenrii.packet.bridge.metrics.SenderStats;
+import com.pehenrii.packet.bridge.metrics.TypeMetricsSnapshot;
+import com.pehenrii.packet.bridge.packet.Packet;
+import com.pehenrii.packet.bridge.packet.PacketHandler;
+import com.pehenrii.packet.bridge.packet.RequestHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+class LoopbackTransportTest {
+
+    private final LoopbackHub hub = new LoopbackHub();
+    private final List<PacketBridge> bridges = new ArrayList<>();
+
+    @AfterEach
+    void teardown() {
+        bridges.forEach(PacketBridge::shutdown);
+    }
+
+    private PacketBridge bridge(PacketBridgeOptions options) {
+        PacketBridge bridge = PacketBridge.create(hub.connect(), "test-channel", options);
+        bridges.add(bridge);
+        return bridge;
+    }
+
+    @Test
+    @DisplayName("Test Packets Travel Between Bridges Of One Hub")
+    void shouldDeliverBetweenBridges() throws Exception {
+        PacketBridge sender = bridge(PacketBridgeOptions.defaults());
+        PacketBridge receiver = bridge(PacketBridgeOptions.defaults());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<TestMessage> received = new AtomicReference<>();
+        receiver.registerPacket(TestMessage.class, new TestMessageHandler(packet -> {
+            received.set(packet);
+            latch.countDown();
+        }));
+
+        TestMessage sent = new TestMessage(UUID.randomUUID(), "Hello, Loopback!", 42, true);
+        long receivers = sender.sendPacket(sent).get(5, TimeUnit.SECONDS);
+        assert receivers == 1 : "Unexpected subscriber count " + receivers;
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Packet was not received in time";
+        assert received.get() != sent : "Remote bridge received the sent instance";
+        assert received.get().getUniqueId().equals(sent.getUniqueId()) : "Unique IDs do not match";
+        assert received.get().getContent().equals(sent.getContent()) : "Contents do not match";
+    }
+
+    @Test
+    @DisplayName("Test Request And Reply Over Loopback")
+    void shouldAnswerRequests() throws Exception {
+        PacketBridge requester = bridge(PacketBridgeOptions.defaults());
+        PacketBridge responder = bridge(PacketBridgeOptions.defaults());
+
+        responder.registerResponder(TestMessage.class, new RequestHandler<TestMessage, TestMessage>() {
+            @Override
+            public TestMessage onRequest(TestMessage request) {
+                return new TestMessage(request.getUniqueId(), "reply", request.getNumber() + 1, false);
+            }
+
+            @Override
+            public Class<TestMessage> getPacketClass() {
+                return TestMessage.class;
+            }
+        });
+
+        TestMessage reply = requester.request(new TestMessage(UUID.randomUUID(), "request", 7, false),
+                TestMessage.class, Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+        assert reply.getNumber() == 8 : "Reply does not match its request";
+    }
+
+    @Test
+    @DisplayName("Test Stream Packets Reach One Bridge")
+    void shouldDeliverStreamPacketsOnce() throws Exception {
+        int count = 100;
+        CountDownLatch latch = new CountDownLatch(count);
+        AtomicInteger handled = new AtomicInteger();
+
+        PacketHandler<TestStreamMessage> handler = new PacketHandler<>() {
+            @Override
+            public void onReceive(TestStreamMessage packet) {
+                handled.incrementAndGet();
+                latch.countDown();
+            }
+
+            @Override
+            public Class<TestStreamMessage> getPacketClass() {
+                return TestStreamMessage.class;
+            }
+        };
+
+        PacketBridge first = bridge(PacketBridgeOptions.defaults());
+        PacketBridge second = bridge(PacketBridgeOptions.defaults());
+        first.registerPacket(TestStreamMessage.class, handler);
+        second.registerPacket(TestStreamMessage.class, handler);
+
+        for (int i = 0; i < count; i++) {
+            first.sendPacket(new TestStreamMessage(i)).get(5, TimeUnit.SECONDS);
+        }
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Stream packets were not received in time";
+        Thread.sleep(100);
+        assert handled.get() == count : "Expected " + count + " handled packets but got " + handled.get();
+    }
+
+    @Test
+    @DisplayName("Test Local Delivery Skips The Transport")
+    void shouldDeliverLocallyOnce() throws Exception {
+        PacketBridge bridge = bridge(PacketBridgeOptions.builder().localDelivery(true).build());
+        PacketBridge remote = bridge(PacketBridgeOptions.defaults());
+
+        AtomicInteger localCount = new AtomicInteger();
+        AtomicReference<TestMessage> local = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        bridge.registerPacket(TestMessage.class, new TestMessageHandler(packet -> {
+            local.set(packet);
+            localCount.incrementAndGet();
+            latch.countDown();
+        }));
+        remote.registerPacket(TestMessage.class, new TestMessageHandler(packet -> latch.countDown()));
+
+        TestMessage sent = new TestMessage(UUID.randomUUID(), "local", 1, false);
+        bridge.sendPacket(sent).get(5, TimeUnit.SECONDS);
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Packet was not received in time";
+        Thread.sleep(100);
+        assert local.get() == sent : "Local handler did not receive the sent instance";
+        assert localCount.get() == 1 : "Local handler received the packet " + localCount.get() + " times";
+    }
+
+    @Test
+    @DisplayName("Test A Packet That Cannot Be Sent Fails Only Its Own Future")
+    void shouldFailOnlyUnsendablePackets() throws Exception {
+        PacketBridge bridge = bridge(PacketBridgeOptions.builder().localDelivery(true).build());
+        PacketBridge remote = bridge(PacketBridgeOptions.defaults());
+
+        AtomicInteger localCount = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(2);
+        bridge.registerPacket(TestMessage.class, new TestMessageHandler(packet -> {
+            localCount.incrementAndGet();
+            latch.countDown();
+        }));
+        remote.registerPacket(TestMessage.class, new TestMessageHandler(packet -> latch.countDown()));
+
+        List<CompletableFuture<Long>> sent = bridge.sendPackets(List.of(
+                new Packet() {},
+                new TestMessage(UUID.randomUUID(), "sendable", 1, false)));
+
+        assert sent.size() == 2 : "Unexpected futures " + sent;
+        assert sent.get(0).isCompletedExceptionally() : "Unregistered packet did not fail";
+        sent.get(1).get(5, TimeUnit.SECONDS);
+        assert latch.await(5, TimeUnit.SECONDS) : "Sendable packet was not received in time";
+        assert localCount.get() == 1 : "Local handler received the packet " + localCount.get() + " times";
+    }
+
+    @Test
+    @DisplayName("Test Coalesced Packets Keep Their Order")
+    void shouldCoalescePackets() throws Exception {
+        PacketBridge sender = bridge(PacketBridgeOptions.builder()
+                .coalesceLinger(Duration.ofMillis(50))
+                .coalesceMaxBytes(64)
+                .build());
+        PacketBridge receiver = bridge(PacketBridgeOptions.defaults());
+
+        int count = 100;
+        CountDownLatch latch = new CountDownLatch(count);
+        List<Integer> receivedNumbers = new ArrayList<>();
+        receiver.registerPacket(TestCoalescedMessage.class, new PacketHandler<>() {
+            @Override
+            public void onReceive(TestCoalescedMessage packet) {
+                synchronized (receivedNumbers) {
+                    receivedNumbers.add(packet.getNumber());
+                }
+                latch.countDown();
+            }
+
+            @Override
+            public Class<TestCoalescedMessage> getPacketClass() {
+                return TestCoalescedMessage.class;
+            }
+        });
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(sender.sendPacket(new TestCoalescedMessage(i)));
+        }
+
+        for (CompletableFuture<Long> future : futures) {
+            assert future.get(5, TimeUnit.SECONDS) == 1 : "Unexpected subscriber count";
+        }
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Packets were not received in time";
+        synchronized (receivedNumbers) {
+            for (int i = 0; i < count; i++) {
+                assert receivedNumbers.get(i) == i : "Packets were received out of order";
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test Multiplexed Bridges Share One Channel")
+    void shouldMultiplexPacketTypes() throws Exception {
+        PacketBridgeOptions options = PacketBridgeOptions.builder().multiplexed(true).build();
+        PacketBridge sender = bridge(options);
+        PacketBridge receiver = bridge(options);
+
+        CountDownLatch latch = new CountDownLatch(2);
+        AtomicReference<TestMessage> message = new AtomicReference<>();
+        AtomicInteger coalesced = new AtomicInteger(-1);
+        receiver.registerPacket(TestMessage.class, new TestMessageHandler(packet -> {
+            message.set(packet);
+            latch.countDown();
+        }));
+        receiver.registerPacket(TestCoalescedMessage.class, new PacketHandler<>() {
+            @Override
+            public void onReceive(TestCoalescedMessage packet) {
+                coalesced.set(packet.getNumber());
+                latch.countDown();
+            }
+
+            @Override
+            public Class<TestCoalescedMessage> getPacketClass() {
+                return TestCoalescedMessage.class;
+            }
+        });
+
+        sender.sendPacket(new TestMessage(UUID.randomUUID(), "multiplexed", 5, false)).get(5, TimeUnit.SECONDS);
+        sender.sendPacket(new TestCoalescedMessage(9)).get(5, TimeUnit.SECONDS);
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Packets were not received in time";
+        assert message.get().getNumber() == 5 : "Message was not dispatched to its handler";
+        assert coalesced.get() == 9 : "Coalesced packet was not dispatched to its handler";
+    }
+
+    @Test
+    @DisplayName("Test Metrics Count Sent And Received Packets")
+    void shouldCountPackets() throws Exception {
+        PacketBridge sender = bridge(PacketBridgeOptions.defaults());
+        PacketBridge receiver = bridge(PacketBridgeOptions.defaults());
+
+        CountDownLatch latch = new CountDownLatch(3);
+        receiver.registerPacket(TestMessage.class, new TestMessageHandler(packet -> latch.countDown()));
+
+        for (int i = 0; i < 3; i++) {
+            sender.sendPacket(new TestMessage(UUID.randomUUID(), "counted", i, false)).get(5, TimeUnit.SECONDS);
+        }
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Packets were not received in time";
+
+        TypeMetricsSnapshot sent = sender.metrics().types().get("test-message");
+        assert sent != null : "Sender has no metrics for the packet type";
+        assert sent.sent() == 3 : "Unexpected sent count " + sent.sent();
+        assert sent.serialize().count() == 3 : "Serialization latency was not recorded";
+        assert sent.publish().count() == 3 : "Publish latency was not recorded";
+        assert sent.bytesBeforeCompression() > 0 : "Serialized bytes were not counted";
+
+        TypeMetricsSnapshot received = receiver.metrics().types().get("test-message");
+        assert received != null : "Receiver has no metrics for the packet type";
+        assert received.received() == 3 : "Unexpected received count " + received.received();
+        assert received.failed() == 0 && received.dropped() == 0 : "Packets were counted as failed or dropped";
+        assert received.delivery().count() > 0 : "Delivery latency was not recorded";
+
+        MetricsSnapshot metrics = receiver.metrics();
+        assert metrics.senders().stream().anyMatch(stats -> stats.frames() >= 3) : "Sender frames were not tracked";
+        assert metrics.framesMissing() == 0 : "Frames were reported missing";
+    }
+
+    @Test
+    @DisplayName("Test Delta Packets Are Rebuilt By Receivers")
+    void shouldDeliverDeltaPackets() throws Exception {
+        // Without compression, so the frame sizes show what deltas save on their own
+        PacketBridge sender = bridge(PacketBridgeOptions.builder()
+                .deltaKeyframeInterval(8)
+                .compressionThreshold(Integer.MAX_VALUE)
+                .build());
+        PacketBridge receiver = bridge(PacketBridgeOptions.defaults());
+
+        int count = 10;
+        CountDownLatch latch = new CountDownLatch(count);
+        List<TestDeltaMessage> received = new ArrayList<>();
+        receiver.registerPacket(TestDeltaMessage.class, new PacketHandler<>() {
+            @Override
+            public void onReceive(TestDeltaMessage packet) {
+                synchronized (received) {
+                    received.add(packet);
+                }
+                latch.countDown();
+            }
+
+            @Override
+            public Class<TestDeltaMessage> getPacketClass() {
+                return TestDeltaMessage.class;
+            }
+        });
+
+        String motd = "A server status line long enough to dwarf the fields that change between sends";
+        for (int i = 0; i < count; i++) {
+            sender.sendPacket(new TestDeltaMessage("lobby-1", motd, i, i * 50L)).get(5, TimeUnit.SECONDS);
+        }
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Packets were not received in time";
+        synchronized (received) {
+            for (int i = 0; i < count; i++) {
+                TestDeltaMessage packet = received.get(i);
+                assert packet.getMotd().equals(motd) : "Unchanged field was not rebuilt";
+                assert packet.getPlayers() == i && packet.getUptime() == i * 50L : "Changed fields were not rebuilt";
+            }
+        }
+
+        TypeMetricsSnapshot sent = sender.metrics().types().get("test-delta-message");
+        assert sent.bytesAfterCompression() * 2 < sent.bytesBeforeCompression()
+                : "Deltas did not shrink the frames: " + sent.bytesAfterCompression() + " of " + sent.bytesBeforeCompression();
+        assert receiver.metrics().types().get("test-delta-message").deltasDiscarded() == 0 : "Deltas were discarded";
+    }
+
+    private static PacketHandler<TestPositionMessage> positionHandler(Consumer<TestPositionMessage> consumer) {
+        return new PacketHandler<>() {
+            @Override
+            public void onReceive(TestPositionMessage packet) {
+                consumer.accept(packet);
+            }
+
+            @Override
+            public Class<TestPositionMessage> getPacketClass() {
+                return TestPositionMessage.class;
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Test Senders Publish Only The Newest Packet Of Each Key Per Window")
+    void shouldConflateOnSend() throws Exception {
+        PacketBridge sender = bridge(PacketBridgeOptions.builder().conflationWindow(Duration.ofMillis(200)).build());
+        PacketBridge receiver = bridge(PacketBridgeOptions.defaults());
+
+        Map<String, Integer> latest = new ConcurrentHashMap<>();
+        AtomicInteger handled = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(2);
+        receiver.registerPacket(TestPositionMessage.class, positionHandler(packet -> {
+            handled.incrementAndGet();
+            latest.put(packet.getPlayer(), packet.getTick());
+            if (packet.getTick() == 99) {
+                latch.countDown();
+            }
+        }));
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int tick = 0; tick < 100; tick++) {
+            futures.add(sender.sendPacket(new TestPositionMessage("alice", tick)));
+            futures.add(sender.sendPacket(new TestPositionMessage("bob", tick)));
+        }
+
+        for (CompletableFuture<Long> future : futures) {
+            assert future.get(5, TimeUnit.SECONDS) == 1 : "Superseded packet did not complete with the newest one";
+        }
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Newest packets were not received in time";
+        assert latest.equals(Map.of("alice", 99, "bob", 99)) : "Unexpected newest packets " + latest;
+        assert handled.get() < 20 : "Sender published " + handled.get() + " of 200 packets";
+        assert sender.metrics().types().get("test-position-message").conflated() == 200 - handled.get()
+                : "Superseded packets were not counted";
+    }
+
+    @Test
+    @DisplayName("Test Receivers Handle Only The Newest Packet Of Each Key After A Backlog")
+    void shouldConflateOnReceive() throws Exception {
+        PacketBridge sender = bridge(PacketBridgeOptions.builder().conflationWindow(Duration.ZERO).build());
+        PacketBridge receiver = bridge(PacketBridgeOptions.defaults());
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Integer> ticks = new ArrayList<>();
+        receiver.registerConflated(TestPositionMessage.class, positionHandler(packet -> {
+            synchronized (ticks) {
+                ticks.add(packet.getTick());
+            }
+
+            if (packet.getTick() == 0) {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else if (packet.getTick() == 99) {
+                done.countDown();
+            }
+        }));
+
+        sender.sendPacket(new TestPositionMessage("alice", 0)).get(5, TimeUnit.SECONDS);
+        assert blocked.await(5, TimeUnit.SECONDS) : "First packet was not handled in time";
+
+        // The handler is busy, so these pile up behind it
+        for (int tick = 1; tick < 100; tick++) {
+            sender.sendPacket(new TestPositionMessage("alice", tick)).get(5, TimeUnit.SECONDS);
+        }
+
+        release.countDown();
+        assert done.await(5, TimeUnit.SECONDS) : "Newest packet was not handled in time";
+
+        synchronized (ticks) {
+            assert ticks.equals(List.of(0, 99)) : "Handler received stale packets " + ticks;
+        }
+
+        assert receiver.metrics().types().get("test-position-message").conflated() == 98 : "Superseded packets were not counted";
+    }
+
+    @Test
+    @DisplayName("Test Conflated Keys Keep Flowing After A Full Stripe Drops The Oldest Tasks")
+    void shouldDeliverConflatedKeysAfterDroppingOldest() throws Exception {
+        PacketBridge sender = bridge(PacketBridgeOptions.builder().conflationWindow(Duration.ZERO).build());
+        PacketBridge receiver = bridge(PacketBridgeOptions.builder()
+                .receiveParallelism(1)
+                .receiveQueueCapacity(2)
+                .receiveOverflowPolicy(OverflowPolicy.DROP_OLDEST)
+                .build());
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        receiver.registerConflated(TestPositionMessage.class, positionHandler(packet -> {
+            try {
+                if (packet.getTick() == 0) {
+                    blocked.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                } else if (packet.getTick() == 5000) {
+                    done.countDown();
+                } else {
+                    // Slow enough for the queued drain of the key to meet the next flood
+                    Thread.sleep(1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        sender.sendPacket(new TestPositionMessage("alice", 0)).get(5, TimeUnit.SECONDS);
+        assert blocked.await(5, TimeUnit.SECONDS) : "First packet was not handled in time";
+
+        for (int tick = 1; tick < 100; tick++) {
+            sender.sendPacket(new TestPositionMessage("alice", tick)).get(5, TimeUnit.SECONDS);
+        }
+
+        release.countDown();
+        for (int tick = 100; tick < 2000; tick++) {
+            sender.sendPacket(new TestPositionMessage("alice", tick)).get(5, TimeUnit.SECONDS);
+        }
+
+        assert receiver.metrics().receiveQueue().dropped() > 0 : "Stripe never overflowed";
+
+        // Send the last packet once the stripe had time to catch up, so nothing drops it
+        Thread.sleep(200);
+        sender.sendPacket(new TestPositionMessage("alice", 5000)).get(5, TimeUnit.SECONDS);
+        assert done.await(5, TimeUnit.SECONDS) : "Key was stuck after the stripe dropped its oldest tasks";
+    }
+
+    @Test
+    @DisplayName("Test High Priority Packets Bypass A Busy Normal Lane")
+    void shouldHandleHighPriorityPacketsFirst() throws Exception {
+        PacketBridge sender = bridge(PacketBridgeOptions.defaults());
+        PacketBridge receiver = bridge(PacketBridgeOptions.builder().receiveParallelism(1).build());
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger bulkHandled = new AtomicInteger();
+        receiver.registerPacket(TestMessage.class, new TestMessageHandler(packet -> {
+            blocked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            bulkHandled.incrementAndGet();
+        }));
+
+        CountDownLatch controlled = new CountDownLatch(1);
+        AtomicReference<String> command = new AtomicReference<>();
+        receiver.registerPacket(TestControlMessage.class, new PacketHandler<>() {
+            @Override
+            public void onReceive(TestControlMessage packet) {
+                command.set(packet.getCommand());
+                controlled.countDown();
+            }
+
+            @Override
+            public Class<TestControlMessage> getPacketClass() {
+                return TestControlMessage.class;
+            }
+        });
+
+        for (int i = 0; i < 10; i++) {
+            sender.sendPacket(new TestMessage(UUID.randomUUID(), "bulk", i, false));
+        }
+
+        assert blocked.await(5, TimeUnit.SECONDS) : "Bulk packet was not handled in time";
+        sender.sendPacket(new TestControlMessage("shutdown")).get(5, TimeUnit.SECONDS);
+
+        try {
+            assert controlled.await(5, TimeUnit.SECONDS) : "Control packet waited behind the busy normal lane";
+            assert "shutdown".equals(command.get()) : "Unexpected command " + command.get();
+            assert bulkHandled.get() == 0 : "Bulk packets were handled before the control packet";
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Test Priority Lanes Sharing A Channel Count Their Own Sequence Numbers")
+    void shouldTrackSequencesPerLane() throws Exception {
+        PacketBridgeOptions options = PacketBridgeOptions.builder().multiplexed(true).build();
+        HoldingTransport held = new HoldingTransport(hub.connect());
+        PacketBridge sender = PacketBridge.create(held, "test-channel", options);
+        bridges.add(sender);
+        PacketBridge receiver = bridge(options);
+
+        CountDownLatch latch = new CountDownLatch(2);
+        receiver.registerPacket(TestMessage.class, new TestMessageHandler(packet -> latch.countDown()));
+        receiver.registerPacket(TestControlMessage.class, new PacketHandler<>() {
+            @Override
+            public void onReceive(TestControlMessage packet) {
+                latch.countDown();
+            }
+
+            @Override
+            public Class<TestControlMessage> getPacketClass() {
+                return TestControlMessage.class;
+            }
+        });
+
+        // The normal frame is sent first but reaches the channel after the high priority one
+        CompletableFuture<Long> normal = sender.sendPacket(new TestMessage(UUID.randomUUID(), "bulk", 1, false));
+        sender.sendPacket(new TestControlMessage("shutdown")).get(5, TimeUnit.SECONDS);
+        held.release();
+        normal.get(5, TimeUnit.SECONDS);
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Packets were not received in time";
+        List<SenderStats> senders = receiver.metrics().senders();
+        assert senders.size() == 2 : "Lanes were not tracked separately: " + senders;
+        assert senders.get(0).sender() == senders.get(1).sender() : "Lanes were taken for different senders: " + senders;
+        Set<Priority> lanes = senders.stream().map(SenderStats::priority).collect(Collectors.toSet());
+        assert lanes.equals(Set.of(Priority.HIGH, Priority.NORMAL)) : "Lanes were not told apart: " + senders;
+        for (SenderStats stats : senders) {
+            assert stats.missing() == 0 && stats.late() == 0 : "Lane frames were taken for lost or late: " + stats;
+        }
+    }
+
+    @Test
+    @DisplayName("Test Bulk Sends Batch Each Priority On Its Own Lane")
+    void shouldBatchEachPriorityOnItsLane() throws Exception {
+        HoldingTransport held = new HoldingTransport(hub.connect());
+        PacketBridge sender = PacketBridge.create(held, "test-channel", PacketBridgeOptions.defaults());
+        bridges.add(sender);
+        PacketBridge receiver = bridge(PacketBridgeOptions.defaults());
+
+        CountDownLatch bulk = new CountDownLatch(1);
+        CountDownLatch controlled = new CountDownLatch(2);
+        receiver.registerPacket(TestMessage.class, new TestMessageHandler(packet -> bulk.countDown()));
+        receiver.registerPacket(TestControlMessage.class, new PacketHandler<>() {
+            @Override
+            public void onReceive(TestControlMessage packet) {
+                controlled.countDown();
+            }
+
+            @Override
+            public Class<TestControlMessage> getPacketClass() {
+                return TestControlMessage.class;
+            }
+        });
+
+        List<CompletableFuture<Long>> sent = sender.sendPackets(List.of(
+                new TestMessage(UUID.randomUUID(), "bulk", 1, false),
+                new TestControlMessage("pause"),
+                new TestControlMessage("resume")));
+
+        assert controlled.await(5, TimeUnit.SECONDS) : "Control packets waited behind the held normal lane";
+        assert held.batched.equals(List.of(Priority.HIGH, Priority.NORMAL)) : "Unexpected batches " + held.batched;
+
+        held.release();
+        for (CompletableFuture<Long> future : sent) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+
+        assert bulk.await(5, TimeUnit.SECONDS) : "Normal packet was not received in time";
+    }
+
+    @Test
+    @DisplayName("Test Handlers Registered Together Receive Once Subscribed")
+    void shouldRegisterAllHandlers() throws Exception {
+        PacketBridge sender = bridge(PacketBridgeOptions.defaults());
+        PacketBridge receiver = bridge(PacketBridgeOptions.defaults());
+
+        CountDownLatch latch = new CountDownLatch(2);
+        receiver.registerAll(List.of(
+                new TestMessageHandler(packet -> latch.countDown()),
+                positionHandler(packet -> latch.countDown())
+        )).get(5, TimeUnit.SECONDS);
+
+        long receivers = sender.sendPacket(new TestMessage(UUID.randomUUID(), "Registered together", 1, true))
+                .get(5, TimeUnit.SECONDS);
+        assert receivers == 1 : "Unexpected subscriber count " + receivers;
+        sender.sendPacket(new TestPositionMessage("player-1", 1)).get(5, TimeUnit.SECONDS);
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Packets of handlers registered together were not received in time";
+        // Channels subscribed before complete at once
+        receiver.registerAll(List.of(new TestMessageHandler(packet -> {}))).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Test Large Packets Are Sent In Chunks And Reassembled")
+    void shouldReassembleChunkedPackets() throws Exception {
+        assertLargePacketDelivered(LargePayloadMode.CHUNKED);
+    }
+
+    @Test
+    @DisplayName("Test Large Packets Are Stored And Fetched By Reference")
+    void shouldFetchClaimCheckedPackets() throws Exception {
+        assertLargePacketDelivered(LargePayloadMode.CLAIM_CHECK);
+    }
+
+    @Test
+    @DisplayName("Test Packets Sent After A Claim-Checked Packet Wait For Its Fetch")
+    void shouldKeepOrderBehindClaimCheckedPackets() throws Exception {
+        PacketBridgeOptions options = PacketBridgeOptions.builder()
+                .largePayloadThreshold(64 * 1024)
+                .largePayloadMode(LargePayloadMode.CLAIM_CHECK)
+                .build();
+        PacketBridge sender = bridge(options);
+        HoldingTransport held = new HoldingTransport(hub.connect());
+        PacketBridge receiver = PacketBridge.create(held, "test-channel", options);
+        bridges.add(receiver);
+
+        CountDownLatch latch = new CountDownLatch(3);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        receiver.registerPacket(TestMessage.class, new TestMessageHandler(packet -> {
+            received.add(packet.getNumber());
+            latch.countDown();
+        }));
+
+        StringBuilder content = new StringBuilder();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (content.length() < 256 * 1024) {
+            content.append((char) random.nextInt(0x20, 0x3000));
+        }
+
+        sender.sendPacket(new TestMessage(UUID.randomUUID(), content.toString(), 1, true)).get(5, TimeUnit.SECONDS);
+        sender.sendPacket(new TestMessage(UUID.randomUUID(), "Small", 2, false)).get(5, TimeUnit.SECONDS);
+        sender.sendPacket(new TestMessage(UUID.randomUUID(), "Small", 3, false)).get(5, TimeUnit.SECONDS);
+
+        Thread.sleep(100);
+        assert received.isEmpty() : "Packets overtook the claim-checked packet " + received;
+
+        held.release();
+        assert latch.await(5, TimeUnit.SECONDS) : "Packets were not received in time";
+        assert received.equals(List.of(1, 2, 3)) : "Packets were handled out of order " + received;
+
+        List<SenderStats> senders = receiver.metrics().senders();
+        assert senders.size() == 1 : "Unexpected senders " + senders;
+        for (SenderStats stats : senders) {
+            assert stats.frames() == 3 && stats.missing() == 0 && stats.late() == 0 : "Reference was not tracked on arrival: " + stats;
+        }
+    }
+
+    private void assertLargePacketDelivered(LargePayloadMode mode) throws Exception {
+        PacketBridgeOptions options = PacketBridgeOptions.builder()
+                .largePayloadThreshold(64 * 1024)
+                .largePayloadMode(mode)
+                .chunkSize(16 * 1024)
+                .build();
+        PacketBridge sender = bridge(options);
+        PacketBridge receiver = bridge(options);
+
+        CountDownLatch latch = new CountDownLatch(2);
+        List<TestMessage> received = new CopyOnWriteArrayList<>();
+        receiver.registerPacket(TestMessage.class, new TestMessageHandler(packet -> {
+            received.add(packet);
+            latch.countDown();
+        }));
+
+        // Random characters keep the frame above the threshold after compression
+        StringBuilder content = new StringBuilder();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (content.length() < 1024 * 1024) {
+            content.append((char) random.nextInt(0x20, 0x3000));
+        }
+
+        sender.sendPacket(new TestMessage(UUID.randomUUID(), content.toString(), 1, true)).get(5, TimeUnit.SECONDS);
+        sender.sendPacket(new TestMessage(UUID.randomUUID(), "Small", 2, false)).get(5, TimeUnit.SECONDS);
+
+        assert latch.await(5, TimeUnit.SECONDS) : "Packets were not received in time";
+        TestMessage large = received.stream().filter(packet -> packet.getNumber() == 1).findFirst().orElseThrow();
+        assert large.getContent().equals(content.toString()) : "Large content does not match";
+    }
+
+    /**
+     * Holds back the frames of the normal lane and the fetches of stored payloads until released,
+     * as a busy lane or a slow Redis server would.
+     */
+    private static final class HoldingTransport implements PacketTransport {
+
+        private final PacketTransport delegate;
+        private final CompletableFuture<Void> released = new CompletableFuture<>();
+        private final List<Priority> batched = new CopyOnWriteArrayList<>();
+
+        private HoldingTransport(PacketTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        void release() {
+            released.complete(null);
+        }
+
+        @Override
+        public void start(FrameReceiver receiver) {
+            delegate.start(receiver);
+        }
+
+        @Override
+        public CompletableFuture<Void> subscribe(byte[] channel, Delivery delivery) {
+            return delegate.subscribe(channel, delivery);
+        }
+
+        @Override
+        public CompletableFuture<Long> publish(byte[] channel, byte[] frame, Delivery delivery) {
+            return publish(channel, frame, delivery, Priority.NORMAL);
+        }
+
+        @Override
+        public CompletableFuture<Long> publish(byte[] channel, byte[] frame, Delivery delivery, Priority priority) {
+            if (priority != Priority.NORMAL) return delegate.publish(channel, frame, delivery, priority);
+            return released.thenCompose(ignored -> delegate.publish(channel, frame, delivery, priority));
+        }
+
+        @Override
+        public List<CompletableFuture<Long>> publishAll(List<byte[]> channels, List<byte[]> frames, List<Delivery> deliveries,
+                                                        Priority priority) {
+            batched.add(priority);
+            List<CompletableFuture<Long>> futures = new ArrayList<>(frames.size());
+            for (int i = 0; i < frames.size(); i++) {
+                futures.add(publish(channels.get(i), frames.get(i), deliveries.get(i), priority));
+            }
+
+            return futures;
+        }
+
+        @Override
+        public CompletableFuture<Long> publishStored(byte[] key, byte[] payload, Duration ttl, byte[] channel,
+                                                     byte[] reference, Delivery delivery, Priority priority,
+                                                     Runnable stamp) {
+            return delegate.publishStored(key, payload, ttl, channel, reference, delivery, priority, stamp);
+        }
+
+        @Override
+        public CompletableFuture<byte[]> fetchPayload(byte[] key) {
+            return released.thenCompose(ignored -> delegate.fetchPayload(key));
+        }
+
+        @Override
+        public QueueStats sendQueueStats() {
+            return delegate.sendQueueStats();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}